@@ -0,0 +1,61 @@
+package com.podcast.indexer.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sizes the connection pool for the roles this process runs, from
+ * {@code podcast.db-pool-size.<role>}, so an API replica gets enough connections
+ * for concurrent queries while a worker replica does not hold idle ones. An explicit
+ * {@code spring.datasource.hikari.maximum-pool-size} takes precedence.
+ */
+@Component
+@Slf4j
+public class DataSourcePoolSizer implements BeanPostProcessor, EnvironmentAware {
+
+    private static final String EXPLICIT_POOL_SIZE = "spring.datasource.hikari.maximum-pool-size";
+    private static final String POOL_SIZES = "podcast.db-pool-size";
+
+    private Environment environment;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource && !environment.containsProperty(EXPLICIT_POOL_SIZE)) {
+            int poolSize = poolSize(environment);
+            dataSource.setMaximumPoolSize(poolSize);
+            log.info("Sizing connection pool to {} for roles {}", poolSize, OnRoleCondition.activeRoles(environment));
+        }
+        return bean;
+    }
+
+    static int poolSize(Environment environment) {
+        Set<Role> roles = OnRoleCondition.activeRoles(environment);
+        // The defaults live in application.properties only
+        Map<Role, Integer> configured = Binder.get(environment)
+                .bind(POOL_SIZES, Bindable.mapOf(Role.class, Integer.class))
+                .orElse(Map.of());
+        return roles.stream()
+                .mapToInt(role -> {
+                    Integer size = configured.get(role);
+                    if (size == null) {
+                        throw new IllegalStateException(POOL_SIZES + "." + role.name().toLowerCase() + " is not set");
+                    }
+                    return size;
+                })
+                .sum();
+    }
+}
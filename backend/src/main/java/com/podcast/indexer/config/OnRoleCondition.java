@@ -0,0 +1,33 @@
+package com.podcast.indexer.config;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+class OnRoleCondition implements Condition {
+
+    static final String ROLES_PROPERTY = "podcast.roles";
+
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        Map<String, Object> attributes = metadata.getAnnotationAttributes(ConditionalOnRole.class.getName());
+        return attributes != null && activeRoles(context.getEnvironment()).contains((Role) attributes.get("value"));
+    }
+
+    /**
+     * Roles of this process; all of them unless {@code podcast.roles} narrows it down.
+     */
+    static Set<Role> activeRoles(Environment environment) {
+        return Binder.get(environment)
+                .bind(ROLES_PROPERTY, Bindable.setOf(Role.class))
+                .map(roles -> roles.isEmpty() ? EnumSet.allOf(Role.class) : EnumSet.copyOf(roles))
+                .orElseGet(() -> EnumSet.allOf(Role.class));
+    }
+}
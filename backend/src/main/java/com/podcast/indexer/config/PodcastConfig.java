@@ -11,7 +11,13 @@ public class PodcastConfig {
     private Audio audio = new Audio();
     private Whisper whisper = new Whisper();
     private Ollama ollama = new Ollama();
+    private Embedding embedding = new Embedding();
     private Vector vector = new Vector();
+    private Indexing indexing = new Indexing();
+    private Feed feed = new Feed();
+    private Pipeline pipeline = new Pipeline();
+    private Cluster cluster = new Cluster();
+    private Partitioning partitioning = new Partitioning();
     
     @Data
     public static class Audio {
@@ -31,13 +37,14 @@ public class PodcastConfig {
         @Data
         public static class Service {
             private String url = "http://whisper-service:8000";
+            private int connectTimeoutSeconds = 10;
+            private int readTimeoutSeconds = 0; // 0 = wait for the transcription indefinitely
         }
     }
     
     @Data
     public static class Ollama {
         private Service service = new Service();
-        private Embedding embedding = new Embedding();
         private Chat chat = new Chat();
         
         @Data
@@ -46,13 +53,24 @@ public class PodcastConfig {
         }
         
         @Data
-        public static class Embedding {
-            private String model = "nomic-embed-text";
+        public static class Chat {
+            private String model = "llama2";
         }
+    }
+    
+    @Data
+    public static class Embedding {
+        // "onnx:<model>" or "hashing:<dimensions>"; anything else is an Ollama model
+        private String model = "nomic-embed-text";
+        private Onnx onnx = new Onnx();
         
         @Data
-        public static class Chat {
-            private String model = "llama2";
+        public static class Onnx {
+            private String modelDir = "/app/models"; // One directory per model, with model.onnx and vocab.txt
+            private int threads = 4;
+            private int batchSize = 32;
+            private int maxSequenceLength = 512;
+            private boolean lowercase = true; // For uncased vocabularies
         }
     }
     
@@ -63,6 +81,104 @@ public class PodcastConfig {
         @Data
         public static class Search {
             private int topK = 5;
+            private int maxResults = 100;
+            // Filters matching fewer chunks are ranked exactly instead of through the index
+            private int exactScanThreshold = 20000;
+            private int efSearch = 100;
+            // Rank episodes by their centroid first, then only the chunks of the best ones
+            private boolean hierarchical = true;
+            private int candidateEpisodes = 20;
+        }
+    }
+    
+    @Data
+    public static class Indexing {
+        private EmbeddingCache embeddingCache = new EmbeddingCache();
+        private Boilerplate boilerplate = new Boilerplate();
+        private Chunking chunking = new Chunking();
+        private Reembedding reembedding = new Reembedding();
+        
+        @Data
+        public static class EmbeddingCache {
+            private boolean enabled = true;
+            private int ttlDays = 30;
+        }
+        
+        @Data
+        public static class Boilerplate {
+            private boolean enabled = true;
+            private int minEpisodes = 3; // Chunks seen in this many episodes are not indexed
+            private int ttlDays = 180;
+        }
+        
+        @Data
+        public static class Chunking {
+            private String strategy = "token-window"; // or "segment-count", ten segments per chunk
+            private int targetTokens = 320;
+            private int overlapTokens = 32;
+            private int maxTokens = 2048; // Context window of the embedding model
+        }
+        
+        @Data
+        public static class Reembedding {
+            // Chunks re-embedded per run after the embedding model changed
+            private int batchSize = 32;
+            private long intervalMs = 2000;
+        }
+    }
+    
+    @Data
+    public static class Feed {
+        private int connectTimeoutSeconds = 10;
+        private int requestTimeoutSeconds = 30;
+        private String userAgent = "podcast-indexer/1.0";
+        private Polling polling = new Polling();
+        private OpmlImport opmlImport = new OpmlImport();
+        
+        @Data
+        public static class Polling {
+            private boolean enabled = true;
+            private int minIntervalMinutes = 15;
+            private int maxIntervalHours = 24;
+            private int defaultIntervalHours = 4;
+            private int pollsPerRelease = 4; // Polls per observed publishing interval
+            private double jitter = 0.15;
+            private int batchSize = 100;
+            private int maxFeedsPerRun = 1000;
+            private int leaseMinutes = 60; // Keeps a queued feed from being enqueued again
+        }
+        
+        @Data
+        public static class OpmlImport {
+            private int concurrency = 16;
+            private int perHostConcurrency = 2;
+            private int batchSize = 100;
+            private int statusTtlDays = 7;
         }
     }
+    
+    @Data
+    public static class Pipeline {
+        private double maxAudioStorageGb = 50; // Downloads pause above this much audio on disk
+        private int maxEpisodesAwaitingTranscription = 20; // Downloaded but not yet transcribed
+        private int maxEpisodesAwaitingIndexing = 50; // Transcribed but not yet indexed
+        private int checkIntervalSeconds = 15;
+        private int stuckAfterMinutes = 60; // No progress for this long means the worker died
+        private int claimSeconds = 120; // A dead worker's claim on a job expires after this long
+        private int recoveryBatchSize = 500;
+    }
+    
+    @Data
+    public static class Cluster {
+        private String nodeId; // Random per start when empty; must not contain '|'
+        private int leaseSeconds = 120; // Longer than the scheduler delays, so a live leader keeps its lease
+    }
+    
+    @Data
+    public static class Partitioning {
+        // List-partitions chunks and transcript blocks by podcast; converting existing tables is one-way
+        private boolean enabled = false;
+        // Longest wait for the locks that attach and detach take on the partitioned tables
+        private long lockTimeoutMs = 5000;
+    }
 }
@@ -1,18 +1,24 @@
 package com.podcast.indexer.config;
 
+import com.podcast.indexer.util.MultipartFileUploader;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestClient;
 
+import java.net.URI;
+import java.time.Duration;
+
 @Configuration
 public class RestClientConfig {
     
     @Bean
-    public RestClient whisperRestClient(@Value("${podcast.whisper.service.url}") String whisperUrl) {
-        return RestClient.builder()
-                .baseUrl(whisperUrl)
-                .build();
+    public MultipartFileUploader whisperUploader(PodcastConfig config) {
+        PodcastConfig.Whisper.Service service = config.getWhisper().getService();
+        return new MultipartFileUploader(
+                URI.create(service.getUrl()),
+                Duration.ofSeconds(service.getConnectTimeoutSeconds()),
+                Duration.ofSeconds(service.getReadTimeoutSeconds()));
     }
     
     @Bean
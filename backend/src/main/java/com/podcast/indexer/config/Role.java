@@ -0,0 +1,10 @@
+package com.podcast.indexer.config;
+
+/**
+ * Parts of the application a process can run, selected with {@code podcast.roles}.
+ */
+public enum Role {
+    API,        // REST controllers
+    WORKER,     // Job queue consumer (sync, download, transcribe, index)
+    SCHEDULER   // Singleton background tasks (feed polling, stuck-episode recovery)
+}
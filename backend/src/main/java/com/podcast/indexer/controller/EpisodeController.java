@@ -0,0 +1,41 @@
+package com.podcast.indexer.controller;
+
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.service.JobQueueService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Optional;
+
+@RestController
+@ConditionalOnRole(Role.API)
+@RequestMapping("/api/episodes")
+@RequiredArgsConstructor
+public class EpisodeController {
+    
+    private final EpisodeRepository episodeRepository;
+    private final JobQueueService jobQueueService;
+    
+    @PostMapping("/{id}/expedite")
+    public ResponseEntity<Void> expediteEpisode(@PathVariable Long id) {
+        Optional<Episode> found = episodeRepository.findById(id);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Episode episode = found.get();
+        episode.setExpedited(true);
+        episodeRepository.save(episode);
+        
+        int moved = jobQueueService.expediteEpisode(id);
+        if (moved == 0 && episode.getStatus() == ProcessingStatus.DISCOVERED) {
+            // No download pending (e.g. lost or not yet queued), so start one
+            jobQueueService.queueDownloadAudioJob(id);
+        }
+        return ResponseEntity.accepted().build();
+    }
+}
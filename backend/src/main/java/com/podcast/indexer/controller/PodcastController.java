@@ -1,21 +1,47 @@
 package com.podcast.indexer.controller;
 
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
 import com.podcast.indexer.dto.AddPodcastRequest;
+import com.podcast.indexer.dto.EpisodePageResponse;
 import com.podcast.indexer.dto.EpisodeResponse;
+import com.podcast.indexer.dto.OpmlImportResponse;
+import com.podcast.indexer.dto.PipelineStatsResponse;
 import com.podcast.indexer.dto.PodcastResponse;
-import com.podcast.indexer.model.Episode;
 import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.repository.EpisodeFilter;
 import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.EpisodeRepositoryCustom;
 import com.podcast.indexer.repository.PodcastRepository;
+import com.podcast.indexer.service.EpisodeEventStreamService;
+import com.podcast.indexer.service.OpmlImportService;
+import com.podcast.indexer.service.PipelineStatsService;
+import com.podcast.indexer.service.PodcastDeletionService;
 import com.podcast.indexer.service.RssFeedService;
+import com.podcast.indexer.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
+@ConditionalOnRole(Role.API)
 @RequestMapping("/api/podcasts")
 @RequiredArgsConstructor
 public class PodcastController {
@@ -23,31 +49,140 @@ public class PodcastController {
     private final PodcastRepository podcastRepository;
     private final EpisodeRepository episodeRepository;
     private final RssFeedService rssFeedService;
+    private final OpmlImportService opmlImportService;
+    private final EpisodeEventStreamService episodeEventStreamService;
+    private final PipelineStatsService pipelineStatsService;
+    private final PodcastDeletionService podcastDeletionService;
+    
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
     
     @GetMapping
-    public List<PodcastResponse> getAllPodcasts() {
-        return podcastRepository.findAll().stream()
+    public ResponseEntity<List<PodcastResponse>> getAllPodcasts(WebRequest request) {
+        PodcastRepository.Watermark watermark = podcastRepository.findWatermark();
+        String etag = etag(watermark.getCount(), latest(watermark.getLastUpdatedAt(), pipelineStatsService.lastUpdatedAt()));
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        List<PodcastResponse> podcasts = podcastRepository.findAllSummaries().stream()
                 .map(this::toPodcastResponse)
                 .collect(Collectors.toList());
+        Map<Long, PipelineStatsResponse> stats = pipelineStatsService.getStats(
+                podcasts.stream().map(PodcastResponse::getId).toList());
+        podcasts.forEach(podcast -> podcast.setStats(stats.get(podcast.getId())));
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(podcasts);
     }
     
     @GetMapping("/{id}")
     public ResponseEntity<PodcastResponse> getPodcast(@PathVariable Long id) {
         return podcastRepository.findById(id)
-                .map(podcast -> ResponseEntity.ok(toPodcastResponseWithEpisodes(podcast)))
+                .map(podcast -> {
+                    PodcastResponse response = toPodcastResponse(podcast);
+                    response.setStats(pipelineStatsService.getStats(List.of(id)).get(id));
+                    response.setEpisodeCount(response.getStats().getTotalEpisodes());
+                    return ResponseEntity.ok(response);
+                })
                 .orElse(ResponseEntity.notFound().build());
     }
     
+    /**
+     * Episodes of a podcast, newest first, one page per call. Pass the returned
+     * {@code nextCursor} as {@code cursor} to get the following page.
+     */
+    @GetMapping("/{id}/episodes")
+    public ResponseEntity<EpisodePageResponse> listEpisodes(
+            @PathVariable Long id,
+            @RequestParam(required = false) Set<ProcessingStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(defaultValue = "false") boolean includeDescription,
+            WebRequest request) {
+        KeysetCursor after;
+        try {
+            after = cursor != null ? KeysetCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        EpisodeFilter filter = EpisodeFilter.builder()
+                .podcastId(id)
+                .statuses(status)
+                .publishedFrom(from)
+                .publishedUntil(to)
+                .titleContains(q)
+                .build();
+        
+        // Unchanged listings are answered from the watermark alone
+        EpisodeRepositoryCustom.Watermark watermark = episodeRepository.findWatermark(filter);
+        if (watermark.count() == 0 && !podcastRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(watermark.count(), watermark.lastUpdatedAt());
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<EpisodeRepositoryCustom.EpisodeSummary> page =
+                episodeRepository.findPage(filter, after, pageSize, includeDescription);
+        String nextCursor = null;
+        if (page.size() == pageSize) {
+            EpisodeRepositoryCustom.EpisodeSummary last = page.get(page.size() - 1);
+            nextCursor = new KeysetCursor(last.sortDate(), last.id()).encode();
+        }
+        EpisodePageResponse response = EpisodePageResponse.builder()
+                .episodes(page.stream().map(this::toEpisodeResponse).collect(Collectors.toList()))
+                .nextCursor(nextCursor)
+                .build();
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag).body(response);
+    }
+    
     @PostMapping
     public ResponseEntity<PodcastResponse> addPodcast(@RequestBody AddPodcastRequest request) {
         try {
-            Podcast podcast = rssFeedService.addPodcast(request.getFeedUrl(), request.getDownloadUntilDate());
+            Podcast podcast = rssFeedService.addPodcast(
+                    request.getFeedUrl(), request.getDownloadUntilDate(), request.getPriority());
             return ResponseEntity.ok(toPodcastResponse(podcast));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deletePodcast(@PathVariable Long id) {
+        return podcastDeletionService.deletePodcast(id)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+    
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<OpmlImportResponse> importOpml(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate downloadUntilDate) {
+        try (InputStream in = file.getInputStream()) {
+            String jobId = opmlImportService.startImport(in, downloadUntilDate);
+            return ResponseEntity.accepted().body(opmlImportService.getStatus(jobId));
+        } catch (IllegalArgumentException | IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/import/{jobId}")
+    public ResponseEntity<OpmlImportResponse> getImportStatus(@PathVariable String jobId) {
+        OpmlImportResponse status = opmlImportService.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+    
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@PathVariable Long id) {
+        if (!podcastRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(episodeEventStreamService.open(id));
+    }
+    
     @PostMapping("/{id}/sync")
     public ResponseEntity<Void> syncPodcast(@PathVariable Long id) {
         if (!podcastRepository.existsById(id)) {
@@ -68,29 +203,47 @@ public class PodcastController {
                 .createdAt(podcast.getCreatedAt())
                 .lastSyncedAt(podcast.getLastSyncedAt())
                 .downloadUntilDate(podcast.getDownloadUntilDate())
+                .priority(podcast.getPriority())
                 .build();
     }
     
-    private PodcastResponse toPodcastResponseWithEpisodes(Podcast podcast) {
-        List<Episode> episodes = episodeRepository.findByPodcastId(podcast.getId());
-        PodcastResponse response = toPodcastResponse(podcast);
-        response.setEpisodes(episodes.stream()
-                .map(this::toEpisodeResponse)
-                .collect(Collectors.toList()));
-        return response;
+    private PodcastResponse toPodcastResponse(PodcastRepository.PodcastSummary podcast) {
+        return PodcastResponse.builder()
+                .id(podcast.getId())
+                .feedUrl(podcast.getFeedUrl())
+                .title(podcast.getTitle())
+                .imageUrl(podcast.getImageUrl())
+                .author(podcast.getAuthor())
+                .createdAt(podcast.getCreatedAt())
+                .lastSyncedAt(podcast.getLastSyncedAt())
+                .downloadUntilDate(podcast.getDownloadUntilDate())
+                .priority(podcast.getPriority())
+                .build();
     }
     
-    private EpisodeResponse toEpisodeResponse(Episode episode) {
+    private EpisodeResponse toEpisodeResponse(EpisodeRepositoryCustom.EpisodeSummary episode) {
         return EpisodeResponse.builder()
-                .id(episode.getId())
-                .podcastId(episode.getPodcast().getId())
-                .title(episode.getTitle())
-                .description(episode.getDescription())
-                .audioUrl(episode.getAudioUrl())
-                .publishedDate(episode.getPublishedDate())
-                .durationSeconds(episode.getDurationSeconds())
-                .status(episode.getStatus())
-                .createdAt(episode.getCreatedAt())
+                .id(episode.id())
+                .podcastId(episode.podcastId())
+                .title(episode.title())
+                .description(episode.description())
+                .publishedDate(episode.publishedDate())
+                .durationSeconds(episode.durationSeconds())
+                .status(episode.status())
+                .createdAt(episode.createdAt())
                 .build();
     }
+    
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        if (a == null || b == null) {
+            return a != null ? a : b;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+    
+    // Weak: equal watermarks mean an equivalent listing, not byte-identical JSON
+    private static String etag(long count, LocalDateTime lastUpdatedAt) {
+        long updatedMillis = lastUpdatedAt != null ? lastUpdatedAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0;
+        return "W/\"" + count + "-" + updatedMillis + "\"";
+    }
 }
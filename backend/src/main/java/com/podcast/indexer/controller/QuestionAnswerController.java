@@ -1,5 +1,7 @@
 package com.podcast.indexer.controller;
 
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
 import com.podcast.indexer.dto.AnswerResponse;
 import com.podcast.indexer.dto.AskQuestionRequest;
 import com.podcast.indexer.service.QuestionAnswerService;
@@ -8,6 +10,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
+@ConditionalOnRole(Role.API)
 @RequestMapping("/api/qa")
 @RequiredArgsConstructor
 public class QuestionAnswerController {
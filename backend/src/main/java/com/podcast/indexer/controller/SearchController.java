@@ -0,0 +1,30 @@
+package com.podcast.indexer.controller;
+
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
+import com.podcast.indexer.dto.SearchRequest;
+import com.podcast.indexer.dto.SearchResponse;
+import com.podcast.indexer.service.SemanticSearchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@ConditionalOnRole(Role.API)
+@RequestMapping("/api/search")
+@RequiredArgsConstructor
+public class SearchController {
+    
+    private final SemanticSearchService semanticSearchService;
+    
+    @PostMapping
+    public ResponseEntity<SearchResponse> search(@RequestBody SearchRequest request) {
+        try {
+            return ResponseEntity.ok(semanticSearchService.search(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -14,4 +14,5 @@ import java.time.LocalDate;
 public class AddPodcastRequest {
     private String feedUrl;
     private LocalDate downloadUntilDate;
+    private Integer priority; // Optional tier, higher is processed first
 }
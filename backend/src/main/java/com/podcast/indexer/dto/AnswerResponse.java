@@ -27,5 +27,7 @@ public class AnswerResponse {
         private Long endMs;
         private String textSnippet;
         private String listenLink;
+        // Cosine similarity of the cited chunk to the question
+        private Double score;
     }
 }
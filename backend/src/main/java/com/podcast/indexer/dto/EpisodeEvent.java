@@ -0,0 +1,35 @@
+package com.podcast.indexer.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.podcast.indexer.model.ProcessingStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A change to one episode, pushed to clients watching its podcast. Status changes only
+ * carry the status (and duration, once known); new episodes also carry what the
+ * episode list shows.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EpisodeEvent {
+    private Type type;
+    private Long podcastId;
+    private Long episodeId;
+    private ProcessingStatus status;
+    private Integer durationSeconds;
+    private String title;
+    private LocalDateTime publishedDate;
+    
+    public enum Type {
+        ADDED,
+        STATUS_CHANGED
+    }
+}
@@ -0,0 +1,17 @@
+package com.podcast.indexer.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EpisodePageResponse {
+    private List<EpisodeResponse> episodes;
+    private String nextCursor; // Null on the last page
+}
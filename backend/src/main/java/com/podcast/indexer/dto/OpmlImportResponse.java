@@ -0,0 +1,23 @@
+package com.podcast.indexer.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OpmlImportResponse {
+    private String jobId;
+    private String status;
+    private int total;
+    private int processed;
+    private int imported;
+    private int skipped;
+    private int failed;
+    private Map<String, String> errors; // feed URL -> error
+}
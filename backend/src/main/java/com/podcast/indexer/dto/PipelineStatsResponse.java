@@ -0,0 +1,20 @@
+package com.podcast.indexer.dto;
+
+import com.podcast.indexer.model.ProcessingStatus;
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PipelineStatsResponse {
+    private Map<ProcessingStatus, Long> episodeCounts;
+    private long totalEpisodes;
+    private long indexedDurationSeconds;
+    private long chunkCount;
+}
@@ -7,7 +7,6 @@ import lombok.AllArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Data
 @Builder
@@ -23,5 +22,7 @@ public class PodcastResponse {
     private LocalDateTime createdAt;
     private LocalDateTime lastSyncedAt;
     private LocalDate downloadUntilDate;
-    private List<EpisodeResponse> episodes;
+    private Integer priority;
+    private Long episodeCount;
+    private PipelineStatsResponse stats;
 }
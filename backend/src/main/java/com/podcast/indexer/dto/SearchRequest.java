@@ -0,0 +1,23 @@
+package com.podcast.indexer.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchRequest {
+    private String query;
+    // Optional filters; all podcasts when none are given
+    private List<Long> podcastIds;
+    private List<Long> episodeIds;
+    private LocalDate publishedFrom;
+    private LocalDate publishedUntil;
+    private Integer limit;
+}
@@ -0,0 +1,35 @@
+package com.podcast.indexer.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResponse {
+    private List<Hit> hits;
+    
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+        private Long chunkId;
+        private Long podcastId;
+        private Long episodeId;
+        private String episodeTitle;
+        private LocalDateTime publishedDate;
+        private String audioUrl;
+        private Long startMs;
+        private Long endMs;
+        private String text;
+        private String listenLink;
+        private Double score;
+    }
+}
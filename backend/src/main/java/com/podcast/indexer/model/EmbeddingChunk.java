@@ -11,7 +11,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "embedding_chunks", indexes = {
-    @Index(name = "idx_chunk_episode", columnList = "episode_id")
+    @Index(name = "idx_chunk_episode", columnList = "episode_id"),
+    @Index(name = "idx_chunk_podcast", columnList = "podcast_id, id")
 })
 @Data
 @NoArgsConstructor
@@ -26,6 +27,10 @@ public class EmbeddingChunk {
     @JoinColumn(name = "episode_id", nullable = false)
     private Episode episode;
     
+    // Copy of the episode's podcast, so rows can be partitioned and pruned by podcast
+    @Column(name = "podcast_id")
+    private Long podcastId;
+    
     @Column(name = "chunk_index", nullable = false)
     private Integer chunkIndex;
     
@@ -42,6 +47,17 @@ public class EmbeddingChunk {
     @ColumnTransformer(write = "?::vector")
     private String embedding;
     
+    @Column(name = "embedding_model_id")
+    private Long embeddingModelId;
+    
+    // Embedding from the model being migrated to, written to shadow columns that only
+    // exist during a migration
+    @Transient
+    private String nextEmbedding;
+    
+    @Transient
+    private Long nextEmbeddingModelId;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
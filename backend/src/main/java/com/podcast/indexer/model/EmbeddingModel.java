@@ -0,0 +1,56 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * An embedding model and the size of its vectors. Chunks record the model their
+ * embedding came from; exactly one model is active, and while another is migrating
+ * every chunk also carries its embedding from that one in a shadow column.
+ */
+@Entity
+@Table(name = "embedding_models")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmbeddingModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String name;
+    
+    @Column(nullable = false)
+    private Integer dimensions;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EmbeddingModelStatus status;
+    
+    // Last chunk re-embedded, in (podcast_id, id) order, so the migration resumes after restarts
+    @Column(name = "reembedded_podcast_id", nullable = false)
+    @Builder.Default
+    private Long reembeddedPodcastId = 0L;
+    
+    @Column(name = "reembedded_chunk_id", nullable = false)
+    @Builder.Default
+    private Long reembeddedChunkId = 0L;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "activated_at")
+    private LocalDateTime activatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
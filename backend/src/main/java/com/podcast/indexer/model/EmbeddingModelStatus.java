@@ -0,0 +1,7 @@
+package com.podcast.indexer.model;
+
+public enum EmbeddingModelStatus {
+    ACTIVE,      // Produces the embeddings that are searched
+    MIGRATING,   // Chunks being re-embedded, searched once complete
+    RETIRED      // Replaced or abandoned
+}
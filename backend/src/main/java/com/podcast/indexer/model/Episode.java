@@ -13,7 +13,10 @@ import java.util.List;
 @Entity
 @Table(name = "episodes", indexes = {
     @Index(name = "idx_episode_guid", columnList = "guid"),
-    @Index(name = "idx_episode_hash", columnList = "content_hash")
+    @Index(name = "idx_episode_hash", columnList = "content_hash"),
+    @Index(name = "idx_episode_status_id", columnList = "status, id"),
+    @Index(name = "idx_episode_podcast_published", columnList = "podcast_id, published_date"),
+    @Index(name = "idx_episode_published", columnList = "published_date")
 })
 @Data
 @NoArgsConstructor
@@ -52,6 +55,13 @@ public class Episode {
     @Column(name = "duration_seconds")
     private Integer durationSeconds;
     
+    @Column(name = "audio_part_count")
+    private Integer audioPartCount;
+    
+    // Requested on demand; its jobs go ahead of all other work
+    @Column(name = "expedited")
+    private Boolean expedited;
+    
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     @Builder.Default
@@ -65,7 +75,7 @@ public class Episode {
     
     @OneToMany(mappedBy = "episode", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
-    private List<TranscriptSegment> transcriptSegments = new ArrayList<>();
+    private List<TranscriptBlock> transcriptBlocks = new ArrayList<>();
     
     @OneToMany(mappedBy = "episode", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
@@ -0,0 +1,39 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnTransformer;
+
+import java.time.LocalDateTime;
+
+/**
+ * Centroid of an episode's chunk embeddings, the first stage of hierarchical
+ * retrieval: episodes are ranked by it before their chunks are.
+ */
+@Entity
+@Table(name = "episode_embeddings", indexes = {
+    @Index(name = "idx_episode_embedding_podcast", columnList = "podcast_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EpisodeEmbedding {
+    @Id
+    @Column(name = "episode_id")
+    private Long episodeId;
+    
+    @Column(name = "podcast_id", nullable = false)
+    private Long podcastId;
+    
+    @Column(columnDefinition = "vector(768)", nullable = false)
+    @ColumnTransformer(write = "?::vector")
+    private String embedding;
+    
+    @Column(name = "chunk_count", nullable = false)
+    private int chunkCount;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
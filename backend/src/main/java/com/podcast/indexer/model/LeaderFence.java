@@ -0,0 +1,24 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Highest fencing token that has written for a singleton task. Writes carrying
+ * an older token come from a leader that has since been replaced.
+ */
+@Entity
+@Table(name = "leader_fences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LeaderFence {
+    @Id
+    @Column(name = "task")
+    private String task;
+    
+    @Column(name = "token", nullable = false)
+    private long token;
+}
@@ -12,7 +12,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "podcasts")
+@Table(name = "podcasts", indexes = {
+    @Index(name = "idx_podcast_next_sync", columnList = "next_sync_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -47,6 +49,30 @@ public class Podcast {
     @Column(name = "download_until_date")
     private LocalDate downloadUntilDate;
     
+    // Higher tiers are processed first, as if their episodes were a month newer per tier
+    @Column(name = "priority")
+    @Builder.Default
+    private Integer priority = 0;
+    
+    @Column(name = "feed_etag")
+    private String feedEtag;
+    
+    @Column(name = "feed_last_modified")
+    private String feedLastModified;
+    
+    @Column(name = "feed_body_hash", length = 64)
+    private String feedBodyHash;
+    
+    @Column(name = "last_seen_guid")
+    private String lastSeenGuid;
+    
+    @Column(name = "next_sync_at")
+    private LocalDateTime nextSyncAt;
+    
+    @Column(name = "sync_failure_count")
+    @Builder.Default
+    private Integer syncFailureCount = 0;
+    
     @OneToMany(mappedBy = "podcast", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Episode> episodes = new ArrayList<>();
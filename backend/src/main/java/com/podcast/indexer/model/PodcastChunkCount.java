@@ -0,0 +1,29 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number of embedding chunks of a podcast, maintained by a database trigger on
+ * {@code embedding_chunks}.
+ */
+@Entity
+@Table(name = "podcast_chunk_counts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PodcastChunkCount {
+    @Id
+    @Column(name = "podcast_id")
+    private Long podcastId;
+    
+    @Column(name = "chunk_count", nullable = false)
+    private long chunkCount;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
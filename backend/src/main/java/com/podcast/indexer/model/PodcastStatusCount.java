@@ -0,0 +1,42 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Number and total duration of a podcast's episodes in one status. Maintained by
+ * database triggers on {@code episodes} (see {@link com.podcast.indexer.service.PipelineStatsService}),
+ * so it changes in the same transaction as the episodes themselves.
+ */
+@Entity
+@Table(name = "podcast_status_counts", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_podcast_status_count", columnNames = {"podcast_id", "status"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PodcastStatusCount {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "podcast_id", nullable = false)
+    private Long podcastId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProcessingStatus status;
+    
+    @Column(name = "episode_count", nullable = false)
+    private long episodeCount;
+    
+    @Column(name = "duration_seconds", nullable = false)
+    private long durationSeconds;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,71 @@
+package com.podcast.indexer.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run of consecutive transcript segments of one episode part, stored as a
+ * single compressed, columnar blob (see {@link com.podcast.indexer.util.TranscriptBlockCodec}).
+ */
+@Entity
+@Table(name = "transcript_blocks", indexes = {
+    @Index(name = "idx_block_episode_part", columnList = "episode_id, part_index, block_index")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TranscriptBlock {
+    public static final int MAX_SEGMENTS = 100;
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "episode_id", nullable = false)
+    private Episode episode;
+    
+    // Copy of the episode's podcast, so rows can be partitioned and pruned by podcast
+    @Column(name = "podcast_id")
+    private Long podcastId;
+    
+    @Column(name = "part_index", nullable = false)
+    private Integer partIndex;
+    
+    @Column(name = "block_index", nullable = false)
+    private Integer blockIndex;
+    
+    @Column(name = "first_segment_index", nullable = false)
+    private Integer firstSegmentIndex;
+    
+    @Column(name = "segment_count", nullable = false)
+    private Integer segmentCount;
+    
+    @Column(name = "start_ms", nullable = false)
+    private Long startMs;
+    
+    @Column(name = "end_ms", nullable = false)
+    private Long endMs;
+    
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] data;
+    
+    // Set once the part's last segment is stored and indexed; a part without it was cut short
+    @Column(name = "last_block")
+    @Builder.Default
+    private Boolean lastBlock = false;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,59 @@
+package com.podcast.indexer.repository;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Restricts a chunk search to some podcasts, episodes or publish dates. Null or
+ * empty fields do not filter; the set fields combine with AND.
+ */
+@Value
+@Builder
+public class ChunkFilter {
+    Collection<Long> podcastIds;
+    Collection<Long> episodeIds;
+    LocalDate publishedFrom;  // inclusive
+    LocalDate publishedUntil; // inclusive
+    
+    public boolean isUnrestricted() {
+        return (podcastIds == null || podcastIds.isEmpty())
+                && (episodeIds == null || episodeIds.isEmpty())
+                && publishedFrom == null
+                && publishedUntil == null;
+    }
+    
+    /**
+     * SQL condition for rows of a table with podcast_id, episode_id and embedding
+     * columns under the given alias, joined to their episode as {@code e}.
+     */
+    String toSql(String alias, List<Object> args) {
+        StringBuilder where = new StringBuilder(alias + ".embedding IS NOT NULL");
+        in(where, alias + ".podcast_id", podcastIds, args);
+        in(where, alias + ".episode_id", episodeIds, args);
+        if (publishedFrom != null) {
+            where.append(" AND e.published_date >= ?");
+            args.add(Timestamp.valueOf(publishedFrom.atStartOfDay()));
+        }
+        if (publishedUntil != null) {
+            where.append(" AND e.published_date < ?");
+            args.add(Timestamp.valueOf(publishedUntil.plusDays(1).atStartOfDay()));
+        }
+        return where.toString();
+    }
+    
+    private static void in(StringBuilder where, String column, Collection<Long> values, List<Object> args) {
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+        where.append(" AND ").append(column).append(" IN (")
+                .append(values.stream().map(v -> "?").collect(Collectors.joining(", ")))
+                .append(")");
+        args.addAll(values);
+    }
+}
@@ -2,28 +2,32 @@ package com.podcast.indexer.repository;
 
 import com.podcast.indexer.model.EmbeddingChunk;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface EmbeddingChunkRepository extends JpaRepository<EmbeddingChunk, Long> {
-    
-    @Query(value = "SELECT c.* FROM embedding_chunks c " +
-            "INNER JOIN episodes e ON c.episode_id = e.id " +
-            "WHERE e.podcast_id = :podcastId " +
-            "ORDER BY c.embedding <-> CAST(:queryEmbedding AS vector) " +
-            "LIMIT :topK", 
-            nativeQuery = true)
-    List<EmbeddingChunk> findTopKSimilarByPodcast(
-        @Param("podcastId") Long podcastId,
-        @Param("queryEmbedding") String queryEmbedding,
-        @Param("topK") int topK
-    );
+public interface EmbeddingChunkRepository extends JpaRepository<EmbeddingChunk, Long>,
+        EmbeddingChunkRepositoryCustom {
     
     boolean existsByEpisodeId(Long episodeId);
     
     List<EmbeddingChunk> findByEpisodeId(Long episodeId);
+    
+    // The podcast id lets a partitioned table prune to one partition
+    Optional<EmbeddingChunk> findTopByPodcastIdAndEpisodeIdOrderByChunkIndexDesc(Long podcastId, Long episodeId);
+    
+    Optional<EmbeddingChunk> findTopByPodcastIdAndEpisodeIdOrderByEndMsDesc(Long podcastId, Long episodeId);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmbeddingChunk c WHERE c.podcastId = :podcastId AND c.episode.id = :episodeId " +
+            "AND c.endMs > :endMs")
+    int deleteByEpisodeIdAndEndMsGreaterThan(@Param("podcastId") Long podcastId, @Param("episodeId") Long episodeId,
+                                             @Param("endMs") Long endMs);
 }
@@ -0,0 +1,51 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.EmbeddingChunk;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmbeddingChunkRepositoryCustom {
+    /**
+     * Writes the chunks unless the embedding models changed since they were embedded, in
+     * which case nothing is written and false is returned. The models stay locked until
+     * the caller's transaction ends, so they cannot change before the chunks commit.
+     */
+    boolean insertAll(List<EmbeddingChunk> chunks);
+    
+    /**
+     * Chunks after the given one in (podcast_id, id) order that lack an embedding from
+     * the model being migrated to.
+     */
+    List<PendingChunk> findChunksToReembed(long afterPodcastId, long afterId, int limit);
+    
+    /**
+     * Stores embeddings from the model being migrated to, one per chunk, in order.
+     */
+    void updateNextEmbeddings(List<PendingChunk> chunks, List<String> embeddings, Long modelId);
+    
+    /**
+     * Number of chunks matching the filter, counting no further than the cap.
+     */
+    long countChunks(ChunkFilter filter, long cap);
+    
+    /**
+     * The chunks matching the filter nearest to the query embedding by cosine distance,
+     * with the episode fields a citation needs, in one round trip. Computes the distance
+     * of every matching chunk, so it is exact but only cheap for selective filters.
+     */
+    List<RetrievedChunk> findNearestExact(ChunkFilter filter, String queryEmbedding, int limit);
+    
+    /**
+     * Like {@link #findNearestExact} but walks the HNSW index, filtering as it goes.
+     * Results may miss some true neighbours; {@code efSearch} trades speed for recall.
+     */
+    List<RetrievedChunk> findNearestApproximate(ChunkFilter filter, String queryEmbedding, int limit, int efSearch);
+    
+    record PendingChunk(long podcastId, long id, String text) {
+    }
+    
+    record RetrievedChunk(Long chunkId, String text, Long startMs, Long endMs, Long episodeId, Long podcastId,
+                          String episodeTitle, String audioUrl, LocalDateTime publishedDate, double score) {
+    }
+}
@@ -0,0 +1,166 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.EmbeddingChunk;
+import com.podcast.indexer.model.EmbeddingModelStatus;
+import com.podcast.indexer.util.PgCopyUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@RequiredArgsConstructor
+public class EmbeddingChunkRepositoryImpl implements EmbeddingChunkRepositoryCustom {
+
+    private static final List<String> COLUMNS = List.of(
+            "episode_id", "podcast_id", "chunk_index", "start_ms", "end_ms", "text", "embedding",
+            "embedding_model_id", "created_at");
+    private static final List<String> MIGRATION_COLUMNS = List.of("embedding_next", "embedding_next_model_id");
+
+    // Reads the text and episode of the nearest chunks only, after ranking by distance;
+    // the podcast id keeps the lookup to one partition when the table is partitioned
+    private static final String SELECT_NEAREST =
+            "SELECT c.id, c.text, c.start_ms, c.end_ms, e.id AS episode_id, c.podcast_id, e.title, " +
+            "e.audio_url, e.published_date, 1 - n.distance AS score " +
+            "FROM nearest n " +
+            "JOIN embedding_chunks c ON c.podcast_id = n.podcast_id AND c.id = n.id " +
+            "JOIN episodes e ON e.id = c.episode_id " +
+            "ORDER BY n.distance";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public boolean insertAll(List<EmbeddingChunk> chunks) {
+        if (chunks.isEmpty()) {
+            return true;
+        }
+        // Shared locks, so a model switch waits for this insert and later inserts see it
+        Map<String, Long> models = new HashMap<>();
+        jdbcTemplate.query("SELECT status, id FROM embedding_models WHERE status IN ('ACTIVE', 'MIGRATING') FOR SHARE",
+                (RowCallbackHandler) rs -> models.put(rs.getString("status"), rs.getLong("id")));
+        Long activeId = models.get(EmbeddingModelStatus.ACTIVE.name());
+        Long migratingId = models.get(EmbeddingModelStatus.MIGRATING.name());
+        for (EmbeddingChunk chunk : chunks) {
+            if (!Objects.equals(chunk.getEmbeddingModelId(), activeId)
+                    || !Objects.equals(chunk.getNextEmbeddingModelId(), migratingId)) {
+                return false;
+            }
+        }
+
+        List<String> columns = new ArrayList<>(COLUMNS);
+        if (migratingId != null) {
+            columns.addAll(MIGRATION_COLUMNS);
+        }
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection ->
+                PgCopyUtils.copyIn(connection, "embedding_chunks", columns, chunks, c -> {
+                    Object[] row = Arrays.copyOf(new Object[]{
+                            c.getEpisode().getId(),
+                            c.getPodcastId(),
+                            c.getChunkIndex(),
+                            c.getStartMs(),
+                            c.getEndMs(),
+                            c.getText(),
+                            c.getEmbedding(),
+                            c.getEmbeddingModelId(),
+                            now
+                    }, columns.size());
+                    if (migratingId != null) {
+                        row[COLUMNS.size()] = c.getNextEmbedding();
+                        row[COLUMNS.size() + 1] = migratingId;
+                    }
+                    return row;
+                }));
+        return true;
+    }
+
+    @Override
+    public List<PendingChunk> findChunksToReembed(long afterPodcastId, long afterId, int limit) {
+        return jdbcTemplate.query("SELECT podcast_id, id, text FROM embedding_chunks " +
+                        "WHERE (podcast_id, id) > (?, ?) AND embedding_next IS NULL ORDER BY podcast_id, id LIMIT ?",
+                (rs, rowNum) -> new PendingChunk(rs.getLong("podcast_id"), rs.getLong("id"), rs.getString("text")),
+                afterPodcastId, afterId, limit);
+    }
+
+    @Override
+    public void updateNextEmbeddings(List<PendingChunk> chunks, List<String> embeddings, Long modelId) {
+        List<Object[]> args = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            args.add(new Object[]{embeddings.get(i), modelId, chunks.get(i).podcastId(), chunks.get(i).id()});
+        }
+        jdbcTemplate.batchUpdate("UPDATE embedding_chunks SET embedding_next = CAST(? AS vector), " +
+                "embedding_next_model_id = ? WHERE podcast_id = ? AND id = ?", args);
+    }
+
+    @Override
+    public long countChunks(ChunkFilter filter, long cap) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM embedding_chunks c JOIN episodes e ON e.id = c.episode_id " +
+                "WHERE " + filter.toSql("c", args) + " LIMIT ?) matching";
+        args.add(cap);
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    @Override
+    public List<RetrievedChunk> findNearestExact(ChunkFilter filter, String queryEmbedding, int limit) {
+        // MATERIALIZED keeps the planner from walking the vector index and filtering afterwards
+        List<Object> args = new ArrayList<>();
+        args.add(queryEmbedding);
+        String sql = "WITH candidates AS MATERIALIZED (" +
+                "SELECT c.podcast_id, c.id, c.embedding <=> CAST(? AS vector) AS distance " +
+                "FROM embedding_chunks c JOIN episodes e ON e.id = c.episode_id " +
+                "WHERE " + filter.toSql("c", args) + "), " +
+                "nearest AS (SELECT podcast_id, id, distance FROM candidates ORDER BY distance LIMIT ?) " +
+                SELECT_NEAREST;
+        args.add(limit);
+        return query(sql, args);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RetrievedChunk> findNearestApproximate(ChunkFilter filter, String queryEmbedding, int limit,
+                                                       int efSearch) {
+        HnswScans.configure(jdbcTemplate, efSearch);
+        List<Object> args = new ArrayList<>();
+        args.add(queryEmbedding);
+        String sql = "WITH nearest AS MATERIALIZED (" +
+                "SELECT c.podcast_id, c.id, c.embedding <=> CAST(? AS vector) AS distance " +
+                "FROM embedding_chunks c JOIN episodes e ON e.id = c.episode_id " +
+                "WHERE " + filter.toSql("c", args) + " " +
+                "ORDER BY c.embedding <=> CAST(? AS vector) LIMIT ?) " +
+                SELECT_NEAREST;
+        args.add(queryEmbedding);
+        args.add(limit);
+        return query(sql, args);
+    }
+
+    private List<RetrievedChunk> query(String sql, List<Object> args) {
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new RetrievedChunk(
+                rs.getLong("id"),
+                rs.getString("text"),
+                rs.getLong("start_ms"),
+                rs.getLong("end_ms"),
+                rs.getLong("episode_id"),
+                rs.getLong("podcast_id"),
+                rs.getString("title"),
+                rs.getString("audio_url"),
+                toLocalDateTime(rs.getTimestamp("published_date")),
+                rs.getDouble("score")), args.toArray());
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
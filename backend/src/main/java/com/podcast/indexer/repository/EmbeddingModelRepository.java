@@ -0,0 +1,13 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.model.EmbeddingModelStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EmbeddingModelRepository extends JpaRepository<EmbeddingModel, Long> {
+    Optional<EmbeddingModel> findFirstByStatus(EmbeddingModelStatus status);
+}
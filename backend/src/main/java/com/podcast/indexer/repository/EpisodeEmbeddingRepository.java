@@ -0,0 +1,10 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.EpisodeEmbedding;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface EpisodeEmbeddingRepository extends JpaRepository<EpisodeEmbedding, Long>,
+        EpisodeEmbeddingRepositoryCustom {
+}
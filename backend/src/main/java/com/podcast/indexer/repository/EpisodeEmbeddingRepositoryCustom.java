@@ -0,0 +1,35 @@
+package com.podcast.indexer.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EpisodeEmbeddingRepositoryCustom {
+    /**
+     * Recomputes the episode's centroid from its chunks in the database.
+     */
+    void updateCentroid(Long podcastId, Long episodeId);
+    
+    /**
+     * Computes the centroids of up to {@code limit} indexed episodes after {@code afterId}
+     * that have none. Returns the episode ids considered, in ascending order.
+     */
+    List<Long> createMissingCentroids(long afterId, int limit);
+    
+    /**
+     * Ids of the episodes matching the filter whose centroids are nearest to the query
+     * embedding, walking the HNSW index.
+     */
+    List<Long> findNearestEpisodes(ChunkFilter filter, String queryEmbedding, int limit, int efSearch);
+    
+    /**
+     * Computes the centroids of the shadow embeddings of a model migration for up to
+     * {@code limit} episodes after {@code afterId}. Returns the episode ids, in ascending order.
+     */
+    List<Long> updateNextCentroids(long afterId, int limit);
+    
+    /**
+     * Computes the shadow centroids of episodes without one or whose centroid changed
+     * since the given time.
+     */
+    int updateChangedNextCentroids(LocalDateTime since);
+}
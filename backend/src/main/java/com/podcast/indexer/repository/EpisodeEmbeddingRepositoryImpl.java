@@ -0,0 +1,82 @@
+package com.podcast.indexer.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class EpisodeEmbeddingRepositoryImpl implements EpisodeEmbeddingRepositoryCustom {
+    
+    private static final String UPSERT_CENTROIDS =
+            "INSERT INTO episode_embeddings AS ee (episode_id, podcast_id, embedding, chunk_count, updated_at) " +
+            "SELECT c.episode_id, c.podcast_id, AVG(c.embedding), COUNT(*), now() FROM embedding_chunks c " +
+            "WHERE %s AND c.embedding IS NOT NULL GROUP BY c.episode_id, c.podcast_id " +
+            "ON CONFLICT (episode_id) DO UPDATE SET embedding = EXCLUDED.embedding, " +
+            "chunk_count = EXCLUDED.chunk_count, updated_at = EXCLUDED.updated_at";
+    
+    private static final String UPDATE_NEXT_CENTROIDS =
+            "UPDATE episode_embeddings ee SET embedding_next = (" +
+            "SELECT AVG(c.embedding_next) FROM embedding_chunks c " +
+            "WHERE c.podcast_id = ee.podcast_id AND c.episode_id = ee.episode_id) WHERE %s";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void updateCentroid(Long podcastId, Long episodeId) {
+        jdbcTemplate.update(UPSERT_CENTROIDS.formatted("c.podcast_id = ? AND c.episode_id = ?"), podcastId, episodeId);
+    }
+    
+    @Override
+    public List<Long> createMissingCentroids(long afterId, int limit) {
+        List<Long> episodeIds = jdbcTemplate.queryForList(
+                "SELECT e.id FROM episodes e WHERE e.status = 'INDEXED' AND e.id > ? " +
+                "AND NOT EXISTS (SELECT 1 FROM episode_embeddings ee WHERE ee.episode_id = e.id) " +
+                "ORDER BY e.id LIMIT ?", Long.class, afterId, limit);
+        if (!episodeIds.isEmpty()) {
+            jdbcTemplate.update(UPSERT_CENTROIDS.formatted("c.episode_id IN (" + placeholders(episodeIds) + ")"),
+                    episodeIds.toArray());
+        }
+        return episodeIds;
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public List<Long> findNearestEpisodes(ChunkFilter filter, String queryEmbedding, int limit, int efSearch) {
+        HnswScans.configure(jdbcTemplate, efSearch);
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT ee.episode_id FROM episode_embeddings ee JOIN episodes e ON e.id = ee.episode_id " +
+                "WHERE " + filter.toSql("ee", args) + " " +
+                "ORDER BY ee.embedding <=> CAST(? AS vector) LIMIT ?";
+        args.add(queryEmbedding);
+        args.add(limit);
+        return jdbcTemplate.queryForList(sql, Long.class, args.toArray());
+    }
+    
+    @Override
+    public List<Long> updateNextCentroids(long afterId, int limit) {
+        List<Long> episodeIds = jdbcTemplate.queryForList(
+                "SELECT episode_id FROM episode_embeddings WHERE episode_id > ? ORDER BY episode_id LIMIT ?",
+                Long.class, afterId, limit);
+        if (!episodeIds.isEmpty()) {
+            jdbcTemplate.update(UPDATE_NEXT_CENTROIDS.formatted("ee.episode_id IN (" + placeholders(episodeIds) + ")"),
+                    episodeIds.toArray());
+        }
+        return episodeIds;
+    }
+    
+    @Override
+    public int updateChangedNextCentroids(LocalDateTime since) {
+        return jdbcTemplate.update(UPDATE_NEXT_CENTROIDS.formatted("ee.embedding_next IS NULL OR ee.updated_at >= ?"),
+                since);
+    }
+    
+    private static String placeholders(Collection<?> values) {
+        return values.stream().map(v -> "?").collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,21 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.ProcessingStatus;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Criteria of an episode listing. Null fields do not filter.
+ */
+@Value
+@Builder
+public class EpisodeFilter {
+    Long podcastId;
+    Set<ProcessingStatus> statuses;
+    LocalDate publishedFrom;  // inclusive
+    LocalDate publishedUntil; // inclusive
+    String titleContains;
+}
@@ -2,14 +2,21 @@ package com.podcast.indexer.repository;
 
 import com.podcast.indexer.model.Episode;
 import com.podcast.indexer.model.ProcessingStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EpisodeRepository extends JpaRepository<Episode, Long> {
+public interface EpisodeRepository extends JpaRepository<Episode, Long>, EpisodeRepositoryCustom {
     Optional<Episode> findByGuid(String guid);
     Optional<Episode> findByContentHash(String contentHash);
     boolean existsByGuid(String guid);
@@ -17,4 +24,60 @@ public interface EpisodeRepository extends JpaRepository<Episode, Long> {
     List<Episode> findByPodcastId(Long podcastId);
     List<Episode> findByStatus(ProcessingStatus status);
     List<Episode> findByPodcastIdAndStatus(Long podcastId, ProcessingStatus status);
+    List<Episode> findByPodcastIdAndAudioFilePathIsNotNull(Long podcastId);
+    long countByStatusIn(Collection<ProcessingStatus> statuses);
+    
+    @Query("SELECT e.publishedDate AS publishedDate, e.expedited AS expedited, p.priority AS podcastPriority " +
+            "FROM Episode e JOIN e.podcast p WHERE e.id = :episodeId")
+    Optional<PriorityInfo> findPriorityInfo(@Param("episodeId") Long episodeId);
+    
+    @Query("SELECT e.publishedDate FROM Episode e WHERE e.podcast.id = :podcastId " +
+            "AND e.publishedDate IS NOT NULL ORDER BY e.publishedDate DESC")
+    List<LocalDateTime> findRecentPublishedDates(@Param("podcastId") Long podcastId, Pageable pageable);
+    
+    @Query("SELECT e.id AS id, e.podcast.id AS podcastId, e.audioFilePath AS audioFilePath, " +
+            "e.audioPartCount AS audioPartCount " +
+            "FROM Episode e WHERE e.status = :status AND e.updatedAt < :staleBefore AND e.id > :afterId " +
+            "ORDER BY e.id")
+    List<StaleEpisode> findStaleEpisodes(@Param("status") ProcessingStatus status,
+                                         @Param("staleBefore") LocalDateTime staleBefore,
+                                         @Param("afterId") Long afterId,
+                                         Pageable pageable);
+    
+    @Query("SELECT e.id FROM Episode e WHERE e.status = :status AND e.updatedAt < :staleBefore AND e.id > :afterId " +
+            "AND EXISTS (SELECT b.id FROM TranscriptBlock b WHERE b.episode = e) ORDER BY e.id")
+    List<Long> findStaleIdsWithTranscript(@Param("status") ProcessingStatus status,
+                                          @Param("staleBefore") LocalDateTime staleBefore,
+                                          @Param("afterId") Long afterId,
+                                          Pageable pageable);
+    
+    /**
+     * Moves the given episodes from one status to another, skipping any whose status
+     * changed in the meantime.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Episode e SET e.status = :to, e.updatedAt = :now WHERE e.id IN :ids AND e.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") ProcessingStatus from,
+                     @Param("to") ProcessingStatus to,
+                     @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Episode e SET e.updatedAt = :now WHERE e.id = :episodeId")
+    int touch(@Param("episodeId") Long episodeId, @Param("now") LocalDateTime now);
+    
+    interface StaleEpisode {
+        Long getId();
+        Long getPodcastId();
+        String getAudioFilePath();
+        Integer getAudioPartCount();
+    }
+    
+    interface PriorityInfo {
+        LocalDateTime getPublishedDate();
+        Boolean getExpedited();
+        Integer getPodcastPriority();
+    }
 }
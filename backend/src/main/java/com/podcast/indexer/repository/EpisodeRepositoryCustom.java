@@ -0,0 +1,43 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.util.KeysetCursor;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface EpisodeRepositoryCustom {
+    Set<String> findExistingGuids(Collection<String> guids);
+    
+    Set<String> findExistingContentHashes(Collection<String> contentHashes);
+    
+    /**
+     * Inserts the episodes of one podcast in one statement, silently skipping any whose GUID or
+     * content hash already exists (e.g. added by a concurrent sync of the same feed).
+     * Returns the episodes that were actually inserted, with their ids set.
+     */
+    List<Episode> insertIgnoringDuplicates(List<Episode> episodes);
+    
+    /**
+     * One page of a podcast's episodes, newest first, starting after the cursor (if any).
+     * Descriptions are only read when asked for.
+     */
+    List<EpisodeSummary> findPage(EpisodeFilter filter, KeysetCursor after, int limit, boolean withDescription);
+    
+    /**
+     * Number of matching episodes and their latest update; any change to the listing
+     * changes one of them.
+     */
+    Watermark findWatermark(EpisodeFilter filter);
+    
+    record EpisodeSummary(Long id, Long podcastId, String title, String description, LocalDateTime publishedDate,
+                          Integer durationSeconds, ProcessingStatus status, LocalDateTime createdAt,
+                          LocalDateTime sortDate) {
+    }
+    
+    record Watermark(long count, LocalDateTime lastUpdatedAt) {
+    }
+}
@@ -0,0 +1,206 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.util.KeysetCursor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class EpisodeRepositoryImpl implements EpisodeRepositoryCustom {
+    
+    private static final String INSERT_EPISODES =
+            "INSERT INTO episodes (podcast_id, title, description, guid, content_hash, audio_url, " +
+            "published_date, status, created_at, updated_at) " +
+            "SELECT ?, t.title, t.description, t.guid, t.content_hash, t.audio_url, t.published_date, ?, ?, ? " +
+            "FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::timestamp[]) " +
+            "AS t(title, description, guid, content_hash, audio_url, published_date) " +
+            "ON CONFLICT DO NOTHING " +
+            "RETURNING id, guid, content_hash";
+    
+    // Episodes without a publish date sort by discovery time
+    private static final String SORT_DATE = "COALESCE(published_date, created_at)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public Set<String> findExistingGuids(Collection<String> guids) {
+        return findExisting("guid", guids);
+    }
+    
+    @Override
+    public Set<String> findExistingContentHashes(Collection<String> contentHashes) {
+        return findExisting("content_hash", contentHashes);
+    }
+    
+    private Set<String> findExisting(String column, Collection<String> values) {
+        Set<String> existing = new HashSet<>();
+        if (values.isEmpty()) {
+            return existing;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Array array = connection.createArrayOf("text", values.toArray());
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT " + column + " FROM episodes WHERE " + column + " = ANY(?)")) {
+                ps.setArray(1, array);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1));
+                    }
+                }
+            } finally {
+                array.free();
+            }
+            return null;
+        });
+        return existing;
+    }
+    
+    @Override
+    public List<Episode> insertIgnoringDuplicates(List<Episode> episodes) {
+        List<Episode> inserted = new ArrayList<>();
+        if (episodes.isEmpty()) {
+            return inserted;
+        }
+        
+        int size = episodes.size();
+        String[] titles = new String[size];
+        String[] descriptions = new String[size];
+        String[] guids = new String[size];
+        String[] contentHashes = new String[size];
+        String[] audioUrls = new String[size];
+        Timestamp[] publishedDates = new Timestamp[size];
+        Map<String, Episode> byKey = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Episode episode = episodes.get(i);
+            titles[i] = episode.getTitle();
+            descriptions[i] = episode.getDescription();
+            guids[i] = episode.getGuid();
+            contentHashes[i] = episode.getContentHash();
+            audioUrls[i] = episode.getAudioUrl();
+            publishedDates[i] = episode.getPublishedDate() != null ? Timestamp.valueOf(episode.getPublishedDate()) : null;
+            byKey.put(key(episode.getGuid(), episode.getContentHash()), episode);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        Episode first = episodes.get(0);
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            List<Array> arrays = List.of(
+                    connection.createArrayOf("text", titles),
+                    connection.createArrayOf("text", descriptions),
+                    connection.createArrayOf("text", guids),
+                    connection.createArrayOf("text", contentHashes),
+                    connection.createArrayOf("text", audioUrls),
+                    connection.createArrayOf("timestamp", publishedDates));
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_EPISODES)) {
+                ps.setLong(1, first.getPodcast().getId());
+                ps.setString(2, first.getStatus().name());
+                ps.setTimestamp(3, Timestamp.valueOf(now));
+                ps.setTimestamp(4, Timestamp.valueOf(now));
+                for (int i = 0; i < arrays.size(); i++) {
+                    ps.setArray(5 + i, arrays.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Episode episode = byKey.get(key(rs.getString("guid"), rs.getString("content_hash")));
+                        if (episode != null) {
+                            episode.setId(rs.getLong("id"));
+                            episode.setCreatedAt(now);
+                            episode.setUpdatedAt(now);
+                            inserted.add(episode);
+                        }
+                    }
+                }
+            } finally {
+                for (Array array : arrays) {
+                    array.free();
+                }
+            }
+            return null;
+        });
+        return inserted;
+    }
+    
+    @Override
+    public List<EpisodeSummary> findPage(EpisodeFilter filter, KeysetCursor after, int limit, boolean withDescription) {
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT id, podcast_id, title, published_date, duration_seconds, status, " +
+                "created_at, " + SORT_DATE + " AS sort_date")
+                .append(withDescription ? ", description" : "")
+                .append(" FROM episodes WHERE ")
+                .append(where(filter, args));
+        if (after != null) {
+            sql.append(" AND (").append(SORT_DATE).append(", id) < (?, ?)");
+            args.add(Timestamp.valueOf(after.date()));
+            args.add(after.id());
+        }
+        sql.append(" ORDER BY sort_date DESC, id DESC LIMIT ?");
+        args.add(limit);
+        
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new EpisodeSummary(
+                rs.getLong("id"),
+                rs.getLong("podcast_id"),
+                rs.getString("title"),
+                withDescription ? rs.getString("description") : null,
+                toLocalDateTime(rs.getTimestamp("published_date")),
+                (Integer) rs.getObject("duration_seconds"),
+                ProcessingStatus.valueOf(rs.getString("status")),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                toLocalDateTime(rs.getTimestamp("sort_date"))), args.toArray());
+    }
+    
+    @Override
+    public Watermark findWatermark(EpisodeFilter filter) {
+        List<Object> args = new ArrayList<>();
+        String sql = "SELECT COUNT(*), MAX(updated_at) FROM episodes WHERE " + where(filter, args);
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
+                new Watermark(rs.getLong(1), toLocalDateTime(rs.getTimestamp(2))), args.toArray());
+    }
+    
+    private static String where(EpisodeFilter filter, List<Object> args) {
+        StringBuilder where = new StringBuilder("podcast_id = ?");
+        args.add(filter.getPodcastId());
+        if (filter.getStatuses() != null && !filter.getStatuses().isEmpty()) {
+            where.append(" AND status IN (")
+                    .append(filter.getStatuses().stream().map(s -> "?").collect(Collectors.joining(", ")))
+                    .append(")");
+            filter.getStatuses().forEach(status -> args.add(status.name()));
+        }
+        if (filter.getPublishedFrom() != null) {
+            where.append(" AND published_date >= ?");
+            args.add(Timestamp.valueOf(filter.getPublishedFrom().atStartOfDay()));
+        }
+        if (filter.getPublishedUntil() != null) {
+            where.append(" AND published_date < ?");
+            args.add(Timestamp.valueOf(filter.getPublishedUntil().plusDays(1).atStartOfDay()));
+        }
+        if (filter.getTitleContains() != null && !filter.getTitleContains().isBlank()) {
+            where.append(" AND title ILIKE ? ESCAPE '\\'");
+            args.add("%" + filter.getTitleContains().replaceAll("([\\\\%_])", "\\\\$1") + "%");
+        }
+        return where.toString();
+    }
+    
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+    
+    private static String key(String guid, String contentHash) {
+        return guid != null ? "g:" + guid : "h:" + contentHash;
+    }
+}
@@ -0,0 +1,35 @@
+package com.podcast.indexer.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Session settings for HNSW index scans, applied with SET LOCAL and so only for the
+ * current transaction.
+ */
+final class HnswScans {
+    
+    // Iterative index scans need pgvector 0.8; checked once
+    private static volatile Boolean iterativeScanSupported;
+    
+    private HnswScans() {
+    }
+    
+    static void configure(JdbcTemplate jdbcTemplate, int efSearch) {
+        jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+        if (supportsIterativeScan(jdbcTemplate)) {
+            // Keeps scanning the index until enough rows pass the filter
+            jdbcTemplate.execute("SET LOCAL hnsw.iterative_scan = relaxed_order");
+        }
+    }
+    
+    private static boolean supportsIterativeScan(JdbcTemplate jdbcTemplate) {
+        Boolean supported = iterativeScanSupported;
+        if (supported == null) {
+            supported = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE((SELECT string_to_array(extversion, '.')::int[] >= ARRAY[0, 8] " +
+                    "FROM pg_extension WHERE extname = 'vector'), false)", Boolean.class);
+            iterativeScanSupported = supported;
+        }
+        return Boolean.TRUE.equals(supported);
+    }
+}
@@ -0,0 +1,18 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.PodcastChunkCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PodcastChunkCountRepository extends JpaRepository<PodcastChunkCount, Long> {
+    List<PodcastChunkCount> findByPodcastIdIn(Collection<Long> podcastIds);
+    
+    @Query("SELECT MAX(c.updatedAt) FROM PodcastChunkCount c")
+    LocalDateTime findLastUpdatedAt();
+}
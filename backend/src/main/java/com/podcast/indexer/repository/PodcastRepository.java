@@ -1,13 +1,56 @@
 package com.podcast.indexer.repository;
 
 import com.podcast.indexer.model.Podcast;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PodcastRepository extends JpaRepository<Podcast, Long> {
+public interface PodcastRepository extends JpaRepository<Podcast, Long>, PodcastRepositoryCustom {
     Optional<Podcast> findByFeedUrl(String feedUrl);
     boolean existsByFeedUrl(String feedUrl);
+    
+    @Query("SELECT p.id AS id, p.feedUrl AS feedUrl, p.title AS title, p.imageUrl AS imageUrl, " +
+            "p.author AS author, p.createdAt AS createdAt, p.lastSyncedAt AS lastSyncedAt, " +
+            "p.downloadUntilDate AS downloadUntilDate, p.priority AS priority FROM Podcast p ORDER BY p.id")
+    List<PodcastSummary> findAllSummaries();
+    
+    @Query("SELECT COUNT(p) AS count, MAX(p.updatedAt) AS lastUpdatedAt FROM Podcast p")
+    Watermark findWatermark();
+    
+    @Query("SELECT p.id FROM Podcast p WHERE p.nextSyncAt IS NULL OR p.nextSyncAt <= :now " +
+            "ORDER BY p.nextSyncAt ASC NULLS FIRST")
+    List<Long> findIdsDueForSync(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Podcast p SET p.nextSyncAt = :nextSyncAt WHERE p.id IN :ids")
+    int updateNextSyncAt(@Param("ids") Collection<Long> ids, @Param("nextSyncAt") LocalDateTime nextSyncAt);
+    
+    interface PodcastSummary {
+        Long getId();
+        String getFeedUrl();
+        String getTitle();
+        String getImageUrl();
+        String getAuthor();
+        LocalDateTime getCreatedAt();
+        LocalDateTime getLastSyncedAt();
+        LocalDate getDownloadUntilDate();
+        Integer getPriority();
+    }
+    
+    interface Watermark {
+        long getCount();
+        LocalDateTime getLastUpdatedAt();
+    }
 }
@@ -0,0 +1,17 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.Podcast;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface PodcastRepositoryCustom {
+    Set<String> findExistingFeedUrls(Collection<String> feedUrls);
+    
+    /**
+     * Inserts the podcasts in one statement, silently skipping feed URLs that already
+     * exist. Returns the podcasts that were actually inserted, with their ids set.
+     */
+    List<Podcast> insertIgnoringDuplicates(List<Podcast> podcasts);
+}
@@ -0,0 +1,123 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.Podcast;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class PodcastRepositoryImpl implements PodcastRepositoryCustom {
+    
+    private static final String INSERT_PODCASTS =
+            "INSERT INTO podcasts (feed_url, title, description, image_url, author, download_until_date, " +
+            "next_sync_at, sync_failure_count, priority, created_at, updated_at) " +
+            "SELECT t.feed_url, t.title, t.description, t.image_url, t.author, t.download_until_date, " +
+            "t.next_sync_at, 0, 0, ?, ? " +
+            "FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::date[], ?::timestamp[]) " +
+            "AS t(feed_url, title, description, image_url, author, download_until_date, next_sync_at) " +
+            "ON CONFLICT (feed_url) DO NOTHING " +
+            "RETURNING id, feed_url";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public Set<String> findExistingFeedUrls(Collection<String> feedUrls) {
+        Set<String> existing = new HashSet<>();
+        if (feedUrls.isEmpty()) {
+            return existing;
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Array array = connection.createArrayOf("text", feedUrls.toArray());
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT feed_url FROM podcasts WHERE feed_url = ANY(?)")) {
+                ps.setArray(1, array);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getString(1));
+                    }
+                }
+            } finally {
+                array.free();
+            }
+            return null;
+        });
+        return existing;
+    }
+    
+    @Override
+    public List<Podcast> insertIgnoringDuplicates(List<Podcast> podcasts) {
+        List<Podcast> inserted = new ArrayList<>();
+        if (podcasts.isEmpty()) {
+            return inserted;
+        }
+        
+        int size = podcasts.size();
+        String[] feedUrls = new String[size];
+        String[] titles = new String[size];
+        String[] descriptions = new String[size];
+        String[] imageUrls = new String[size];
+        String[] authors = new String[size];
+        Date[] downloadUntilDates = new Date[size];
+        Timestamp[] nextSyncAts = new Timestamp[size];
+        Map<String, Podcast> byFeedUrl = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Podcast podcast = podcasts.get(i);
+            feedUrls[i] = podcast.getFeedUrl();
+            titles[i] = podcast.getTitle();
+            descriptions[i] = podcast.getDescription();
+            imageUrls[i] = podcast.getImageUrl();
+            authors[i] = podcast.getAuthor();
+            downloadUntilDates[i] = podcast.getDownloadUntilDate() != null ? Date.valueOf(podcast.getDownloadUntilDate()) : null;
+            nextSyncAts[i] = podcast.getNextSyncAt() != null ? Timestamp.valueOf(podcast.getNextSyncAt()) : null;
+            byFeedUrl.put(podcast.getFeedUrl(), podcast);
+        }
+        
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            List<Array> arrays = List.of(
+                    connection.createArrayOf("text", feedUrls),
+                    connection.createArrayOf("text", titles),
+                    connection.createArrayOf("text", descriptions),
+                    connection.createArrayOf("text", imageUrls),
+                    connection.createArrayOf("text", authors),
+                    connection.createArrayOf("date", downloadUntilDates),
+                    connection.createArrayOf("timestamp", nextSyncAts));
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_PODCASTS)) {
+                ps.setTimestamp(1, Timestamp.valueOf(now));
+                ps.setTimestamp(2, Timestamp.valueOf(now));
+                for (int i = 0; i < arrays.size(); i++) {
+                    ps.setArray(3 + i, arrays.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Podcast podcast = byFeedUrl.get(rs.getString("feed_url"));
+                        podcast.setId(rs.getLong("id"));
+                        podcast.setCreatedAt(now);
+                        podcast.setUpdatedAt(now);
+                        inserted.add(podcast);
+                    }
+                }
+            } finally {
+                for (Array array : arrays) {
+                    array.free();
+                }
+            }
+            return null;
+        });
+        return inserted;
+    }
+}
@@ -0,0 +1,18 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.PodcastStatusCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PodcastStatusCountRepository extends JpaRepository<PodcastStatusCount, Long> {
+    List<PodcastStatusCount> findByPodcastIdIn(Collection<Long> podcastIds);
+    
+    @Query("SELECT MAX(c.updatedAt) FROM PodcastStatusCount c")
+    LocalDateTime findLastUpdatedAt();
+}
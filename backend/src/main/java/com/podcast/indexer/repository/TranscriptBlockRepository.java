@@ -0,0 +1,55 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.TranscriptBlock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TranscriptBlockRepository extends JpaRepository<TranscriptBlock, Long>,
+        TranscriptBlockRepositoryCustom {
+    // The podcast id lets a partitioned table prune to one partition
+    boolean existsByPodcastIdAndEpisodeId(Long podcastId, Long episodeId);
+    boolean existsByPodcastIdAndEpisodeIdAndPartIndex(Long podcastId, Long episodeId, Integer partIndex);
+    boolean existsByPodcastIdAndEpisodeIdAndPartIndexAndLastBlockTrue(Long podcastId, Long episodeId,
+                                                                      Integer partIndex);
+    
+    @Query("SELECT MAX(b.endMs) FROM TranscriptBlock b " +
+            "WHERE b.podcastId = :podcastId AND b.episode.id = :episodeId AND b.partIndex < :partIndex")
+    Long findMaxEndMsBeforePart(@Param("podcastId") Long podcastId, @Param("episodeId") Long episodeId,
+                                @Param("partIndex") Integer partIndex);
+    
+    // Parts count as transcribed only once their last block is marked, not while blocks are still coming in
+    @Query("SELECT COUNT(DISTINCT b.partIndex) FROM TranscriptBlock b " +
+            "WHERE b.podcastId = :podcastId AND b.episode.id = :episodeId AND b.lastBlock = true")
+    int countTranscribedParts(@Param("podcastId") Long podcastId, @Param("episodeId") Long episodeId);
+    
+    @Query("SELECT DISTINCT b.episode.id AS episodeId, b.partIndex AS partIndex FROM TranscriptBlock b " +
+            "WHERE b.episode.id IN :episodeIds AND b.lastBlock = true")
+    List<TranscribedPart> findTranscribedParts(@Param("episodeIds") Collection<Long> episodeIds);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE TranscriptBlock b SET b.lastBlock = true WHERE b.podcastId = :podcastId " +
+            "AND b.episode.id = :episodeId AND b.partIndex = :partIndex AND b.blockIndex = :blockIndex")
+    int markLastBlock(@Param("podcastId") Long podcastId, @Param("episodeId") Long episodeId,
+                      @Param("partIndex") Integer partIndex, @Param("blockIndex") Integer blockIndex);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM TranscriptBlock b " +
+            "WHERE b.podcastId = :podcastId AND b.episode.id = :episodeId AND b.partIndex = :partIndex")
+    int deleteByEpisodeIdAndPartIndex(@Param("podcastId") Long podcastId, @Param("episodeId") Long episodeId,
+                                      @Param("partIndex") Integer partIndex);
+    
+    interface TranscribedPart {
+        Long getEpisodeId();
+        Integer getPartIndex();
+    }
+}
@@ -0,0 +1,16 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.TranscriptSegment;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface TranscriptBlockRepositoryCustom {
+    /**
+     * Decodes the episode's segments in transcript order without loading entities.
+     * Only segments starting at or after {@code fromStartMs} are passed on.
+     */
+    void forEachSegment(Long podcastId, Long episodeId, long fromStartMs, Consumer<TranscriptSegment> consumer);
+    
+    List<TranscriptSegment> findSegments(Long podcastId, Long episodeId);
+}
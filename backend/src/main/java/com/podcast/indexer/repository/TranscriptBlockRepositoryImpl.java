@@ -0,0 +1,40 @@
+package com.podcast.indexer.repository;
+
+import com.podcast.indexer.model.TranscriptSegment;
+import com.podcast.indexer.util.TranscriptBlockCodec;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@RequiredArgsConstructor
+public class TranscriptBlockRepositoryImpl implements TranscriptBlockRepositoryCustom {
+    
+    private static final String SELECT_BLOCKS =
+            "SELECT part_index, first_segment_index, data FROM transcript_blocks " +
+            "WHERE podcast_id = ? AND episode_id = ? AND end_ms >= ? " +
+            "ORDER BY part_index, block_index";
+    
+    private final JdbcTemplate jdbcTemplate;
+    
+    @Override
+    public void forEachSegment(Long podcastId, Long episodeId, long fromStartMs, Consumer<TranscriptSegment> consumer) {
+        jdbcTemplate.query(SELECT_BLOCKS, rs -> {
+            TranscriptBlockCodec.decode(rs.getBytes("data"), rs.getInt("part_index"),
+                    rs.getInt("first_segment_index"), segment -> {
+                        if (segment.getStartMs() >= fromStartMs) {
+                            consumer.accept(segment);
+                        }
+                    });
+        }, podcastId, episodeId, fromStartMs);
+    }
+    
+    @Override
+    public List<TranscriptSegment> findSegments(Long podcastId, Long episodeId) {
+        List<TranscriptSegment> segments = new ArrayList<>();
+        forEachSegment(podcastId, episodeId, Long.MIN_VALUE, segments::add);
+        return segments;
+    }
+}
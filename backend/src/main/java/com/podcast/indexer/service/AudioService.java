@@ -28,6 +28,7 @@ public class AudioService {
     private final EpisodeRepository episodeRepository;
     private final PodcastConfig config;
     private final JobQueueService jobQueueService;
+    private final EpisodeEventPublisher episodeEventPublisher;
     
     @Transactional
     public void downloadAudio(Long episodeId) {
@@ -41,6 +42,7 @@ public class AudioService {
         
         episode.setStatus(ProcessingStatus.DOWNLOADING);
         episodeRepository.save(episode);
+        episodeEventPublisher.statusChanged(episode);
         
         try {
             String audioPath = downloadFile(episode.getAudioUrl(), episodeId);
@@ -52,6 +54,7 @@ public class AudioService {
             
             episode.setStatus(ProcessingStatus.DOWNLOADED);
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
             
             log.info("Downloaded audio for episode {}: {} ({} seconds)", 
                     episodeId, episode.getTitle(), durationSeconds);
@@ -61,12 +64,17 @@ public class AudioService {
             if (durationSeconds != null && durationSeconds > maxMinutes * 60) {
                 List<String> parts = splitAudio(audioPath, maxMinutes * 60);
                 log.info("Split episode {} into {} parts", episodeId, parts.size());
+                episode.setAudioPartCount(parts.size());
+                episodeRepository.save(episode);
                 
                 // Queue transcription for each part
                 for (int i = 0; i < parts.size(); i++) {
                     jobQueueService.queueTranscribeJob(episodeId, i, parts.get(i));
                 }
             } else {
+                episode.setAudioPartCount(1);
+                episodeRepository.save(episode);
+                
                 // Queue transcription for whole file
                 jobQueueService.queueTranscribeJob(episodeId, 0, audioPath);
             }
@@ -74,7 +82,44 @@ public class AudioService {
             log.error("Failed to download audio for episode {}", episodeId, e);
             episode.setStatus(ProcessingStatus.FAILED);
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
+        }
+    }
+    
+    /**
+     * Deletes the downloaded audio and its split parts once they are no longer needed.
+     */
+    public void deleteAudio(Episode episode) {
+        if (episode.getAudioFilePath() == null) {
+            return;
+        }
+        Path audioPath = Paths.get(episode.getAudioFilePath());
+        int partCount = episode.getAudioPartCount() != null ? episode.getAudioPartCount() : 0;
+        
+        List<Path> files = new ArrayList<>();
+        files.add(audioPath);
+        if (partCount > 1) {
+            for (int i = 0; i < partCount; i++) {
+                files.add(Paths.get(partFilePath(episode.getAudioFilePath(), i)));
+            }
+        }
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete audio file {}", file, e);
+            }
         }
+        log.info("Deleted audio of episode {}", episode.getId());
+    }
+    
+    /**
+     * Path of one part written by {@link #splitAudio}, next to the full download.
+     */
+    public static String partFilePath(String audioFilePath, int partIndex) {
+        Path audioPath = Paths.get(audioFilePath);
+        String baseName = audioPath.getFileName().toString().replaceFirst("[.][^.]+$", "");
+        return audioPath.resolveSibling(baseName + "_part" + partIndex + getFileExtension(audioFilePath)).toString();
     }
     
     private String downloadFile(String audioUrl, Long episodeId) throws IOException {
@@ -92,7 +137,7 @@ public class AudioService {
         return targetPath.toString();
     }
     
-    private String getFileExtension(String url) {
+    private static String getFileExtension(String url) {
         String lowerUrl = url.toLowerCase();
         if (lowerUrl.contains(".mp3")) return ".mp3";
         if (lowerUrl.contains(".m4a")) return ".m4a";
@@ -127,9 +172,6 @@ public class AudioService {
     
     private List<String> splitAudio(String audioPath, int segmentDurationSeconds) throws IOException, InterruptedException {
         List<String> parts = new ArrayList<>();
-        Path inputPath = Paths.get(audioPath);
-        String baseName = inputPath.getFileName().toString().replaceFirst("[.][^.]+$", "");
-        Path parentDir = inputPath.getParent();
         
         Integer totalDuration = getAudioDuration(audioPath);
         if (totalDuration == null) {
@@ -138,7 +180,7 @@ public class AudioService {
         
         int partIndex = 0;
         for (int startTime = 0; startTime < totalDuration; startTime += segmentDurationSeconds) {
-            String outputPath = parentDir.resolve(baseName + "_part" + partIndex + getFileExtension(audioPath)).toString();
+            String outputPath = partFilePath(audioPath, partIndex);
             
             // Note: Using -c copy for fast splitting. This may cause slight inaccuracies
             // at split boundaries (especially with VBR files). For precise splits, 
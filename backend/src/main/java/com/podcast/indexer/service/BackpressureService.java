@@ -0,0 +1,90 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.repository.EpisodeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Decides which pipeline stages may take new work. Downloads pause while too
+ * many episodes wait for transcription or the audio volume is over budget, and
+ * transcription pauses while too many transcripts wait for indexing. The
+ * decision is cached for a few seconds since it is asked for every dequeue.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackpressureService {
+
+    private static final Set<ProcessingStatus> AWAITING_TRANSCRIPTION = EnumSet.of(
+            ProcessingStatus.DOWNLOADING, ProcessingStatus.DOWNLOADED, ProcessingStatus.TRANSCRIBING);
+    private static final Set<ProcessingStatus> AWAITING_INDEXING = EnumSet.of(
+            ProcessingStatus.TRANSCRIBED, ProcessingStatus.INDEXING);
+
+    private final EpisodeRepository episodeRepository;
+    private final PodcastConfig config;
+
+    private volatile Set<JobQueueService.JobType> pausedTypes = EnumSet.noneOf(JobQueueService.JobType.class);
+    private volatile long checkedAt;
+
+    public Set<JobQueueService.JobType> pausedJobTypes() {
+        long now = System.currentTimeMillis();
+        if (now - checkedAt >= config.getPipeline().getCheckIntervalSeconds() * 1000L) {
+            Set<JobQueueService.JobType> paused = evaluate();
+            if (!paused.equals(pausedTypes)) {
+                log.info("Pipeline backpressure: paused stages changed from {} to {}", pausedTypes, paused);
+            }
+            pausedTypes = paused;
+            checkedAt = now;
+        }
+        return pausedTypes;
+    }
+
+    private Set<JobQueueService.JobType> evaluate() {
+        PodcastConfig.Pipeline pipeline = config.getPipeline();
+        Set<JobQueueService.JobType> paused = EnumSet.noneOf(JobQueueService.JobType.class);
+        try {
+            long awaitingTranscription = episodeRepository.countByStatusIn(AWAITING_TRANSCRIPTION);
+            long audioBytes = audioStorageBytes();
+            if (awaitingTranscription >= pipeline.getMaxEpisodesAwaitingTranscription()
+                    || audioBytes >= pipeline.getMaxAudioStorageGb() * 1024 * 1024 * 1024) {
+                log.debug("Download stage saturated: {} episodes awaiting transcription, {} bytes of audio",
+                        awaitingTranscription, audioBytes);
+                paused.add(JobQueueService.JobType.DOWNLOAD_AUDIO);
+            }
+
+            long awaitingIndexing = episodeRepository.countByStatusIn(AWAITING_INDEXING);
+            if (awaitingIndexing >= pipeline.getMaxEpisodesAwaitingIndexing()) {
+                log.debug("Transcription stage saturated: {} episodes awaiting indexing", awaitingIndexing);
+                paused.add(JobQueueService.JobType.TRANSCRIBE);
+            }
+        } catch (Exception e) {
+            // Keep the previous decision rather than flooding the pipeline on a transient error
+            log.warn("Failed to evaluate pipeline backpressure", e);
+            return pausedTypes;
+        }
+        return paused;
+    }
+
+    private long audioStorageBytes() throws IOException {
+        Path audioDir = Paths.get(config.getAudio().getStorage().getPath());
+        if (!Files.isDirectory(audioDir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(audioDir)) {
+            return files.filter(Files::isRegularFile)
+                    .mapToLong(file -> file.toFile().length())
+                    .sum();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.util.MinHash;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Detects per-podcast boilerplate (intros, outros, sponsor reads) by
+ * fingerprinting chunks with MinHash and counting the distinct episodes that
+ * share an LSH bucket. Buckets live in Redis sets keyed by podcast.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BoilerplateDetector {
+    
+    private static final String KEY_PREFIX = "podcast:boilerplate:";
+    private static final int NUM_HASHES = 64;
+    private static final int BANDS = 16; // 4 rows per band, ~50% Jaccard threshold
+    
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PodcastConfig config;
+    
+    /**
+     * Records the chunk as seen in the episode and reports whether near-identical
+     * text has now been seen in at least the configured number of episodes.
+     */
+    public boolean isBoilerplate(Long podcastId, Long episodeId, String text) {
+        PodcastConfig.Indexing.Boilerplate settings = config.getIndexing().getBoilerplate();
+        if (!settings.isEnabled()) {
+            return false;
+        }
+        
+        long[] bands = MinHash.bandHashes(MinHash.signature(text, NUM_HASHES), BANDS);
+        Duration ttl = Duration.ofDays(settings.getTtlDays());
+        String member = String.valueOf(episodeId);
+        
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (int b = 0; b < bands.length; b++) {
+                        String key = KEY_PREFIX + podcastId + ":" + b + ":" + Long.toHexString(bands[b]);
+                        ops.opsForSet().add(key, member);
+                        ops.opsForSet().size(key);
+                        ops.expire(key, ttl);
+                    }
+                    return null;
+                }
+            });
+            
+            // Results come back as [add, size, expire] per band
+            for (int i = 1; i < results.size(); i += 3) {
+                Object size = results.get(i);
+                if (size instanceof Long && (Long) size >= settings.getMinEpisodes()) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Boilerplate lookup failed for podcast {}, indexing chunk anyway", podcastId, e);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.model.TranscriptSegment;
+
+import java.util.List;
+
+/**
+ * Groups consecutive transcript segments into the chunks that get embedded. The
+ * implementation is picked by {@code podcast.indexing.chunking.strategy}.
+ */
+public interface Chunker {
+    
+    /**
+     * Chunks the segments in order. Unless {@code endOfTranscript} is set, a trailing
+     * chunk that more segments could still fill is held back.
+     *
+     * @return the chunks, and how many leading segments later calls no longer need
+     */
+    Result chunk(List<TranscriptSegment> segments, boolean endOfTranscript);
+    
+    /**
+     * Index of the first of the trailing segments of a finished chunk that are repeated
+     * at the start of the next chunk; the size of the list if none are.
+     */
+    int overlapStart(List<TranscriptSegment> chunkSegments);
+    
+    record Chunk(String text, long startMs, long endMs) {
+    }
+    
+    record Result(List<Chunk> chunks, int consumed) {
+    }
+}
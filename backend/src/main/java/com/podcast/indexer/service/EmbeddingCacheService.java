@@ -0,0 +1,100 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.util.EmbeddingUtils;
+import com.podcast.indexer.util.HashUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Content-addressed cache of chunk embeddings. Intros, outros and ad reads
+ * repeat across episodes, so identical text is only embedded once per model.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingCacheService {
+    
+    private static final String KEY_PREFIX = "podcast:embedding-cache:";
+    
+    private final RedisTemplate<String, String> redisTemplate;
+    private final EmbeddingProviders embeddingProviders;
+    private final PodcastConfig config;
+    
+    /**
+     * Returns the embedding of the text by the given model in pgvector string format.
+     */
+    public String getEmbedding(String model, String text) {
+        return getEmbeddings(model, List.of(text)).get(0);
+    }
+    
+    /**
+     * Returns the embeddings of the texts by the given model, in order. Texts not in the
+     * cache are embedded in one call, so providers that batch can do so.
+     */
+    public List<String> getEmbeddings(String model, List<String> texts) {
+        PodcastConfig.Indexing.EmbeddingCache cache = config.getIndexing().getEmbeddingCache();
+        if (texts.isEmpty() || !cache.isEnabled()) {
+            return embed(model, texts);
+        }
+        
+        List<String> keys = texts.stream().map(text -> cacheKey(model, text)).toList();
+        List<String> embeddings = new ArrayList<>(readCache(keys));
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < embeddings.size(); i++) {
+            if (embeddings.get(i) == null) {
+                missing.add(i);
+            }
+        }
+        if (missing.isEmpty()) {
+            return embeddings;
+        }
+        
+        List<String> computed = embed(model, missing.stream().map(texts::get).toList());
+        for (int i = 0; i < missing.size(); i++) {
+            int index = missing.get(i);
+            embeddings.set(index, computed.get(i));
+            writeCache(keys.get(index), computed.get(i), cache.getTtlDays());
+        }
+        return embeddings;
+    }
+    
+    private List<String> embed(String model, List<String> texts) {
+        return embeddingProviders.embedAll(model, texts).stream()
+                .map(EmbeddingUtils::convertEmbeddingToString)
+                .toList();
+    }
+    
+    private String cacheKey(String model, String text) {
+        String normalized = text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").trim();
+        return KEY_PREFIX + HashUtils.sha256Hex(model + "\n" + normalized);
+    }
+    
+    private List<String> readCache(List<String> keys) {
+        try {
+            List<String> cached = redisTemplate.opsForValue().multiGet(keys);
+            if (cached != null) {
+                return cached;
+            }
+        } catch (Exception e) {
+            log.warn("Embedding cache lookup failed, embedding without cache", e);
+        }
+        return Collections.nCopies(keys.size(), null);
+    }
+    
+    private void writeCache(String key, String embedding, int ttlDays) {
+        try {
+            redisTemplate.opsForValue().set(key, embedding, ttlDays, TimeUnit.DAYS);
+        } catch (Exception e) {
+            log.warn("Failed to store embedding in cache", e);
+        }
+    }
+}
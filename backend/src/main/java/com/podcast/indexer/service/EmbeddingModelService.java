@@ -0,0 +1,275 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.model.EmbeddingModelStatus;
+import com.podcast.indexer.repository.EmbeddingModelRepository;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Keeps track of which embedding model the searched vectors come from. Changing
+ * {@code podcast.embedding.model} does not change it: the new model is
+ * registered as migrating, every chunk gets a second embedding from it in shadow
+ * columns, and once all have one the shadow columns replace the searched ones in a
+ * single short transaction. Until then queries keep using the old model.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingModelService {
+
+    // Serializes model registration and switches across instances
+    private static final long MODEL_LOCK_ID = 0x656d6264L;
+    private static final int BACKFILL_BATCH_SIZE = 50000;
+    private static final int CENTROID_BATCH_SIZE = 500;
+    // Largest vectors pgvector builds HNSW indexes for
+    private static final int MAX_INDEXED_DIMENSIONS = 2000;
+    // The former default, which the vector(768) columns were declared for before models were tracked
+    static final String LEGACY_MODEL = "nomic-embed-text";
+
+    private final EmbeddingModelRepository embeddingModelRepository;
+    private final EpisodeEmbeddingRepository episodeEmbeddingRepository;
+    private final VectorIndexService vectorIndexService;
+    private final EmbeddingProviders embeddingProviders;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PodcastConfig config;
+
+    // After partitioning, before anything writes chunks with a model id
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void registerActiveModel() {
+        String configured = config.getEmbedding().getModel();
+        if (findActiveModel().isPresent()) {
+            backfillModelIds(activeModel());
+            logPendingSwitch(configured);
+            return;
+        }
+        int dimensions = probeDimensions(configured);
+        EmbeddingModel active = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MODEL_LOCK_ID + ")");
+            return findActiveModel().orElseGet(() -> register(configured, dimensions));
+        });
+        backfillModelIds(active);
+        if (!active.getName().equals(configured) && migratingModel().isEmpty()) {
+            startMigration(configured);
+        }
+        logPendingSwitch(configured);
+    }
+    public Optional<EmbeddingModel> findActiveModel() {
+        return embeddingModelRepository.findFirstByStatus(EmbeddingModelStatus.ACTIVE);
+    }
+
+    public EmbeddingModel activeModel() {
+        return findActiveModel().orElseThrow(() -> new IllegalStateException("No active embedding model"));
+    }
+
+    public Optional<EmbeddingModel> migratingModel() {
+        return embeddingModelRepository.findFirstByStatus(EmbeddingModelStatus.MIGRATING);
+    }
+
+    /**
+     * Registers the model as migrating and adds the shadow columns for its embeddings,
+     * sized from a probe embedding. A migration to another model is abandoned.
+     */
+    public EmbeddingModel startMigration(String name) {
+        int dimensions = probeDimensions(name);
+        EmbeddingModel model = transactionTemplate.execute(status -> {
+            lockModels();
+            migratingModel().ifPresent(this::retire);
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks DROP COLUMN IF EXISTS embedding_next, " +
+                    "DROP COLUMN IF EXISTS embedding_next_model_id");
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks ADD COLUMN embedding_next vector(" + dimensions + "), " +
+                    "ADD COLUMN embedding_next_model_id bigint");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings DROP COLUMN IF EXISTS embedding_next");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings ADD COLUMN embedding_next vector(" + dimensions + ")");
+            return embeddingModelRepository.save(EmbeddingModel.builder()
+                    .name(name)
+                    .dimensions(dimensions)
+                    .status(EmbeddingModelStatus.MIGRATING)
+                    .build());
+        });
+        log.info("Started re-embedding chunks with {} ({} dimensions)", name, dimensions);
+        return model;
+    }
+
+    /**
+     * Stops a migration, e.g. because the configured model was changed back, and drops
+     * its shadow columns.
+     */
+    public void abandonMigration(EmbeddingModel model) {
+        transactionTemplate.executeWithoutResult(status -> {
+            lockModels();
+            retire(model);
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks DROP COLUMN IF EXISTS embedding_next, " +
+                    "DROP COLUMN IF EXISTS embedding_next_model_id");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings DROP COLUMN IF EXISTS embedding_next");
+        });
+        log.info("Abandoned re-embedding chunks with {}", model.getName());
+    }
+
+    /**
+     * Makes a migrating model the active one, once every chunk has an embedding from it:
+     * computes the episode centroids and builds the vector indexes on the shadow columns
+     * while the old ones are still searched, then swaps the columns if the fence,
+     * checked in the swap's transaction, still lets this node write.
+     */
+    public void completeMigration(EmbeddingModel model, BooleanSupplier fence) {
+        LocalDateTime centroidsFrom = jdbcTemplate.queryForObject("SELECT localtimestamp", LocalDateTime.class);
+        long afterId = 0;
+        List<Long> batch;
+        do {
+            batch = episodeEmbeddingRepository.updateNextCentroids(afterId, CENTROID_BATCH_SIZE);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+            }
+        } while (batch.size() == CENTROID_BATCH_SIZE);
+        vectorIndexService.buildNextIndexes();
+
+        EmbeddingModel previous = transactionTemplate.execute(status -> {
+            if (!fence.getAsBoolean()) {
+                return null;
+            }
+            lockModels();
+            // Readers wait for the swap, which only changes the catalog
+            jdbcTemplate.execute("LOCK TABLE embedding_chunks, episode_embeddings IN ACCESS EXCLUSIVE MODE");
+            episodeEmbeddingRepository.updateChangedNextCentroids(centroidsFrom);
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks DROP COLUMN embedding, DROP COLUMN embedding_model_id");
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks RENAME COLUMN embedding_next TO embedding");
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks RENAME COLUMN embedding_next_model_id TO embedding_model_id");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings DROP COLUMN embedding");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings RENAME COLUMN embedding_next TO embedding");
+            jdbcTemplate.execute("ALTER TABLE episode_embeddings ALTER COLUMN embedding SET NOT NULL");
+            vectorIndexService.promoteNextIndexes();
+            EmbeddingModel active = activeModel();
+            retire(active);
+            jdbcTemplate.update("UPDATE embedding_models SET status = ?, activated_at = now() WHERE id = ?",
+                    EmbeddingModelStatus.ACTIVE.name(), model.getId());
+            return active;
+        });
+        if (previous != null) {
+            log.info("Switched embedding model from {} to {}", previous.getName(), model.getName());
+        }
+    }
+
+    /**
+     * Saves the position the re-embedding of a migrating model reached.
+     */
+    public void saveProgress(EmbeddingModel model, long podcastId, long chunkId) {
+        jdbcTemplate.update("UPDATE embedding_models SET reembedded_podcast_id = ?, reembedded_chunk_id = ? " +
+                "WHERE id = ?", podcastId, chunkId, model.getId());
+        model.setReembeddedPodcastId(podcastId);
+        model.setReembeddedChunkId(chunkId);
+    }
+
+    /**
+     * Registers the first tracked model. The vector columns are sized for the configured
+     * model while they are empty; chunks already in them came from another model when
+     * their size differs, so they are kept searchable under the former default model
+     * until they are re-embedded.
+     */
+    private EmbeddingModel register(String configured, int dimensions) {
+        // Waits for writers, so no row arrives between the check and the resize
+        jdbcTemplate.execute("LOCK TABLE embedding_chunks, episode_embeddings IN ACCESS EXCLUSIVE MODE");
+        Integer columnDimensions = jdbcTemplate.queryForObject(
+                "SELECT atttypmod FROM pg_attribute WHERE attrelid = to_regclass('embedding_chunks') " +
+                "AND attname = 'embedding'", Integer.class);
+        String name = configured;
+        if (columnDimensions == null || columnDimensions != dimensions) {
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT NOT EXISTS (SELECT 1 FROM embedding_chunks) " +
+                    "AND NOT EXISTS (SELECT 1 FROM episode_embeddings)", Boolean.class))) {
+                log.info("Resizing the embedding columns from {} to the {} dimensions of {}",
+                        columnDimensions, dimensions, configured);
+                jdbcTemplate.execute("ALTER TABLE embedding_chunks ALTER COLUMN embedding TYPE vector(" + dimensions + ")");
+                jdbcTemplate.execute("ALTER TABLE episode_embeddings ALTER COLUMN embedding TYPE vector(" + dimensions + ")");
+            } else {
+                name = LEGACY_MODEL;
+                dimensions = columnDimensions;
+            }
+        }
+        log.info("Registering {} as the active embedding model", name);
+        return embeddingModelRepository.save(EmbeddingModel.builder()
+                .name(name)
+                .dimensions(dimensions)
+                .status(EmbeddingModelStatus.ACTIVE)
+                .activatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    private int probeDimensions(String name) {
+        int dimensions = embeddingProviders.embed(name, "dimension probe").size();
+        if (dimensions > MAX_INDEXED_DIMENSIONS) {
+            throw new IllegalStateException("Embedding model " + name + " produces " + dimensions +
+                    " dimensions, more than HNSW indexes support");
+        }
+        return dimensions;
+    }
+
+    private void logPendingSwitch(String configured) {
+        String active = activeModel().getName();
+        if (!active.equals(configured)) {
+            log.info("Searching with embedding model {} until chunks are re-embedded with {}", active, configured);
+        }
+    }
+
+    /**
+     * Waits for chunk inserts, which hold the models' rows FOR SHARE until they commit
+     * and write the embeddings of exactly the models they saw.
+     */
+    private void lockModels() {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MODEL_LOCK_ID + ")");
+        jdbcTemplate.queryForList("SELECT id FROM embedding_models WHERE status IN ('ACTIVE', 'MIGRATING') FOR UPDATE");
+    }
+
+    private void retire(EmbeddingModel model) {
+        jdbcTemplate.update("UPDATE embedding_models SET status = ? WHERE id = ?",
+                EmbeddingModelStatus.RETIRED.name(), model.getId());
+    }
+
+    /**
+     * Tags chunks written before models were tracked with the active model, in id ranges
+     * that each commit on their own, then marks the column NOT NULL.
+     */
+    private void backfillModelIds(EmbeddingModel active) {
+        Boolean notNull = jdbcTemplate.queryForObject(
+                "SELECT attnotnull FROM pg_attribute WHERE attrelid = to_regclass('embedding_chunks') " +
+                "AND attname = 'embedding_model_id'", Boolean.class);
+        if (Boolean.TRUE.equals(notNull)) {
+            return;
+        }
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS first_id, MAX(id) AS last_id FROM embedding_chunks WHERE embedding_model_id IS NULL");
+        if (range.get("first_id") != null) {
+            long firstId = ((Number) range.get("first_id")).longValue();
+            long lastId = ((Number) range.get("last_id")).longValue();
+            long updated = 0;
+            for (long from = firstId; from <= lastId; from += BACKFILL_BATCH_SIZE) {
+                updated += jdbcTemplate.update("UPDATE embedding_chunks SET embedding_model_id = ? " +
+                        "WHERE embedding_model_id IS NULL AND id >= ? AND id < ?",
+                        active.getId(), from, from + BACKFILL_BATCH_SIZE);
+            }
+            log.info("Tagged {} chunks with embedding model {}", updated, active.getName());
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE embedding_chunks ALTER COLUMN embedding_model_id SET NOT NULL");
+        } catch (Exception e) {
+            // Rows written meanwhile by instances of the previous version; the next start catches up
+            log.warn("Could not yet mark embedding_chunks.embedding_model_id NOT NULL: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.podcast.indexer.service;
+
+import java.util.List;
+
+/**
+ * Computes text embeddings with the models of one runtime. Model ids name the
+ * provider before a colon, e.g. {@code onnx:all-MiniLM-L6-v2}; {@link EmbeddingProviders}
+ * routes them and passes on the part after the colon.
+ */
+public interface EmbeddingProvider {
+    
+    /**
+     * Prefix of the model ids this provider serves.
+     */
+    String name();
+    
+    List<Double> embed(String model, String text);
+    
+    /**
+     * Embeds several texts, in order. Providers that can batch override this.
+     */
+    default List<List<Double>> embedAll(String model, List<String> texts) {
+        return texts.stream().map(text -> embed(model, text)).toList();
+    }
+}
@@ -0,0 +1,53 @@
+package com.podcast.indexer.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Routes a model id to the provider named before its colon. Ids without a known
+ * provider prefix are Ollama models, whose names may contain a colon themselves
+ * ({@code nomic-embed-text:latest}).
+ */
+@Service
+public class EmbeddingProviders {
+    
+    static final String DEFAULT_PROVIDER = OllamaEmbeddingProvider.NAME;
+    
+    private final Map<String, EmbeddingProvider> providers;
+    
+    public EmbeddingProviders(List<EmbeddingProvider> providers) {
+        this.providers = providers.stream().collect(Collectors.toMap(EmbeddingProvider::name, Function.identity()));
+    }
+    
+    public List<Double> embed(String model, String text) {
+        Route route = route(model);
+        return route.provider().embed(route.model(), text);
+    }
+    
+    public List<List<Double>> embedAll(String model, List<String> texts) {
+        if (texts.isEmpty()) {
+            return List.of();
+        }
+        Route route = route(model);
+        return route.provider().embedAll(route.model(), texts);
+    }
+    
+    private Route route(String model) {
+        int colon = model.indexOf(':');
+        if (colon > 0 && providers.containsKey(model.substring(0, colon))) {
+            return new Route(providers.get(model.substring(0, colon)), model.substring(colon + 1));
+        }
+        EmbeddingProvider provider = providers.get(DEFAULT_PROVIDER);
+        if (provider == null) {
+            throw new IllegalStateException("No embedding provider for model " + model);
+        }
+        return new Route(provider, model);
+    }
+    
+    private record Route(EmbeddingProvider provider, String model) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.podcast.indexer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.podcast.indexer.dto.EpisodeEvent;
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.ProcessingStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+
+/**
+ * Announces episode changes on the Redis channel of their podcast, so API nodes can
+ * push them to open pages. Events raised inside a transaction go out after it commits.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EpisodeEventPublisher {
+    
+    public static final String CHANNEL_PREFIX = "podcast:events:";
+    
+    private final ApplicationEventPublisher applicationEventPublisher;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final ObjectMapper objectMapper;
+    
+    public void statusChanged(Episode episode) {
+        applicationEventPublisher.publishEvent(EpisodeEvent.builder()
+                .type(EpisodeEvent.Type.STATUS_CHANGED)
+                .podcastId(episode.getPodcast().getId())
+                .episodeId(episode.getId())
+                .status(episode.getStatus())
+                .durationSeconds(episode.getDurationSeconds())
+                .build());
+    }
+    
+    public void statusChanged(Long podcastId, Long episodeId, ProcessingStatus status) {
+        applicationEventPublisher.publishEvent(EpisodeEvent.builder()
+                .type(EpisodeEvent.Type.STATUS_CHANGED)
+                .podcastId(podcastId)
+                .episodeId(episodeId)
+                .status(status)
+                .build());
+    }
+    
+    public void added(Collection<Episode> episodes) {
+        for (Episode episode : episodes) {
+            applicationEventPublisher.publishEvent(EpisodeEvent.builder()
+                    .type(EpisodeEvent.Type.ADDED)
+                    .podcastId(episode.getPodcast().getId())
+                    .episodeId(episode.getId())
+                    .status(episode.getStatus())
+                    .title(episode.getTitle())
+                    .publishedDate(episode.getPublishedDate())
+                    .build());
+        }
+    }
+    
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(EpisodeEvent event) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL_PREFIX + event.getPodcastId(), objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // Progress updates are best effort; the page still shows the state on reload
+            log.warn("Failed to publish {} event for episode {}", event.getType(), event.getEpisodeId(), e);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.PatternTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Relays episode events from Redis to the server-sent event streams of the clients
+ * watching each podcast. One pattern subscription serves all streams of this node.
+ */
+@Service
+@ConditionalOnRole(Role.API)
+@RequiredArgsConstructor
+@Slf4j
+public class EpisodeEventStreamService implements MessageListener {
+    
+    // Clients reconnect on their own, so streams are recycled now and then
+    private static final long STREAM_TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+    
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Map<Long, Set<SseEmitter>> emitters = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new PatternTopic(EpisodeEventPublisher.CHANNEL_PREFIX + "*"));
+    }
+    
+    public SseEmitter open(Long podcastId) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        emitters.computeIfAbsent(podcastId, id -> ConcurrentHashMap.newKeySet()).add(emitter);
+        emitter.onCompletion(() -> remove(podcastId, emitter));
+        emitter.onTimeout(() -> remove(podcastId, emitter));
+        emitter.onError(e -> remove(podcastId, emitter));
+        // Spring holds back the headers until the first write; sending now lets the client see
+        // the stream open and reload what it may have missed while disconnected
+        send(podcastId, emitter, SseEmitter.event().comment("connected"));
+        return emitter;
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        Long podcastId;
+        try {
+            podcastId = Long.valueOf(channel.substring(EpisodeEventPublisher.CHANNEL_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return;
+        }
+        Set<SseEmitter> watching = emitters.get(podcastId);
+        if (watching == null) {
+            return;
+        }
+        String json = new String(message.getBody(), StandardCharsets.UTF_8);
+        for (SseEmitter emitter : watching) {
+            send(podcastId, emitter, SseEmitter.event().name("episode").data(json, MediaType.APPLICATION_JSON));
+        }
+    }
+    
+    // Keeps idle streams from being closed by proxies
+    @Scheduled(fixedRate = 25000)
+    public void heartbeat() {
+        emitters.forEach((podcastId, watching) ->
+                watching.forEach(emitter -> send(podcastId, emitter, SseEmitter.event().comment("heartbeat"))));
+    }
+    
+    private void send(Long podcastId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping event stream of podcast {}", podcastId, e);
+            remove(podcastId, emitter);
+        }
+    }
+    
+    private void remove(Long podcastId, SseEmitter emitter) {
+        emitters.computeIfPresent(podcastId, (id, watching) -> {
+            watching.remove(emitter);
+            return watching.isEmpty() ? null : watching;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.util.HashUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Downloads feeds with conditional requests (ETag / Last-Modified) and
+ * transparent gzip/deflate decoding, so unchanged feeds cost a 304.
+ */
+@Component
+public class FeedFetcher {
+
+    private final HttpClient httpClient;
+    private final PodcastConfig.Feed settings;
+
+    public FeedFetcher(PodcastConfig config) {
+        this.settings = config.getFeed();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(settings.getConnectTimeoutSeconds()))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    public FeedResponse fetch(String feedUrl) throws IOException {
+        return fetch(feedUrl, null, null);
+    }
+
+    public FeedResponse fetch(String feedUrl, String etag, String lastModified) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(feedUrl))
+                .timeout(Duration.ofSeconds(settings.getRequestTimeoutSeconds()))
+                .header("User-Agent", settings.getUserAgent())
+                .header("Accept", "application/rss+xml, application/atom+xml, application/xml;q=0.9, */*;q=0.8")
+                .header("Accept-Encoding", "gzip, deflate")
+                .GET();
+        if (etag != null) {
+            request.header("If-None-Match", etag);
+        }
+        if (lastModified != null) {
+            request.header("If-Modified-Since", lastModified);
+        }
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + feedUrl, e);
+        }
+
+        String newEtag = response.headers().firstValue("ETag").orElse(etag);
+        String newLastModified = response.headers().firstValue("Last-Modified").orElse(lastModified);
+
+        if (response.statusCode() == 304) {
+            response.body().close();
+            return new FeedResponse(true, null, null, null, newEtag, newLastModified);
+        }
+        if (response.statusCode() >= 400) {
+            response.body().close();
+            throw new IOException("Feed " + feedUrl + " returned HTTP " + response.statusCode());
+        }
+
+        byte[] body;
+        try (InputStream in = decode(response)) {
+            body = in.readAllBytes();
+        }
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        return new FeedResponse(false, body, HashUtils.sha256Hex(body), contentType, newEtag, newLastModified);
+    }
+
+    private InputStream decode(HttpResponse<InputStream> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("").trim();
+        if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return new GZIPInputStream(response.body());
+        }
+        if (encoding.equalsIgnoreCase("deflate")) {
+            return new InflaterInputStream(response.body());
+        }
+        return response.body();
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class FeedResponse {
+        private boolean notModified;
+        private byte[] body;
+        private String bodyHash;
+        private String contentType;
+        private String etag;
+        private String lastModified;
+        
+        public InputStream bodyStream() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.podcast.indexer.service;
+
+import com.rometools.rome.feed.synd.SyndEntry;
+import com.rometools.rome.feed.synd.SyndFeed;
+import com.rometools.rome.io.SyndFeedInput;
+import com.rometools.rome.io.XmlReader;
+import com.rometools.rome.io.impl.DateParser;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Pulls only the item fields we persist out of an RSS or Atom feed with StAX,
+ * without building a DOM of the whole document. As long as the items seen so
+ * far are newest-first, parsing stops at the first item older than the
+ * download cutoff or at the newest item of the previous sync, so a large back
+ * catalogue is never read. Anything the streaming parser does not understand
+ * is handed to ROME instead.
+ */
+@Component
+@Slf4j
+public class FeedItemParser {
+
+    private static final String ATOM_NS = "http://www.w3.org/2005/Atom";
+    private static final String DC_NS = "http://purl.org/dc/elements/1.1/";
+
+    private final XMLInputFactory inputFactory;
+
+    public FeedItemParser() {
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    /**
+     * @param downloadUntilDate items published before this date end the parse early (may be null)
+     * @param lastSeenGuid      the newest GUID of the previous sync; ends the parse early (may be null)
+     */
+    public List<FeedItem> parse(FeedFetcher.FeedResponse response, LocalDate downloadUntilDate, String lastSeenGuid) {
+        try (InputStream in = response.bodyStream()) {
+            return parseStreaming(in, downloadUntilDate, lastSeenGuid);
+        } catch (Exception e) {
+            log.debug("Streaming parse failed ({}), falling back to ROME", e.getMessage());
+        }
+        return parseWithRome(response);
+    }
+
+    List<FeedItem> parseStreaming(InputStream in, LocalDate downloadUntilDate, String lastSeenGuid)
+            throws XMLStreamException {
+        XMLStreamReader reader = inputFactory.createXMLStreamReader(in);
+        try {
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT) {
+                throw new XMLStreamException("Missing root element");
+            }
+            String root = reader.getLocalName();
+            String itemName;
+            if ("rss".equals(root) || "RDF".equals(root)) {
+                itemName = "item";
+            } else if ("feed".equals(root) && ATOM_NS.equals(reader.getNamespaceURI())) {
+                itemName = "entry";
+            } else {
+                throw new XMLStreamException("Unsupported feed root element: " + root);
+            }
+
+            List<FeedItem> items = new ArrayList<>();
+            boolean newestFirst = true;
+            LocalDateTime previousDate = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !itemName.equals(reader.getLocalName())) {
+                    continue;
+                }
+                FeedItem item = "entry".equals(itemName) ? readAtomEntry(reader) : readRssItem(reader);
+
+                // Early termination is only safe while the feed is provably sorted newest-first
+                LocalDateTime date = item.getPublishedDate();
+                if (date == null || (previousDate != null && date.isAfter(previousDate))) {
+                    newestFirst = false;
+                }
+                previousDate = date;
+                if (newestFirst) {
+                    if (lastSeenGuid != null && lastSeenGuid.equals(item.getGuid())) {
+                        break;
+                    }
+                    if (downloadUntilDate != null && date.toLocalDate().isBefore(downloadUntilDate)) {
+                        break;
+                    }
+                }
+                items.add(item);
+            }
+            return items;
+        } finally {
+            reader.close();
+        }
+    }
+
+    private FeedItem readRssItem(XMLStreamReader reader) throws XMLStreamException {
+        String itemNs = Objects.toString(reader.getNamespaceURI(), "");
+        String guid = null;
+        String link = null;
+        String dcDate = null;
+        FeedItem item = new FeedItem();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String ns = Objects.toString(reader.getNamespaceURI(), "");
+            String name = reader.getLocalName();
+            if (DC_NS.equals(ns) && "date".equals(name)) {
+                dcDate = readText(reader);
+            } else if (!itemNs.equals(ns)) {
+                skipElement(reader);
+            } else if ("guid".equals(name)) {
+                guid = readText(reader);
+            } else if ("link".equals(name)) {
+                link = readText(reader);
+            } else if ("title".equals(name)) {
+                item.setTitle(readText(reader));
+            } else if ("description".equals(name)) {
+                item.setDescription(readText(reader));
+            } else if ("pubDate".equals(name)) {
+                item.setPublishedDate(parseDate(readText(reader)));
+            } else if ("enclosure".equals(name)) {
+                if (item.getAudioUrl() == null) {
+                    item.setAudioUrl(reader.getAttributeValue(null, "url"));
+                }
+                skipElement(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        // Same identity rules as ROME: the GUID, or the link when there is none
+        item.setGuid(guid != null ? guid : link);
+        if (item.getPublishedDate() == null && dcDate != null) {
+            item.setPublishedDate(parseDate(dcDate));
+        }
+        return item;
+    }
+
+    private FeedItem readAtomEntry(XMLStreamReader reader) throws XMLStreamException {
+        String updated = null;
+        FeedItem item = new FeedItem();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String name = reader.getLocalName();
+            if (!ATOM_NS.equals(reader.getNamespaceURI())) {
+                skipElement(reader);
+            } else if ("id".equals(name)) {
+                item.setGuid(readText(reader));
+            } else if ("title".equals(name)) {
+                item.setTitle(readText(reader));
+            } else if ("summary".equals(name)) {
+                item.setDescription(readText(reader));
+            } else if ("published".equals(name)) {
+                item.setPublishedDate(parseDate(readText(reader)));
+            } else if ("updated".equals(name)) {
+                updated = readText(reader);
+            } else if ("link".equals(name)) {
+                if (item.getAudioUrl() == null && "enclosure".equals(reader.getAttributeValue(null, "rel"))) {
+                    item.setAudioUrl(reader.getAttributeValue(null, "href"));
+                }
+                skipElement(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        if (item.getPublishedDate() == null && updated != null) {
+            item.setPublishedDate(parseDate(updated));
+        }
+        return item;
+    }
+
+    /**
+     * Returns the text content of the current element, including that of any nested
+     * markup (e.g. XHTML), and leaves the reader on its end tag.
+     */
+    private String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    List<FeedItem> parseWithRome(FeedFetcher.FeedResponse response) {
+        SyndFeed feed;
+        try {
+            feed = new SyndFeedInput().build(new XmlReader(response.bodyStream(), response.getContentType(), true));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse RSS feed", e);
+        }
+        List<FeedItem> items = new ArrayList<>();
+        for (SyndEntry entry : feed.getEntries()) {
+            items.add(FeedItem.builder()
+                    .guid(entry.getUri())
+                    .title(entry.getTitle())
+                    .description(entry.getDescription() != null ? entry.getDescription().getValue() : null)
+                    .audioUrl(entry.getEnclosures() != null && !entry.getEnclosures().isEmpty()
+                            ? entry.getEnclosures().get(0).getUrl() : null)
+                    .publishedDate(toLocalDateTime(entry.getPublishedDate()))
+                    .build());
+        }
+        return items;
+    }
+
+    private static LocalDateTime parseDate(String value) {
+        return toLocalDateTime(DateParser.parseDate(value.trim(), Locale.US));
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class FeedItem {
+        private String guid;
+        private String title;
+        private String description;
+        private String audioUrl;
+        private LocalDateTime publishedDate;
+    }
+}
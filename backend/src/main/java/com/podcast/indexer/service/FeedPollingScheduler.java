@@ -0,0 +1,24 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Triggers feed polling on scheduler processes. Kept apart from {@link FeedPollingService},
+ * which workers also need to reschedule feeds after each sync.
+ */
+@Component
+@ConditionalOnRole(Role.SCHEDULER)
+@RequiredArgsConstructor
+public class FeedPollingScheduler {
+
+    private final FeedPollingService feedPollingService;
+
+    @Scheduled(fixedDelayString = "${podcast.feed.polling.check-interval-ms:60000}")
+    public void enqueueDueFeeds() {
+        feedPollingService.enqueueDueFeeds();
+    }
+}
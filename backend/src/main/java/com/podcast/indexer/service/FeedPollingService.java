@@ -0,0 +1,152 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Polls feeds on a per-podcast cadence derived from how often each show
+ * publishes, so daily shows are checked often and dormant ones rarely.
+ * Jitter spreads the polls of many feeds over time instead of in bursts.
+ * Only the node holding the polling lease enqueues due feeds.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FeedPollingService {
+
+    private static final int PUBLISH_HISTORY_SIZE = 10;
+    private static final int MAX_BACKOFF_EXPONENT = 10;
+    static final String LEADER_TASK = "feed-polling";
+
+    private final PodcastRepository podcastRepository;
+    private final EpisodeRepository episodeRepository;
+    private final JobQueueService jobQueueService;
+    private final PodcastConfig podcastConfig;
+    private final LeaderElectionService leaderElectionService;
+
+    public void enqueueDueFeeds() {
+        PodcastConfig.Feed.Polling polling = podcastConfig.getFeed().getPolling();
+        if (!polling.isEnabled()) {
+            return;
+        }
+        OptionalLong token = leaderElectionService.acquire(LEADER_TASK);
+        if (token.isEmpty()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int queued = 0;
+        while (queued < polling.getMaxFeedsPerRun()) {
+            int limit = Math.min(polling.getBatchSize(), polling.getMaxFeedsPerRun() - queued);
+            List<Long> dueIds = podcastRepository.findIdsDueForSync(now, PageRequest.of(0, limit));
+            if (dueIds.isEmpty()) {
+                break;
+            }
+            // Lease the feeds first; the sync job replaces the lease with the real next poll time
+            if (!leaderElectionService.fenced(LEADER_TASK, token.getAsLong(), () ->
+                    podcastRepository.updateNextSyncAt(dueIds, now.plusMinutes(polling.getLeaseMinutes())))) {
+                break;
+            }
+            jobQueueService.queueSyncEpisodesJobs(dueIds);
+            queued += dueIds.size();
+            if (!leaderElectionService.renew(LEADER_TASK, token.getAsLong())) {
+                break;
+            }
+        }
+
+        if (queued > 0) {
+            log.info("Queued {} due feeds for sync", queued);
+        }
+    }
+
+    /**
+     * Schedules the next poll after a successful sync and resets the failure backoff.
+     * The caller is responsible for saving the podcast.
+     */
+    public void scheduleNextSync(Podcast podcast) {
+        podcast.setSyncFailureCount(0);
+        podcast.setNextSyncAt(LocalDateTime.now().plus(jitter(computeInterval(podcast.getId()))));
+    }
+
+    @Transactional
+    public void recordSyncFailure(Long podcastId) {
+        podcastRepository.findById(podcastId).ifPresent(podcast -> {
+            PodcastConfig.Feed.Polling polling = podcastConfig.getFeed().getPolling();
+            int failures = (podcast.getSyncFailureCount() != null ? podcast.getSyncFailureCount() : 0) + 1;
+
+            Duration backoff = Duration.ofMinutes(polling.getMinIntervalMinutes())
+                    .multipliedBy(1L << Math.min(failures - 1, MAX_BACKOFF_EXPONENT));
+            Duration maxInterval = Duration.ofHours(polling.getMaxIntervalHours());
+            if (backoff.compareTo(maxInterval) > 0) {
+                backoff = maxInterval;
+            }
+
+            podcast.setSyncFailureCount(failures);
+            podcast.setNextSyncAt(LocalDateTime.now().plus(jitter(backoff)));
+            podcastRepository.save(podcast);
+            log.warn("Sync of podcast {} failed {} time(s) in a row, retrying at {}",
+                    podcastId, failures, podcast.getNextSyncAt());
+        });
+    }
+
+    /**
+     * Polls a few times per typical gap between releases, using the median of
+     * the recent gaps so one special episode does not skew the cadence. Shows
+     * that have been quiet for much longer than usual fall back to the maximum.
+     */
+    Duration computeInterval(Long podcastId) {
+        PodcastConfig.Feed.Polling polling = podcastConfig.getFeed().getPolling();
+        Duration minInterval = Duration.ofMinutes(polling.getMinIntervalMinutes());
+        Duration maxInterval = Duration.ofHours(polling.getMaxIntervalHours());
+
+        List<LocalDateTime> published = episodeRepository.findRecentPublishedDates(
+                podcastId, PageRequest.of(0, PUBLISH_HISTORY_SIZE));
+        if (published.size() < 2) {
+            return clamp(Duration.ofHours(polling.getDefaultIntervalHours()), minInterval, maxInterval);
+        }
+
+        List<Duration> gaps = new ArrayList<>();
+        for (int i = 1; i < published.size(); i++) {
+            gaps.add(Duration.between(published.get(i), published.get(i - 1)));
+        }
+        Collections.sort(gaps);
+        Duration medianGap = gaps.get(gaps.size() / 2);
+
+        Duration sinceLastRelease = Duration.between(published.get(0), LocalDateTime.now());
+        if (sinceLastRelease.compareTo(medianGap.multipliedBy(3)) > 0) {
+            return maxInterval;
+        }
+        return clamp(medianGap.dividedBy(Math.max(1, polling.getPollsPerRelease())), minInterval, maxInterval);
+    }
+
+    private Duration jitter(Duration interval) {
+        double jitter = podcastConfig.getFeed().getPolling().getJitter();
+        if (jitter <= 0) {
+            return interval;
+        }
+        double factor = 1 + ThreadLocalRandom.current().nextDouble(-jitter, jitter);
+        return Duration.ofMillis((long) (interval.toMillis() * factor));
+    }
+
+    private static Duration clamp(Duration value, Duration min, Duration max) {
+        if (value.compareTo(min) < 0) {
+            return min;
+        }
+        return value.compareTo(max) > 0 ? max : value;
+    }
+}
@@ -0,0 +1,82 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.util.MinHash;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Deterministic feature-hashing embeddings ({@code hashing:<dimensions>}): every word
+ * and pair of adjacent words adds a signed weight to a hashed dimension. Texts sharing
+ * words come out similar, nothing is learned, and no model or service is needed, which
+ * suits tests and offline development.
+ */
+@Component
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+    
+    static final String NAME = "hashing";
+    private static final double BIGRAM_WEIGHT = 0.5;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public List<Double> embed(String model, String text) {
+        int dimensions = parseDimensions(model);
+        double[] vector = new double[dimensions];
+        String normalized = MinHash.normalize(text);
+        String[] words = normalized.isEmpty() ? new String[0] : normalized.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            add(vector, words[i], 1.0);
+            if (i > 0) {
+                add(vector, words[i - 1] + " " + words[i], BIGRAM_WEIGHT);
+            }
+        }
+        
+        double norm = Math.sqrt(Arrays.stream(vector).map(v -> v * v).sum());
+        if (norm == 0) {
+            // Cosine distance is undefined for the zero vector
+            vector[0] = 1;
+            norm = 1;
+        }
+        List<Double> embedding = new ArrayList<>(dimensions);
+        for (double value : vector) {
+            embedding.add(value / norm);
+        }
+        return embedding;
+    }
+    
+    private static void add(double[] vector, String feature, double weight) {
+        long hash = fnv1a(feature);
+        int index = (int) Long.remainderUnsigned(hash >>> 1, vector.length);
+        vector[index] += (hash & 1) == 0 ? weight : -weight;
+    }
+    
+    private static long fnv1a(String feature) {
+        long hash = FNV_OFFSET;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+    
+    private static int parseDimensions(String model) {
+        try {
+            int dimensions = Integer.parseInt(model);
+            if (dimensions > 0) {
+                return dimensions;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Hashing embedding model must be a positive dimension count, got " + model);
+    }
+}
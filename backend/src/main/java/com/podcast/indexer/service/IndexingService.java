@@ -1,13 +1,14 @@
 package com.podcast.indexer.service;
 
 import com.podcast.indexer.model.EmbeddingChunk;
+import com.podcast.indexer.model.EmbeddingModel;
 import com.podcast.indexer.model.Episode;
 import com.podcast.indexer.model.ProcessingStatus;
 import com.podcast.indexer.model.TranscriptSegment;
 import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
 import com.podcast.indexer.repository.EpisodeRepository;
-import com.podcast.indexer.repository.TranscriptSegmentRepository;
-import com.podcast.indexer.util.EmbeddingUtils;
+import com.podcast.indexer.repository.TranscriptBlockRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -15,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -22,11 +24,16 @@ import java.util.List;
 public class IndexingService {
     
     private final EpisodeRepository episodeRepository;
-    private final TranscriptSegmentRepository transcriptSegmentRepository;
+    private final TranscriptBlockRepository transcriptBlockRepository;
     private final EmbeddingChunkRepository embeddingChunkRepository;
-    private final OllamaService ollamaService;
+    private final EpisodeEmbeddingRepository episodeEmbeddingRepository;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final BoilerplateDetector boilerplateDetector;
+    private final EpisodeEventPublisher episodeEventPublisher;
+    private final Chunker chunker;
+    private final EmbeddingModelService embeddingModelService;
     
-    private static final int CHUNK_SIZE_SEGMENTS = 10; // Group ~10 segments per chunk
+    private static final int MAX_EMBEDDING_ATTEMPTS = 2;
     
     @Transactional
     public void indexEpisode(Long episodeId) {
@@ -34,67 +41,135 @@ public class IndexingService {
                 .orElseThrow(() -> new IllegalArgumentException("Episode not found"));
         
         // Check if already indexed
-        if (embeddingChunkRepository.existsByEpisodeId(episodeId)) {
+        if (episode.getStatus() == ProcessingStatus.INDEXED) {
             log.info("Episode {} already indexed, skipping", episodeId);
             return;
         }
         
         episode.setStatus(ProcessingStatus.INDEXING);
         episodeRepository.save(episode);
+        episodeEventPublisher.statusChanged(episode);
         
         try {
-            List<TranscriptSegment> segments = 
-                    transcriptSegmentRepository.findByEpisodeIdOrderByPartIndexAscSegmentIndexAsc(episodeId);
-            
-            if (segments.isEmpty()) {
+            Long podcastId = episode.getPodcast().getId();
+            if (!transcriptBlockRepository.existsByPodcastIdAndEpisodeId(podcastId, episodeId)) {
                 log.warn("No transcript segments found for episode {}", episodeId);
                 return;
             }
             
-            List<EmbeddingChunk> chunks = new ArrayList<>();
-            int chunkIndex = 0;
-            
-            for (int i = 0; i < segments.size(); i += CHUNK_SIZE_SEGMENTS) {
-                int endIdx = Math.min(i + CHUNK_SIZE_SEGMENTS, segments.size());
-                List<TranscriptSegment> chunkSegments = segments.subList(i, endIdx);
-                
-                // Combine text
-                StringBuilder textBuilder = new StringBuilder();
-                long startMs = chunkSegments.get(0).getStartMs();
-                long endMs = chunkSegments.get(chunkSegments.size() - 1).getEndMs();
-                
-                for (TranscriptSegment seg : chunkSegments) {
-                    textBuilder.append(seg.getText()).append(" ");
-                }
-                
-                String text = textBuilder.toString().trim();
-                
-                // Generate embedding
-                List<Double> embedding = ollamaService.generateEmbedding(text);
-                String embeddingStr = EmbeddingUtils.convertEmbeddingToString(embedding);
-                
-                EmbeddingChunk chunk = EmbeddingChunk.builder()
-                        .episode(episode)
-                        .chunkIndex(chunkIndex)
-                        .startMs(startMs)
-                        .endMs(endMs)
-                        .text(text)
-                        .embedding(embeddingStr)
-                        .build();
-                
-                chunks.add(chunk);
-                chunkIndex++;
+            // Chunks may already exist from incremental indexing during transcription;
+            // only the segments after the latest embedded chunk still need work, preceded
+            // by the tail of that chunk which the next one overlaps. Parts may finish out
+            // of order, so the latest chunk is not necessarily the one indexed last.
+            Optional<EmbeddingChunk> lastChunk = embeddingChunkRepository.findTopByPodcastIdAndEpisodeIdOrderByEndMsDesc(
+                    podcastId, episodeId);
+            long indexedUntilMs = lastChunk.map(EmbeddingChunk::getEndMs).orElse(Long.MIN_VALUE);
+            List<TranscriptSegment> previous = new ArrayList<>();
+            List<TranscriptSegment> remaining = new ArrayList<>();
+            transcriptBlockRepository.forEachSegment(podcastId, episodeId,
+                    lastChunk.map(EmbeddingChunk::getStartMs).orElse(Long.MIN_VALUE),
+                    segment -> (segment.getStartMs() >= indexedUntilMs ? remaining : previous).add(segment));
+            if (!remaining.isEmpty()) {
+                remaining.addAll(0, previous.subList(chunker.overlapStart(previous), previous.size()));
             }
             
-            embeddingChunkRepository.saveAll(chunks);
-            log.info("Indexed {} chunks for episode {}: {}", chunks.size(), episodeId, episode.getTitle());
+            int nextChunkIndex = nextChunkIndex(podcastId, episodeId);
+            List<EmbeddingChunk> chunks = embedAndInsert(episode, chunker.chunk(remaining, true).chunks(), nextChunkIndex);
+            episodeEmbeddingRepository.updateCentroid(podcastId, episodeId);
+            log.info("Indexed {} chunks for episode {}: {}", nextChunkIndex + chunks.size(), episodeId, episode.getTitle());
             
             episode.setStatus(ProcessingStatus.INDEXED);
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
         } catch (Exception e) {
             log.error("Failed to index episode {}", episodeId, e);
             episode.setStatus(ProcessingStatus.FAILED);
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
+        }
+    }
+    
+    /**
+     * Embeds every complete chunk that can be built from the given segments and
+     * returns how many leading segments were consumed. The remainder is left for
+     * the next call, unless {@code endOfPart} is set: then the trailing chunk is
+     * embedded as well, since the next part is chunked on its own.
+     */
+    public int indexCompletedChunks(Episode episode, List<TranscriptSegment> segments, boolean endOfPart) {
+        Chunker.Result result = chunker.chunk(segments, endOfPart);
+        if (result.chunks().isEmpty()) {
+            return result.consumed();
+        }
+        
+        int nextChunkIndex = nextChunkIndex(episode.getPodcast().getId(), episode.getId());
+        List<EmbeddingChunk> chunks = embedAndInsert(episode, result.chunks(), nextChunkIndex);
+        log.debug("Incrementally indexed {} chunks for episode {}", chunks.size(), episode.getId());
+        return result.consumed();
+    }
+    
+    private int nextChunkIndex(Long podcastId, Long episodeId) {
+        return embeddingChunkRepository.findTopByPodcastIdAndEpisodeIdOrderByChunkIndexDesc(podcastId, episodeId)
+                .map(c -> c.getChunkIndex() + 1)
+                .orElse(0);
+    }
+    
+    /**
+     * Embeds the chunks with the active embedding model, and with the model being
+     * migrated to if any, and stores them. If the models changed in between, the
+     * chunks are embedded again.
+     */
+    private List<EmbeddingChunk> embedAndInsert(Episode episode, List<Chunker.Chunk> textChunks, int firstChunkIndex) {
+        Long podcastId = episode.getPodcast().getId();
+        List<Chunker.Chunk> kept = new ArrayList<>();
+        for (Chunker.Chunk textChunk : textChunks) {
+            // Intros, outros and ad reads shared by many episodes only crowd the top-k
+            if (boilerplateDetector.isBoilerplate(podcastId, episode.getId(), textChunk.text())) {
+                log.debug("Skipping boilerplate chunk at {} ms in episode {}", textChunk.startMs(), episode.getId());
+            } else {
+                kept.add(textChunk);
+            }
+        }
+        
+        for (int attempt = 1; ; attempt++) {
+            EmbeddingModel active = embeddingModelService.activeModel();
+            EmbeddingModel next = embeddingModelService.migratingModel().orElse(null);
+            List<EmbeddingChunk> chunks = buildChunks(episode, kept, firstChunkIndex, active, next);
+            if (embeddingChunkRepository.insertAll(chunks)) {
+                return chunks;
+            }
+            if (attempt == MAX_EMBEDDING_ATTEMPTS) {
+                throw new IllegalStateException("Embedding models keep changing while indexing episode " + episode.getId());
+            }
+            log.info("Embedding models changed while indexing episode {}, embedding again", episode.getId());
+        }
+    }
+    
+    private List<EmbeddingChunk> buildChunks(Episode episode, List<Chunker.Chunk> textChunks, int firstChunkIndex,
+                                             EmbeddingModel active, EmbeddingModel next) {
+        List<String> texts = textChunks.stream().map(Chunker.Chunk::text).toList();
+        // Generate embeddings in one batch (reused for text embedded before)
+        List<String> embeddings = embeddingCacheService.getEmbeddings(active.getName(), texts);
+        List<String> nextEmbeddings = next != null ? embeddingCacheService.getEmbeddings(next.getName(), texts) : null;
+        
+        List<EmbeddingChunk> chunks = new ArrayList<>();
+        for (int i = 0; i < textChunks.size(); i++) {
+            Chunker.Chunk textChunk = textChunks.get(i);
+            EmbeddingChunk chunk = EmbeddingChunk.builder()
+                    .episode(episode)
+                    .podcastId(episode.getPodcast().getId())
+                    .chunkIndex(firstChunkIndex + i)
+                    .startMs(textChunk.startMs())
+                    .endMs(textChunk.endMs())
+                    .text(textChunk.text())
+                    .embedding(embeddings.get(i))
+                    .embeddingModelId(active.getId())
+                    .build();
+            if (next != null) {
+                chunk.setNextEmbedding(nextEmbeddings.get(i));
+                chunk.setNextEmbeddingModelId(next.getId());
+            }
+            chunks.add(chunk);
         }
+        return chunks;
     }
 }
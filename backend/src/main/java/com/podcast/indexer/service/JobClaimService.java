@@ -0,0 +1,171 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Claims a unit of work for one worker through an expiring Redis key, so a job
+ * re-queued by the rescheduler cannot run next to the worker still holding it.
+ * While a claim is held it is renewed on a timer, independent of the work making
+ * visible progress, and every renewal also runs the claimant's heartbeat.
+ */
+@Service
+@Slf4j
+public class JobClaimService {
+
+    private static final String CLAIM_KEY_PREFIX = "podcast:claim:";
+
+    // KEYS[1]: claim; ARGV[1]: owner, ARGV[2]: claim ms. Extends the claim only if it is still ours.
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('DEL', KEYS[1]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PodcastConfig config;
+    private final ScheduledExecutorService renewer;
+
+    public JobClaimService(RedisTemplate<String, String> redisTemplate, PodcastConfig config) {
+        this.redisTemplate = redisTemplate;
+        this.config = config;
+        this.renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "job-claim-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Claims the transcription of one part, running the heartbeat on every renewal.
+     * Returns empty if another worker holds the claim.
+     */
+    public Optional<Claim> claimTranscription(Long episodeId, int partIndex, Runnable heartbeat) {
+        return claim(transcriptionKey(episodeId, partIndex), heartbeat);
+    }
+
+    /**
+     * Whether a worker still holds the transcription claim of any of the episode's parts.
+     */
+    public boolean isTranscriptionClaimed(Long episodeId, Integer partCount) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < (partCount != null && partCount > 1 ? partCount : 1); i++) {
+            keys.add(transcriptionKey(episodeId, i));
+        }
+        Long claimed = redisTemplate.countExistingKeys(keys);
+        return claimed != null && claimed > 0;
+    }
+
+    Optional<Claim> claim(String key, Runnable heartbeat) {
+        String owner = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(key, owner, claimMillis(), TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(acquired)) {
+            return Optional.empty();
+        }
+        Claim claim = new Claim(key, owner, heartbeat);
+        long period = Math.max(claimMillis() / 3, 1);
+        claim.renewal = renewer.scheduleAtFixedRate(claim::renew, period, period, TimeUnit.MILLISECONDS);
+        return Optional.of(claim);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+    }
+
+    private long claimMillis() {
+        return config.getPipeline().getClaimSeconds() * 1000L;
+    }
+
+    private static String transcriptionKey(Long episodeId, int partIndex) {
+        return CLAIM_KEY_PREFIX + "transcribe:" + episodeId + ":" + partIndex;
+    }
+
+    /**
+     * A held claim. Work checks {@link #ensureHeld()} before each write and stops
+     * once the claim has expired, because by then another worker may own it.
+     */
+    public class Claim implements AutoCloseable {
+        private final String key;
+        private final String owner;
+        private final Runnable heartbeat;
+        private volatile boolean lost;
+        private volatile ScheduledFuture<?> renewal;
+
+        private Claim(String key, String owner, Runnable heartbeat) {
+            this.key = key;
+            this.owner = owner;
+            this.heartbeat = heartbeat;
+        }
+
+        public void ensureHeld() {
+            if (lost) {
+                throw new ClaimLostException("Lost claim " + key);
+            }
+        }
+
+        private void renew() {
+            try {
+                Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(key), owner, String.valueOf(claimMillis()));
+                if (renewed == null || renewed != 1) {
+                    log.warn("Claim {} expired, stopping", key);
+                    lost = true;
+                    renewal.cancel(false);
+                    return;
+                }
+            } catch (Exception e) {
+                // The claim may still be ours; the next renewal tells
+                log.warn("Failed to renew claim {}", key, e);
+                return;
+            }
+            try {
+                heartbeat.run();
+            } catch (Exception e) {
+                log.warn("Heartbeat of claim {} failed", key, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            renewal.cancel(false);
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(key), owner);
+            } catch (Exception e) {
+                // Expires on its own
+                log.warn("Failed to release claim {}", key, e);
+            }
+        }
+    }
+
+    /**
+     * Thrown by work whose claim expired while it was running.
+     */
+    public static class ClaimLostException extends IllegalStateException {
+        public ClaimLostException(String message) {
+            super(message);
+        }
+    }
+}
@@ -1,75 +1,239 @@
 package com.podcast.indexer.service;
 
-import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.config.Role;
 import com.podcast.indexer.model.ProcessingStatus;
-import com.podcast.indexer.repository.EmbeddingChunkRepository;
 import com.podcast.indexer.repository.EpisodeRepository;
-import com.podcast.indexer.repository.TranscriptSegmentRepository;
+import com.podcast.indexer.repository.TranscriptBlockRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
 
+/**
+ * Recovers episodes whose worker died mid-stage or whose jobs were lost, from
+ * downloading through indexing. Only episodes without progress for
+ * {@code podcast.pipeline.stuck-after-minutes} are considered, and they are read in
+ * keyset-paginated batches, so a scan costs as much as there are stuck episodes.
+ * Episodes with a part a worker still claims are left to that worker.
+ * Only the node holding the recovery lease scans, so replicas do not re-queue the
+ * same episodes.
+ */
 @Service
+@ConditionalOnRole(Role.SCHEDULER)
 @RequiredArgsConstructor
 @Slf4j
 public class JobQueueRescheduleService {
 
     private static final String RESCHEDULE_DELAY_MS = "${job.queue.reschedule.delay:60000}";
+    static final String LEADER_TASK = "job-recovery";
 
     private final EpisodeRepository episodeRepository;
-    private final TranscriptSegmentRepository transcriptSegmentRepository;
-    private final EmbeddingChunkRepository embeddingChunkRepository;
+    private final TranscriptBlockRepository transcriptBlockRepository;
     private final JobQueueService jobQueueService;
+    private final PodcastConfig config;
+    private final LeaderElectionService leaderElectionService;
+    private final EpisodeEventPublisher episodeEventPublisher;
+    private final JobClaimService jobClaimService;
+
+    @Scheduled(fixedDelayString = RESCHEDULE_DELAY_MS)
+    public void rescheduleStuckDownloads() {
+        OptionalLong token = leaderElectionService.acquire(LEADER_TASK);
+        if (token.isEmpty()) {
+            return;
+        }
+        if (scanStale(ProcessingStatus.DOWNLOADING, token.getAsLong(), this::recoverDownloads)) {
+            // Downloaded episodes whose transcribe jobs were lost; re-queueing a pending job is a no-op
+            scanStale(ProcessingStatus.DOWNLOADED, token.getAsLong(),
+                    (episodes, fence) -> recoverTranscriptions(episodes, ProcessingStatus.DOWNLOADED, fence));
+        }
+    }
 
     @Scheduled(fixedDelayString = RESCHEDULE_DELAY_MS)
     public void rescheduleStuckTranscriptions() {
-        List<Episode> episodes = episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBING);
-        for (Episode episode : episodes) {
-            if (transcriptSegmentRepository.existsByEpisodeId(episode.getId())) {
-                markTranscribedAndRescheduleIndexing(episode);
-                continue;
+        OptionalLong token = leaderElectionService.acquire(LEADER_TASK);
+        if (token.isEmpty()) {
+            return;
+        }
+        scanStale(ProcessingStatus.TRANSCRIBING, token.getAsLong(),
+                (episodes, fence) -> recoverTranscriptions(episodes, ProcessingStatus.TRANSCRIBING, fence));
+    }
+
+    @Scheduled(fixedDelayString = RESCHEDULE_DELAY_MS)
+    public void rescheduleMissingIndexes() {
+        OptionalLong token = leaderElectionService.acquire(LEADER_TASK);
+        if (token.isEmpty()) {
+            return;
+        }
+        LocalDateTime staleBefore = staleBefore();
+        int batchSize = config.getPipeline().getRecoveryBatchSize();
+        long afterId = 0;
+        List<Long> batch;
+        do {
+            // Chunks may already exist from incremental indexing; the index job resumes after them
+            batch = episodeRepository.findStaleIdsWithTranscript(
+                    ProcessingStatus.TRANSCRIBED, staleBefore, afterId, PageRequest.of(0, batchSize));
+            for (Long episodeId : batch) {
+                log.info("Rescheduling indexing for episode {}", episodeId);
+                jobQueueService.queueIndexEpisodeJob(episodeId);
             }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+            }
+        } while (batch.size() == batchSize && leaderElectionService.renew(LEADER_TASK, token.getAsLong()));
+    }
 
-            if (!StringUtils.hasText(episode.getAudioFilePath())) {
-                log.warn("Episode {} stuck in TRANSCRIBING without audio, re-queueing download", episode.getId());
-                episode.setStatus(ProcessingStatus.DISCOVERED);
-                episodeRepository.save(episode);
-                jobQueueService.queueDownloadAudioJob(episode.getId());
+    /**
+     * Hands the stale episodes in the status to the handler batch by batch.
+     *
+     * @return whether the lease is still held
+     */
+    private boolean scanStale(ProcessingStatus status, long token, StaleBatchHandler handler) {
+        LocalDateTime staleBefore = staleBefore();
+        int batchSize = config.getPipeline().getRecoveryBatchSize();
+        long afterId = 0;
+        List<EpisodeRepository.StaleEpisode> batch;
+        do {
+            batch = episodeRepository.findStaleEpisodes(status, staleBefore, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return true;
+            }
+            if (!handler.recover(batch, token)) {
+                return false;
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+            if (!leaderElectionService.renew(LEADER_TASK, token)) {
+                return false;
+            }
+        } while (batch.size() == batchSize);
+        return true;
+    }
+
+    private boolean recoverDownloads(List<EpisodeRepository.StaleEpisode> episodes, long token) {
+        // The download only starts from DISCOVERED and overwrites what the dead worker left
+        if (!leaderElectionService.fenced(LEADER_TASK, token,
+                () -> updateStatus(episodes, ProcessingStatus.DOWNLOADING, ProcessingStatus.DISCOVERED))) {
+            return false;
+        }
+        announce(episodes, ProcessingStatus.DOWNLOADING, ProcessingStatus.DISCOVERED);
+        for (EpisodeRepository.StaleEpisode episode : episodes) {
+            log.warn("Episode {} stuck in DOWNLOADING, re-queueing download", episode.getId());
+            jobQueueService.queueDownloadAudioJob(episode.getId());
+        }
+        return true;
+    }
+
+    private boolean recoverTranscriptions(List<EpisodeRepository.StaleEpisode> stale, ProcessingStatus from,
+                                          long token) {
+        // A worker still holding a claim renews it on a timer, so its episode only looks stale
+        // if touching it failed; resetting it would start a second transcription next to it
+        List<EpisodeRepository.StaleEpisode> episodes = stale.stream()
+                .filter(episode -> !jobClaimService.isTranscriptionClaimed(episode.getId(), episode.getAudioPartCount()))
+                .toList();
+        if (episodes.isEmpty()) {
+            return true;
+        }
+        Map<Long, Set<Integer>> transcribedParts = new HashMap<>();
+        transcriptBlockRepository.findTranscribedParts(episodes.stream().map(EpisodeRepository.StaleEpisode::getId).toList())
+                .forEach(part -> transcribedParts
+                        .computeIfAbsent(part.getEpisodeId(), id -> new HashSet<>())
+                        .add(part.getPartIndex()));
+
+        List<EpisodeRepository.StaleEpisode> transcribed = new ArrayList<>();
+        List<EpisodeRepository.StaleEpisode> withoutAudio = new ArrayList<>();
+        List<EpisodeRepository.StaleEpisode> withAudio = new ArrayList<>();
+        for (EpisodeRepository.StaleEpisode episode : episodes) {
+            Set<Integer> parts = transcribedParts.getOrDefault(episode.getId(), Set.of());
+            int partCount = episode.getAudioPartCount() != null ? episode.getAudioPartCount() : 1;
+            if (!parts.isEmpty() && parts.size() >= partCount) {
+                transcribed.add(episode);
+            } else if (!StringUtils.hasText(episode.getAudioFilePath())) {
+                withoutAudio.add(episode);
             } else {
-                log.warn("Episode {} stuck in TRANSCRIBING, re-queueing transcription", episode.getId());
-                episode.setStatus(ProcessingStatus.DOWNLOADED);
-                episodeRepository.save(episode);
-                jobQueueService.queueTranscribeJob(episode.getId(), 0, episode.getAudioFilePath());
+                withAudio.add(episode);
             }
         }
+
+        boolean fenced = leaderElectionService.fenced(LEADER_TASK, token, () -> {
+            updateStatus(transcribed, from, ProcessingStatus.TRANSCRIBED);
+            updateStatus(withoutAudio, from, ProcessingStatus.DISCOVERED);
+            // Also restarts the stale clock of episodes already DOWNLOADED, so they are not re-queued every scan
+            updateStatus(withAudio, from, ProcessingStatus.DOWNLOADED);
+        });
+        if (!fenced) {
+            return false;
+        }
+
+        announce(transcribed, from, ProcessingStatus.TRANSCRIBED);
+        for (EpisodeRepository.StaleEpisode episode : transcribed) {
+            log.info("Rescheduling indexing for episode {}", episode.getId());
+            jobQueueService.queueIndexEpisodeJob(episode.getId());
+        }
+        announce(withoutAudio, from, ProcessingStatus.DISCOVERED);
+        for (EpisodeRepository.StaleEpisode episode : withoutAudio) {
+            log.warn("Episode {} stuck in {} without audio, re-queueing download", episode.getId(), from);
+            jobQueueService.queueDownloadAudioJob(episode.getId());
+        }
+        announce(withAudio, from, ProcessingStatus.DOWNLOADED);
+        for (EpisodeRepository.StaleEpisode episode : withAudio) {
+            log.warn("Episode {} stuck in {}, re-queueing transcription", episode.getId(), from);
+            requeueMissingParts(episode, transcribedParts.getOrDefault(episode.getId(), Set.of()));
+        }
+        return true;
     }
 
-    @Scheduled(fixedDelayString = RESCHEDULE_DELAY_MS)
-    public void rescheduleMissingIndexes() {
-        List<Episode> episodes = episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBED);
-        for (Episode episode : episodes) {
-            rescheduleIndexingIfReady(episode);
+    private void updateStatus(List<EpisodeRepository.StaleEpisode> episodes, ProcessingStatus from,
+                              ProcessingStatus to) {
+        if (episodes.isEmpty()) {
+            return;
         }
+        episodeRepository.updateStatus(episodes.stream().map(EpisodeRepository.StaleEpisode::getId).toList(),
+                from, to, LocalDateTime.now());
     }
 
-    private void rescheduleIndexingIfReady(Episode episode) {
-        if (!transcriptSegmentRepository.existsByEpisodeId(episode.getId())) {
+    private void announce(List<EpisodeRepository.StaleEpisode> episodes, ProcessingStatus from, ProcessingStatus to) {
+        if (from == to) {
             return;
         }
-        if (embeddingChunkRepository.existsByEpisodeId(episode.getId())) {
+        for (EpisodeRepository.StaleEpisode episode : episodes) {
+            episodeEventPublisher.statusChanged(episode.getPodcastId(), episode.getId(), to);
+        }
+    }
+
+    private void requeueMissingParts(EpisodeRepository.StaleEpisode episode, Set<Integer> transcribedParts) {
+        Integer partCount = episode.getAudioPartCount();
+        if (partCount == null || partCount <= 1) {
+            jobQueueService.queueTranscribeJob(episode.getId(), 0, episode.getAudioFilePath());
             return;
         }
-        log.info("Rescheduling indexing for episode {}", episode.getId());
-        jobQueueService.queueIndexEpisodeJob(episode.getId());
+        for (int i = 0; i < partCount; i++) {
+            if (!transcribedParts.contains(i)) {
+                jobQueueService.queueTranscribeJob(episode.getId(), i,
+                        AudioService.partFilePath(episode.getAudioFilePath(), i));
+            }
+        }
+    }
+
+    private LocalDateTime staleBefore() {
+        return LocalDateTime.now().minusMinutes(config.getPipeline().getStuckAfterMinutes());
     }
 
-    private void markTranscribedAndRescheduleIndexing(Episode episode) {
-        episode.setStatus(ProcessingStatus.TRANSCRIBED);
-        episodeRepository.save(episode);
-        rescheduleIndexingIfReady(episode);
+    private interface StaleBatchHandler {
+        /**
+         * @return false once the node has been fenced off
+         */
+        boolean recover(List<EpisodeRepository.StaleEpisode> episodes, long token);
     }
 }
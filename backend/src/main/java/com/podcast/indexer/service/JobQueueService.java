@@ -1,17 +1,42 @@
 package com.podcast.indexer.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.repository.EpisodeRepository;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
+/**
+ * Job queues backed by one Redis sorted set per stage; the lowest score is
+ * dequeued first. Episode jobs are scored newest-first by publish date, with a
+ * boost per podcast priority tier, and expedited episodes ahead of everything;
+ * the scores are compared across stages, so fresh episodes are not held up by a
+ * backfill in later stages. Sync jobs are first in, first out.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -19,29 +44,153 @@ public class JobQueueService {
     
     private final RedisTemplate<String, String> redisTemplate;
     private final ObjectMapper objectMapper;
+    private final EpisodeRepository episodeRepository;
     
-    private static final String QUEUE_KEY = "podcast:jobs";
+    private static final String QUEUE_KEY_PREFIX = "podcast:queue:";
+    // List-based queues of earlier versions, drained into the sorted sets at startup
+    private static final String LEGACY_QUEUE_KEY = "podcast:jobs";
+    
+    // One priority tier counts as much as being published this much later
+    private static final long TIER_BOOST_SECONDS = 30L * 24 * 3600;
+    // Far beyond any publish date, so expedited jobs always sort first
+    private static final double EXPEDITE_OFFSET = 1e11;
+    static final double EXPEDITED_THRESHOLD = -1e10;
+    private static final long POLL_INTERVAL_MS = 500;
+    
+    // Syncs first, as they are short and discover fresh episodes; then the episode stages,
+    // whose scores are comparable, later stages first for equal scores
+    private static final List<JobType> DEQUEUE_ORDER = List.of(
+            JobType.SYNC_EPISODES, JobType.INDEX_EPISODE, JobType.TRANSCRIBE, JobType.DOWNLOAD_AUDIO);
+    private static final List<JobType> EPISODE_JOB_TYPES = List.of(
+            JobType.DOWNLOAD_AUDIO, JobType.TRANSCRIBE, JobType.INDEX_EPISODE);
+    
+    // Expedited jobs of any stage (even a paused one) win, then sync jobs, then the lowest
+    // scored job across the episode stages, so a fresh download overtakes a backfill.
+    // KEYS: sync queue, then episode stage queues in dequeue order; ARGV[1]: expedited
+    // threshold; ARGV[i + 1]: "1" if the stage of KEYS[i] is paused
+    private static final RedisScript<String> POP_SCRIPT = new DefaultRedisScript<>(
+            "for i, key in ipairs(KEYS) do " +
+            "  local job = redis.call('ZRANGEBYSCORE', key, '-inf', ARGV[1], 'LIMIT', 0, 1) " +
+            "  if job[1] then redis.call('ZREM', key, job[1]) return job[1] end " +
+            "end " +
+            "if ARGV[2] ~= '1' then " +
+            "  local job = redis.call('ZRANGE', KEYS[1], 0, 0) " +
+            "  if job[1] then redis.call('ZREM', KEYS[1], job[1]) return job[1] end " +
+            "end " +
+            "local best, bestKey, bestScore " +
+            "for i = 2, #KEYS do " +
+            "  if ARGV[i + 1] ~= '1' then " +
+            "    local head = redis.call('ZRANGE', KEYS[i], 0, 0, 'WITHSCORES') " +
+            "    if head[1] and (bestScore == nil or tonumber(head[2]) < bestScore) then " +
+            "      best, bestKey, bestScore = head[1], KEYS[i], tonumber(head[2]) " +
+            "    end " +
+            "  end " +
+            "end " +
+            "if best then redis.call('ZREM', bestKey, best) return best end " +
+            "return false",
+            String.class);
     
     public void queueSyncEpisodesJob(Long podcastId) {
-        queueJob(new Job(JobType.SYNC_EPISODES, podcastId, null, null));
+        queueJob(new Job(JobType.SYNC_EPISODES, podcastId, null, null), System.currentTimeMillis());
+    }
+    
+    /**
+     * Queues sync jobs for many podcasts with a single ZADD.
+     */
+    public void queueSyncEpisodesJobs(Collection<Long> podcastIds) {
+        if (podcastIds.isEmpty()) {
+            return;
+        }
+        try {
+            double score = System.currentTimeMillis();
+            Set<ZSetOperations.TypedTuple<String>> jobs = new HashSet<>();
+            for (Long podcastId : podcastIds) {
+                String jobJson = objectMapper.writeValueAsString(new Job(JobType.SYNC_EPISODES, podcastId, null, null));
+                jobs.add(ZSetOperations.TypedTuple.of(jobJson, score));
+            }
+            redisTemplate.opsForZSet().add(queueKey(JobType.SYNC_EPISODES), jobs);
+            log.debug("Queued {} sync jobs", jobs.size());
+        } catch (Exception e) {
+            log.error("Failed to queue sync jobs for podcasts {}", podcastIds, e);
+        }
     }
     
     public void queueDownloadAudioJob(Long episodeId) {
-        queueJob(new Job(JobType.DOWNLOAD_AUDIO, episodeId, null, null));
+        queueJob(new Job(JobType.DOWNLOAD_AUDIO, episodeId, null, null), episodeScore(episodeId));
+    }
+    
+    /**
+     * Queues downloads for newly discovered episodes with a single ZADD. The
+     * episodes' podcast must be loaded.
+     */
+    public void queueDownloadAudioJobs(Collection<Episode> episodes) {
+        if (episodes.isEmpty()) {
+            return;
+        }
+        try {
+            Set<ZSetOperations.TypedTuple<String>> jobs = new HashSet<>();
+            for (Episode episode : episodes) {
+                String jobJson = objectMapper.writeValueAsString(
+                        new Job(JobType.DOWNLOAD_AUDIO, episode.getId(), null, null));
+                jobs.add(ZSetOperations.TypedTuple.of(jobJson, episodeScore(
+                        episode.getPublishedDate(), episode.getPodcast().getPriority(), episode.getExpedited())));
+            }
+            redisTemplate.opsForZSet().add(queueKey(JobType.DOWNLOAD_AUDIO), jobs);
+            log.debug("Queued {} download jobs", jobs.size());
+        } catch (Exception e) {
+            log.error("Failed to queue download jobs", e);
+        }
     }
     
     public void queueTranscribeJob(Long episodeId, int partIndex, String audioFilePath) {
-        queueJob(new Job(JobType.TRANSCRIBE, episodeId, partIndex, audioFilePath));
+        // Parts of one episode keep their order
+        queueJob(new Job(JobType.TRANSCRIBE, episodeId, partIndex, audioFilePath), episodeScore(episodeId) + partIndex);
     }
     
     public void queueIndexEpisodeJob(Long episodeId) {
-        queueJob(new Job(JobType.INDEX_EPISODE, episodeId, null, null));
+        queueJob(new Job(JobType.INDEX_EPISODE, episodeId, null, null), episodeScore(episodeId));
     }
     
-    private void queueJob(Job job) {
+    /**
+     * Moves the pending jobs of the episode ahead of all other work. The episode
+     * must already be marked as expedited, so jobs of its later stages are too.
+     *
+     * @return the number of pending jobs that were moved
+     */
+    public int expediteEpisode(Long episodeId) {
+        double score = episodeScore(episodeId);
+        ScanOptions options = ScanOptions.scanOptions()
+                .match("*\"resourceId\":" + episodeId + ",*")
+                .count(1000)
+                .build();
+        int moved = 0;
+        for (JobType type : EPISODE_JOB_TYPES) {
+            String key = queueKey(type);
+            List<ZSetOperations.TypedTuple<String>> matches = new ArrayList<>();
+            try (Cursor<ZSetOperations.TypedTuple<String>> cursor = redisTemplate.opsForZSet().scan(key, options)) {
+                cursor.forEachRemaining(matches::add);
+            }
+            for (ZSetOperations.TypedTuple<String> match : matches) {
+                Job job = readJob(match.getValue());
+                if (job != null && episodeId.equals(job.getResourceId())) {
+                    int partIndex = job.getPartIndex() != null ? job.getPartIndex() : 0;
+                    byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+                    byte[] rawJob = match.getValue().getBytes(StandardCharsets.UTF_8);
+                    // XX: only reorder, never resurrect a job a worker took in the meantime
+                    redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.zSetCommands()
+                            .zAdd(rawKey, score + partIndex, rawJob, RedisZSetCommands.ZAddArgs.ifExists()));
+                    moved++;
+                }
+            }
+        }
+        log.info("Expedited {} pending jobs of episode {}", moved, episodeId);
+        return moved;
+    }
+    
+    private void queueJob(Job job, double score) {
         try {
             String jobJson = objectMapper.writeValueAsString(job);
-            redisTemplate.opsForList().rightPush(QUEUE_KEY, jobJson);
+            redisTemplate.opsForZSet().add(queueKey(job.getType()), jobJson, score);
             log.debug("Queued job: {}", job);
         } catch (Exception e) {
             log.error("Failed to queue job: {}", job, e);
@@ -49,17 +198,107 @@ public class JobQueueService {
     }
     
     public Job dequeueJob(long timeoutSeconds) {
+        return dequeueJob(timeoutSeconds, Set.of());
+    }
+    
+    /**
+     * Waits up to the timeout for the most urgent job: expedited ones, then syncs,
+     * then the best scored episode job of any stage. Jobs of paused stages are only
+     * handed out when they were expedited.
+     */
+    public Job dequeueJob(long timeoutSeconds, Set<JobType> pausedTypes) {
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(EXPEDITED_THRESHOLD));
+        for (JobType type : DEQUEUE_ORDER) {
+            keys.add(queueKey(type));
+            args.add(pausedTypes.contains(type) ? "1" : "0");
+        }
+        
+        long deadline = System.currentTimeMillis() + timeoutSeconds * 1000;
         try {
-            String jobJson = redisTemplate.opsForList().leftPop(QUEUE_KEY, timeoutSeconds, TimeUnit.SECONDS);
-            if (jobJson != null) {
-                return objectMapper.readValue(jobJson, Job.class);
+            while (true) {
+                String jobJson = redisTemplate.execute(POP_SCRIPT, keys, args.toArray());
+                if (jobJson != null) {
+                    return objectMapper.readValue(jobJson, Job.class);
+                }
+                if (System.currentTimeMillis() + POLL_INTERVAL_MS > deadline) {
+                    return null;
+                }
+                Thread.sleep(POLL_INTERVAL_MS);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             log.error("Failed to dequeue job", e);
         }
         return null;
     }
     
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyQueues() {
+        List<String> legacyKeys = new ArrayList<>();
+        legacyKeys.add(LEGACY_QUEUE_KEY);
+        for (JobType type : JobType.values()) {
+            legacyKeys.add(LEGACY_QUEUE_KEY + ":" + type.name().toLowerCase(Locale.ROOT));
+        }
+        int migrated = 0;
+        try {
+            for (String legacyKey : legacyKeys) {
+                String jobJson;
+                while ((jobJson = redisTemplate.opsForList().leftPop(legacyKey)) != null) {
+                    Job job = readJob(jobJson);
+                    if (job == null) {
+                        continue;
+                    }
+                    switch (job.getType()) {
+                        case SYNC_EPISODES -> queueSyncEpisodesJob(job.getResourceId());
+                        case DOWNLOAD_AUDIO -> queueDownloadAudioJob(job.getResourceId());
+                        case TRANSCRIBE -> queueTranscribeJob(job.getResourceId(),
+                                job.getPartIndex() != null ? job.getPartIndex() : 0, job.getAudioFilePath());
+                        case INDEX_EPISODE -> queueIndexEpisodeJob(job.getResourceId());
+                    }
+                    migrated++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("Failed to migrate legacy job queues", e);
+        }
+        if (migrated > 0) {
+            log.info("Moved {} jobs from legacy list queues to priority queues", migrated);
+        }
+    }
+    
+    private double episodeScore(Long episodeId) {
+        return episodeRepository.findPriorityInfo(episodeId)
+                .map(info -> episodeScore(info.getPublishedDate(), info.getPodcastPriority(), info.getExpedited()))
+                .orElse(0.0);
+    }
+    
+    static double episodeScore(LocalDateTime publishedDate, Integer podcastPriority, Boolean expedited) {
+        double score = publishedDate != null ? -publishedDate.atZone(ZoneId.systemDefault()).toEpochSecond() : 0;
+        if (podcastPriority != null) {
+            score -= podcastPriority * (double) TIER_BOOST_SECONDS;
+        }
+        if (Boolean.TRUE.equals(expedited)) {
+            score -= EXPEDITE_OFFSET;
+        }
+        return score;
+    }
+    
+    private Job readJob(String jobJson) {
+        try {
+            return objectMapper.readValue(jobJson, Job.class);
+        } catch (Exception e) {
+            log.warn("Dropping unreadable job {}", jobJson, e);
+            return null;
+        }
+    }
+    
+    private static String queueKey(JobType type) {
+        return QUEUE_KEY_PREFIX + type.name().toLowerCase(Locale.ROOT);
+    }
+    
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
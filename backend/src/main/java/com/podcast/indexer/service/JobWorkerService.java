@@ -1,11 +1,14 @@
 package com.podcast.indexer.service;
 
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.Role;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 @Service
+@ConditionalOnRole(Role.WORKER)
 @RequiredArgsConstructor
 @Slf4j
 public class JobWorkerService {
@@ -15,10 +18,12 @@ public class JobWorkerService {
     private final AudioService audioService;
     private final WhisperService whisperService;
     private final IndexingService indexingService;
+    private final FeedPollingService feedPollingService;
+    private final BackpressureService backpressureService;
     
     @Scheduled(fixedDelay = 1000) // Check every second
     public void processJobs() {
-        JobQueueService.Job job = jobQueueService.dequeueJob(5);
+        JobQueueService.Job job = jobQueueService.dequeueJob(5, backpressureService.pausedJobTypes());
         
         if (job != null) {
             try {
@@ -44,6 +49,9 @@ public class JobWorkerService {
                 log.info("Completed job: {}", job);
             } catch (Exception e) {
                 log.error("Failed to process job: {}", job, e);
+                if (job.getType() == JobQueueService.JobType.SYNC_EPISODES) {
+                    feedPollingService.recordSyncFailure(job.getResourceId());
+                }
                 // In production, you might want to implement retry logic or dead letter queue
             }
         }
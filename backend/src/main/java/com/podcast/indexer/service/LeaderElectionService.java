@@ -0,0 +1,183 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Elects one node per singleton task (recovery scans, feed polling) through a
+ * Redis lease, so those tasks run once per cluster while job workers scale out.
+ * Each new lease gets a fencing token from a counter that only grows. A task
+ * renews its lease with that token before every batch and stops once another
+ * node has taken over, and runs its database writes through {@link #fenced},
+ * which rejects them once a newer token has written. That covers a leader that
+ * paused past its lease between renewing and writing.
+ */
+@Service
+@Slf4j
+public class LeaderElectionService {
+
+    private static final String LEASE_KEY_PREFIX = "podcast:leader:";
+
+    // KEYS[1]: lease, KEYS[2]: fencing counter; ARGV[1]: node id, ARGV[2]: lease ms.
+    // Returns the token of the lease held by this node, or -1 if another node holds it.
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current then " +
+            "  local sep = string.find(current, '|', 1, true) " +
+            "  if string.sub(current, 1, sep - 1) ~= ARGV[1] then return -1 end " +
+            "  redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "  return tonumber(string.sub(current, sep + 1)) " +
+            "end " +
+            "local token = redis.call('INCR', KEYS[2]) " +
+            "redis.call('SET', KEYS[1], ARGV[1] .. '|' .. token, 'PX', ARGV[2]) " +
+            "return token",
+            Long.class);
+
+    // KEYS[1]: lease; ARGV[1]: node id|token, ARGV[2]: lease ms. Extends the lease only if it is still ours.
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    // Raises the task's high-water mark to the token; no row is touched if a newer token has written.
+    // The row lock is held until the caller's writes commit, so leaders' writes never interleave.
+    private static final String FENCE_SQL =
+            "INSERT INTO leader_fences (task, token) VALUES (?, ?) " +
+            "ON CONFLICT (task) DO UPDATE SET token = EXCLUDED.token " +
+            "WHERE leader_fences.token <= EXCLUDED.token";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "  return redis.call('DEL', KEYS[1]) " +
+            "end " +
+            "return 0",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PodcastConfig config;
+    private final String nodeId;
+    private final Map<String, Long> heldTokens = new ConcurrentHashMap<>();
+
+    public LeaderElectionService(RedisTemplate<String, String> redisTemplate, JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate, PodcastConfig config) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.config = config;
+        String configuredId = config.getCluster().getNodeId();
+        this.nodeId = StringUtils.hasText(configuredId) ? configuredId : UUID.randomUUID().toString();
+    }
+
+    /**
+     * Acquires or renews the lease of a task. Returns the fencing token if this node
+     * is the leader, or empty if another node is.
+     */
+    public OptionalLong acquire(String task) {
+        try {
+            Long token = redisTemplate.execute(ACQUIRE_SCRIPT,
+                    List.of(leaseKey(task), leaseKey(task) + ":fence"), nodeId, leaseMillis());
+            if (token == null || token < 0) {
+                if (heldTokens.remove(task) != null) {
+                    log.info("Node {} lost leadership of {}", nodeId, task);
+                }
+                return OptionalLong.empty();
+            }
+            Long previous = heldTokens.put(task, token);
+            if (!token.equals(previous)) {
+                log.info("Node {} became leader of {} with fencing token {}", nodeId, task, token);
+            }
+            return OptionalLong.of(token);
+        } catch (Exception e) {
+            // Without Redis nobody can prove leadership, so nobody runs the task
+            log.warn("Failed to acquire leadership of {}", task, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    /**
+     * Extends the lease if it still carries the given fencing token. A task calls
+     * this before each unit of work and stops when it returns false.
+     */
+    public boolean renew(String task, long token) {
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                    List.of(leaseKey(task)), nodeId + "|" + token, leaseMillis());
+            if (renewed != null && renewed == 1) {
+                return true;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to renew leadership of {}", task, e);
+        }
+        heldTokens.remove(task);
+        log.warn("Node {} lost leadership of {} (token {}), stopping", nodeId, task, token);
+        return false;
+    }
+
+    /**
+     * Runs the writes in one transaction with the check of the fencing token against
+     * the highest token that has written for the task. Queue writes belong after this
+     * returns true; re-adding a queued job changes nothing, so they need no fence.
+     *
+     * @return whether the writes ran; false once a newer leader has written
+     */
+    public boolean fenced(String task, long token, Runnable writes) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            if (!holdsFence(task, token)) {
+                return false;
+            }
+            writes.run();
+            return true;
+        }));
+    }
+
+    /**
+     * Checks the fencing token within the caller's transaction, for writes that cannot
+     * run through {@link #fenced}. The caller writes only if this returns true.
+     */
+    public boolean holdsFence(String task, long token) {
+        if (jdbcTemplate.update(FENCE_SQL, task, token) > 0) {
+            return true;
+        }
+        heldTokens.remove(task);
+        log.warn("Node {} was fenced off {} (token {}), stopping", nodeId, task, token);
+        return false;
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        heldTokens.forEach((task, token) -> {
+            try {
+                redisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(task)), nodeId + "|" + token);
+            } catch (Exception e) {
+                log.warn("Failed to release leadership of {}", task, e);
+            }
+        });
+        heldTokens.clear();
+    }
+
+    private String leaseMillis() {
+        return String.valueOf(config.getCluster().getLeaseSeconds() * 1000L);
+    }
+
+    private static String leaseKey(String task) {
+        return LEASE_KEY_PREFIX + task;
+    }
+}
@@ -0,0 +1,60 @@
+package com.podcast.indexer.service;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.util.List;
+
+/**
+ * Embeds through the Ollama service, one HTTP request per text.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OllamaEmbeddingProvider implements EmbeddingProvider {
+    
+    static final String NAME = "ollama";
+    
+    @Qualifier("ollamaRestClient")
+    private final RestClient ollamaRestClient;
+    
+    @Override
+    public String name() {
+        return NAME;
+    }
+    
+    @Override
+    public List<Double> embed(String model, String text) {
+        try {
+            EmbeddingRequest request = new EmbeddingRequest();
+            request.setModel(model);
+            request.setPrompt(text);
+            
+            EmbeddingResponse response = ollamaRestClient.post()
+                    .uri("/api/embeddings")
+                    .body(request)
+                    .retrieve()
+                    .body(EmbeddingResponse.class);
+            
+            return response != null ? response.getEmbedding() : null;
+        } catch (Exception e) {
+            log.error("Failed to generate embedding", e);
+            throw new RuntimeException("Failed to generate embedding", e);
+        }
+    }
+    
+    @Data
+    public static class EmbeddingRequest {
+        private String model;
+        private String prompt;
+    }
+    
+    @Data
+    public static class EmbeddingResponse {
+        private List<Double> embedding;
+    }
+}
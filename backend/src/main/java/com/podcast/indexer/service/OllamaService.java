@@ -8,7 +8,6 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestClient;
 
-import java.util.List;
 import java.util.Map;
 
 @Service
@@ -20,25 +19,6 @@ public class OllamaService {
     private final RestClient ollamaRestClient;
     private final PodcastConfig config;
     
-    public List<Double> generateEmbedding(String text) {
-        try {
-            EmbeddingRequest request = new EmbeddingRequest();
-            request.setModel(config.getOllama().getEmbedding().getModel());
-            request.setPrompt(text);
-            
-            EmbeddingResponse response = ollamaRestClient.post()
-                    .uri("/api/embeddings")
-                    .body(request)
-                    .retrieve()
-                    .body(EmbeddingResponse.class);
-            
-            return response != null ? response.getEmbedding() : null;
-        } catch (Exception e) {
-            log.error("Failed to generate embedding", e);
-            throw new RuntimeException("Failed to generate embedding", e);
-        }
-    }
-    
     public String generateAnswer(String question, String context) {
         try {
             ChatRequest request = new ChatRequest();
@@ -66,17 +46,6 @@ public class OllamaService {
                 "Answer:";
     }
     
-    @Data
-    public static class EmbeddingRequest {
-        private String model;
-        private String prompt;
-    }
-    
-    @Data
-    public static class EmbeddingResponse {
-        private List<Double> embedding;
-    }
-    
     @Data
     public static class ChatRequest {
         private String model;
@@ -0,0 +1,209 @@
+package com.podcast.indexer.service;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.util.WordPieceTokenizer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs sentence-embedding models in the JVM with ONNX Runtime on the CPU
+ * ({@code onnx:<model>}), skipping the HTTP round trip that dominates for short
+ * queries. A model is a directory under {@code podcast.embedding.onnx.model-dir}
+ * with {@code model.onnx} and its WordPiece {@code vocab.txt}, loaded on first use.
+ * Texts are embedded in padded batches, several batches at a time on a thread pool,
+ * and the token embeddings are mean-pooled and normalized unless the model already
+ * outputs one vector per text.
+ */
+@Component
+@Slf4j
+public class OnnxEmbeddingProvider implements EmbeddingProvider {
+
+    static final String NAME = "onnx";
+
+    private final PodcastConfig.Embedding.Onnx config;
+    private final Map<String, Model> models = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public OnnxEmbeddingProvider(PodcastConfig config) {
+        this.config = config.getEmbedding().getOnnx();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.config.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "onnx-embedding-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public List<Double> embed(String model, String text) {
+        // On the calling thread: a single query gains nothing from the pool
+        return runBatch(model(model), List.of(text)).get(0);
+    }
+
+    @Override
+    public List<List<Double>> embedAll(String model, List<String> texts) {
+        Model loaded = model(model);
+        int batchSize = config.getBatchSize();
+        if (texts.size() <= batchSize) {
+            return runBatch(loaded, texts);
+        }
+        List<Future<List<List<Double>>>> batches = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i += batchSize) {
+            List<String> batch = texts.subList(i, Math.min(i + batchSize, texts.size()));
+            batches.add(executor.submit(() -> runBatch(loaded, batch)));
+        }
+        List<List<Double>> embeddings = new ArrayList<>(texts.size());
+        try {
+            for (Future<List<List<Double>>> batch : batches) {
+                embeddings.addAll(batch.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while generating embeddings", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to generate embeddings", e.getCause());
+        } finally {
+            batches.forEach(batch -> batch.cancel(true));
+        }
+        return embeddings;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+        models.values().forEach(model -> {
+            try {
+                model.session().close();
+            } catch (OrtException e) {
+                log.warn("Failed to close ONNX session", e);
+            }
+        });
+    }
+
+    private Model model(String name) {
+        return models.computeIfAbsent(name, this::load);
+    }
+
+    private Model load(String name) {
+        Path directory = Path.of(config.getModelDir()).resolve(name).normalize();
+        if (!directory.startsWith(Path.of(config.getModelDir()).normalize())
+                || !Files.isRegularFile(directory.resolve("model.onnx"))) {
+            throw new IllegalArgumentException("No ONNX model " + name + " in " + config.getModelDir());
+        }
+        try {
+            WordPieceTokenizer tokenizer = WordPieceTokenizer.load(directory.resolve("vocab.txt"), config.isLowercase());
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            // Parallelism comes from running batches side by side
+            options.setIntraOpNumThreads(1);
+            OrtSession session = OrtEnvironment.getEnvironment()
+                    .createSession(directory.resolve("model.onnx").toString(), options);
+            log.info("Loaded ONNX embedding model {} with inputs {}", name, session.getInputNames());
+            return new Model(session, tokenizer);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to load ONNX model " + name, e);
+        }
+    }
+
+    private List<List<Double>> runBatch(Model model, List<String> texts) {
+        long[][] inputIds = new long[texts.size()][];
+        int length = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            inputIds[i] = model.tokenizer().encode(texts.get(i), config.getMaxSequenceLength());
+            length = Math.max(length, inputIds[i].length);
+        }
+        // Pad to the longest text of the batch; the mask hides the padding
+        long[][] ids = new long[texts.size()][length];
+        long[][] mask = new long[texts.size()][length];
+        for (int i = 0; i < texts.size(); i++) {
+            System.arraycopy(inputIds[i], 0, ids[i], 0, inputIds[i].length);
+            for (int j = 0; j < inputIds[i].length; j++) {
+                mask[i][j] = 1;
+            }
+        }
+
+        OrtEnvironment environment = OrtEnvironment.getEnvironment();
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            for (String input : model.session().getInputNames()) {
+                long[][] values = switch (input) {
+                    case "input_ids" -> ids;
+                    case "attention_mask" -> mask;
+                    case "token_type_ids" -> new long[texts.size()][length];
+                    default -> throw new IllegalStateException("Unsupported ONNX model input " + input);
+                };
+                inputs.put(input, OnnxTensor.createTensor(environment, values));
+            }
+            try (OrtSession.Result result = model.session().run(inputs)) {
+                Object output = result.get(0).getValue();
+                List<List<Double>> embeddings = new ArrayList<>(texts.size());
+                for (int i = 0; i < texts.size(); i++) {
+                    float[] vector = output instanceof float[][][] tokens ? meanPool(tokens[i], mask[i])
+                            : ((float[][]) output)[i];
+                    embeddings.add(normalize(vector));
+                }
+                return embeddings;
+            }
+        } catch (OrtException e) {
+            throw new RuntimeException("Failed to generate embeddings", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    private static float[] meanPool(float[][] tokens, long[] mask) {
+        float[] pooled = new float[tokens[0].length];
+        int count = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            if (mask[t] == 0) {
+                continue;
+            }
+            count++;
+            for (int d = 0; d < pooled.length; d++) {
+                pooled[d] += tokens[t][d];
+            }
+        }
+        for (int d = 0; d < pooled.length; d++) {
+            pooled[d] /= Math.max(count, 1);
+        }
+        return pooled;
+    }
+
+    private static List<Double> normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        List<Double> normalized = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            normalized.add(norm > 0 ? value / norm : value);
+        }
+        return normalized;
+    }
+
+    private record Model(OrtSession session, WordPieceTokenizer tokenizer) {
+    }
+}
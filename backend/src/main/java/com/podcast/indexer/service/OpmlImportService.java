@@ -0,0 +1,270 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.dto.OpmlImportResponse;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.repository.PodcastRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports podcasts from an OPML subscription list in the background. Feeds are
+ * validated in parallel with a cap on concurrent requests per host, valid ones
+ * are inserted in batches and their first sync is queued in one Redis call per
+ * batch. Progress and per-feed errors are kept in Redis under the job id.
+ */
+@Service
+@Slf4j
+public class OpmlImportService {
+
+    private static final String STATUS_KEY_PREFIX = "podcast:opml-import:";
+    private static final String ERRORS_KEY_SUFFIX = ":errors";
+
+    private final PodcastRepository podcastRepository;
+    private final RssFeedService rssFeedService;
+    private final JobQueueService jobQueueService;
+    private final PodcastPartitionService partitionService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final PodcastConfig.Feed.OpmlImport settings;
+    private final ExecutorService fetchExecutor;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final XMLInputFactory inputFactory;
+
+    public OpmlImportService(PodcastRepository podcastRepository,
+                             RssFeedService rssFeedService,
+                             JobQueueService jobQueueService,
+                             PodcastPartitionService partitionService,
+                             RedisTemplate<String, String> redisTemplate,
+                             PodcastConfig podcastConfig) {
+        this.podcastRepository = podcastRepository;
+        this.rssFeedService = rssFeedService;
+        this.jobQueueService = jobQueueService;
+        this.partitionService = partitionService;
+        this.redisTemplate = redisTemplate;
+        this.settings = podcastConfig.getFeed().getOpmlImport();
+        this.fetchExecutor = Executors.newFixedThreadPool(settings.getConcurrency());
+        this.inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Reads the feed URLs from the OPML document and starts importing them.
+     *
+     * @return the id under which the import progress can be queried
+     * @throws IllegalArgumentException if the document is not valid OPML
+     */
+    public String startImport(InputStream opml, LocalDate downloadUntilDate) {
+        Set<String> feedUrls = readFeedUrls(opml);
+        String jobId = UUID.randomUUID().toString();
+        String statusKey = STATUS_KEY_PREFIX + jobId;
+
+        Map<String, String> status = new LinkedHashMap<>();
+        status.put("status", "RUNNING");
+        status.put("total", String.valueOf(feedUrls.size()));
+        status.put("processed", "0");
+        status.put("imported", "0");
+        status.put("skipped", "0");
+        status.put("failed", "0");
+        redisTemplate.opsForHash().putAll(statusKey, status);
+        redisTemplate.expire(statusKey, Duration.ofDays(settings.getStatusTtlDays()));
+
+        coordinator.execute(() -> runImport(jobId, feedUrls, downloadUntilDate));
+        log.info("Started OPML import {} with {} feeds", jobId, feedUrls.size());
+        return jobId;
+    }
+
+    public OpmlImportResponse getStatus(String jobId) {
+        Map<Object, Object> status = redisTemplate.opsForHash().entries(STATUS_KEY_PREFIX + jobId);
+        if (status.isEmpty()) {
+            return null;
+        }
+        Map<String, String> errors = new LinkedHashMap<>();
+        redisTemplate.opsForHash().entries(STATUS_KEY_PREFIX + jobId + ERRORS_KEY_SUFFIX)
+                .forEach((url, error) -> errors.put((String) url, (String) error));
+        return OpmlImportResponse.builder()
+                .jobId(jobId)
+                .status((String) status.get("status"))
+                .total(count(status, "total"))
+                .processed(count(status, "processed"))
+                .imported(count(status, "imported"))
+                .skipped(count(status, "skipped"))
+                .failed(count(status, "failed"))
+                .errors(errors)
+                .build();
+    }
+
+    private void runImport(String jobId, Set<String> feedUrls, LocalDate downloadUntilDate) {
+        String statusKey = STATUS_KEY_PREFIX + jobId;
+        try {
+            Set<String> existing = podcastRepository.findExistingFeedUrls(feedUrls);
+            if (!existing.isEmpty()) {
+                increment(statusKey, "skipped", existing.size());
+                increment(statusKey, "processed", existing.size());
+            }
+
+            // One queue per host, drained by at most perHostConcurrency lanes each
+            Map<String, Queue<String>> byHost = new LinkedHashMap<>();
+            for (String feedUrl : feedUrls) {
+                if (!existing.contains(feedUrl)) {
+                    byHost.computeIfAbsent(hostOf(feedUrl), h -> new ConcurrentLinkedQueue<>()).add(feedUrl);
+                }
+            }
+
+            BlockingQueue<Podcast> validated = new LinkedBlockingQueue<>();
+            List<Runnable> lanes = new ArrayList<>();
+            for (Queue<String> hostQueue : byHost.values()) {
+                int laneCount = Math.min(settings.getPerHostConcurrency(), hostQueue.size());
+                for (int i = 0; i < laneCount; i++) {
+                    lanes.add(() -> {
+                        String feedUrl;
+                        while ((feedUrl = hostQueue.poll()) != null) {
+                            validate(statusKey, feedUrl, downloadUntilDate, validated);
+                        }
+                    });
+                }
+            }
+            CountDownLatch lanesDone = new CountDownLatch(lanes.size());
+            for (Runnable lane : lanes) {
+                fetchExecutor.execute(() -> {
+                    try {
+                        lane.run();
+                    } finally {
+                        lanesDone.countDown();
+                    }
+                });
+            }
+
+            List<Podcast> batch = new ArrayList<>(settings.getBatchSize());
+            while (lanesDone.getCount() > 0 || !validated.isEmpty()) {
+                Podcast podcast = validated.poll(500, TimeUnit.MILLISECONDS);
+                if (podcast != null) {
+                    batch.add(podcast);
+                }
+                if (batch.size() >= settings.getBatchSize() || (podcast == null && !batch.isEmpty())) {
+                    insertBatch(statusKey, batch);
+                    batch.clear();
+                }
+            }
+            insertBatch(statusKey, batch);
+
+            redisTemplate.opsForHash().put(statusKey, "status", "COMPLETED");
+            log.info("OPML import {} completed", jobId);
+        } catch (Exception e) {
+            log.error("OPML import {} failed", jobId, e);
+            redisTemplate.opsForHash().put(statusKey, "status", "FAILED");
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void validate(String statusKey, String feedUrl, LocalDate downloadUntilDate,
+                          BlockingQueue<Podcast> validated) {
+        try {
+            Podcast podcast = rssFeedService.fetchPodcast(feedUrl, downloadUntilDate);
+            if (podcast.getTitle() == null || podcast.getTitle().isBlank()) {
+                throw new IllegalArgumentException("Feed has no title");
+            }
+            validated.add(podcast);
+        } catch (Exception e) {
+            String error = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+            log.warn("Skipping feed {} from OPML import: {}", feedUrl, error);
+            String errorsKey = statusKey + ERRORS_KEY_SUFFIX;
+            redisTemplate.opsForHash().put(errorsKey, feedUrl, String.valueOf(error));
+            redisTemplate.expire(errorsKey, Duration.ofDays(settings.getStatusTtlDays()));
+            increment(statusKey, "failed", 1);
+            increment(statusKey, "processed", 1);
+        }
+    }
+
+    private void insertBatch(String statusKey, List<Podcast> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Podcast> inserted = podcastRepository.insertIgnoringDuplicates(batch);
+        inserted.forEach(podcast -> partitionService.createPartitions(podcast.getId()));
+        jobQueueService.queueSyncEpisodesJobs(inserted.stream().map(Podcast::getId).toList());
+        increment(statusKey, "imported", inserted.size());
+        // Added concurrently through the API since the existence check
+        increment(statusKey, "skipped", batch.size() - inserted.size());
+        increment(statusKey, "processed", batch.size());
+    }
+
+    private Set<String> readFeedUrls(InputStream opml) {
+        Set<String> feedUrls = new LinkedHashSet<>();
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(opml);
+            try {
+                if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !"opml".equals(reader.getLocalName())) {
+                    throw new IllegalArgumentException("Not an OPML document");
+                }
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "outline".equals(reader.getLocalName())) {
+                        String xmlUrl = reader.getAttributeValue(null, "xmlUrl");
+                        if (xmlUrl != null && !xmlUrl.isBlank()) {
+                            feedUrls.add(xmlUrl.trim());
+                        }
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IllegalArgumentException("Invalid OPML document: " + e.getMessage(), e);
+        }
+        return feedUrls;
+    }
+
+    private void increment(String statusKey, String field, long delta) {
+        if (delta != 0) {
+            redisTemplate.opsForHash().increment(statusKey, field, delta);
+        }
+    }
+
+    private static int count(Map<Object, Object> status, String field) {
+        Object value = status.get(field);
+        return value != null ? Integer.parseInt((String) value) : 0;
+    }
+
+    private static String hostOf(String feedUrl) {
+        try {
+            String host = URI.create(feedUrl).getHost();
+            return host != null ? host.toLowerCase() : feedUrl;
+        } catch (IllegalArgumentException e) {
+            return feedUrl;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        fetchExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,177 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.dto.PipelineStatsResponse;
+import com.podcast.indexer.model.PodcastChunkCount;
+import com.podcast.indexer.model.PodcastStatusCount;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.repository.PodcastChunkCountRepository;
+import com.podcast.indexer.repository.PodcastStatusCountRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-podcast pipeline statistics: episodes and their duration per status, and
+ * embedding chunks. Statement-level triggers keep the counters in step with every
+ * write to {@code episodes} and {@code embedding_chunks}, including bulk updates and
+ * COPY, in the same transaction; reading them never touches the episodes.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PipelineStatsService {
+
+    // Serializes trigger installation when several instances start at once
+    private static final long INSTALL_LOCK_ID = 0x7374617473L;
+
+    private static final String UPSERT_STATUS_COUNTS =
+            "INSERT INTO podcast_status_counts AS c (podcast_id, status, episode_count, duration_seconds, updated_at) " +
+            "SELECT podcast_id, status, SUM(n), SUM(d), now() FROM (%s) delta " +
+            "GROUP BY podcast_id, status HAVING SUM(n) <> 0 OR SUM(d) <> 0 " +
+            "ORDER BY podcast_id, status " +
+            "ON CONFLICT (podcast_id, status) DO UPDATE SET " +
+            "episode_count = c.episode_count + EXCLUDED.episode_count, " +
+            "duration_seconds = c.duration_seconds + EXCLUDED.duration_seconds, " +
+            "updated_at = EXCLUDED.updated_at";
+
+    // Chunks written before podcast_id was copied onto them fall back to their episode
+    private static final String UPSERT_CHUNK_COUNTS =
+            "INSERT INTO podcast_chunk_counts AS c (podcast_id, chunk_count, updated_at) " +
+            "SELECT podcast_id, %s COUNT(*), now() FROM (" +
+            "SELECT COALESCE(r.podcast_id, e.podcast_id) AS podcast_id FROM %s r " +
+            "LEFT JOIN episodes e ON r.podcast_id IS NULL AND e.id = r.episode_id) changed " +
+            "WHERE podcast_id IS NOT NULL GROUP BY podcast_id ORDER BY podcast_id " +
+            "ON CONFLICT (podcast_id) DO UPDATE SET " +
+            "chunk_count = c.chunk_count + EXCLUDED.chunk_count, updated_at = EXCLUDED.updated_at";
+
+    private static final String INSERTED_EPISODES =
+            "SELECT podcast_id, status, 1 AS n, COALESCE(duration_seconds, 0)::bigint AS d FROM new_rows";
+    private static final String DELETED_EPISODES =
+            "SELECT podcast_id, status, -1 AS n, -COALESCE(duration_seconds, 0)::bigint AS d FROM old_rows";
+    // Only rows whose counted columns changed; heartbeats and other updates cancel out early
+    private static final String UPDATED_EPISODES =
+            "SELECT o.podcast_id, o.status, -1 AS n, -COALESCE(o.duration_seconds, 0)::bigint AS d " +
+            "FROM old_rows o JOIN new_rows n ON n.id = o.id " +
+            "WHERE (o.podcast_id, o.status, o.duration_seconds) IS DISTINCT FROM (n.podcast_id, n.status, n.duration_seconds) " +
+            "UNION ALL " +
+            "SELECT n.podcast_id, n.status, 1, COALESCE(n.duration_seconds, 0)::bigint " +
+            "FROM old_rows o JOIN new_rows n ON n.id = o.id " +
+            "WHERE (o.podcast_id, o.status, o.duration_seconds) IS DISTINCT FROM (n.podcast_id, n.status, n.duration_seconds)";
+
+    private static final List<Trigger> TRIGGERS = List.of(
+            new Trigger("episodes", "INSERT", "NEW TABLE AS new_rows", "podcast_stats_episodes_insert",
+                    UPSERT_STATUS_COUNTS.formatted(INSERTED_EPISODES)),
+            new Trigger("episodes", "UPDATE", "OLD TABLE AS old_rows NEW TABLE AS new_rows", "podcast_stats_episodes_update",
+                    UPSERT_STATUS_COUNTS.formatted(UPDATED_EPISODES)),
+            new Trigger("episodes", "DELETE", "OLD TABLE AS old_rows", "podcast_stats_episodes_delete",
+                    UPSERT_STATUS_COUNTS.formatted(DELETED_EPISODES)),
+            new Trigger("embedding_chunks", "INSERT", "NEW TABLE AS new_rows", "podcast_stats_chunks_insert",
+                    UPSERT_CHUNK_COUNTS.formatted("", "new_rows")),
+            new Trigger("embedding_chunks", "DELETE", "OLD TABLE AS old_rows", "podcast_stats_chunks_delete",
+                    UPSERT_CHUNK_COUNTS.formatted("-", "old_rows")));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PodcastStatusCountRepository statusCountRepository;
+    private final PodcastChunkCountRepository chunkCountRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void installTriggers() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + INSTALL_LOCK_ID + ")");
+            if (TRIGGERS.stream().allMatch(this::isInstalled)) {
+                return;
+            }
+
+            // A trigger is missing or counted differently: recount what exists while writers wait
+            jdbcTemplate.execute("LOCK TABLE episodes, embedding_chunks IN SHARE ROW EXCLUSIVE MODE");
+            for (Trigger trigger : TRIGGERS) {
+                jdbcTemplate.execute("CREATE OR REPLACE FUNCTION " + trigger.name() + "() RETURNS trigger " +
+                        "LANGUAGE plpgsql AS $$" + trigger.source() + "$$");
+                jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + trigger.name() + " ON " + trigger.table());
+                jdbcTemplate.execute("CREATE TRIGGER " + trigger.name() + " AFTER " + trigger.event() +
+                        " ON " + trigger.table() + " REFERENCING " + trigger.transitionTables() +
+                        " FOR EACH STATEMENT EXECUTE FUNCTION " + trigger.name() + "()");
+            }
+            rebuild();
+        });
+    }
+
+    public Map<Long, PipelineStatsResponse> getStats(Collection<Long> podcastIds) {
+        Map<Long, PipelineStatsResponse> stats = new HashMap<>();
+        if (podcastIds.isEmpty()) {
+            return stats;
+        }
+        for (Long podcastId : podcastIds) {
+            stats.put(podcastId, PipelineStatsResponse.builder()
+                    .episodeCounts(new EnumMap<>(ProcessingStatus.class))
+                    .build());
+        }
+        for (PodcastStatusCount count : statusCountRepository.findByPodcastIdIn(podcastIds)) {
+            PipelineStatsResponse podcastStats = stats.get(count.getPodcastId());
+            podcastStats.getEpisodeCounts().put(count.getStatus(), count.getEpisodeCount());
+            podcastStats.setTotalEpisodes(podcastStats.getTotalEpisodes() + count.getEpisodeCount());
+            if (count.getStatus() == ProcessingStatus.INDEXED) {
+                podcastStats.setIndexedDurationSeconds(count.getDurationSeconds());
+            }
+        }
+        for (PodcastChunkCount count : chunkCountRepository.findByPodcastIdIn(podcastIds)) {
+            stats.get(count.getPodcastId()).setChunkCount(count.getChunkCount());
+        }
+        return stats;
+    }
+
+    /**
+     * Latest change to any counter, for cache validators of responses that include them.
+     */
+    public LocalDateTime lastUpdatedAt() {
+        LocalDateTime statuses = statusCountRepository.findLastUpdatedAt();
+        LocalDateTime chunks = chunkCountRepository.findLastUpdatedAt();
+        if (statuses == null || chunks == null) {
+            return statuses != null ? statuses : chunks;
+        }
+        return statuses.isAfter(chunks) ? statuses : chunks;
+    }
+
+    /**
+     * Whether the trigger exists on its table and runs the current version of its function.
+     */
+    private boolean isInstalled(Trigger trigger) {
+        List<String> sources = jdbcTemplate.queryForList(
+                "SELECT p.prosrc FROM pg_trigger t JOIN pg_proc p ON p.oid = t.tgfoid " +
+                "WHERE t.tgname = ? AND t.tgrelid = to_regclass(?)",
+                String.class, trigger.name(), trigger.table());
+        return sources.size() == 1 && trigger.source().equals(sources.get(0));
+    }
+
+    private void rebuild() {
+        jdbcTemplate.update("DELETE FROM podcast_status_counts");
+        jdbcTemplate.update("DELETE FROM podcast_chunk_counts");
+        int statusRows = jdbcTemplate.update(
+                "INSERT INTO podcast_status_counts (podcast_id, status, episode_count, duration_seconds, updated_at) " +
+                "SELECT podcast_id, status, COUNT(*), COALESCE(SUM(duration_seconds), 0), now() " +
+                "FROM episodes GROUP BY podcast_id, status");
+        int chunkRows = jdbcTemplate.update(
+                "INSERT INTO podcast_chunk_counts (podcast_id, chunk_count, updated_at) " +
+                "SELECT e.podcast_id, COUNT(*), now() FROM embedding_chunks c JOIN episodes e ON e.id = c.episode_id " +
+                "GROUP BY e.podcast_id");
+        log.info("Installed pipeline statistics triggers and counted {} status and {} chunk rows", statusRows, chunkRows);
+    }
+
+    private record Trigger(String table, String event, String transitionTables, String name, String body) {
+        String source() {
+            return " BEGIN " + body + "; RETURN NULL; END ";
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Deletes a podcast with everything derived from it in a handful of set-based
+ * statements rather than through JPA cascades, which would load and delete every
+ * chunk and transcript block one by one. With partitioned tables the podcast's
+ * partitions are detached concurrently and dropped outright.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PodcastDeletionService {
+
+    private final PodcastRepository podcastRepository;
+    private final EpisodeRepository episodeRepository;
+    private final PodcastPartitionService partitionService;
+    private final AudioService audioService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * @return false if the podcast does not exist
+     */
+    public boolean deletePodcast(Long podcastId) {
+        if (!podcastRepository.existsById(podcastId)) {
+            return false;
+        }
+        List<Episode> withAudio = episodeRepository.findByPodcastIdAndAudioFilePathIsNotNull(podcastId);
+
+        // Outside the transaction, so queries on the partitioned tables are not blocked meanwhile
+        partitionService.detachPartitions(podcastId);
+        transactionTemplate.executeWithoutResult(status -> {
+            partitionService.dropDetachedPartitions(podcastId);
+            // Unpartitioned tables, or rows left in a default partition by earlier versions
+            int chunks = jdbcTemplate.update("DELETE FROM embedding_chunks WHERE podcast_id = ?", podcastId);
+            int blocks = jdbcTemplate.update("DELETE FROM transcript_blocks WHERE podcast_id = ?", podcastId);
+            jdbcTemplate.update("DELETE FROM episode_embeddings WHERE podcast_id = ?", podcastId);
+            int episodes = jdbcTemplate.update("DELETE FROM episodes WHERE podcast_id = ?", podcastId);
+            jdbcTemplate.update("DELETE FROM podcasts WHERE id = ?", podcastId);
+            // Dropped partitions fire no triggers, so the counters are removed rather than decremented
+            jdbcTemplate.update("DELETE FROM podcast_status_counts WHERE podcast_id = ?", podcastId);
+            jdbcTemplate.update("DELETE FROM podcast_chunk_counts WHERE podcast_id = ?", podcastId);
+            log.info("Deleted podcast {} with {} episodes ({} chunks and {} transcript blocks deleted row by row)",
+                    podcastId, episodes, chunks, blocks);
+        });
+
+        // Only once the rows are gone, so a failed delete leaves the audio in place
+        withAudio.forEach(audioService::deleteAudio);
+        return true;
+    }
+}
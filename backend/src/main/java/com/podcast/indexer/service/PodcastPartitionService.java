@@ -0,0 +1,318 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps {@code podcast_id} on every chunk and transcript block and, when
+ * {@code podcast.partitioning.enabled} is set, list-partitions both tables by podcast,
+ * one partition per podcast. Queries that name the podcast then touch one partition,
+ * indexes are built per partition, and deleting a podcast drops its partitions instead
+ * of deleting rows. There is no default partition: it would be scanned by every attach
+ * and rules out detaching concurrently.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PodcastPartitionService {
+
+    // Serializes the conversion and attaching when several instances start at once
+    private static final long MIGRATION_LOCK_ID = 0x70617274L;
+    private static final int BACKFILL_BATCH_SIZE = 50000;
+
+    // Table name -> indexes Hibernate declares on it, recreated on the partitioned table
+    static final Map<String, Map<String, String>> TABLES = Map.of(
+            "embedding_chunks", Map.of("idx_chunk_episode", "episode_id", "idx_chunk_podcast", "podcast_id, id"),
+            "transcript_blocks", Map.of("idx_block_episode_part", "episode_id, part_index, block_index"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PodcastConfig config;
+
+    // Before the other startup tasks, which install triggers and indexes on these tables
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void prepareTables() {
+        TABLES.keySet().forEach(this::backfillPodcastIds);
+        if (!config.getPartitioning().isEnabled()) {
+            TABLES.keySet().stream().filter(this::isPartitioned).findAny().ifPresent(table ->
+                    log.warn("{} stays partitioned although partitioning is disabled", table));
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_ID + ")");
+            TABLES.forEach((table, indexes) -> {
+                if (!isPartitioned(table)) {
+                    convert(table, indexes);
+                }
+            });
+        });
+
+        // Podcasts added while attaching failed, or by versions that wrote their rows to a default partition
+        List<String> partitioned = TABLES.keySet().stream().filter(this::isPartitioned).sorted().toList();
+        if (partitioned.isEmpty()) {
+            return;
+        }
+        List<Long> withoutPartition = jdbcTemplate.queryForList("SELECT id FROM podcasts p WHERE " +
+                partitioned.stream()
+                        .map(table -> "NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhparent = '" + table + "'::regclass " +
+                                "AND inhrelid = to_regclass('" + table + "_p' || p.id))")
+                        .collect(Collectors.joining(" OR ")) +
+                " ORDER BY id", Long.class);
+        boolean attached = true;
+        for (Long podcastId : withoutPartition) {
+            attached &= attachPartitions(podcastId);
+        }
+        if (attached) {
+            partitioned.forEach(this::dropDefaultPartition);
+        }
+    }
+
+    /**
+     * Attaches the partitions of a new podcast, if the tables are partitioned. Within a
+     * transaction this waits for its commit, so the locks attaching takes on the tables
+     * are never held while the podcast is inserted. Partitions that cannot be attached
+     * now are attached by the next call or start.
+     */
+    public void createPartitions(Long podcastId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    attachPartitions(podcastId);
+                }
+            });
+        } else {
+            attachPartitions(podcastId);
+        }
+    }
+
+    /**
+     * Detaches the partitions of a podcast without blocking queries on the tables, if
+     * they are partitioned; must run outside a transaction. The detached tables keep
+     * their rows until {@link #dropDetachedPartitions} drops them, and are attached
+     * again with them by {@link #createPartitions}.
+     */
+    public void detachPartitions(Long podcastId) {
+        for (String table : TABLES.keySet()) {
+            String partition = partition(table, podcastId);
+            List<Boolean> pending = jdbcTemplate.queryForList("SELECT inhdetachpending FROM pg_inherits " +
+                    "WHERE inhparent = to_regclass(?) AND inhrelid = to_regclass(?)", Boolean.class, table, partition);
+            if (pending.isEmpty()) {
+                continue;
+            }
+            if (pending.get(0)) {
+                // An earlier concurrent detach was interrupted after its first step
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition + " FINALIZE");
+            } else if (hasDefaultPartition(table)) {
+                // Refused concurrently while the default partition exists, until the next start drops it
+                newTransaction().executeWithoutResult(status -> {
+                    setLockTimeout();
+                    jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                });
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition + " CONCURRENTLY");
+            }
+        }
+    }
+
+    /**
+     * Drops the partitions of a podcast once detached. Their rows are gone without being
+     * deleted one by one, without firing delete triggers, and without locking the tables
+     * they belonged to.
+     */
+    public void dropDetachedPartitions(Long podcastId) {
+        for (String table : TABLES.keySet()) {
+            String partition = partition(table, podcastId);
+            List<Boolean> isPartition = jdbcTemplate.queryForList(
+                    "SELECT relispartition FROM pg_class WHERE oid = to_regclass(?)", Boolean.class, partition);
+            if (!isPartition.isEmpty() && !isPartition.get(0)) {
+                jdbcTemplate.execute("DROP TABLE " + partition);
+            }
+        }
+    }
+
+    public boolean isPartitioned(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT COALESCE((SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(?)), false)",
+                Boolean.class, table));
+    }
+
+    /**
+     * Attaches each missing partition in a short transaction of its own: the table is
+     * created standalone, takes over the podcast's rows from a default partition left by
+     * earlier versions, and is attached under the lock timeout.
+     *
+     * @return false if a partition could not be attached
+     */
+    private boolean attachPartitions(Long podcastId) {
+        boolean attached = true;
+        for (String table : TABLES.keySet()) {
+            if (!isPartitioned(table)) {
+                continue;
+            }
+            try {
+                newTransaction().executeWithoutResult(status -> attach(table, podcastId));
+            } catch (Exception e) {
+                log.warn("Could not attach partition {}, retrying later: {}",
+                        partition(table, podcastId), e.getMessage());
+                attached = false;
+            }
+        }
+        return attached;
+    }
+
+    private void attach(String table, Long podcastId) {
+        setLockTimeout();
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK_ID + ")");
+        String partition = partition(table, podcastId);
+        if (isAttached(table, partition)) {
+            return;
+        }
+        // Standalone, so creating it and moving rows in locks nothing but the default partition
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " (LIKE " + table + " INCLUDING DEFAULTS)");
+        if (hasDefaultPartition(table)) {
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + table + "_default WHERE podcast_id = ? " +
+                    "RETURNING *) INSERT INTO " + partition + " SELECT * FROM moved", podcastId);
+            if (moved > 0) {
+                log.info("Moved {} rows of podcast {} out of {}_default", moved, podcastId, table);
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + partition +
+                " FOR VALUES IN (" + podcastId + ")");
+    }
+
+    /**
+     * Drops the default partition that earlier versions created, once every podcast has
+     * its own partition and the default one holds no rows.
+     */
+    private void dropDefaultPartition(String table) {
+        if (!hasDefaultPartition(table)) {
+            return;
+        }
+        newTransaction().executeWithoutResult(status -> {
+            setLockTimeout();
+            jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + table + "_default");
+            // Checked once detached, so no row can arrive in between
+            if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + table + "_default)", Boolean.class))) {
+                log.warn("Keeping {}_default, which still holds rows without a partition", table);
+                status.setRollbackOnly();
+                return;
+            }
+            jdbcTemplate.execute("DROP TABLE " + table + "_default");
+            log.info("Dropped {}_default", table);
+        });
+    }
+
+    private boolean isAttached(String table, String partition) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_inherits " +
+                "WHERE inhparent = to_regclass(?) AND inhrelid = to_regclass(?))", Boolean.class, table, partition));
+    }
+
+    private boolean hasDefaultPartition(String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM pg_partitioned_table " +
+                "WHERE partrelid = to_regclass(?) AND partdefid <> 0)", Boolean.class, table));
+    }
+
+    private void setLockTimeout() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + config.getPartitioning().getLockTimeoutMs());
+    }
+
+    // Separate from any transaction of the caller, which has committed already after commit callbacks
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * Copies podcast_id from the episode onto rows written before the column existed, in
+     * id ranges that each commit on their own, then marks the column NOT NULL.
+     */
+    private void backfillPodcastIds(String table) {
+        Boolean notNull = jdbcTemplate.queryForObject(
+                "SELECT attnotnull FROM pg_attribute WHERE attrelid = to_regclass(?) AND attname = 'podcast_id'",
+                Boolean.class, table);
+        if (Boolean.TRUE.equals(notNull)) {
+            return;
+        }
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS first_id, MAX(id) AS last_id FROM " + table + " WHERE podcast_id IS NULL");
+        if (range.get("first_id") != null) {
+            long firstId = ((Number) range.get("first_id")).longValue();
+            long lastId = ((Number) range.get("last_id")).longValue();
+            long updated = 0;
+            for (long from = firstId; from <= lastId; from += BACKFILL_BATCH_SIZE) {
+                updated += jdbcTemplate.update("UPDATE " + table + " t SET podcast_id = e.podcast_id " +
+                        "FROM episodes e WHERE e.id = t.episode_id AND t.podcast_id IS NULL " +
+                        "AND t.id >= ? AND t.id < ?", from, from + BACKFILL_BATCH_SIZE);
+            }
+            log.info("Copied podcast ids onto {} rows of {}", updated, table);
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN podcast_id SET NOT NULL");
+        } catch (Exception e) {
+            // Rows written meanwhile by instances of the previous version; the next start catches up
+            log.warn("Could not yet mark {}.podcast_id NOT NULL: {}", table, e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the table by a partitioned one with the same columns and moves the rows
+     * over, holding an exclusive lock throughout; a one-off that needs downtime on
+     * large tables.
+     */
+    private void convert(String table, Map<String, String> indexes) {
+        Boolean notNull = jdbcTemplate.queryForObject(
+                "SELECT attnotnull FROM pg_attribute WHERE attrelid = to_regclass(?) AND attname = 'podcast_id'",
+                Boolean.class, table);
+        if (!Boolean.TRUE.equals(notNull)) {
+            log.warn("Not partitioning {} while some rows lack a podcast id", table);
+            return;
+        }
+        log.info("Partitioning {} by podcast", table);
+        long start = System.currentTimeMillis();
+        String legacy = table + "_unpartitioned";
+        String sequence = table + "_partitioned_id_seq";
+        jdbcTemplate.execute("LOCK TABLE " + table + " IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacy + " INCLUDING DEFAULTS) " +
+                "PARTITION BY LIST (podcast_id)");
+        // Identity columns do not carry over to partitioned tables; a plain sequence does
+        jdbcTemplate.execute("CREATE SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+        jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', " +
+                "(SELECT COALESCE(MAX(id), 0) + 1 FROM " + legacy + "), false)", Long.class);
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (podcast_id, id)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD FOREIGN KEY (episode_id) REFERENCES episodes (id)");
+        for (Long podcastId : jdbcTemplate.queryForList("SELECT id FROM podcasts", Long.class)) {
+            jdbcTemplate.execute("CREATE TABLE " + partition(table, podcastId) + " PARTITION OF " + table +
+                    " FOR VALUES IN (" + podcastId + ")");
+        }
+        int moved = jdbcTemplate.update("INSERT INTO " + table + " SELECT * FROM " + legacy);
+        jdbcTemplate.execute("DROP TABLE " + legacy);
+        indexes.forEach((name, columns) ->
+                jdbcTemplate.execute("CREATE INDEX " + name + " ON " + table + " (" + columns + ")"));
+        log.info("Partitioned {} by podcast, moving {} rows in {} ms", table, moved, System.currentTimeMillis() - start);
+    }
+
+    static String partition(String table, Long podcastId) {
+        return table + "_p" + podcastId;
+    }
+}
@@ -2,10 +2,8 @@ package com.podcast.indexer.service;
 
 import com.podcast.indexer.config.PodcastConfig;
 import com.podcast.indexer.dto.AnswerResponse;
-import com.podcast.indexer.model.EmbeddingChunk;
-import com.podcast.indexer.model.Episode;
-import com.podcast.indexer.repository.EmbeddingChunkRepository;
-import com.podcast.indexer.util.EmbeddingUtils;
+import com.podcast.indexer.repository.ChunkFilter;
+import com.podcast.indexer.repository.EmbeddingChunkRepositoryCustom.RetrievedChunk;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,18 +17,17 @@ import java.util.List;
 public class QuestionAnswerService {
     
     private final OllamaService ollamaService;
-    private final EmbeddingChunkRepository embeddingChunkRepository;
+    private final SemanticSearchService semanticSearchService;
     private final PodcastConfig config;
     
     public AnswerResponse answerQuestion(Long podcastId, String question) {
         // Generate embedding for the question
-        List<Double> questionEmbedding = ollamaService.generateEmbedding(question);
-        String embeddingStr = EmbeddingUtils.convertEmbeddingToString(questionEmbedding);
+        String embeddingStr = semanticSearchService.embedQuery(question);
         
         // Retrieve top-k similar chunks
         int topK = config.getVector().getSearch().getTopK();
-        List<EmbeddingChunk> relevantChunks = embeddingChunkRepository.findTopKSimilarByPodcast(
-                podcastId, embeddingStr, topK);
+        List<RetrievedChunk> relevantChunks = semanticSearchService.findNearest(
+                ChunkFilter.builder().podcastIds(List.of(podcastId)).build(), embeddingStr, topK);
         
         if (relevantChunks.isEmpty()) {
             return AnswerResponse.builder()
@@ -43,27 +40,26 @@ public class QuestionAnswerService {
         StringBuilder contextBuilder = new StringBuilder();
         List<AnswerResponse.Citation> citations = new ArrayList<>();
         
-        for (EmbeddingChunk chunk : relevantChunks) {
-            Episode episode = chunk.getEpisode();
-            
+        for (RetrievedChunk chunk : relevantChunks) {
             contextBuilder.append("From episode \"")
-                    .append(episode.getTitle())
+                    .append(chunk.episodeTitle())
                     .append("\" (")
-                    .append(formatTimestamp(chunk.getStartMs()))
+                    .append(formatTimestamp(chunk.startMs()))
                     .append(" - ")
-                    .append(formatTimestamp(chunk.getEndMs()))
+                    .append(formatTimestamp(chunk.endMs()))
                     .append("): ")
-                    .append(chunk.getText())
+                    .append(chunk.text())
                     .append("\n\n");
             
             AnswerResponse.Citation citation = AnswerResponse.Citation.builder()
-                    .episodeId(episode.getId())
-                    .episodeTitle(episode.getTitle())
-                    .audioUrl(episode.getAudioUrl())
-                    .startMs(chunk.getStartMs())
-                    .endMs(chunk.getEndMs())
-                    .textSnippet(chunk.getText().substring(0, Math.min(200, chunk.getText().length())))
-                    .listenLink("/episodes/" + episode.getId() + "?t=" + (chunk.getStartMs() / 1000))
+                    .episodeId(chunk.episodeId())
+                    .episodeTitle(chunk.episodeTitle())
+                    .audioUrl(chunk.audioUrl())
+                    .startMs(chunk.startMs())
+                    .endMs(chunk.endMs())
+                    .textSnippet(chunk.text().substring(0, Math.min(200, chunk.text().length())))
+                    .listenLink(SemanticSearchService.listenLink(chunk))
+                    .score(chunk.score())
                     .build();
             
             citations.add(citation);
@@ -0,0 +1,83 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.ConditionalOnRole;
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.config.Role;
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EmbeddingChunkRepositoryCustom.PendingChunk;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Re-embeds chunks after the configured embedding model changed, one batch per run so
+ * the embedding service keeps capacity for indexing and queries. Progress is stored
+ * with the model, so a restart resumes where the last batch ended; once no chunk is
+ * left, {@link EmbeddingModelService} switches searches over. Only the node holding
+ * the re-embedding lease works on it.
+ */
+@Service
+@ConditionalOnRole(Role.SCHEDULER)
+@RequiredArgsConstructor
+@Slf4j
+public class ReembeddingService {
+
+    static final String LEADER_TASK = "reembedding";
+
+    private final EmbeddingModelService embeddingModelService;
+    private final EmbeddingChunkRepository embeddingChunkRepository;
+    private final EmbeddingCacheService embeddingCacheService;
+    private final LeaderElectionService leaderElectionService;
+    private final PodcastConfig config;
+
+    @Scheduled(fixedDelayString = "${podcast.indexing.reembedding.interval-ms:2000}")
+    public void reembedBatch() {
+        String configured = config.getEmbedding().getModel();
+        Optional<EmbeddingModel> active = embeddingModelService.findActiveModel();
+        Optional<EmbeddingModel> migrating = embeddingModelService.migratingModel();
+        if (active.isEmpty() || (active.get().getName().equals(configured) && migrating.isEmpty())) {
+            return;
+        }
+        OptionalLong token = leaderElectionService.acquire(LEADER_TASK);
+        if (token.isEmpty()) {
+            return;
+        }
+        if (active.get().getName().equals(configured)) {
+            leaderElectionService.fenced(LEADER_TASK, token.getAsLong(),
+                    () -> embeddingModelService.abandonMigration(migrating.get()));
+            return;
+        }
+        EmbeddingModel target = migrating.filter(m -> m.getName().equals(configured))
+                .orElseGet(() -> embeddingModelService.startMigration(configured));
+
+        List<PendingChunk> batch = embeddingChunkRepository.findChunksToReembed(
+                target.getReembeddedPodcastId(), target.getReembeddedChunkId(),
+                config.getIndexing().getReembedding().getBatchSize());
+        if (batch.isEmpty()) {
+            // New chunks get both embeddings while migrating, so none are left behind
+            embeddingModelService.completeMigration(target,
+                    () -> leaderElectionService.holdsFence(LEADER_TASK, token.getAsLong()));
+            return;
+        }
+        List<String> embeddings = embeddingCacheService.getEmbeddings(target.getName(),
+                batch.stream().map(PendingChunk::text).toList());
+        if (!leaderElectionService.renew(LEADER_TASK, token.getAsLong())) {
+            return;
+        }
+        PendingChunk last = batch.get(batch.size() - 1);
+        // A leader replaced meanwhile must not move the progress back
+        if (!leaderElectionService.fenced(LEADER_TASK, token.getAsLong(), () -> {
+            embeddingChunkRepository.updateNextEmbeddings(batch, embeddings, target.getId());
+            embeddingModelService.saveProgress(target, last.podcastId(), last.id());
+        })) {
+            return;
+        }
+        log.debug("Re-embedded {} chunks with {} up to chunk {}", batch.size(), target.getName(), last.id());
+    }
+}
@@ -1,11 +1,12 @@
 package com.podcast.indexer.service;
 
+import com.podcast.indexer.config.PodcastConfig;
 import com.podcast.indexer.model.Episode;
 import com.podcast.indexer.model.Podcast;
 import com.podcast.indexer.model.ProcessingStatus;
 import com.podcast.indexer.repository.EpisodeRepository;
 import com.podcast.indexer.repository.PodcastRepository;
-import com.rometools.rome.feed.synd.SyndEntry;
+import com.podcast.indexer.util.HashUtils;
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.SyndFeedInput;
 import com.rometools.rome.io.XmlReader;
@@ -14,14 +15,12 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -31,31 +30,51 @@ public class RssFeedService {
     private final PodcastRepository podcastRepository;
     private final EpisodeRepository episodeRepository;
     private final JobQueueService jobQueueService;
+    private final FeedFetcher feedFetcher;
+    private final FeedPollingService feedPollingService;
+    private final FeedItemParser feedItemParser;
+    private final PodcastConfig podcastConfig;
+    private final EpisodeEventPublisher episodeEventPublisher;
+    private final PodcastPartitionService partitionService;
     
     @Transactional
-    public Podcast addPodcast(String feedUrl, LocalDate downloadUntilDate) {
+    public Podcast addPodcast(String feedUrl, LocalDate downloadUntilDate, Integer priority) {
         if (podcastRepository.existsByFeedUrl(feedUrl)) {
             throw new IllegalArgumentException("Podcast already exists");
         }
         
-        SyndFeed feed = fetchFeed(feedUrl);
+        Podcast podcast = fetchPodcast(feedUrl, downloadUntilDate);
+        if (priority != null) {
+            podcast.setPriority(priority);
+        }
+        podcast = podcastRepository.save(podcast);
+        // Attached once the podcast is committed
+        partitionService.createPartitions(podcast.getId());
+        log.info("Added podcast: {} (ID: {})", podcast.getTitle(), podcast.getId());
         
-        Podcast podcast = Podcast.builder()
+        // Queue sync job
+        jobQueueService.queueSyncEpisodesJob(podcast.getId());
+        
+        return podcast;
+    }
+    
+    /**
+     * Fetches and parses the feed and returns an unsaved podcast with its channel metadata.
+     */
+    public Podcast fetchPodcast(String feedUrl, LocalDate downloadUntilDate) {
+        SyndFeed feed = parseFeed(feedUrl, fetchFeed(feedUrl, null, null));
+        
+        return Podcast.builder()
                 .feedUrl(feedUrl)
                 .title(feed.getTitle())
                 .description(feed.getDescription())
                 .author(feed.getAuthor())
                 .imageUrl(feed.getImage() != null ? feed.getImage().getUrl() : null)
                 .downloadUntilDate(downloadUntilDate)
+                // The initial sync is queued right away; polling takes over after it
+                .nextSyncAt(LocalDateTime.now().plusMinutes(
+                        podcastConfig.getFeed().getPolling().getLeaseMinutes()))
                 .build();
-        
-        podcast = podcastRepository.save(podcast);
-        log.info("Added podcast: {} (ID: {})", podcast.getTitle(), podcast.getId());
-        
-        // Queue sync job
-        jobQueueService.queueSyncEpisodesJob(podcast.getId());
-        
-        return podcast;
     }
     
     @Transactional
@@ -63,108 +82,109 @@ public class RssFeedService {
         Podcast podcast = podcastRepository.findById(podcastId)
                 .orElseThrow(() -> new IllegalArgumentException("Podcast not found"));
         
-        SyndFeed feed = fetchFeed(podcast.getFeedUrl());
-        List<Episode> newEpisodes = new ArrayList<>();
+        FeedFetcher.FeedResponse response = fetchFeed(
+                podcast.getFeedUrl(), podcast.getFeedEtag(), podcast.getFeedLastModified());
+        if (response.isNotModified() || response.getBodyHash().equals(podcast.getFeedBodyHash())) {
+            log.debug("Feed unchanged for podcast {}, skipping sync", podcastId);
+            podcast.setFeedEtag(response.getEtag());
+            podcast.setFeedLastModified(response.getLastModified());
+            podcast.setLastSyncedAt(LocalDateTime.now());
+            feedPollingService.scheduleNextSync(podcast);
+            podcastRepository.save(podcast);
+            return;
+        }
+        
+        List<FeedItemParser.FeedItem> items = feedItemParser.parse(
+                response, podcast.getDownloadUntilDate(), podcast.getLastSeenGuid());
         
-        for (SyndEntry entry : feed.getEntries()) {
-            if (!shouldDownloadEpisode(entry, podcast.getDownloadUntilDate())) {
+        // Key every entry by GUID, or by content hash when it has none
+        Map<String, Episode> candidatesByGuid = new LinkedHashMap<>();
+        Map<String, Episode> candidatesByHash = new LinkedHashMap<>();
+        for (FeedItemParser.FeedItem item : items) {
+            if (!shouldDownloadEpisode(item, podcast.getDownloadUntilDate())) {
                 continue;
             }
-            String guid = entry.getUri();
-            String audioUrl = extractAudioUrl(entry);
+            String guid = item.getGuid();
+            String audioUrl = item.getAudioUrl();
             
             if (audioUrl == null) {
-                log.warn("No audio URL found for entry: {}", entry.getTitle());
+                log.warn("No audio URL found for entry: {}", item.getTitle());
                 continue;
             }
             
-            // Check if episode already exists
-            boolean exists = false;
-            if (guid != null && !guid.isEmpty()) {
-                exists = episodeRepository.existsByGuid(guid);
+            boolean hasGuid = guid != null && !guid.isEmpty();
+            Episode episode = Episode.builder()
+                    .podcast(podcast)
+                    .title(item.getTitle())
+                    .description(item.getDescription())
+                    .guid(hasGuid ? guid : null)
+                    .contentHash(hasGuid ? null : generateContentHash(item.getTitle(), audioUrl))
+                    .audioUrl(audioUrl)
+                    .publishedDate(item.getPublishedDate())
+                    .status(ProcessingStatus.DISCOVERED)
+                    .build();
+            if (hasGuid) {
+                candidatesByGuid.putIfAbsent(guid, episode);
             } else {
-                // Use content hash as fallback
-                String contentHash = generateContentHash(entry.getTitle(), audioUrl);
-                exists = episodeRepository.existsByContentHash(contentHash);
-                guid = null;
-            }
-            
-            if (!exists) {
-                Episode episode = Episode.builder()
-                        .podcast(podcast)
-                        .title(entry.getTitle())
-                        .description(entry.getDescription() != null ? entry.getDescription().getValue() : null)
-                        .guid(guid)
-                        .contentHash(guid == null ? generateContentHash(entry.getTitle(), audioUrl) : null)
-                        .audioUrl(audioUrl)
-                        .publishedDate(entry.getPublishedDate() != null ? 
-                                LocalDateTime.ofInstant(entry.getPublishedDate().toInstant(), ZoneId.systemDefault()) : null)
-                        .status(ProcessingStatus.DISCOVERED)
-                        .build();
-                
-                newEpisodes.add(episode);
+                candidatesByHash.putIfAbsent(episode.getContentHash(), episode);
             }
         }
         
-        if (!newEpisodes.isEmpty()) {
-            episodeRepository.saveAll(newEpisodes);
+        // One lookup per key type instead of one per entry
+        candidatesByGuid.keySet().removeAll(episodeRepository.findExistingGuids(candidatesByGuid.keySet()));
+        candidatesByHash.keySet().removeAll(episodeRepository.findExistingContentHashes(candidatesByHash.keySet()));
+        List<Episode> candidates = new ArrayList<>(candidatesByGuid.values());
+        candidates.addAll(candidatesByHash.values());
+        
+        if (!candidates.isEmpty()) {
+            List<Episode> newEpisodes = episodeRepository.insertIgnoringDuplicates(candidates);
             log.info("Discovered {} new episodes for podcast: {}", newEpisodes.size(), podcast.getTitle());
+            episodeEventPublisher.added(newEpisodes);
             
             // Queue download jobs for new episodes
-            for (Episode episode : newEpisodes) {
-                jobQueueService.queueDownloadAudioJob(episode.getId());
-            }
+            jobQueueService.queueDownloadAudioJobs(newEpisodes);
         }
         
+        // Validators are only stored once the feed has been processed successfully
+        podcast.setFeedEtag(response.getEtag());
+        podcast.setFeedLastModified(response.getLastModified());
+        podcast.setFeedBodyHash(response.getBodyHash());
+        if (!items.isEmpty() && items.get(0).getGuid() != null) {
+            podcast.setLastSeenGuid(items.get(0).getGuid());
+        }
         podcast.setLastSyncedAt(LocalDateTime.now());
+        feedPollingService.scheduleNextSync(podcast);
         podcastRepository.save(podcast);
     }
 
-    private boolean shouldDownloadEpisode(SyndEntry entry, LocalDate downloadFromDate) {
+    private boolean shouldDownloadEpisode(FeedItemParser.FeedItem item, LocalDate downloadFromDate) {
         if (downloadFromDate == null) {
             return true;
         }
-        if (entry.getPublishedDate() == null) {
+        if (item.getPublishedDate() == null) {
             return true;
         }
-        LocalDate entryDate = entry.getPublishedDate()
-                .toInstant()
-                .atZone(ZoneId.systemDefault())
-                .toLocalDate();
-        return !entryDate.isBefore(downloadFromDate);
+        return !item.getPublishedDate().toLocalDate().isBefore(downloadFromDate);
     }
     
-    private SyndFeed fetchFeed(String feedUrl) {
+    private FeedFetcher.FeedResponse fetchFeed(String feedUrl, String etag, String lastModified) {
         try {
-            URL url = new URL(feedUrl);
-            SyndFeedInput input = new SyndFeedInput();
-            return input.build(new XmlReader(url));
+            return feedFetcher.fetch(feedUrl, etag, lastModified);
         } catch (Exception e) {
             throw new RuntimeException("Failed to fetch RSS feed: " + feedUrl, e);
         }
     }
     
-    private String extractAudioUrl(SyndEntry entry) {
-        if (entry.getEnclosures() != null && !entry.getEnclosures().isEmpty()) {
-            return entry.getEnclosures().get(0).getUrl();
+    private SyndFeed parseFeed(String feedUrl, FeedFetcher.FeedResponse response) {
+        try {
+            SyndFeedInput input = new SyndFeedInput();
+            return input.build(new XmlReader(response.bodyStream(), response.getContentType(), true));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to parse RSS feed: " + feedUrl, e);
         }
-        return null;
     }
     
     private String generateContentHash(String title, String audioUrl) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            String content = title + "|" + audioUrl;
-            byte[] hash = md.digest(content.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) hexString.append('0');
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate content hash", e);
-        }
+        return HashUtils.sha256Hex(title + "|" + audioUrl);
     }
 }
@@ -0,0 +1,35 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.model.TranscriptSegment;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ten segments per chunk, without overlap, however long the segments are.
+ */
+@Component
+@ConditionalOnProperty(name = "podcast.indexing.chunking.strategy", havingValue = "segment-count")
+public class SegmentCountChunker implements Chunker {
+    
+    static final int CHUNK_SIZE_SEGMENTS = 10;
+    
+    @Override
+    public Result chunk(List<TranscriptSegment> segments, boolean endOfTranscript) {
+        int end = endOfTranscript ? segments.size()
+                : (segments.size() / CHUNK_SIZE_SEGMENTS) * CHUNK_SIZE_SEGMENTS;
+        List<Chunk> chunks = new ArrayList<>();
+        for (int i = 0; i < end; i += CHUNK_SIZE_SEGMENTS) {
+            List<TranscriptSegment> chunkSegments = segments.subList(i, Math.min(i + CHUNK_SIZE_SEGMENTS, end));
+            chunks.add(TokenWindowChunker.join(chunkSegments));
+        }
+        return new Result(chunks, end);
+    }
+    
+    @Override
+    public int overlapStart(List<TranscriptSegment> chunkSegments) {
+        return chunkSegments.size();
+    }
+}
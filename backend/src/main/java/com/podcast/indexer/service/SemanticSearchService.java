@@ -0,0 +1,111 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.dto.SearchRequest;
+import com.podcast.indexer.dto.SearchResponse;
+import com.podcast.indexer.repository.ChunkFilter;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EmbeddingChunkRepositoryCustom.RetrievedChunk;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import com.podcast.indexer.util.EmbeddingUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Ranks transcript chunks by similarity to a query, optionally restricted to some
+ * podcasts, episodes or publish dates. Selective filters are ranked exactly over
+ * the matching chunks. Broad ones first pick the episodes whose centroids are
+ * nearest and rank only their chunks, so the cost follows the number of candidate
+ * episodes rather than the catalog; without centroids they walk the chunk index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SemanticSearchService {
+    
+    private final EmbeddingProviders embeddingProviders;
+    private final EmbeddingChunkRepository embeddingChunkRepository;
+    private final EpisodeEmbeddingRepository episodeEmbeddingRepository;
+    private final EmbeddingModelService embeddingModelService;
+    private final PodcastConfig config;
+    
+    public SearchResponse search(SearchRequest request) {
+        if (request.getQuery() == null || request.getQuery().isBlank()) {
+            throw new IllegalArgumentException("Query must not be empty");
+        }
+        if (request.getPublishedFrom() != null && request.getPublishedUntil() != null
+                && request.getPublishedFrom().isAfter(request.getPublishedUntil())) {
+            throw new IllegalArgumentException("publishedFrom must not be after publishedUntil");
+        }
+        PodcastConfig.Vector.Search search = config.getVector().getSearch();
+        int limit = request.getLimit() != null ? request.getLimit() : search.getTopK();
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        ChunkFilter filter = ChunkFilter.builder()
+                .podcastIds(request.getPodcastIds())
+                .episodeIds(request.getEpisodeIds())
+                .publishedFrom(request.getPublishedFrom())
+                .publishedUntil(request.getPublishedUntil())
+                .build();
+        
+        String embedding = embedQuery(request.getQuery());
+        List<SearchResponse.Hit> hits = findNearest(filter, embedding, Math.min(limit, search.getMaxResults())).stream()
+                .map(chunk -> SearchResponse.Hit.builder()
+                        .chunkId(chunk.chunkId())
+                        .podcastId(chunk.podcastId())
+                        .episodeId(chunk.episodeId())
+                        .episodeTitle(chunk.episodeTitle())
+                        .publishedDate(chunk.publishedDate())
+                        .audioUrl(chunk.audioUrl())
+                        .startMs(chunk.startMs())
+                        .endMs(chunk.endMs())
+                        .text(chunk.text())
+                        .listenLink(listenLink(chunk))
+                        .score(chunk.score())
+                        .build())
+                .toList();
+        return SearchResponse.builder().hits(hits).build();
+    }
+    
+    /**
+     * Embeds a query with the model of the searched embeddings, which lags behind the
+     * configured one while chunks are re-embedded.
+     */
+    public String embedQuery(String text) {
+        String model = embeddingModelService.activeModel().getName();
+        return EmbeddingUtils.convertEmbeddingToString(embeddingProviders.embed(model, text));
+    }
+    
+    public List<RetrievedChunk> findNearest(ChunkFilter filter, String embedding, int limit) {
+        PodcastConfig.Vector.Search search = config.getVector().getSearch();
+        if (!filter.isUnrestricted()) {
+            long candidates = embeddingChunkRepository.countChunks(filter, search.getExactScanThreshold() + 1L);
+            if (candidates <= search.getExactScanThreshold()) {
+                log.debug("Ranking {} filtered chunks exactly", candidates);
+                return embeddingChunkRepository.findNearestExact(filter, embedding, limit);
+            }
+        }
+        if (search.isHierarchical()) {
+            List<Long> episodeIds = episodeEmbeddingRepository.findNearestEpisodes(filter, embedding,
+                    search.getCandidateEpisodes(), Math.max(search.getEfSearch(), search.getCandidateEpisodes()));
+            if (!episodeIds.isEmpty()) {
+                // The publish dates already narrowed the episodes
+                ChunkFilter withinEpisodes = ChunkFilter.builder()
+                        .podcastIds(filter.getPodcastIds())
+                        .episodeIds(episodeIds)
+                        .build();
+                return embeddingChunkRepository.findNearestExact(withinEpisodes, embedding, limit);
+            }
+        }
+        return embeddingChunkRepository.findNearestApproximate(filter, embedding, limit,
+                Math.max(search.getEfSearch(), limit));
+    }
+    
+    static String listenLink(RetrievedChunk chunk) {
+        return "/episodes/" + chunk.episodeId() + "?t=" + (chunk.startMs() / 1000);
+    }
+}
@@ -0,0 +1,173 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.TranscriptSegment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Packs segments into chunks of about {@code target-tokens}, whatever their length.
+ * A full chunk is cut back to the last segment ending a sentence if that keeps it at
+ * least half full, and the next chunk repeats up to {@code overlap-tokens} of its tail
+ * so a thought cut at a boundary is found from either side. A segment too long for
+ * the model's window on its own is split by words.
+ * <p>
+ * Token counts are estimated (a word is one token, plus one per eight further
+ * letters and one per punctuation mark), which errs towards more tokens than a
+ * WordPiece tokenizer produces for English speech.
+ */
+@Component
+@ConditionalOnProperty(name = "podcast.indexing.chunking.strategy", havingValue = "token-window", matchIfMissing = true)
+@Slf4j
+public class TokenWindowChunker implements Chunker {
+
+    private final int targetTokens;
+    private final int overlapTokens;
+    private final int maxTokens;
+
+    public TokenWindowChunker(PodcastConfig config) {
+        PodcastConfig.Indexing.Chunking chunking = config.getIndexing().getChunking();
+        this.targetTokens = chunking.getTargetTokens();
+        this.overlapTokens = chunking.getOverlapTokens();
+        this.maxTokens = chunking.getMaxTokens();
+        if (targetTokens <= 0 || overlapTokens < 0 || overlapTokens >= targetTokens || targetTokens > maxTokens) {
+            throw new IllegalStateException("Chunking needs 0 <= overlap-tokens < target-tokens <= max-tokens, got "
+                    + overlapTokens + ", " + targetTokens + ", " + maxTokens);
+        }
+    }
+
+    @Override
+    public Result chunk(List<TranscriptSegment> segments, boolean endOfTranscript) {
+        int[] tokens = segments.stream().mapToInt(s -> estimateTokens(s.getText())).toArray();
+        List<Chunk> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < segments.size()) {
+            int end = start;
+            int chunkTokens = 0;
+            while (end < segments.size() && (end == start || chunkTokens + tokens[end] <= targetTokens)) {
+                chunkTokens += tokens[end++];
+            }
+            boolean full = end < segments.size();
+            if (!full && !endOfTranscript) {
+                // More segments may still fill this one
+                break;
+            }
+            if (full) {
+                end = snapToSentence(segments, tokens, start, end);
+            }
+            List<TranscriptSegment> chunkSegments = segments.subList(start, end);
+            chunks.addAll(fitWindow(join(chunkSegments)));
+            if (end == segments.size()) {
+                start = end;
+                break;
+            }
+            start += overlapStart(chunkSegments);
+        }
+        return new Result(chunks, start);
+    }
+
+    @Override
+    public int overlapStart(List<TranscriptSegment> chunkSegments) {
+        int index = chunkSegments.size();
+        int tokens = 0;
+        // Never the whole chunk, so the next one always moves on
+        while (index > 1) {
+            int previous = estimateTokens(chunkSegments.get(index - 1).getText());
+            if (tokens + previous > overlapTokens) {
+                break;
+            }
+            tokens += previous;
+            index--;
+        }
+        return index;
+    }
+
+    private int snapToSentence(List<TranscriptSegment> segments, int[] tokens, int start, int end) {
+        int chunkTokens = 0;
+        for (int i = start; i < end; i++) {
+            chunkTokens += tokens[i];
+        }
+        for (int cut = end; cut > start + 1; cut--) {
+            if (endsSentence(segments.get(cut - 1).getText())) {
+                return cut;
+            }
+            chunkTokens -= tokens[cut - 1];
+            if (chunkTokens * 2 < targetTokens) {
+                break;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Splits a chunk that exceeds the model's window, which only a single oversized
+     * segment can cause, into pieces with interpolated timestamps.
+     */
+    private List<Chunk> fitWindow(Chunk chunk) {
+        if (estimateTokens(chunk.text()) <= maxTokens) {
+            return List.of(chunk);
+        }
+        String[] words = chunk.text().split("\\s+");
+        List<Chunk> pieces = new ArrayList<>();
+        long duration = chunk.endMs() - chunk.startMs();
+        int from = 0;
+        while (from < words.length) {
+            int to = from;
+            int tokens = 0;
+            while (to < words.length && (to == from || tokens + estimateTokens(words[to]) <= targetTokens)) {
+                tokens += estimateTokens(words[to++]);
+            }
+            pieces.add(new Chunk(String.join(" ", Arrays.asList(words).subList(from, to)),
+                    chunk.startMs() + duration * from / words.length,
+                    chunk.startMs() + duration * to / words.length));
+            from = to;
+        }
+        log.debug("Split an oversized segment at {} ms into {} chunks", chunk.startMs(), pieces.size());
+        return pieces;
+    }
+
+    static Chunk join(List<TranscriptSegment> segments) {
+        String text = segments.stream()
+                .map(TranscriptSegment::getText)
+                .map(String::trim)
+                .filter(t -> !t.isEmpty())
+                .collect(Collectors.joining(" "));
+        return new Chunk(text, segments.get(0).getStartMs(), segments.get(segments.size() - 1).getEndMs());
+    }
+
+    static int estimateTokens(String text) {
+        int tokens = 0;
+        int letters = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (letters++ == 0) {
+                    tokens++;
+                } else if (letters % 8 == 1) {
+                    tokens++;
+                }
+            } else {
+                letters = 0;
+                if (!Character.isWhitespace(c)) {
+                    tokens++;
+                }
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean endsSentence(String text) {
+        String trimmed = text.trim();
+        if (trimmed.isEmpty()) {
+            return false;
+        }
+        char last = trimmed.charAt(trimmed.length() - 1);
+        return last == '.' || last == '?' || last == '!';
+    }
+}
@@ -0,0 +1,155 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.model.TranscriptBlock;
+import com.podcast.indexer.model.TranscriptSegment;
+import com.podcast.indexer.util.TranscriptBlockCodec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Moves transcripts from the legacy one-row-per-segment table into compressed
+ * transcript blocks, one episode per transaction, and drops the old table once
+ * it is empty. Also marks the last block of parts finished before blocks carried
+ * that mark.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TranscriptMigrationService {
+
+    private static final int EPISODE_BATCH_SIZE = 100;
+    private static final int BACKFILL_BATCH_SIZE = 50000;
+
+    private static final String INSERT_BLOCK =
+            "INSERT INTO transcript_blocks (episode_id, podcast_id, part_index, block_index, first_segment_index, " +
+            "segment_count, start_ms, end_ms, data, last_block, created_at) " +
+            "SELECT e.id, e.podcast_id, ?, ?, ?, ?, ?, ?, ?, ?, now() FROM episodes e WHERE e.id = ?";
+
+    // Only a transcribed episode is known to have every part complete; the parts of any
+    // other episode stay unmarked and are transcribed again when it is recovered
+    private static final String MARK_LAST_BLOCKS =
+            "UPDATE transcript_blocks b SET last_block = " +
+            "e.status IN ('TRANSCRIBED', 'INDEXING', 'INDEXED') AND NOT EXISTS (SELECT 1 FROM transcript_blocks n " +
+            "WHERE n.episode_id = b.episode_id AND n.part_index = b.part_index AND n.block_index > b.block_index) " +
+            "FROM episodes e WHERE e.id = b.episode_id AND b.last_block IS NULL AND b.id >= ? AND b.id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacySegments() {
+        Boolean legacyTableExists = jdbcTemplate.queryForObject(
+                "SELECT to_regclass('transcript_segments') IS NOT NULL", Boolean.class);
+        if (!Boolean.TRUE.equals(legacyTableExists)) {
+            return;
+        }
+
+        long lastEpisodeId = 0;
+        int migratedEpisodes = 0;
+        while (true) {
+            List<Long> episodeIds = jdbcTemplate.queryForList(
+                    "SELECT DISTINCT episode_id FROM transcript_segments WHERE episode_id > ? " +
+                    "ORDER BY episode_id LIMIT ?",
+                    Long.class, lastEpisodeId, EPISODE_BATCH_SIZE);
+            if (episodeIds.isEmpty()) {
+                break;
+            }
+            for (Long episodeId : episodeIds) {
+                transactionTemplate.executeWithoutResult(status -> migrateEpisode(episodeId));
+                migratedEpisodes++;
+            }
+            lastEpisodeId = episodeIds.get(episodeIds.size() - 1);
+            log.info("Migrated legacy transcripts of {} episodes to transcript blocks", migratedEpisodes);
+        }
+
+        Boolean empty = jdbcTemplate.queryForObject(
+                "SELECT NOT EXISTS (SELECT 1 FROM transcript_segments)", Boolean.class);
+        if (Boolean.TRUE.equals(empty)) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS transcript_segments");
+            log.info("Dropped legacy transcript_segments table");
+        }
+    }
+
+    /**
+     * Marks the last block of each part of transcribed episodes, in id ranges that each
+     * commit on their own, then marks the column NOT NULL.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void markLastBlocks() {
+        Boolean notNull = jdbcTemplate.queryForObject(
+                "SELECT attnotnull FROM pg_attribute WHERE attrelid = to_regclass('transcript_blocks') " +
+                "AND attname = 'last_block'", Boolean.class);
+        if (Boolean.TRUE.equals(notNull)) {
+            return;
+        }
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(id) AS first_id, MAX(id) AS last_id FROM transcript_blocks WHERE last_block IS NULL");
+        if (range.get("first_id") != null) {
+            long firstId = ((Number) range.get("first_id")).longValue();
+            long lastId = ((Number) range.get("last_id")).longValue();
+            long updated = 0;
+            for (long from = firstId; from <= lastId; from += BACKFILL_BATCH_SIZE) {
+                updated += jdbcTemplate.update(MARK_LAST_BLOCKS, from, from + BACKFILL_BATCH_SIZE);
+            }
+            log.info("Checked {} transcript blocks for the end of their part", updated);
+        }
+        try {
+            jdbcTemplate.execute("ALTER TABLE transcript_blocks ALTER COLUMN last_block SET NOT NULL");
+        } catch (Exception e) {
+            // Rows written meanwhile by instances of the previous version; the next start catches up
+            log.warn("Could not yet mark transcript_blocks.last_block NOT NULL: {}", e.getMessage());
+        }
+    }
+
+    private void migrateEpisode(Long episodeId) {
+        // DELETE ... RETURNING makes the move idempotent if several instances start at once
+        Map<Integer, List<TranscriptSegment>> parts = new TreeMap<>();
+        jdbcTemplate.query(
+                "DELETE FROM transcript_segments WHERE episode_id = ? " +
+                "RETURNING part_index, segment_index, start_ms, end_ms, text",
+                rs -> {
+                    TranscriptSegment segment = TranscriptSegment.builder()
+                            .partIndex(rs.getInt("part_index"))
+                            .segmentIndex(rs.getInt("segment_index"))
+                            .startMs(rs.getLong("start_ms"))
+                            .endMs(rs.getLong("end_ms"))
+                            .text(rs.getString("text"))
+                            .build();
+                    parts.computeIfAbsent(segment.getPartIndex(), k -> new ArrayList<>()).add(segment);
+                },
+                episodeId);
+
+        List<Object[]> blocks = new ArrayList<>();
+        for (Map.Entry<Integer, List<TranscriptSegment>> part : parts.entrySet()) {
+            List<TranscriptSegment> segments = part.getValue();
+            segments.sort(Comparator.comparing(TranscriptSegment::getSegmentIndex));
+            int blockIndex = 0;
+            for (int i = 0; i < segments.size(); i += TranscriptBlock.MAX_SEGMENTS) {
+                List<TranscriptSegment> block = segments.subList(i, Math.min(i + TranscriptBlock.MAX_SEGMENTS, segments.size()));
+                blocks.add(new Object[]{
+                        part.getKey(),
+                        blockIndex++,
+                        block.get(0).getSegmentIndex(),
+                        block.size(),
+                        block.get(0).getStartMs(),
+                        block.get(block.size() - 1).getEndMs(),
+                        TranscriptBlockCodec.encode(block),
+                        i + TranscriptBlock.MAX_SEGMENTS >= segments.size(),
+                        episodeId
+                });
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_BLOCK, blocks);
+    }
+}
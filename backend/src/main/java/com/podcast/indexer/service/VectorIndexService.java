@@ -0,0 +1,181 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates the HNSW indexes on chunk and episode embeddings, which Hibernate cannot
+ * declare. They are built concurrently so indexing keeps writing chunks meanwhile,
+ * one partition at a time when the chunks are partitioned; a build interrupted by a
+ * restart leaves an invalid index behind, which is dropped and rebuilt. Also computes
+ * the centroids of episodes indexed before centroids existed, indexes the shadow
+ * columns of an embedding model migration, and builds the expression index the
+ * episode list of a podcast is paged by.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VectorIndexService {
+
+    static final String INDEX_NAME = "idx_chunk_embedding_hnsw";
+    static final String EPISODE_INDEX_NAME = "idx_episode_embedding_hnsw";
+    // Indexes on the shadow columns of an embedding model migration
+    static final String NEXT_INDEX_NAME = "idx_chunk_embedding_next_hnsw";
+    static final String NEXT_EPISODE_INDEX_NAME = "idx_episode_embedding_next_hnsw";
+    // Matches the keyset order of EpisodeRepositoryImpl.findPage
+    static final String EPISODE_SORT_INDEX_NAME = "idx_episode_podcast_sort";
+    private static final String EPISODE_SORT_COLUMNS =
+            "(podcast_id, (COALESCE(published_date, created_at)) DESC, id DESC)";
+    private static final int CENTROID_BATCH_SIZE = 100;
+
+    // Serializes the build when several instances start at once
+    private static final long BUILD_LOCK_ID = 0x686e7377L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PodcastPartitionService partitionService;
+    private final EpisodeEmbeddingRepository episodeEmbeddingRepository;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndex() {
+        buildIndexes("embedding", INDEX_NAME, EPISODE_INDEX_NAME);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureEpisodeSortIndex() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + BUILD_LOCK_ID + ")");
+                try {
+                    buildConcurrently(statement, EPISODE_SORT_INDEX_NAME, "episodes", EPISODE_SORT_COLUMNS);
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(" + BUILD_LOCK_ID + ")");
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Builds the indexes on the shadow embeddings of a model migration, before the
+     * migration makes them the searched ones.
+     */
+    public void buildNextIndexes() {
+        buildIndexes("embedding_next", NEXT_INDEX_NAME, NEXT_EPISODE_INDEX_NAME);
+    }
+
+    /**
+     * Renames the shadow indexes to the names of the searched ones, once the shadow
+     * columns replaced the old ones. Runs in the caller's transaction.
+     */
+    public void promoteNextIndexes() {
+        jdbcTemplate.execute("ALTER INDEX " + NEXT_EPISODE_INDEX_NAME + " RENAME TO " + EPISODE_INDEX_NAME);
+        jdbcTemplate.execute("ALTER INDEX " + NEXT_INDEX_NAME + " RENAME TO " + INDEX_NAME);
+        List<String> partitionIndexes = jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits p JOIN pg_class c ON c.oid = p.inhrelid " +
+                "WHERE p.inhparent = '" + INDEX_NAME + "'::regclass", String.class);
+        for (String index : partitionIndexes) {
+            if (index.endsWith("_embedding_next_hnsw")) {
+                jdbcTemplate.execute("ALTER INDEX " + index + " RENAME TO " +
+                        index.replace("_embedding_next_hnsw", "_embedding_hnsw"));
+            }
+        }
+    }
+
+    private void buildIndexes(String column, String chunkIndex, String episodeIndex) {
+        // CREATE INDEX CONCURRENTLY cannot run in a transaction, so everything happens
+        // on one auto-committing connection holding a session-level lock
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SELECT pg_advisory_lock(" + BUILD_LOCK_ID + ")");
+                try {
+                    buildConcurrently(statement, episodeIndex, "episode_embeddings", hnsw(column));
+                    if (!partitionService.isPartitioned("embedding_chunks")) {
+                        buildConcurrently(statement, chunkIndex, "embedding_chunks", hnsw(column));
+                        return null;
+                    }
+                    // A partitioned table cannot be indexed concurrently: each partition is,
+                    // then attached to an index on the parent. New partitions inherit it.
+                    statement.execute("CREATE INDEX IF NOT EXISTS " + chunkIndex +
+                            " ON ONLY embedding_chunks " + hnsw(column));
+                    for (String partition : unindexedPartitions(statement, chunkIndex)) {
+                        String index = partition + "_" + column + "_hnsw";
+                        buildConcurrently(statement, index, partition, hnsw(column));
+                        statement.execute("ALTER INDEX " + chunkIndex + " ATTACH PARTITION " + index);
+                    }
+                } finally {
+                    statement.execute("SELECT pg_advisory_unlock(" + BUILD_LOCK_ID + ")");
+                }
+            }
+            return null;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createMissingCentroids() {
+        long afterId = 0;
+        int created = 0;
+        List<Long> batch;
+        do {
+            batch = episodeEmbeddingRepository.createMissingCentroids(afterId, CENTROID_BATCH_SIZE);
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1);
+                created += batch.size();
+            }
+        } while (batch.size() == CENTROID_BATCH_SIZE);
+        if (created > 0) {
+            log.info("Computed embedding centroids of {} episodes", created);
+        }
+    }
+
+    private void buildConcurrently(Statement statement, String index, String table, String definition)
+            throws SQLException {
+        Boolean valid = null;
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass('" + index + "')")) {
+            if (rs.next()) {
+                valid = rs.getBoolean(1);
+            }
+        }
+        if (Boolean.TRUE.equals(valid)) {
+            return;
+        }
+        if (valid != null) {
+            log.warn("Dropping invalid index {} left by an interrupted build", index);
+            statement.execute("DROP INDEX CONCURRENTLY IF EXISTS " + index);
+        }
+        log.info("Building index {}", index);
+        long start = System.currentTimeMillis();
+        statement.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + index + " ON " + table + " " + definition);
+        log.info("Built index {} in {} ms", index, System.currentTimeMillis() - start);
+    }
+
+    private static String hnsw(String column) {
+        return "USING hnsw (" + column + " vector_cosine_ops)";
+    }
+
+    private List<String> unindexedPartitions(Statement statement, String parentIndex) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT c.relname FROM pg_inherits p JOIN pg_class c ON c.oid = p.inhrelid " +
+                "WHERE p.inhparent = 'embedding_chunks'::regclass AND NOT EXISTS (" +
+                "SELECT 1 FROM pg_inherits ip JOIN pg_index i ON i.indexrelid = ip.inhrelid " +
+                "WHERE ip.inhparent = '" + parentIndex + "'::regclass AND i.indrelid = c.oid)")) {
+            while (rs.next()) {
+                partitions.add(rs.getString(1));
+            }
+        }
+        return partitions;
+    }
+}
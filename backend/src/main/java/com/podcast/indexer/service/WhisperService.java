@@ -1,114 +1,276 @@
 package com.podcast.indexer.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.podcast.indexer.model.Episode;
 import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.model.TranscriptBlock;
 import com.podcast.indexer.model.TranscriptSegment;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
 import com.podcast.indexer.repository.EpisodeRepository;
-import com.podcast.indexer.repository.TranscriptSegmentRepository;
+import com.podcast.indexer.repository.TranscriptBlockRepository;
+import com.podcast.indexer.util.MultipartFileUploader;
+import com.podcast.indexer.util.TranscriptBlockCodec;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.http.MediaType;
-import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestClient;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class WhisperService {
     
-    @Qualifier("whisperRestClient")
-    private final RestClient whisperRestClient;
+    private static final String NDJSON = "application/x-ndjson";
+    
+    private final MultipartFileUploader whisperUploader;
+    private final ObjectMapper objectMapper;
     private final EpisodeRepository episodeRepository;
-    private final TranscriptSegmentRepository transcriptSegmentRepository;
+    private final TranscriptBlockRepository transcriptBlockRepository;
+    private final EmbeddingChunkRepository embeddingChunkRepository;
+    private final IndexingService indexingService;
     private final JobQueueService jobQueueService;
+    private final AudioService audioService;
+    private final EpisodeEventPublisher episodeEventPublisher;
+    private final PodcastPartitionService partitionService;
+    private final JobClaimService jobClaimService;
     
-    @Transactional
+    // Not @Transactional: every segment batch commits on its own so it becomes
+    // searchable while the rest of the part is still being read.
     public void transcribe(Long episodeId, int partIndex, String audioFilePath) {
         Episode episode = episodeRepository.findById(episodeId)
                 .orElseThrow(() -> new IllegalArgumentException("Episode not found"));
         
+        // Heartbeat on a timer, because Whisper may run for long before sending the first segment
+        Optional<JobClaimService.Claim> claim = jobClaimService.claimTranscription(episodeId, partIndex,
+                () -> episodeRepository.touch(episodeId, LocalDateTime.now()));
+        if (claim.isEmpty()) {
+            log.info("Episode {} part {} is being transcribed by another worker, skipping", episodeId, partIndex);
+            return;
+        }
+        try (JobClaimService.Claim held = claim.get()) {
+            transcribe(episode, partIndex, audioFilePath, held);
+        }
+    }
+    
+    private void transcribe(Episode episode, int partIndex, String audioFilePath, JobClaimService.Claim claim) {
+        Long episodeId = episode.getId();
+        
         // Check if already transcribed
-        if (transcriptSegmentRepository.existsByEpisodeId(episodeId)) {
-            log.info("Episode {} already has transcript, skipping", episodeId);
+        Long podcastId = episode.getPodcast().getId();
+        if (transcriptBlockRepository.existsByPodcastIdAndEpisodeIdAndPartIndexAndLastBlockTrue(
+                podcastId, episodeId, partIndex)) {
+            log.info("Episode {} part {} already has transcript, skipping", episodeId, partIndex);
             return;
         }
         
+        // Global timestamps continue from the end of the previous parts
+        long timeOffsetMs = 0;
+        if (partIndex > 0) {
+            Long previousEndMs = transcriptBlockRepository.findMaxEndMsBeforePart(podcastId, episodeId, partIndex);
+            timeOffsetMs = previousEndMs != null ? previousEndMs : 0;
+        }
+        
+        if (transcriptBlockRepository.existsByPodcastIdAndEpisodeIdAndPartIndex(podcastId, episodeId, partIndex)) {
+            // A worker died partway through the part; its blocks end somewhere in the middle
+            log.warn("Discarding unfinished transcript of episode {} part {}", episodeId, partIndex);
+            discardPart(podcastId, episodeId, partIndex, timeOffsetMs);
+        }
+        
+        // The podcast's first blocks need its partitions, in case attaching them failed when it was added
+        partitionService.createPartitions(podcastId);
+        
         episode.setStatus(ProcessingStatus.TRANSCRIBING);
-        episodeRepository.save(episode);
+        episode = episodeRepository.save(episode);
+        episodeEventPublisher.statusChanged(episode);
         
+        SegmentIngest ingest = new SegmentIngest(episode, partIndex, timeOffsetMs, claim);
         try {
-            WhisperResponse response = callWhisperService(audioFilePath);
+            whisperUploader.upload("/transcribe", "file", Paths.get(audioFilePath), NDJSON,
+                    (body, contentType) -> {
+                        readSegments(body, contentType, ingest::add);
+                        return null;
+                    });
+            ingest.finish();
+            log.info("Transcribed {} segments for episode {} part {}",
+                    ingest.getSegmentCount(), episodeId, partIndex);
             
-            // Calculate time offset for this part
-            long timeOffsetMs = 0;
-            if (partIndex > 0) {
-                // Get the max end time from previous parts
-                List<TranscriptSegment> previousSegments = 
-                        transcriptSegmentRepository.findByEpisodeIdOrderByPartIndexAscSegmentIndexAsc(episodeId);
-                if (!previousSegments.isEmpty()) {
-                    timeOffsetMs = previousSegments.stream()
-                            .filter(s -> s.getPartIndex() < partIndex)
-                            .mapToLong(TranscriptSegment::getEndMs)
-                            .max()
-                            .orElse(0);
-                }
-            }
-            
-            List<TranscriptSegment> segments = new ArrayList<>();
-            for (int i = 0; i < response.getSegments().size(); i++) {
-                WhisperSegment seg = response.getSegments().get(i);
-                TranscriptSegment segment = TranscriptSegment.builder()
-                        .episode(episode)
-                        .partIndex(partIndex)
-                        .segmentIndex(i)
-                        .startMs((long) (seg.getStart() * 1000) + timeOffsetMs)
-                        .endMs((long) (seg.getEnd() * 1000) + timeOffsetMs)
-                        .text(seg.getText().trim())
-                        .build();
-                segments.add(segment);
+            Integer partCount = episode.getAudioPartCount();
+            if (partCount != null && transcriptBlockRepository.countTranscribedParts(podcastId, episodeId) < partCount) {
+                // Other parts are still waiting for Whisper
+                episode.setStatus(ProcessingStatus.DOWNLOADED);
+                episodeRepository.save(episode);
+                episodeEventPublisher.statusChanged(episode);
+                return;
             }
             
-            transcriptSegmentRepository.saveAll(segments);
-            log.info("Transcribed {} segments for episode {} part {}", 
-                    segments.size(), episodeId, partIndex);
-            
             episode.setStatus(ProcessingStatus.TRANSCRIBED);
+            if (partCount != null) {
+                // The whole episode is transcribed, so its audio is no longer needed
+                audioService.deleteAudio(episode);
+                episode.setAudioFilePath(null);
+            }
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
             
-            // Queue indexing job
+            // Queue indexing job for the trailing segments not yet embedded
             jobQueueService.queueIndexEpisodeJob(episodeId);
+        } catch (JobClaimService.ClaimLostException e) {
+            // Another worker may own the part by now, so its blocks are not ours to discard
+            log.warn("Stopped transcribing episode {} part {}: {}", episodeId, partIndex, e.getMessage());
         } catch (Exception e) {
             log.error("Failed to transcribe episode {} part {}", episodeId, partIndex, e);
+            // Drop the partial part so a retry starts from a clean slate
+            discardPart(podcastId, episodeId, partIndex, timeOffsetMs);
             episode.setStatus(ProcessingStatus.FAILED);
             episodeRepository.save(episode);
+            episodeEventPublisher.statusChanged(episode);
         }
     }
     
-    private WhisperResponse callWhisperService(String audioFilePath) {
-        MultipartBodyBuilder builder = new MultipartBodyBuilder();
-        builder.part("file", new FileSystemResource(new File(audioFilePath)));
-        
-        return whisperRestClient.post()
-                .uri("/transcribe")
-                .contentType(MediaType.MULTIPART_FORM_DATA)
-                .body(builder.build())
-                .retrieve()
-                .body(WhisperResponse.class);
+    private void discardPart(Long podcastId, Long episodeId, int partIndex, long timeOffsetMs) {
+        transcriptBlockRepository.deleteByEpisodeIdAndPartIndex(podcastId, episodeId, partIndex);
+        embeddingChunkRepository.deleteByEpisodeIdAndEndMsGreaterThan(podcastId, episodeId, timeOffsetMs);
     }
     
-    @Data
-    public static class WhisperResponse {
-        private String text;
-        private List<WhisperSegment> segments;
+    /**
+     * Reads segments one at a time, either from an NDJSON stream (one segment per line)
+     * or from the legacy single-document response with a "segments" array.
+     */
+    private void readSegments(InputStream body, String contentType, Consumer<WhisperSegment> consumer)
+            throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (contentType != null && contentType.startsWith(NDJSON)) {
+                try (MappingIterator<WhisperSegment> segments = objectMapper.readValues(parser, WhisperSegment.class)) {
+                    while (segments.hasNextValue()) {
+                        WhisperSegment segment = segments.nextValue();
+                        if (segment.getError() != null) {
+                            throw new IOException("Whisper service failed: " + segment.getError());
+                        }
+                        consumer.accept(segment);
+                    }
+                }
+                return;
+            }
+            
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Unexpected Whisper response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("segments".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(objectMapper.readValue(parser, WhisperSegment.class));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Buffers incoming segments, persists each full batch as one compressed
+     * transcript block and hands completed chunks to the indexer right away.
+     */
+    private class SegmentIngest {
+        private final Episode episode;
+        private final int partIndex;
+        private final long timeOffsetMs;
+        private final JobClaimService.Claim claim;
+        private final List<TranscriptSegment> batch = new ArrayList<>();
+        private final List<TranscriptSegment> unindexed = new ArrayList<>();
+        private int segmentCount;
+        private int blockCount;
+        
+        SegmentIngest(Episode episode, int partIndex, long timeOffsetMs, JobClaimService.Claim claim) {
+            this.episode = episode;
+            this.partIndex = partIndex;
+            this.timeOffsetMs = timeOffsetMs;
+            this.claim = claim;
+        }
+        
+        void add(WhisperSegment seg) {
+            batch.add(TranscriptSegment.builder()
+                    .partIndex(partIndex)
+                    .segmentIndex(segmentCount++)
+                    .startMs((long) (seg.getStart() * 1000) + timeOffsetMs)
+                    .endMs((long) (seg.getEnd() * 1000) + timeOffsetMs)
+                    .text(seg.getText().trim())
+                    .build());
+            if (batch.size() >= TranscriptBlock.MAX_SEGMENTS) {
+                flush();
+            }
+        }
+        
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            claim.ensureHeld();
+            transcriptBlockRepository.save(TranscriptBlock.builder()
+                    .episode(episode)
+                    .podcastId(episode.getPodcast().getId())
+                    .partIndex(partIndex)
+                    .blockIndex(blockCount++)
+                    .firstSegmentIndex(batch.get(0).getSegmentIndex())
+                    .segmentCount(batch.size())
+                    .startMs(batch.get(0).getStartMs())
+                    .endMs(batch.get(batch.size() - 1).getEndMs())
+                    .data(TranscriptBlockCodec.encode(batch))
+                    .build());
+            unindexed.addAll(batch);
+            batch.clear();
+            
+            int consumed = indexingService.indexCompletedChunks(episode, unindexed, false);
+            unindexed.subList(0, consumed).clear();
+        }
+        
+        /**
+         * Flushes the remaining segments, indexes the part's last chunk, which no
+         * later segment will fill, and only then marks the part's last block. A part
+         * without any speech still gets an empty block, so it counts as transcribed.
+         */
+        void finish() {
+            claim.ensureHeld();
+            if (segmentCount == 0) {
+                transcriptBlockRepository.save(TranscriptBlock.builder()
+                        .episode(episode)
+                        .podcastId(episode.getPodcast().getId())
+                        .partIndex(partIndex)
+                        .blockIndex(0)
+                        .firstSegmentIndex(0)
+                        .segmentCount(0)
+                        .startMs(timeOffsetMs)
+                        .endMs(timeOffsetMs)
+                        .data(TranscriptBlockCodec.encode(List.of()))
+                        .lastBlock(true)
+                        .build());
+                return;
+            }
+            flush();
+            indexingService.indexCompletedChunks(episode, unindexed, true);
+            unindexed.clear();
+            claim.ensureHeld();
+            transcriptBlockRepository.markLastBlock(episode.getPodcast().getId(), episode.getId(), partIndex,
+                    blockCount - 1);
+        }
+        
+        int getSegmentCount() {
+            return segmentCount;
+        }
     }
     
     @Data
@@ -117,5 +279,6 @@ public class WhisperService {
         private double start;
         private double end;
         private String text;
+        private String error;
     }
 }
@@ -0,0 +1,87 @@
+package com.podcast.indexer.util;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * MinHash signatures over word shingles, with LSH banding so near-duplicate
+ * texts land in the same bucket with high probability.
+ */
+public class MinHash {
+
+    private static final int SHINGLE_SIZE = 3;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private MinHash() {
+        // Utility class
+    }
+
+    /**
+     * Lowercases the text and collapses punctuation and whitespace so that
+     * trivially different renderings of the same speech compare equal.
+     */
+    public static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ")
+                .trim();
+    }
+
+    public static long[] signature(String text, int numHashes) {
+        long[] signature = new long[numHashes];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return signature;
+        }
+        String[] words = normalized.split(" ");
+        int shingles = Math.max(1, words.length - SHINGLE_SIZE + 1);
+        for (int s = 0; s < shingles; s++) {
+            long shingleHash = FNV_OFFSET;
+            for (int w = s; w < Math.min(s + SHINGLE_SIZE, words.length); w++) {
+                shingleHash = fnv(shingleHash, words[w]);
+            }
+            for (int i = 0; i < numHashes; i++) {
+                long h = mix(shingleHash ^ (0x9E3779B97F4A7C15L * (i + 1)));
+                if (Long.compareUnsigned(h, signature[i]) < 0) {
+                    signature[i] = h;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Splits the signature into {@code bands} groups and hashes each group into one bucket key.
+     */
+    public static long[] bandHashes(long[] signature, int bands) {
+        int rows = signature.length / bands;
+        long[] hashes = new long[bands];
+        for (int b = 0; b < bands; b++) {
+            long h = FNV_OFFSET;
+            for (int r = 0; r < rows; r++) {
+                h = (h ^ signature[b * rows + r]) * FNV_PRIME;
+            }
+            hashes[b] = mix(h);
+        }
+        return hashes;
+    }
+
+    private static long fnv(long hash, String word) {
+        for (int i = 0; i < word.length(); i++) {
+            hash ^= word.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        // Word separator so ("ab", "c") and ("a", "bc") differ
+        hash ^= ' ';
+        return hash * FNV_PRIME;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,113 @@
+package com.podcast.indexer.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Posts a single file as multipart/form-data using chunked transfer encoding.
+ * The file is copied to the socket with {@link FileChannel#transferTo} so heap
+ * usage stays constant regardless of the file size.
+ */
+public class MultipartFileUploader {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_ERROR_BODY_BYTES = 2048;
+
+    private final URI baseUri;
+    private final Duration connectTimeout;
+    private final Duration readTimeout;
+
+    public MultipartFileUploader(URI baseUri, Duration connectTimeout, Duration readTimeout) {
+        this.baseUri = baseUri;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+    public <T> T upload(String path, String fieldName, Path file, String accept,
+                        ResponseHandler<T> responseHandler) throws IOException {
+        String boundary = "----podcast-indexer-" + UUID.randomUUID();
+        HttpURLConnection connection = (HttpURLConnection) resolve(baseUri, path).toURL().openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setUseCaches(false);
+            connection.setChunkedStreamingMode(CHUNK_SIZE);
+            connection.setConnectTimeout((int) connectTimeout.toMillis());
+            connection.setReadTimeout((int) readTimeout.toMillis());
+            connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+            connection.setRequestProperty("Accept", accept);
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(partHeader(boundary, fieldName, file.getFileName().toString()));
+                transferFile(file, out);
+                out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
+
+            int status = connection.getResponseCode();
+            if (status >= 400) {
+                throw new IOException("Upload to " + connection.getURL() + " failed with HTTP " + status
+                        + ": " + readErrorBody(connection));
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return responseHandler.handle(in, connection.getContentType());
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Appends the path to the base URI, keeping any path prefix of the base such as a
+     * gateway route; {@link URI#resolve} would replace it with an absolute path.
+     */
+    static URI resolve(URI baseUri, String path) {
+        String base = baseUri.toString();
+        return URI.create(base.replaceAll("/+$", "") + "/" + path.replaceAll("^/+", ""));
+    }
+
+    private void transferFile(Path file, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+        }
+    }
+
+    private byte[] partHeader(String boundary, String fieldName, String filename) {
+        String header = "--" + boundary + "\r\n" +
+                "Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\""
+                + filename.replace("\"", "") + "\"\r\n" +
+                "Content-Type: application/octet-stream\r\n\r\n";
+        return header.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String readErrorBody(HttpURLConnection connection) {
+        try (InputStream err = connection.getErrorStream()) {
+            if (err == null) {
+                return "";
+            }
+            return new String(err.readNBytes(MAX_ERROR_BODY_BYTES), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(InputStream body, String contentType) throws IOException;
+    }
+}
@@ -0,0 +1,68 @@
+package com.podcast.indexer.util;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Function;
+
+public class PgCopyUtils {
+    
+    private PgCopyUtils() {
+        // Utility class
+    }
+    
+    /**
+     * Streams rows into a table with PostgreSQL COPY (text format) in a single round trip.
+     * Columns not listed fall back to their defaults, so identity IDs are still generated.
+     */
+    public static <T> long copyIn(Connection connection, String table, List<String> columns,
+                                  List<T> rows, Function<T, Object[]> rowMapper) throws SQLException {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        String sql = "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN";
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        
+        // Closing the writer flushes the buffer and ends the COPY
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                new PGCopyOutputStream(pgConnection, sql), StandardCharsets.UTF_8))) {
+            for (T row : rows) {
+                Object[] values = rowMapper.apply(row);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) writer.write('\t');
+                    writeValue(writer, values[i]);
+                }
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new SQLException("COPY into " + table + " failed", e);
+        }
+        return rows.size();
+    }
+    
+    private static void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            writer.write("\\N");
+            return;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\' -> writer.write("\\\\");
+                case '\t' -> writer.write("\\t");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                default -> writer.write(c);
+            }
+        }
+    }
+}
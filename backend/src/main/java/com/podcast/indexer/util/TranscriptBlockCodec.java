@@ -0,0 +1,139 @@
+package com.podcast.indexer.util;
+
+import com.podcast.indexer.model.TranscriptSegment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Packs transcript segments into a compact columnar blob.
+ * Layout (deflated after the version byte): segment count, start times as
+ * zig-zag deltas, durations, text lengths and finally the UTF-8 texts.
+ * All integers are unsigned LEB128 varints.
+ */
+public class TranscriptBlockCodec {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private TranscriptBlockCodec() {
+        // Utility class
+    }
+
+    public static byte[] encode(List<TranscriptSegment> segments) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(FORMAT_VERSION);
+        try (OutputStream out = new DeflaterOutputStream(bytes, new Deflater(Deflater.BEST_COMPRESSION))) {
+            writeVarLong(out, segments.size());
+
+            long previousStart = 0;
+            for (TranscriptSegment segment : segments) {
+                writeVarLong(out, zigZag(segment.getStartMs() - previousStart));
+                previousStart = segment.getStartMs();
+            }
+            for (TranscriptSegment segment : segments) {
+                writeVarLong(out, zigZag(segment.getEndMs() - segment.getStartMs()));
+            }
+
+            List<byte[]> texts = new ArrayList<>(segments.size());
+            for (TranscriptSegment segment : segments) {
+                byte[] text = segment.getText().getBytes(StandardCharsets.UTF_8);
+                texts.add(text);
+                writeVarLong(out, text.length);
+            }
+            for (byte[] text : texts) {
+                out.write(text);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode transcript block", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static void decode(byte[] data, int partIndex, int firstSegmentIndex, Consumer<TranscriptSegment> consumer) {
+        if (data.length == 0 || data[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported transcript block format");
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+            int count = (int) readVarLong(in);
+            long[] starts = new long[count];
+            long[] ends = new long[count];
+            int[] lengths = new int[count];
+
+            long previousStart = 0;
+            for (int i = 0; i < count; i++) {
+                starts[i] = previousStart + unZigZag(readVarLong(in));
+                previousStart = starts[i];
+            }
+            for (int i = 0; i < count; i++) {
+                ends[i] = starts[i] + unZigZag(readVarLong(in));
+            }
+            for (int i = 0; i < count; i++) {
+                lengths[i] = (int) readVarLong(in);
+            }
+            for (int i = 0; i < count; i++) {
+                byte[] text = in.readNBytes(lengths[i]);
+                if (text.length != lengths[i]) {
+                    throw new EOFException("Truncated transcript block");
+                }
+                consumer.accept(TranscriptSegment.builder()
+                        .partIndex(partIndex)
+                        .segmentIndex(firstSegmentIndex + i)
+                        .startMs(starts[i])
+                        .endMs(ends[i])
+                        .text(new String(text, StandardCharsets.UTF_8))
+                        .build());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to decode transcript block", e);
+        }
+    }
+
+    public static List<TranscriptSegment> decode(byte[] data, int partIndex, int firstSegmentIndex) {
+        List<TranscriptSegment> segments = new ArrayList<>();
+        decode(data, partIndex, firstSegmentIndex, segments::add);
+        return segments;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated transcript block");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed varint in transcript block");
+    }
+}
@@ -0,0 +1,146 @@
+package com.podcast.indexer.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * BERT-style WordPiece tokenizer over a {@code vocab.txt} with one token per line, as
+ * shipped with most sentence-embedding models: splits on whitespace and punctuation,
+ * then greedily matches the longest vocabulary pieces, continuing pieces marked {@code ##}.
+ */
+public class WordPieceTokenizer {
+
+    private static final String UNKNOWN = "[UNK]";
+    private static final String CLASSIFY = "[CLS]";
+    private static final String SEPARATOR = "[SEP]";
+    private static final int MAX_WORD_LENGTH = 100;
+
+    private final Map<String, Integer> vocabulary;
+    private final boolean lowercase;
+    private final int unknownId;
+    private final int classifyId;
+    private final int separatorId;
+
+    public WordPieceTokenizer(Map<String, Integer> vocabulary, boolean lowercase) {
+        this.vocabulary = vocabulary;
+        this.lowercase = lowercase;
+        this.unknownId = requireToken(UNKNOWN);
+        this.classifyId = requireToken(CLASSIFY);
+        this.separatorId = requireToken(SEPARATOR);
+    }
+
+    public static WordPieceTokenizer load(Path vocabularyFile, boolean lowercase) throws IOException {
+        Map<String, Integer> vocabulary = new HashMap<>();
+        List<String> lines = Files.readAllLines(vocabularyFile, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            vocabulary.putIfAbsent(lines.get(i).strip(), i);
+        }
+        return new WordPieceTokenizer(vocabulary, lowercase);
+    }
+
+    /**
+     * Token ids of the text between {@code [CLS]} and {@code [SEP]}, truncated to at most
+     * {@code maxLength} ids in total.
+     */
+    public long[] encode(String text, int maxLength) {
+        List<Integer> ids = new ArrayList<>();
+        ids.add(classifyId);
+        for (String word : words(text)) {
+            if (ids.size() >= maxLength - 1) {
+                break;
+            }
+            addPieces(word, ids);
+        }
+        if (ids.size() > maxLength - 1) {
+            ids.subList(maxLength - 1, ids.size()).clear();
+        }
+        ids.add(separatorId);
+        return ids.stream().mapToLong(Integer::longValue).toArray();
+    }
+
+    private List<String> words(String text) {
+        String normalized = text;
+        if (lowercase) {
+            // Uncased vocabularies also drop accents
+            normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                    .replaceAll("\\p{Mn}", "");
+        }
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || Character.isISOControl(c)) {
+                flush(word, words);
+            } else if (isPunctuation(c)) {
+                flush(word, words);
+                words.add(String.valueOf(c));
+            } else {
+                word.append(c);
+            }
+        }
+        flush(word, words);
+        return words;
+    }
+
+    private void addPieces(String word, List<Integer> ids) {
+        if (word.length() > MAX_WORD_LENGTH) {
+            ids.add(unknownId);
+            return;
+        }
+        List<Integer> pieces = new ArrayList<>();
+        int start = 0;
+        while (start < word.length()) {
+            Integer id = null;
+            int end = word.length();
+            for (; end > start; end--) {
+                String piece = (start > 0 ? "##" : "") + word.substring(start, end);
+                id = vocabulary.get(piece);
+                if (id != null) {
+                    break;
+                }
+            }
+            if (id == null) {
+                // A word that cannot be fully pieced together is unknown as a whole
+                ids.add(unknownId);
+                return;
+            }
+            pieces.add(id);
+            start = end;
+        }
+        ids.addAll(pieces);
+    }
+
+    private int requireToken(String token) {
+        Integer id = vocabulary.get(token);
+        if (id == null) {
+            throw new IllegalArgumentException("Vocabulary lacks " + token);
+        }
+        return id;
+    }
+
+    private static void flush(StringBuilder word, List<String> words) {
+        if (!word.isEmpty()) {
+            words.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isPunctuation(char c) {
+        if ((c >= 33 && c <= 47) || (c >= 58 && c <= 64) || (c >= 91 && c <= 96) || (c >= 123 && c <= 126)) {
+            return true;
+        }
+        int type = Character.getType(c);
+        return type == Character.CONNECTOR_PUNCTUATION || type == Character.DASH_PUNCTUATION
+                || type == Character.START_PUNCTUATION || type == Character.END_PUNCTUATION
+                || type == Character.INITIAL_QUOTE_PUNCTUATION || type == Character.FINAL_QUOTE_PUNCTUATION
+                || type == Character.OTHER_PUNCTUATION;
+    }
+}
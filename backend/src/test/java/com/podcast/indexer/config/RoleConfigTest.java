@@ -0,0 +1,76 @@
+package com.podcast.indexer.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoleConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(RoleBeans.class);
+
+    @Test
+    void allRolesAreActiveByDefault() {
+        contextRunner.run(context -> assertThat(context)
+                .hasBean("apiBean")
+                .hasBean("workerBean")
+                .hasBean("schedulerBean"));
+    }
+
+    @Test
+    void onlyConfiguredRolesAreActive() {
+        contextRunner.withPropertyValues("podcast.roles=worker,scheduler")
+                .run(context -> assertThat(context)
+                        .doesNotHaveBean("apiBean")
+                        .hasBean("workerBean")
+                        .hasBean("schedulerBean"));
+    }
+
+    @Test
+    void poolSizeIsSumOfActiveRoles() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("podcast.roles", "api,scheduler")
+                .withProperty("podcast.db-pool-size.api", "20")
+                .withProperty("podcast.db-pool-size.worker", "4")
+                .withProperty("podcast.db-pool-size.scheduler", "2");
+
+        assertThat(DataSourcePoolSizer.poolSize(environment)).isEqualTo(22);
+    }
+
+    @Test
+    void poolSizeOfAnActiveRoleMustBeConfigured() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("podcast.roles", "api,scheduler")
+                .withProperty("podcast.db-pool-size.api", "20");
+
+        assertThatThrownBy(() -> DataSourcePoolSizer.poolSize(environment))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("podcast.db-pool-size.scheduler is not set");
+    }
+
+    @Configuration
+    static class RoleBeans {
+        @Bean
+        @ConditionalOnRole(Role.API)
+        String apiBean() {
+            return "api";
+        }
+
+        @Bean
+        @ConditionalOnRole(Role.WORKER)
+        String workerBean() {
+            return "worker";
+        }
+
+        @Bean
+        @ConditionalOnRole(Role.SCHEDULER)
+        String schedulerBean() {
+            return "scheduler";
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.podcast.indexer.controller;
+
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import com.podcast.indexer.service.EpisodeEventPublisher;
+import com.podcast.indexer.service.EpisodeEventStreamService;
+import com.podcast.indexer.service.OpmlImportService;
+import com.podcast.indexer.service.PipelineStatsService;
+import com.podcast.indexer.service.PodcastDeletionService;
+import com.podcast.indexer.service.RssFeedService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PodcastControllerEventsTest {
+
+    private PodcastRepository podcastRepository;
+    private EpisodeEventStreamService streamService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        podcastRepository = mock(PodcastRepository.class);
+        streamService = new EpisodeEventStreamService(mock(RedisMessageListenerContainer.class));
+        PodcastController controller = new PodcastController(podcastRepository, mock(EpisodeRepository.class),
+                mock(RssFeedService.class), mock(OpmlImportService.class), streamService,
+                mock(PipelineStatsService.class), mock(PodcastDeletionService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void streamOpensRightAwayAndRelaysEventsOfItsPodcast() throws Exception {
+        when(podcastRepository.existsById(1L)).thenReturn(true);
+
+        MockHttpServletResponse response = mockMvc.perform(get("/api/podcasts/1/events"))
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+
+        assertThat(response.getContentType()).startsWith("text/event-stream");
+        // Written before any event, so the client's onopen fires and it reloads what it missed
+        assertThat(response.getContentAsString()).isEqualTo(":connected\n\n");
+
+        publish(2L, "{\"episodeId\":20}");
+        publish(1L, "{\"episodeId\":10,\"status\":\"INDEXED\"}");
+
+        assertThat(response.getContentAsString()).isEqualTo(":connected\n\n" +
+                "event:episode\ndata:{\"episodeId\":10,\"status\":\"INDEXED\"}\n\n");
+    }
+
+    @Test
+    void unknownPodcastHasNoStream() throws Exception {
+        mockMvc.perform(get("/api/podcasts/9/events")).andExpect(status().isNotFound());
+    }
+
+    private void publish(Long podcastId, String json) {
+        streamService.onMessage(new DefaultMessage(
+                (EpisodeEventPublisher.CHANNEL_PREFIX + podcastId).getBytes(StandardCharsets.UTF_8),
+                json.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
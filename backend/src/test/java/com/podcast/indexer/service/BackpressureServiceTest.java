@@ -0,0 +1,97 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.repository.EpisodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class BackpressureServiceTest {
+
+    @TempDir
+    Path audioDir;
+
+    private EpisodeRepository episodeRepository;
+    private PodcastConfig config;
+    private BackpressureService service;
+
+    @BeforeEach
+    void setUp() {
+        episodeRepository = mock(EpisodeRepository.class);
+        config = new PodcastConfig();
+        config.getAudio().getStorage().setPath(audioDir.toString());
+        config.getPipeline().setCheckIntervalSeconds(0);
+        config.getPipeline().setMaxEpisodesAwaitingTranscription(3);
+        config.getPipeline().setMaxEpisodesAwaitingIndexing(5);
+        service = new BackpressureService(episodeRepository, config);
+    }
+
+    @Test
+    void downloadsPauseWhileTooManyEpisodesAwaitTranscription() {
+        awaiting(3, 0);
+
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+    }
+
+    @Test
+    void downloadsPauseWhileAudioIsOverBudget() throws Exception {
+        Files.write(audioDir.resolve("episode_1.mp3"), new byte[2048]);
+        config.getPipeline().setMaxAudioStorageGb(1.0 / (1024 * 1024));
+        awaiting(0, 0);
+
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+    }
+
+    @Test
+    void transcriptionPausesWhileTooManyTranscriptsAwaitIndexing() {
+        awaiting(2, 5);
+
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.TRANSCRIBE);
+    }
+
+    @Test
+    void stagesResumeOnceTheBacklogDrains() {
+        awaiting(3, 5);
+        assertThat(service.pausedJobTypes()).containsExactlyInAnyOrder(
+                JobQueueService.JobType.DOWNLOAD_AUDIO, JobQueueService.JobType.TRANSCRIBE);
+
+        awaiting(2, 4);
+        assertThat(service.pausedJobTypes()).isEmpty();
+    }
+
+    @Test
+    void decisionIsCachedForTheCheckInterval() {
+        config.getPipeline().setCheckIntervalSeconds(60);
+        awaiting(3, 0);
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+
+        awaiting(0, 0);
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+        verify(episodeRepository, times(2)).countByStatusIn(any());
+    }
+
+    @Test
+    void failedCheckKeepsThePreviousDecision() {
+        awaiting(3, 0);
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+
+        when(episodeRepository.countByStatusIn(any())).thenThrow(new IllegalStateException("database down"));
+        assertThat(service.pausedJobTypes()).containsExactly(JobQueueService.JobType.DOWNLOAD_AUDIO);
+    }
+
+    private void awaiting(long transcription, long indexing) {
+        when(episodeRepository.countByStatusIn(argThat(statuses -> statuses != null && statuses.contains(ProcessingStatus.DOWNLOADED))))
+                .thenReturn(transcription);
+        when(episodeRepository.countByStatusIn(argThat(statuses -> statuses != null && statuses.contains(ProcessingStatus.INDEXING))))
+                .thenReturn(indexing);
+    }
+}
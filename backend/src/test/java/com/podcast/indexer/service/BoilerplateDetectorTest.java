@@ -0,0 +1,76 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class BoilerplateDetectorTest {
+
+    private static final String OUTRO = "Thanks for listening. If you enjoyed this episode, leave us a review " +
+            "and tell a friend about the show. See you next week.";
+
+    private RedisTemplate<String, String> redisTemplate;
+    private PodcastConfig config;
+    private BoilerplateDetector detector;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        config = new PodcastConfig();
+        detector = new BoilerplateDetector(redisTemplate, config);
+    }
+
+    @Test
+    void chunkBelowTheEpisodeThresholdIsIndexed() {
+        bucketSizes(2);
+
+        assertThat(detector.isBoilerplate(3L, 40L, OUTRO)).isFalse();
+    }
+
+    @Test
+    void chunkSeenInEnoughEpisodesIsBoilerplate() {
+        bucketSizes(1, 3);
+
+        assertThat(detector.isBoilerplate(3L, 41L, OUTRO)).isTrue();
+    }
+
+    @Test
+    void redisFailureIndexesTheChunk() {
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(detector.isBoilerplate(3L, 42L, OUTRO)).isFalse();
+    }
+
+    @Test
+    void disabledDetectorDoesNotTouchRedis() {
+        config.getIndexing().getBoilerplate().setEnabled(false);
+
+        assertThat(detector.isBoilerplate(3L, 43L, OUTRO)).isFalse();
+        verifyNoInteractions(redisTemplate);
+    }
+
+    /**
+     * Answers the pipeline with one [add, size, expire] triple per band: the first band
+     * buckets hold the given numbers of episodes, the others one.
+     */
+    private void bucketSizes(long... sizes) {
+        List<Object> results = new ArrayList<>();
+        for (int band = 0; band < 16; band++) {
+            results.add(1L);
+            results.add(band < sizes.length ? sizes[band] : 1L);
+            results.add(true);
+        }
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(results);
+    }
+}
@@ -0,0 +1,80 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class EmbeddingCacheServiceTest {
+
+    private ValueOperations<String, String> valueOperations;
+    private EmbeddingProviders embeddingProviders;
+    private PodcastConfig config;
+    private EmbeddingCacheService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        embeddingProviders = mock(EmbeddingProviders.class);
+        config = new PodcastConfig();
+        service = new EmbeddingCacheService(redisTemplate, embeddingProviders, config);
+    }
+
+    @Test
+    void embedsOnlyTextsMissingFromTheCache() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("[0.1]", null));
+        when(embeddingProviders.embedAll("nomic-embed-text", List.of("new text"))).thenReturn(List.of(List.of(0.5)));
+
+        List<String> embeddings = service.getEmbeddings("nomic-embed-text", List.of("known text", "new text"));
+
+        assertThat(embeddings).containsExactly("[0.1]", "[0.5]");
+        verify(valueOperations).set(anyString(), eq("[0.5]"), eq(30L), eq(TimeUnit.DAYS));
+    }
+
+    @Test
+    void keyIgnoresCaseAndWhitespaceButNotTheModel() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("[0.1]", "[0.1]", "[0.1]"));
+
+        service.getEmbeddings("nomic-embed-text", List.of("Thanks for  listening!", " thanks for listening! "));
+        service.getEmbeddings("onnx:all-MiniLM-L6-v2", List.of("Thanks for listening!"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> keys = ArgumentCaptor.forClass(List.class);
+        verify(valueOperations, times(2)).multiGet(keys.capture());
+        assertThat(keys.getAllValues().get(0).get(0)).isEqualTo(keys.getAllValues().get(0).get(1));
+        assertThat(keys.getAllValues().get(1).get(0)).isNotEqualTo(keys.getAllValues().get(0).get(0));
+        verifyNoInteractions(embeddingProviders);
+    }
+
+    @Test
+    void embedsEverythingWhenRedisIsDown() {
+        when(valueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+        doThrow(new RedisConnectionFailureException("down")).when(valueOperations).set(any(), any(), anyLong(), any());
+        when(embeddingProviders.embedAll("nomic-embed-text", List.of("a", "b")))
+                .thenReturn(List.of(List.of(0.1), List.of(0.2)));
+
+        assertThat(service.getEmbeddings("nomic-embed-text", List.of("a", "b"))).containsExactly("[0.1]", "[0.2]");
+    }
+
+    @Test
+    void disabledCacheIsNotConsulted() {
+        config.getIndexing().getEmbeddingCache().setEnabled(false);
+        when(embeddingProviders.embedAll("nomic-embed-text", List.of("a"))).thenReturn(List.of(List.of(0.1)));
+
+        assertThat(service.getEmbedding("nomic-embed-text", "a")).isEqualTo("[0.1]");
+        verifyNoInteractions(valueOperations);
+    }
+}
@@ -0,0 +1,125 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.model.EmbeddingModelStatus;
+import com.podcast.indexer.repository.EmbeddingModelRepository;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class EmbeddingModelServiceTest {
+
+    private final List<EmbeddingModel> models = new ArrayList<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    private JdbcTemplate jdbcTemplate;
+    private PodcastConfig config;
+    private EmbeddingModelService service;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddingModelRepository embeddingModelRepository = mock(EmbeddingModelRepository.class);
+        when(embeddingModelRepository.save(any())).thenAnswer(inv -> {
+            EmbeddingModel model = inv.getArgument(0);
+            model.setId(nextId.getAndIncrement());
+            models.add(model);
+            return model;
+        });
+        when(embeddingModelRepository.findFirstByStatus(any())).thenAnswer(inv -> models.stream()
+                .filter(model -> model.getStatus() == inv.getArgument(0)).findFirst());
+
+        jdbcTemplate = mock(JdbcTemplate.class);
+        // As Hibernate declares the columns
+        when(jdbcTemplate.queryForObject(startsWith("SELECT atttypmod"), eq(Integer.class))).thenReturn(768);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT attnotnull"), eq(Boolean.class))).thenReturn(true);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv ->
+                inv.<TransactionCallback<?>>getArgument(0).doInTransaction(mock(TransactionStatus.class)));
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        config = new PodcastConfig();
+        service = new EmbeddingModelService(embeddingModelRepository, mock(EpisodeEmbeddingRepository.class),
+                mock(VectorIndexService.class), new EmbeddingProviders(List.of(new HashingEmbeddingProvider())),
+                jdbcTemplate, transactionTemplate, config);
+    }
+
+    @Test
+    void emptyColumnsAreResizedForTheConfiguredModel() {
+        config.getEmbedding().setModel("hashing:384");
+        emptyTables(true);
+
+        service.registerActiveModel();
+
+        verify(jdbcTemplate).execute("ALTER TABLE embedding_chunks ALTER COLUMN embedding TYPE vector(384)");
+        verify(jdbcTemplate).execute("ALTER TABLE episode_embeddings ALTER COLUMN embedding TYPE vector(384)");
+        assertThat(service.activeModel().getName()).isEqualTo("hashing:384");
+        assertThat(service.activeModel().getDimensions()).isEqualTo(384);
+        assertThat(service.migratingModel()).isEmpty();
+    }
+
+    @Test
+    void existingChunksOfAnotherSizeAreReembeddedWithTheConfiguredModel() {
+        config.getEmbedding().setModel("hashing:384");
+        emptyTables(false);
+
+        service.registerActiveModel();
+
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE embedding_chunks ALTER COLUMN embedding TYPE"));
+        assertThat(service.activeModel().getName()).isEqualTo(EmbeddingModelService.LEGACY_MODEL);
+        assertThat(service.activeModel().getDimensions()).isEqualTo(768);
+        assertThat(service.migratingModel()).hasValueSatisfying(model -> {
+            assertThat(model.getName()).isEqualTo("hashing:384");
+            assertThat(model.getDimensions()).isEqualTo(384);
+        });
+        verify(jdbcTemplate).execute("ALTER TABLE embedding_chunks ADD COLUMN embedding_next vector(384), " +
+                "ADD COLUMN embedding_next_model_id bigint");
+    }
+
+    @Test
+    void modelOfTheColumnSizeIsRegisteredAsIs() {
+        config.getEmbedding().setModel("hashing:768");
+        emptyTables(false);
+
+        service.registerActiveModel();
+
+        verify(jdbcTemplate, never()).execute(startsWith("ALTER TABLE"));
+        assertThat(service.activeModel().getName()).isEqualTo("hashing:768");
+        assertThat(service.migratingModel()).isEmpty();
+    }
+
+    @Test
+    void registeredModelIsNotProbedAgain() {
+        models.add(EmbeddingModel.builder().id(9L).name("unreachable-model").dimensions(768)
+                .status(EmbeddingModelStatus.ACTIVE).build());
+        config.getEmbedding().setModel("unreachable-model");
+
+        service.registerActiveModel();
+
+        verify(jdbcTemplate, never()).execute(anyString());
+        assertThat(models).hasSize(1);
+    }
+
+    private void emptyTables(boolean empty) {
+        when(jdbcTemplate.queryForObject(startsWith("SELECT NOT EXISTS"), eq(Boolean.class))).thenReturn(empty);
+    }
+}
@@ -0,0 +1,62 @@
+package com.podcast.indexer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.*;
+
+class EmbeddingProvidersTest {
+
+    private final OllamaEmbeddingProvider ollama = mock(OllamaEmbeddingProvider.class);
+    private final EmbeddingProviders providers;
+
+    EmbeddingProvidersTest() {
+        when(ollama.name()).thenReturn(OllamaEmbeddingProvider.NAME);
+        providers = new EmbeddingProviders(List.of(ollama, new HashingEmbeddingProvider()));
+    }
+
+    @Test
+    void routesByProviderPrefix() {
+        assertThat(providers.embed("hashing:16", "hello world")).hasSize(16);
+        verify(ollama, never()).embed(any(), any());
+    }
+
+    @Test
+    void modelsWithoutKnownPrefixGoToOllama() {
+        providers.embed("nomic-embed-text:latest", "hello");
+        providers.embed("ollama:mxbai-embed-large", "hello");
+
+        verify(ollama).embed("nomic-embed-text:latest", "hello");
+        verify(ollama).embed("mxbai-embed-large", "hello");
+    }
+
+    @Test
+    void hashingEmbeddingsAreDeterministicAndShowOverlap() {
+        List<Double> first = providers.embed("hashing:256", "The octopus solved the puzzle");
+        List<Double> again = providers.embed("hashing:256", "the octopus  solved the puzzle!");
+        List<Double> related = providers.embed("hashing:256", "An octopus solved a new puzzle");
+        List<Double> unrelated = providers.embed("hashing:256", "Interest rates rose again this quarter");
+
+        assertThat(again).isEqualTo(first);
+        assertThat(dot(first, first)).isCloseTo(1.0, within(1e-9));
+        assertThat(dot(first, related)).isGreaterThan(dot(first, unrelated) + 0.3);
+    }
+
+    @Test
+    void hashingRejectsInvalidDimensions() {
+        assertThatThrownBy(() -> providers.embed("hashing:many", "hello"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static double dot(List<Double> a, List<Double> b) {
+        double sum = 0;
+        for (int i = 0; i < a.size(); i++) {
+            sum += a.get(i) * b.get(i);
+        }
+        return sum;
+    }
+}
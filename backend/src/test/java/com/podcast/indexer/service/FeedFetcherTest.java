@@ -0,0 +1,102 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.util.HashUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeedFetcherTest {
+
+    private static final String FEED = "<rss><channel><title>Show</title></channel></rss>";
+
+    private final AtomicReference<HttpExchange> lastRequest = new AtomicReference<>();
+    private HttpServer server;
+    private String feedUrl;
+    private FeedFetcher fetcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.start();
+        feedUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/feed.xml";
+        fetcher = new FeedFetcher(new PodcastConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void sendsValidatorsAndKeepsThemOnNotModified() throws IOException {
+        respond(exchange -> exchange.sendResponseHeaders(304, -1));
+
+        FeedFetcher.FeedResponse response = fetcher.fetch(feedUrl, "\"v1\"", "Tue, 01 Oct 2024 10:00:00 GMT");
+
+        assertThat(lastRequest.get().getRequestHeaders().getFirst("If-None-Match")).isEqualTo("\"v1\"");
+        assertThat(lastRequest.get().getRequestHeaders().getFirst("If-Modified-Since"))
+                .isEqualTo("Tue, 01 Oct 2024 10:00:00 GMT");
+        assertThat(response.isNotModified()).isTrue();
+        assertThat(response.getBody()).isNull();
+        assertThat(response.getEtag()).isEqualTo("\"v1\"");
+        assertThat(response.getLastModified()).isEqualTo("Tue, 01 Oct 2024 10:00:00 GMT");
+    }
+
+    @Test
+    void decodesGzipAndHashesTheDecodedBody() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(FEED.getBytes(StandardCharsets.UTF_8));
+        }
+        respond(exchange -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.getResponseHeaders().set("ETag", "\"v2\"");
+            exchange.sendResponseHeaders(200, compressed.size());
+            try (OutputStream body = exchange.getResponseBody()) {
+                compressed.writeTo(body);
+            }
+        });
+
+        FeedFetcher.FeedResponse response = fetcher.fetch(feedUrl);
+
+        assertThat(lastRequest.get().getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+        assertThat(lastRequest.get().getRequestHeaders().containsKey("If-None-Match")).isFalse();
+        assertThat(response.isNotModified()).isFalse();
+        assertThat(new String(response.getBody(), StandardCharsets.UTF_8)).isEqualTo(FEED);
+        assertThat(response.getBodyHash()).isEqualTo(HashUtils.sha256Hex(FEED.getBytes(StandardCharsets.UTF_8)));
+        assertThat(response.getEtag()).isEqualTo("\"v2\"");
+    }
+
+    @Test
+    void errorStatusFailsTheFetch() {
+        respond(exchange -> exchange.sendResponseHeaders(503, -1));
+
+        assertThatThrownBy(() -> fetcher.fetch(feedUrl)).isInstanceOf(IOException.class).hasMessageContaining("503");
+    }
+
+    private void respond(Handler handler) {
+        server.createContext("/feed.xml", exchange -> {
+            lastRequest.set(exchange);
+            handler.handle(exchange);
+            exchange.close();
+        });
+    }
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,69 @@
+package com.podcast.indexer.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the streaming parser with ROME on a large generated back-catalogue feed.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class FeedItemParserBenchmarkTest {
+
+    private static final int ITEMS = 5_000;
+    private static final int ITERATIONS = 20;
+
+    private final FeedItemParser parser = new FeedItemParser();
+
+    @Test
+    void streamingParserVersusRome() {
+        FeedFetcher.FeedResponse feed = FeedItemParserTest.response(generateFeed());
+        ZonedDateTime newest = ZonedDateTime.of(2024, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+        LocalDate lastMonth = newest.minusDays(30).toLocalDate();
+        String lastSeenGuid = "episode-" + (ITEMS - 5);
+
+        System.out.printf("Feed: %d items, %.1f MB%n", ITEMS, feed.getBody().length / 1024.0 / 1024.0);
+        int rome = measure("ROME (full feed)", () -> parser.parseWithRome(feed));
+        int full = measure("StAX (full feed)", () -> parser.parse(feed, null, null));
+        int cutoff = measure("StAX (30 day cutoff)", () -> parser.parse(feed, lastMonth, null));
+        int incremental = measure("StAX (last seen guid)", () -> parser.parse(feed, null, lastSeenGuid));
+
+        assertThat(full).isEqualTo(rome).isEqualTo(ITEMS);
+        assertThat(cutoff).isEqualTo(31);
+        assertThat(incremental).isEqualTo(5);
+    }
+
+    private int measure(String name, Supplier<List<FeedItemParser.FeedItem>> parse) {
+        int size = 0;
+        for (int i = 0; i < 3; i++) {
+            size = parse.get().size();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            parse.get();
+        }
+        System.out.printf("%-24s %8.2f ms/parse%n", name, (System.nanoTime() - start) / 1e6 / ITERATIONS);
+        return size;
+    }
+
+    private static String generateFeed() {
+        ZonedDateTime newest = ZonedDateTime.of(2024, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+        String notes = "Show notes with links, sponsors and chapter markers. ".repeat(20);
+        StringBuilder items = new StringBuilder();
+        for (int i = ITEMS; i > 0; i--) {
+            String pubDate = DateTimeFormatter.RFC_1123_DATE_TIME.format(newest.minusDays(ITEMS - i));
+            items.append(FeedItemParserTest.item("<guid>episode-" + i + "</guid>", pubDate)
+                    .replace("Show notes", notes));
+        }
+        return FeedItemParserTest.rss(items.toString());
+    }
+}
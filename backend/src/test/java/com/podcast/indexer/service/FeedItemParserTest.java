@@ -0,0 +1,89 @@
+package com.podcast.indexer.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FeedItemParserTest {
+
+    private final FeedItemParser parser = new FeedItemParser();
+
+    @Test
+    void parsesRssItemsLikeRome() {
+        String rss = rss(
+                item("<guid>ep-2</guid>", "Tue, 02 Jan 2024 10:00:00 GMT"),
+                item("<link>https://example.com/ep-1</link>", "Mon, 01 Jan 2024 10:00:00 GMT"));
+
+        List<FeedItemParser.FeedItem> items = parser.parse(response(rss), null, null);
+
+        assertThat(items).hasSize(2);
+        assertThat(items).isEqualTo(parser.parseWithRome(response(rss)));
+        assertThat(items.get(0).getGuid()).isEqualTo("ep-2");
+        assertThat(items.get(1).getGuid()).isEqualTo("https://example.com/ep-1");
+        assertThat(items.get(0).getAudioUrl()).isEqualTo("https://cdn.example.com/audio.mp3");
+    }
+
+    @Test
+    void stopsAtDownloadCutoffAndLastSeenGuid() {
+        String rss = rss(
+                item("<guid>ep-3</guid>", "Wed, 03 Jan 2024 10:00:00 GMT"),
+                item("<guid>ep-2</guid>", "Tue, 02 Jan 2024 10:00:00 GMT"),
+                item("<guid>ep-1</guid>", "Mon, 01 Jan 2024 10:00:00 GMT"));
+
+        assertThat(parser.parse(response(rss), LocalDate.of(2024, 1, 2), null))
+                .extracting(FeedItemParser.FeedItem::getGuid).containsExactly("ep-3", "ep-2");
+        assertThat(parser.parse(response(rss), null, "ep-2"))
+                .extracting(FeedItemParser.FeedItem::getGuid).containsExactly("ep-3");
+    }
+
+    @Test
+    void readsWholeFeedWhenItemsAreNotNewestFirst() {
+        String rss = rss(
+                item("<guid>ep-1</guid>", "Mon, 01 Jan 2024 10:00:00 GMT"),
+                item("<guid>ep-3</guid>", "Wed, 03 Jan 2024 10:00:00 GMT"),
+                item("<guid>ep-2</guid>", "Tue, 02 Jan 2024 10:00:00 GMT"));
+
+        assertThat(parser.parse(response(rss), null, "ep-2"))
+                .extracting(FeedItemParser.FeedItem::getGuid).containsExactly("ep-1", "ep-3", "ep-2");
+    }
+
+    @Test
+    void parsesAtomEntries() {
+        String atom = "<?xml version=\"1.0\"?><feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Show</title>" +
+                "<entry><id>urn:ep-1</id><title type=\"xhtml\"><div xmlns=\"http://www.w3.org/1999/xhtml\">Episode <b>1</b></div></title>" +
+                "<summary>About it</summary><updated>2024-01-01T10:00:00Z</updated>" +
+                "<link rel=\"alternate\" href=\"https://example.com/ep-1\"/>" +
+                "<link rel=\"enclosure\" type=\"audio/mpeg\" href=\"https://cdn.example.com/ep-1.mp3\"/></entry></feed>";
+
+        List<FeedItemParser.FeedItem> items = parser.parse(response(atom), null, null);
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getGuid()).isEqualTo("urn:ep-1");
+        assertThat(items.get(0).getTitle()).isEqualTo("Episode 1");
+        assertThat(items.get(0).getAudioUrl()).isEqualTo("https://cdn.example.com/ep-1.mp3");
+        assertThat(items.get(0).getPublishedDate()).isNotNull();
+    }
+
+    static String rss(String... items) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                "<rss version=\"2.0\" xmlns:itunes=\"http://www.itunes.com/dtds/podcast-1.0.dtd\">" +
+                "<channel><title>Show</title><link>https://example.com</link><description>Test</description>" +
+                String.join("", items) + "</channel></rss>";
+    }
+
+    static String item(String identity, String pubDate) {
+        return "<item>" + identity + "<title>Episode</title><itunes:title>Ignored</itunes:title>" +
+                "<description><![CDATA[<p>Show notes</p>]]></description>" +
+                "<pubDate>" + pubDate + "</pubDate>" +
+                "<enclosure url=\"https://cdn.example.com/audio.mp3\" length=\"1\" type=\"audio/mpeg\"/></item>";
+    }
+
+    static FeedFetcher.FeedResponse response(String xml) {
+        return new FeedFetcher.FeedResponse(false, xml.getBytes(StandardCharsets.UTF_8), null,
+                "application/rss+xml; charset=utf-8", null, null);
+    }
+}
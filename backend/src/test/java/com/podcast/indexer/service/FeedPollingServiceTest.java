@@ -0,0 +1,138 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class FeedPollingServiceTest {
+
+    private final PodcastRepository podcastRepository = mock(PodcastRepository.class);
+    private final EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
+    private final JobQueueService jobQueueService = mock(JobQueueService.class);
+    private final PodcastConfig config = new PodcastConfig();
+    private final LeaderElectionService leaderElectionService = mock(LeaderElectionService.class);
+    private final FeedPollingService service = new FeedPollingService(
+            podcastRepository, episodeRepository, jobQueueService, config, leaderElectionService);
+
+    @BeforeEach
+    void setUp() {
+        when(leaderElectionService.fenced(eq(FeedPollingService.LEADER_TASK), eq(5L), any())).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(2).run();
+            return true;
+        });
+    }
+
+    @Test
+    void dailyShowIsPolledSeveralTimesPerDay() {
+        LocalDateTime now = LocalDateTime.now();
+        when(episodeRepository.findRecentPublishedDates(eq(1L), any()))
+                .thenReturn(List.of(now.minusHours(2), now.minusDays(1), now.minusDays(2), now.minusDays(3)));
+
+        assertThat(service.computeInterval(1L)).isBetween(Duration.ofHours(5), Duration.ofHours(7));
+    }
+
+    @Test
+    void dormantShowIsPolledAtMaximumInterval() {
+        LocalDateTime now = LocalDateTime.now();
+        when(episodeRepository.findRecentPublishedDates(eq(1L), any()))
+                .thenReturn(List.of(now.minusDays(60), now.minusDays(67), now.minusDays(74)));
+
+        assertThat(service.computeInterval(1L)).isEqualTo(Duration.ofHours(24));
+    }
+
+    @Test
+    void failuresBackOffExponentially() {
+        config.getFeed().getPolling().setJitter(0);
+        Podcast podcast = Podcast.builder().id(1L).syncFailureCount(2).build();
+        when(podcastRepository.findById(1L)).thenReturn(Optional.of(podcast));
+
+        service.recordSyncFailure(1L);
+
+        assertThat(podcast.getSyncFailureCount()).isEqualTo(3);
+        assertThat(Duration.between(LocalDateTime.now(), podcast.getNextSyncAt()))
+                .isBetween(Duration.ofMinutes(59), Duration.ofMinutes(60));
+        verify(podcastRepository).save(podcast);
+    }
+
+    @Test
+    void onlyTheLeaderEnqueuesDueFeeds() {
+        when(leaderElectionService.acquire(FeedPollingService.LEADER_TASK)).thenReturn(OptionalLong.empty());
+
+        service.enqueueDueFeeds();
+
+        verifyNoInteractions(podcastRepository, jobQueueService);
+    }
+
+    @Test
+    void leaderLeasesAndQueuesDueFeedsInBatches() {
+        config.getFeed().getPolling().setBatchSize(2);
+        when(leaderElectionService.acquire(FeedPollingService.LEADER_TASK)).thenReturn(OptionalLong.of(5));
+        when(leaderElectionService.renew(FeedPollingService.LEADER_TASK, 5)).thenReturn(true);
+        when(podcastRepository.findIdsDueForSync(any(), any()))
+                .thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L)).thenReturn(List.of());
+
+        service.enqueueDueFeeds();
+
+        LocalDateTime leasedUntil = LocalDateTime.now().plusMinutes(config.getFeed().getPolling().getLeaseMinutes());
+        verify(podcastRepository).updateNextSyncAt(eq(List.of(1L, 2L)),
+                argThat(time -> Duration.between(time, leasedUntil).abs().compareTo(Duration.ofMinutes(1)) < 0));
+        verify(podcastRepository).updateNextSyncAt(eq(List.of(3L)), any());
+        verify(jobQueueService).queueSyncEpisodesJobs(List.of(1L, 2L));
+        verify(jobQueueService).queueSyncEpisodesJobs(List.of(3L));
+        verify(podcastRepository, times(3)).findIdsDueForSync(any(), any());
+    }
+
+    @Test
+    void leaderStopsAtTheRunLimitOrWhenItLosesTheLease() {
+        config.getFeed().getPolling().setBatchSize(2);
+        config.getFeed().getPolling().setMaxFeedsPerRun(3);
+        when(leaderElectionService.acquire(FeedPollingService.LEADER_TASK)).thenReturn(OptionalLong.of(5));
+        when(leaderElectionService.renew(FeedPollingService.LEADER_TASK, 5)).thenReturn(true);
+        when(podcastRepository.findIdsDueForSync(any(), any())).thenReturn(List.of(1L, 2L)).thenReturn(List.of(3L));
+
+        service.enqueueDueFeeds();
+
+        // The second batch only asks for what is left of the run limit
+        verify(podcastRepository).findIdsDueForSync(any(), eq(PageRequest.of(0, 1)));
+        verify(podcastRepository, times(2)).findIdsDueForSync(any(), any());
+        verify(jobQueueService, times(2)).queueSyncEpisodesJobs(anyList());
+
+        clearInvocations(podcastRepository, jobQueueService);
+        when(podcastRepository.findIdsDueForSync(any(), any())).thenReturn(List.of(4L, 5L));
+        when(leaderElectionService.renew(FeedPollingService.LEADER_TASK, 5)).thenReturn(false);
+
+        service.enqueueDueFeeds();
+
+        verify(jobQueueService).queueSyncEpisodesJobs(List.of(4L, 5L));
+        verify(podcastRepository, times(1)).findIdsDueForSync(any(), any());
+    }
+
+    @Test
+    void fencedOffLeaderQueuesNothing() {
+        when(leaderElectionService.acquire(FeedPollingService.LEADER_TASK)).thenReturn(OptionalLong.of(5));
+        when(leaderElectionService.fenced(eq(FeedPollingService.LEADER_TASK), eq(5L), any())).thenReturn(false);
+        when(podcastRepository.findIdsDueForSync(any(), any())).thenReturn(List.of(1L, 2L));
+
+        service.enqueueDueFeeds();
+
+        verify(podcastRepository, never()).updateNextSyncAt(any(), any());
+        verifyNoInteractions(jobQueueService);
+    }
+}
@@ -0,0 +1,173 @@
+package com.podcast.indexer.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares flat top-k over all chunks with two-stage retrieval (nearest episode
+ * centroids first, then their chunks) on a generated catalog of one large show,
+ * where every episode covers a few of many topics. Both stages rank exactly, as the
+ * database does for the second stage, so recall only reflects the episode cut-off.
+ * Run with {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class HierarchicalRetrievalBenchmarkTest {
+
+    private static final int EPISODES = 1_500;
+    private static final int CHUNKS_PER_EPISODE = 40;
+    private static final int TOPICS = 300;
+    private static final int TOPICS_PER_EPISODE = 3;
+    private static final int DIMENSIONS = 128;
+    private static final int QUERIES = 200;
+    private static final int TOP_K = 10;
+
+    private final Random random = new Random(42);
+    private final float[][] topics = new float[TOPICS][];
+    private final float[][] chunks = new float[EPISODES * CHUNKS_PER_EPISODE][];
+    private final float[][] centroids = new float[EPISODES][];
+
+    @Test
+    void twoStageVersusFlat() {
+        generateCatalog();
+        float[][] queries = new float[QUERIES][];
+        for (int q = 0; q < QUERIES; q++) {
+            queries[q] = noisy(topics[random.nextInt(TOPICS)]);
+        }
+
+        System.out.printf("Catalog: %d episodes, %d chunks, %d dimensions%n", EPISODES, chunks.length, DIMENSIONS);
+        List<Set<Integer>> exact = measure("Flat (all chunks)", chunks.length, queries, this::flat);
+        double recallAt20 = 0;
+        for (int candidates : new int[]{5, 10, 20, 50}) {
+            List<Set<Integer>> found = measure("Two-stage (N=" + candidates + ")",
+                    EPISODES + candidates * CHUNKS_PER_EPISODE, queries, query -> twoStage(query, candidates));
+            double recall = recall(exact, found);
+            System.out.printf("%-24s recall@%d %.3f%n", "", TOP_K, recall);
+            if (candidates == 20) {
+                recallAt20 = recall;
+            }
+        }
+        assertThat(recallAt20).isGreaterThan(0.8);
+    }
+
+    private List<Set<Integer>> measure(String name, int scanned, float[][] queries, Function<float[], Set<Integer>> search) {
+        for (int i = 0; i < 20; i++) {
+            search.apply(queries[i]);
+        }
+        long start = System.nanoTime();
+        List<Set<Integer>> results = Arrays.stream(queries).map(search).toList();
+        System.out.printf("%-24s %8.3f ms/query, %7d vectors compared%n",
+                name, (System.nanoTime() - start) / 1e6 / QUERIES, scanned);
+        return results;
+    }
+
+    private Set<Integer> flat(float[] query) {
+        return topK(query, IntStream.range(0, chunks.length).toArray(), chunks, TOP_K);
+    }
+
+    private Set<Integer> twoStage(float[] query, int candidateEpisodes) {
+        Set<Integer> episodes = topK(query, IntStream.range(0, EPISODES).toArray(), centroids, candidateEpisodes);
+        int[] candidates = episodes.stream()
+                .flatMapToInt(e -> IntStream.range(e * CHUNKS_PER_EPISODE, (e + 1) * CHUNKS_PER_EPISODE))
+                .toArray();
+        return topK(query, candidates, chunks, TOP_K);
+    }
+
+    private static Set<Integer> topK(float[] query, int[] ids, float[][] vectors, int k) {
+        // Keeps the k most similar in a small sorted array; k is tiny compared to ids
+        int[] best = new int[k];
+        float[] scores = new float[k];
+        Arrays.fill(scores, Float.NEGATIVE_INFINITY);
+        for (int id : ids) {
+            float score = dot(query, vectors[id]);
+            if (score <= scores[k - 1]) {
+                continue;
+            }
+            int i = k - 1;
+            while (i > 0 && scores[i - 1] < score) {
+                scores[i] = scores[i - 1];
+                best[i] = best[i - 1];
+                i--;
+            }
+            scores[i] = score;
+            best[i] = id;
+        }
+        Set<Integer> result = new HashSet<>();
+        for (int i = 0; i < k; i++) {
+            if (scores[i] != Float.NEGATIVE_INFINITY) {
+                result.add(best[i]);
+            }
+        }
+        return result;
+    }
+
+    private static double recall(List<Set<Integer>> exact, List<Set<Integer>> found) {
+        double total = 0;
+        for (int q = 0; q < exact.size(); q++) {
+            Set<Integer> hits = new HashSet<>(found.get(q));
+            hits.retainAll(exact.get(q));
+            total += (double) hits.size() / exact.get(q).size();
+        }
+        return total / exact.size();
+    }
+
+    private void generateCatalog() {
+        for (int t = 0; t < TOPICS; t++) {
+            topics[t] = normalize(gaussian(1.0f));
+        }
+        for (int e = 0; e < EPISODES; e++) {
+            int[] episodeTopics = random.ints(TOPICS_PER_EPISODE, 0, TOPICS).toArray();
+            float[] sum = new float[DIMENSIONS];
+            for (int c = 0; c < CHUNKS_PER_EPISODE; c++) {
+                float[] chunk = noisy(topics[episodeTopics[random.nextInt(TOPICS_PER_EPISODE)]]);
+                chunks[e * CHUNKS_PER_EPISODE + c] = chunk;
+                for (int d = 0; d < DIMENSIONS; d++) {
+                    sum[d] += chunk[d];
+                }
+            }
+            // What AVG(embedding) yields; cosine ranking ignores the length
+            centroids[e] = normalize(sum);
+        }
+    }
+
+    private float[] noisy(float[] topic) {
+        float[] noise = gaussian(0.08f);
+        for (int d = 0; d < DIMENSIONS; d++) {
+            noise[d] += topic[d];
+        }
+        return normalize(noise);
+    }
+
+    private float[] gaussian(float sigma) {
+        float[] vector = new float[DIMENSIONS];
+        for (int d = 0; d < DIMENSIONS; d++) {
+            vector[d] = (float) random.nextGaussian() * sigma;
+        }
+        return vector;
+    }
+
+    private static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, vector));
+        for (int d = 0; d < vector.length; d++) {
+            vector[d] /= norm;
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int d = 0; d < a.length; d++) {
+            sum += a[d] * b[d];
+        }
+        return sum;
+    }
+}
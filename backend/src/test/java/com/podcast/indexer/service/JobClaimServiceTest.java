@@ -0,0 +1,113 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JobClaimServiceTest {
+
+    private static final String KEY = "podcast:claim:transcribe:7:1";
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ValueOperations<String, String> valueOperations;
+    private JobClaimService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(true);
+        PodcastConfig config = new PodcastConfig();
+        // Renewed every third of a second
+        config.getPipeline().setClaimSeconds(1);
+        service = new JobClaimService(redisTemplate, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void heartbeatRunsOnEveryRenewalWithoutAnyProgress() {
+        renewals(1L);
+        Runnable heartbeat = mock(Runnable.class);
+
+        try (JobClaimService.Claim claim = service.claimTranscription(7L, 1, heartbeat).orElseThrow()) {
+            verify(heartbeat, timeout(3000).atLeast(2)).run();
+            claim.ensureHeld();
+        }
+
+        verify(redisTemplate).execute(any(), eq(List.of(KEY)), anyString());
+    }
+
+    @Test
+    void claimHeldByAnotherWorkerIsNotTaken() {
+        when(valueOperations.setIfAbsent(eq(KEY), anyString(), anyLong(), eq(TimeUnit.MILLISECONDS))).thenReturn(false);
+
+        Optional<JobClaimService.Claim> claim = service.claimTranscription(7L, 1, mock(Runnable.class));
+
+        assertThat(claim).isEmpty();
+    }
+
+    @Test
+    void expiredClaimStopsTheHeartbeatAndTheWork() {
+        renewals(0L);
+        Runnable heartbeat = mock(Runnable.class);
+
+        JobClaimService.Claim claim = service.claimTranscription(7L, 1, heartbeat).orElseThrow();
+
+        verify(redisTemplate, timeout(3000)).execute(any(), eq(List.of(KEY)), anyString(), anyString());
+        await(() -> assertThatThrownBy(claim::ensureHeld).isInstanceOf(JobClaimService.ClaimLostException.class));
+        verify(heartbeat, never()).run();
+    }
+
+    @Test
+    void anyClaimedPartKeepsTheEpisodeClaimed() {
+        when(redisTemplate.countExistingKeys(List.of("podcast:claim:transcribe:7:0",
+                "podcast:claim:transcribe:7:1", "podcast:claim:transcribe:7:2"))).thenReturn(1L);
+
+        assertThat(service.isTranscriptionClaimed(7L, 3)).isTrue();
+        assertThat(service.isTranscriptionClaimed(8L, null)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void renewals(Long result) {
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(KEY)), anyString(), anyString()))
+                .thenReturn(result);
+    }
+
+    private static void await(Runnable assertion) {
+        long deadline = System.currentTimeMillis() + 3000;
+        while (true) {
+            try {
+                assertion.run();
+                return;
+            } catch (AssertionError e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+        }
+    }
+}
@@ -1,157 +1,240 @@
 package com.podcast.indexer.service;
 
-import com.podcast.indexer.model.Episode;
-import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.config.PodcastConfig;
 import com.podcast.indexer.model.ProcessingStatus;
 import com.podcast.indexer.repository.EpisodeRepository;
-import com.podcast.indexer.repository.EmbeddingChunkRepository;
-import com.podcast.indexer.repository.TranscriptSegmentRepository;
+import com.podcast.indexer.repository.TranscriptBlockRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 
-import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
 
-import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 class JobQueueRescheduleServiceTest {
 
-    @Test
-    void rescheduleMissingIndexesQueuesEpisodesWithTranscripts() {
-        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
-        TranscriptSegmentRepository transcriptSegmentRepository = mock(TranscriptSegmentRepository.class);
-        EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
-        JobQueueService jobQueueService = mock(JobQueueService.class);
-
-        Podcast podcast = Podcast.builder().id(1L).title("Test").build();
-        Episode episode = Episode.builder()
-                .id(22L)
-                .podcast(podcast)
-                .status(ProcessingStatus.TRANSCRIBED)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        when(episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBED))
-                .thenReturn(Collections.singletonList(episode));
-        when(transcriptSegmentRepository.existsByEpisodeId(episode.getId())).thenReturn(true);
-        when(embeddingChunkRepository.existsByEpisodeId(episode.getId())).thenReturn(false);
-
-        JobQueueRescheduleService service = new JobQueueRescheduleService(
+    private EpisodeRepository episodeRepository;
+    private TranscriptBlockRepository transcriptBlockRepository;
+    private JobQueueService jobQueueService;
+    private LeaderElectionService leaderElectionService;
+    private EpisodeEventPublisher episodeEventPublisher;
+    private JobClaimService jobClaimService;
+    private JobQueueRescheduleService service;
+
+    @BeforeEach
+    void setUp() {
+        episodeRepository = mock(EpisodeRepository.class);
+        transcriptBlockRepository = mock(TranscriptBlockRepository.class);
+        jobQueueService = mock(JobQueueService.class);
+        leaderElectionService = mock(LeaderElectionService.class);
+        when(leaderElectionService.acquire(JobQueueRescheduleService.LEADER_TASK)).thenReturn(OptionalLong.of(1));
+        when(leaderElectionService.renew(JobQueueRescheduleService.LEADER_TASK, 1)).thenReturn(true);
+        when(leaderElectionService.fenced(eq(JobQueueRescheduleService.LEADER_TASK), eq(1L), any())).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(2).run();
+            return true;
+        });
+        episodeEventPublisher = mock(EpisodeEventPublisher.class);
+        jobClaimService = mock(JobClaimService.class);
+        service = new JobQueueRescheduleService(
                 episodeRepository,
-                transcriptSegmentRepository,
-                embeddingChunkRepository,
-                jobQueueService
+                transcriptBlockRepository,
+                jobQueueService,
+                new PodcastConfig(),
+                leaderElectionService,
+                episodeEventPublisher,
+                jobClaimService
         );
+    }
+
+    @Test
+    void rescheduleMissingIndexesQueuesEpisodesWithTranscripts() {
+        when(episodeRepository.findStaleIdsWithTranscript(eq(ProcessingStatus.TRANSCRIBED), any(), eq(0L), any()))
+                .thenReturn(List.of(22L));
 
         service.rescheduleMissingIndexes();
 
-        ArgumentCaptor<Long> idCaptor = ArgumentCaptor.forClass(Long.class);
-        verify(jobQueueService).queueIndexEpisodeJob(idCaptor.capture());
-        assertThat(idCaptor.getValue()).isEqualTo(episode.getId());
-        verify(episodeRepository, never()).save(any());
-        assertThat(episode.getStatus()).isEqualTo(ProcessingStatus.TRANSCRIBED);
+        verify(jobQueueService).queueIndexEpisodeJob(22L);
+        verify(episodeRepository, never()).updateStatus(any(), any(), any(), any());
     }
 
     @Test
     void rescheduleMissingIndexesSkipsEpisodesWithoutTranscripts() {
-        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
-        TranscriptSegmentRepository transcriptSegmentRepository = mock(TranscriptSegmentRepository.class);
-        EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
-        JobQueueService jobQueueService = mock(JobQueueService.class);
-
-        Podcast podcast = Podcast.builder().id(1L).title("Test").build();
-        Episode episode = Episode.builder()
-                .id(23L)
-                .podcast(podcast)
-                .status(ProcessingStatus.TRANSCRIBED)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        when(episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBED))
-                .thenReturn(Collections.singletonList(episode));
-        when(transcriptSegmentRepository.existsByEpisodeId(episode.getId())).thenReturn(false);
-
-        JobQueueRescheduleService service = new JobQueueRescheduleService(
-                episodeRepository,
-                transcriptSegmentRepository,
-                embeddingChunkRepository,
-                jobQueueService
-        );
+        when(episodeRepository.findStaleIdsWithTranscript(any(), any(), anyLong(), any()))
+                .thenReturn(Collections.emptyList());
 
         service.rescheduleMissingIndexes();
 
-        verifyNoInteractions(embeddingChunkRepository);
         verifyNoInteractions(jobQueueService);
-        verify(episodeRepository, never()).save(any());
     }
 
     @Test
     void rescheduleStuckTranscriptionsQueuesDownloadWhenAudioMissing() {
-        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
-        TranscriptSegmentRepository transcriptSegmentRepository = mock(TranscriptSegmentRepository.class);
-        EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
-        JobQueueService jobQueueService = mock(JobQueueService.class);
-
-        Podcast podcast = Podcast.builder().id(1L).title("Test").build();
-        Episode episode = Episode.builder()
-                .id(24L)
-                .podcast(podcast)
-                .status(ProcessingStatus.TRANSCRIBING)
-                .createdAt(LocalDateTime.now())
-                .audioFilePath(null)
-                .build();
-
-        when(episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBING))
-                .thenReturn(Collections.singletonList(episode));
-        when(transcriptSegmentRepository.existsByEpisodeId(episode.getId())).thenReturn(false);
-
-        JobQueueRescheduleService service = new JobQueueRescheduleService(
-                episodeRepository,
-                transcriptSegmentRepository,
-                embeddingChunkRepository,
-                jobQueueService
-        );
+        stale(staleEpisode(24L, null, null));
 
         service.rescheduleStuckTranscriptions();
 
-        verify(jobQueueService).queueDownloadAudioJob(episode.getId());
-        verify(episodeRepository).save(episode);
-        assertThat(episode.getStatus()).isEqualTo(ProcessingStatus.DISCOVERED);
+        verify(episodeRepository).updateStatus(eq(List.of(24L)), eq(ProcessingStatus.TRANSCRIBING),
+                eq(ProcessingStatus.DISCOVERED), any());
+        verify(jobQueueService).queueDownloadAudioJob(24L);
     }
 
     @Test
     void rescheduleStuckTranscriptionsQueuesTranscribeWhenAudioPresent() {
-        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
-        TranscriptSegmentRepository transcriptSegmentRepository = mock(TranscriptSegmentRepository.class);
-        EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
-        JobQueueService jobQueueService = mock(JobQueueService.class);
-
-        Podcast podcast = Podcast.builder().id(1L).title("Test").build();
-        Episode episode = Episode.builder()
-                .id(25L)
-                .podcast(podcast)
-                .status(ProcessingStatus.TRANSCRIBING)
-                .createdAt(LocalDateTime.now())
-                .audioFilePath("/tmp/audio.mp3")
-                .build();
-
-        when(episodeRepository.findByStatus(ProcessingStatus.TRANSCRIBING))
-                .thenReturn(Collections.singletonList(episode));
-        when(transcriptSegmentRepository.existsByEpisodeId(episode.getId())).thenReturn(false);
-
-        JobQueueRescheduleService service = new JobQueueRescheduleService(
-                episodeRepository,
-                transcriptSegmentRepository,
-                embeddingChunkRepository,
-                jobQueueService
-        );
+        stale(staleEpisode(25L, "/tmp/audio.mp3", 1));
+
+        service.rescheduleStuckTranscriptions();
+
+        verify(episodeRepository).updateStatus(eq(List.of(25L)), eq(ProcessingStatus.TRANSCRIBING),
+                eq(ProcessingStatus.DOWNLOADED), any());
+        verify(jobQueueService).queueTranscribeJob(25L, 0, "/tmp/audio.mp3");
+    }
+
+    @Test
+    void rescheduleStuckTranscriptionsQueuesOnlyMissingParts() {
+        stale(staleEpisode(26L, "/tmp/episode_26.mp3", 3));
+        List<TranscriptBlockRepository.TranscribedPart> parts = List.of(transcribedPart(26L, 0));
+        when(transcriptBlockRepository.findTranscribedParts(List.of(26L))).thenReturn(parts);
+
+        service.rescheduleStuckTranscriptions();
+
+        verify(jobQueueService, never()).queueTranscribeJob(eq(26L), eq(0), any());
+        verify(jobQueueService).queueTranscribeJob(26L, 1, "/tmp/episode_26_part1.mp3");
+        verify(jobQueueService).queueTranscribeJob(26L, 2, "/tmp/episode_26_part2.mp3");
+    }
+
+    @Test
+    void rescheduleStuckTranscriptionsMarksCompleteEpisodesTranscribed() {
+        stale(staleEpisode(27L, "/tmp/episode_27.mp3", 2));
+        List<TranscriptBlockRepository.TranscribedPart> parts = List.of(transcribedPart(27L, 0), transcribedPart(27L, 1));
+        when(transcriptBlockRepository.findTranscribedParts(List.of(27L))).thenReturn(parts);
+
+        service.rescheduleStuckTranscriptions();
+
+        verify(episodeRepository).updateStatus(eq(List.of(27L)), eq(ProcessingStatus.TRANSCRIBING),
+                eq(ProcessingStatus.TRANSCRIBED), any());
+        verify(jobQueueService).queueIndexEpisodeJob(27L);
+        verify(jobQueueService, never()).queueTranscribeJob(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void rescheduleStuckTranscriptionsLeavesClaimedEpisodesToTheirWorker() {
+        // Its worker is alive, but touching the episode failed, e.g. while the database restarted
+        stale(staleEpisode(28L, "/tmp/episode_28.mp3", 2));
+        when(jobClaimService.isTranscriptionClaimed(28L, 2)).thenReturn(true);
+
+        service.rescheduleStuckTranscriptions();
+
+        verify(episodeRepository, never()).updateStatus(any(), any(), any(), any());
+        verify(jobQueueService, never()).queueTranscribeJob(anyLong(), anyInt(), any());
+        verifyNoInteractions(episodeEventPublisher);
+    }
+
+    @Test
+    void rescheduleStuckDownloadsRestartsTheDownload() {
+        stale(ProcessingStatus.DOWNLOADING, staleEpisode(40L, "/tmp/episode_40.mp3", null));
+
+        service.rescheduleStuckDownloads();
+
+        verify(episodeRepository).updateStatus(eq(List.of(40L)), eq(ProcessingStatus.DOWNLOADING),
+                eq(ProcessingStatus.DISCOVERED), any());
+        verify(jobQueueService).queueDownloadAudioJob(40L);
+    }
+
+    @Test
+    void rescheduleStuckDownloadsQueuesTranscriptionOfDownloadedEpisodes() {
+        stale(ProcessingStatus.DOWNLOADED, staleEpisode(41L, "/tmp/episode_41.mp3", 2));
+        List<TranscriptBlockRepository.TranscribedPart> parts = List.of(transcribedPart(41L, 0));
+        when(transcriptBlockRepository.findTranscribedParts(List.of(41L))).thenReturn(parts);
+
+        service.rescheduleStuckDownloads();
+
+        // Restarts the stale clock without announcing a status change
+        verify(episodeRepository).updateStatus(eq(List.of(41L)), eq(ProcessingStatus.DOWNLOADED),
+                eq(ProcessingStatus.DOWNLOADED), any());
+        verify(episodeEventPublisher, never()).statusChanged(any(), any(), any());
+        verify(jobQueueService).queueTranscribeJob(41L, 1, "/tmp/episode_41_part1.mp3");
+        verify(jobQueueService, never()).queueTranscribeJob(eq(41L), eq(0), any());
+        verify(jobQueueService, never()).queueDownloadAudioJob(any());
+    }
+
+    @Test
+    void rescheduleStuckDownloadsIndexesFullyTranscribedEpisodes() {
+        stale(ProcessingStatus.DOWNLOADED, staleEpisode(42L, "/tmp/episode_42.mp3", 1));
+        List<TranscriptBlockRepository.TranscribedPart> parts = List.of(transcribedPart(42L, 0));
+        when(transcriptBlockRepository.findTranscribedParts(List.of(42L))).thenReturn(parts);
+
+        service.rescheduleStuckDownloads();
+
+        verify(episodeRepository).updateStatus(eq(List.of(42L)), eq(ProcessingStatus.DOWNLOADED),
+                eq(ProcessingStatus.TRANSCRIBED), any());
+        verify(jobQueueService).queueIndexEpisodeJob(42L);
+        verify(jobQueueService, never()).queueTranscribeJob(anyLong(), anyInt(), any());
+    }
+
+    @Test
+    void fencedOffLeaderWritesAndQueuesNothing() {
+        // A newer leader has written since this node last renewed its lease
+        stale(staleEpisode(29L, "/tmp/episode_29.mp3", 1));
+        when(leaderElectionService.fenced(eq(JobQueueRescheduleService.LEADER_TASK), eq(1L), any())).thenReturn(false);
 
         service.rescheduleStuckTranscriptions();
 
-        verify(jobQueueService).queueTranscribeJob(episode.getId(), 0, episode.getAudioFilePath());
-        verify(episodeRepository).save(episode);
-        assertThat(episode.getStatus()).isEqualTo(ProcessingStatus.DOWNLOADED);
+        verify(episodeRepository, never()).updateStatus(any(), any(), any(), any());
+        verifyNoInteractions(jobQueueService, episodeEventPublisher);
+        verify(leaderElectionService, never()).renew(any(), anyLong());
+    }
+
+    @Test
+    void followersDoNotScan() {
+        when(leaderElectionService.acquire(JobQueueRescheduleService.LEADER_TASK)).thenReturn(OptionalLong.empty());
+
+        service.rescheduleStuckDownloads();
+        service.rescheduleStuckTranscriptions();
+        service.rescheduleMissingIndexes();
+
+        verifyNoInteractions(episodeRepository, jobQueueService);
+    }
+
+    @Test
+    void scanStopsWhenLeadershipIsLost() {
+        PodcastConfig config = new PodcastConfig();
+        config.getPipeline().setRecoveryBatchSize(1);
+        service = new JobQueueRescheduleService(
+                episodeRepository, transcriptBlockRepository, jobQueueService, config, leaderElectionService,
+                mock(EpisodeEventPublisher.class), jobClaimService);
+        when(episodeRepository.findStaleIdsWithTranscript(eq(ProcessingStatus.TRANSCRIBED), any(), anyLong(), any()))
+                .thenReturn(List.of(30L)).thenReturn(List.of(31L));
+        when(leaderElectionService.renew(JobQueueRescheduleService.LEADER_TASK, 1)).thenReturn(false);
+
+        service.rescheduleMissingIndexes();
+
+        verify(jobQueueService).queueIndexEpisodeJob(30L);
+        verify(jobQueueService, never()).queueIndexEpisodeJob(31L);
+    }
+
+    private void stale(EpisodeRepository.StaleEpisode episode) {
+        stale(ProcessingStatus.TRANSCRIBING, episode);
+    }
+
+    private void stale(ProcessingStatus status, EpisodeRepository.StaleEpisode episode) {
+        when(episodeRepository.findStaleEpisodes(eq(status), any(), eq(0L), any()))
+                .thenReturn(List.of(episode));
+    }
+
+    private static EpisodeRepository.StaleEpisode staleEpisode(Long id, String audioFilePath, Integer partCount) {
+        EpisodeRepository.StaleEpisode episode = mock(EpisodeRepository.StaleEpisode.class);
+        when(episode.getId()).thenReturn(id);
+        when(episode.getAudioFilePath()).thenReturn(audioFilePath);
+        when(episode.getAudioPartCount()).thenReturn(partCount);
+        return episode;
+    }
+
+    private static TranscriptBlockRepository.TranscribedPart transcribedPart(Long episodeId, int partIndex) {
+        TranscriptBlockRepository.TranscribedPart part = mock(TranscriptBlockRepository.TranscribedPart.class);
+        when(part.getEpisodeId()).thenReturn(episodeId);
+        when(part.getPartIndex()).thenReturn(partIndex);
+        return part;
     }
 }
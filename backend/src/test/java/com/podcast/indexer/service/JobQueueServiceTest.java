@@ -0,0 +1,184 @@
+package com.podcast.indexer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.podcast.indexer.repository.EpisodeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class JobQueueServiceTest {
+
+    private static final LocalDateTime PUBLISHED = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ZSetOperations<String, String> zSetOperations;
+    private EpisodeRepository episodeRepository;
+    private JobQueueService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        episodeRepository = mock(EpisodeRepository.class);
+        service = new JobQueueService(redisTemplate, new ObjectMapper(), episodeRepository);
+    }
+
+    @Test
+    void newerEpisodesScoreLower() {
+        double older = JobQueueService.episodeScore(PUBLISHED, null, false);
+        double newer = JobQueueService.episodeScore(PUBLISHED.plusHours(1), null, false);
+
+        assertThat(newer).isEqualTo(older - 3600);
+        // Unknown publish dates go after everything dated
+        assertThat(JobQueueService.episodeScore(null, null, false)).isGreaterThan(older);
+    }
+
+    @Test
+    void priorityTierCountsAsAMonthNewer() {
+        double boosted = JobQueueService.episodeScore(PUBLISHED, 1, false);
+        double monthNewer = JobQueueService.episodeScore(PUBLISHED.plusDays(30), 0, false);
+
+        assertThat(boosted).isEqualTo(monthNewer);
+    }
+
+    @Test
+    void expeditedEpisodesScoreBelowTheThreshold() {
+        double expeditedOld = JobQueueService.episodeScore(LocalDateTime.of(1990, 1, 1, 0, 0), -5, true);
+        double newestBoosted = JobQueueService.episodeScore(LocalDateTime.of(2100, 1, 1, 0, 0), 10, false);
+
+        assertThat(expeditedOld).isLessThanOrEqualTo(JobQueueService.EXPEDITED_THRESHOLD);
+        assertThat(JobQueueService.episodeScore(null, null, true)).isLessThanOrEqualTo(JobQueueService.EXPEDITED_THRESHOLD);
+        assertThat(newestBoosted).isGreaterThan(JobQueueService.EXPEDITED_THRESHOLD);
+    }
+
+    @Test
+    void partsOfAnEpisodeKeepTheirOrder() {
+        EpisodeRepository.PriorityInfo info = priorityInfo(PUBLISHED, 0, false);
+        when(episodeRepository.findPriorityInfo(7L)).thenReturn(Optional.of(info));
+        double episodeScore = JobQueueService.episodeScore(PUBLISHED, 0, false);
+
+        service.queueTranscribeJob(7L, 0, "/tmp/episode_7_part0.mp3");
+        service.queueTranscribeJob(7L, 2, "/tmp/episode_7_part2.mp3");
+
+        verify(zSetOperations).add(eq("podcast:queue:transcribe"), contains("\"partIndex\":0"), eq(episodeScore));
+        verify(zSetOperations).add(eq("podcast:queue:transcribe"), contains("\"partIndex\":2"), eq(episodeScore + 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void popPassesStagesInDequeueOrderWithTheirPauseFlags() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn("{\"type\":\"TRANSCRIBE\",\"resourceId\":7,\"partIndex\":1}");
+
+        JobQueueService.Job job = service.dequeueJob(0, Set.of(JobQueueService.JobType.DOWNLOAD_AUDIO));
+
+        assertThat(job.getType()).isEqualTo(JobQueueService.JobType.TRANSCRIBE);
+        assertThat(job.getPartIndex()).isEqualTo(1);
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("podcast:queue:sync_episodes", "podcast:queue:index_episode",
+                        "podcast:queue:transcribe", "podcast:queue:download_audio")),
+                eq(String.valueOf(JobQueueService.EXPEDITED_THRESHOLD)), eq("0"), eq("0"), eq("0"), eq("1"));
+    }
+
+    @Test
+    void popReturnsExpeditedJobsFirstEvenFromPausedStages() {
+        withRedis(queue -> {
+            when(episodeRepository.findPriorityInfo(anyLong())).thenAnswer(inv -> Optional.of(switch (
+                    inv.<Long>getArgument(0).intValue()) {
+                case 1 -> priorityInfo(PUBLISHED, 0, false);
+                case 2 -> priorityInfo(PUBLISHED.minusYears(3), 0, true);
+                case 3 -> priorityInfo(PUBLISHED.plusDays(1), 0, false);
+                default -> priorityInfo(PUBLISHED.minusDays(1), 0, false);
+            }));
+            queue.queueIndexEpisodeJob(1L);
+            queue.queueDownloadAudioJob(2L);
+            queue.queueTranscribeJob(3L, 0, "/tmp/episode_3.mp3");
+            queue.queueTranscribeJob(4L, 0, "/tmp/episode_4.mp3");
+
+            // The paused download only runs because it was expedited; the others go newest first
+            assertThat(drain(queue, Set.of(JobQueueService.JobType.DOWNLOAD_AUDIO)))
+                    .containsExactly("DOWNLOAD_AUDIO:2", "TRANSCRIBE:3", "INDEX_EPISODE:1", "TRANSCRIBE:4");
+        });
+    }
+
+    @Test
+    void freshDownloadOvertakesABacklogOfOlderTranscriptions() {
+        withRedis(queue -> {
+            when(episodeRepository.findPriorityInfo(anyLong())).thenAnswer(inv -> {
+                long id = inv.<Long>getArgument(0);
+                return Optional.of(id == 100
+                        ? priorityInfo(PUBLISHED, 0, false)
+                        : priorityInfo(PUBLISHED.minusYears(2).plusDays(id), 0, false));
+            });
+            for (long id = 1; id <= 20; id++) {
+                queue.queueTranscribeJob(id, 0, "/tmp/episode_" + id + ".mp3");
+            }
+            queue.queueIndexEpisodeJob(20L);
+            queue.queueDownloadAudioJob(100L);
+            queue.queueSyncEpisodesJob(7L);
+
+            List<String> popped = drain(queue, Set.of());
+            assertThat(popped.subList(0, 2)).containsExactly("SYNC_EPISODES:7", "DOWNLOAD_AUDIO:100");
+            // Within an episode the later stage goes first
+            assertThat(popped.subList(2, 4)).containsExactly("INDEX_EPISODE:20", "TRANSCRIBE:20");
+            assertThat(popped).hasSize(23).endsWith("TRANSCRIBE:1");
+        });
+    }
+
+    private void withRedis(Consumer<JobQueueService> test) {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is not available");
+        try (GenericContainer<?> redis = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379)) {
+            redis.start();
+            JedisConnectionFactory connectionFactory = new JedisConnectionFactory(
+                    new RedisStandaloneConfiguration(redis.getHost(), redis.getMappedPort(6379)));
+            connectionFactory.afterPropertiesSet();
+            try {
+                StringRedisTemplate template = new StringRedisTemplate(connectionFactory);
+                test.accept(new JobQueueService(template, new ObjectMapper(), episodeRepository));
+            } finally {
+                connectionFactory.destroy();
+            }
+        }
+    }
+
+    private static List<String> drain(JobQueueService queue, Set<JobQueueService.JobType> paused) {
+        List<String> popped = new ArrayList<>();
+        JobQueueService.Job job;
+        while ((job = queue.dequeueJob(0, paused)) != null) {
+            popped.add(job.getType() + ":" + job.getResourceId());
+        }
+        return popped;
+    }
+
+    private static EpisodeRepository.PriorityInfo priorityInfo(LocalDateTime publishedDate, Integer priority,
+                                                               Boolean expedited) {
+        EpisodeRepository.PriorityInfo info = mock(EpisodeRepository.PriorityInfo.class);
+        when(info.getPublishedDate()).thenReturn(publishedDate);
+        when(info.getPodcastPriority()).thenReturn(priority);
+        when(info.getExpedited()).thenReturn(expedited);
+        return info;
+    }
+}
@@ -0,0 +1,68 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class LeaderElectionServiceTest {
+
+    private TestDatabase database;
+    private LeaderElectionService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        database = TestDatabase.create();
+        // As Hibernate creates it from LeaderFence
+        database.jdbcTemplate.execute("CREATE TABLE leader_fences (task varchar(255) PRIMARY KEY, token bigint NOT NULL)");
+        database.jdbcTemplate.execute("CREATE TABLE writes (token bigint)");
+        service = new LeaderElectionService(mock(RedisTemplate.class), database.jdbcTemplate,
+                database.transactionTemplate, new PodcastConfig());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void writesOfAReplacedLeaderAreRejected() {
+        assertThat(write(2)).isTrue();
+        // The former leader wakes up after the lease passed on
+        assertThat(write(1)).isFalse();
+        assertThat(write(2)).isTrue();
+        assertThat(write(3)).isTrue();
+        assertThat(write(2)).isFalse();
+
+        assertThat(database.jdbcTemplate.queryForList("SELECT token FROM writes", Long.class))
+                .containsExactly(2L, 2L, 3L);
+        // Tasks are fenced independently
+        assertThat(service.fenced("other-task", 1, () -> { })).isTrue();
+    }
+
+    @Test
+    void failedWritesDoNotRaiseTheFence() {
+        assertThatThrownBy(() -> service.fenced("task", 5, () -> {
+            throw new IllegalStateException("write failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(write(4)).isTrue();
+        assertThat(database.jdbcTemplate.queryForList("SELECT token FROM leader_fences", Long.class))
+                .isEqualTo(List.of(4L));
+    }
+
+    private boolean write(long token) {
+        return service.fenced("task", token,
+                () -> database.jdbcTemplate.update("INSERT INTO writes (token) VALUES (?)", token));
+    }
+}
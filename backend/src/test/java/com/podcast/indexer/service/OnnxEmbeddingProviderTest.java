@@ -0,0 +1,68 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Runs a bundled 16-token model whose graph only looks up token embeddings, so
+ * tokenization, padding, pooling and batching are exercised without a real model.
+ */
+class OnnxEmbeddingProviderTest {
+
+    private OnnxEmbeddingProvider provider;
+
+    @BeforeEach
+    void setUp() throws URISyntaxException {
+        PodcastConfig config = new PodcastConfig();
+        PodcastConfig.Embedding.Onnx onnx = config.getEmbedding().getOnnx();
+        onnx.setModelDir(Path.of(getClass().getResource("/onnx").toURI()).toString());
+        onnx.setBatchSize(2);
+        onnx.setThreads(2);
+        provider = new OnnxEmbeddingProvider(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        provider.close();
+    }
+
+    @Test
+    void embedsToUnitVectorsOfModelSize() {
+        List<Double> embedding = provider.embed("tiny", "hello world");
+
+        assertThat(embedding).hasSize(4);
+        assertThat(embedding.stream().mapToDouble(v -> v * v).sum()).isCloseTo(1.0, within(1e-6));
+    }
+
+    @Test
+    void batchedEmbeddingsMatchSingleOnes() {
+        List<String> texts = List.of("hello", "the news episode, hello world!", "podcasts", "world", "the podcast?");
+
+        List<List<Double>> batched = provider.embedAll("tiny", texts);
+
+        assertThat(batched).hasSize(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            List<Double> single = provider.embed("tiny", texts.get(i));
+            for (int d = 0; d < single.size(); d++) {
+                assertThat(batched.get(i).get(d)).isCloseTo(single.get(d), within(1e-6));
+            }
+        }
+        assertThat(batched.get(0)).isNotEqualTo(batched.get(3));
+    }
+
+    @Test
+    void rejectsUnknownModel() {
+        assertThatThrownBy(() -> provider.embed("missing", "hello"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,176 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.repository.PodcastRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class OpmlImportServiceTest {
+
+    private static final String STATUS_KEY_PREFIX = "podcast:opml-import:";
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Copies, since the service reuses its batch list
+    private final List<List<String>> insertedBatches = new CopyOnWriteArrayList<>();
+    private PodcastRepository podcastRepository;
+    private RssFeedService rssFeedService;
+    private JobQueueService jobQueueService;
+    private PodcastPartitionService partitionService;
+    private HashOperations<String, Object, Object> hashOperations;
+    private PodcastConfig config;
+    private OpmlImportService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        podcastRepository = mock(PodcastRepository.class);
+        when(podcastRepository.insertIgnoringDuplicates(anyList())).thenAnswer(inv -> {
+            List<Podcast> inserted = new ArrayList<>(inv.<List<Podcast>>getArgument(0));
+            insertedBatches.add(inserted.stream().map(Podcast::getFeedUrl).toList());
+            inserted.forEach(podcast -> podcast.setId(nextId.getAndIncrement()));
+            return inserted;
+        });
+        rssFeedService = mock(RssFeedService.class);
+        when(rssFeedService.fetchPodcast(anyString(), any())).thenAnswer(inv ->
+                Podcast.builder().feedUrl(inv.getArgument(0)).title("Show at " + inv.getArgument(0)).build());
+        jobQueueService = mock(JobQueueService.class);
+        partitionService = mock(PodcastPartitionService.class);
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        hashOperations = mock(HashOperations.class);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOperations);
+        config = new PodcastConfig();
+        service = new OpmlImportService(podcastRepository, rssFeedService, jobQueueService, partitionService,
+                redisTemplate, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void malformedOrForeignDocumentsAreRejected() {
+        assertThatThrownBy(() -> service.startImport(stream("<opml><body><outline xmlUrl=\"https://a.example/feed\">"), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Invalid OPML");
+        assertThatThrownBy(() -> service.startImport(stream("<rss><channel/></rss>"), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Not an OPML document");
+        verifyNoInteractions(podcastRepository, rssFeedService);
+    }
+
+    @Test
+    void nestedOutlinesAreReadAndDuplicateUrlsImportedOnce() {
+        String opml = """
+                <?xml version="1.0"?>
+                <opml version="2.0">
+                  <body>
+                    <outline text="Tech">
+                      <outline text="One" xmlUrl="https://a.example/feed"/>
+                      <outline text="Nested">
+                        <outline text="Two" xmlUrl="https://b.example/feed"/>
+                      </outline>
+                    </outline>
+                    <outline text="One again" xmlUrl=" https://a.example/feed "/>
+                    <outline text="No feed"/>
+                  </body>
+                </opml>
+                """;
+
+        String jobId = service.startImport(stream(opml), null);
+        awaitCompletion(jobId);
+
+        verify(hashOperations).putAll(eq(STATUS_KEY_PREFIX + jobId), argThat(status -> "2".equals(status.get("total"))));
+        verify(rssFeedService).fetchPodcast("https://a.example/feed", null);
+        verify(rssFeedService).fetchPodcast("https://b.example/feed", null);
+        verify(rssFeedService, times(2)).fetchPodcast(anyString(), any());
+        assertThat(insertedFeedUrls()).containsExactlyInAnyOrder("https://a.example/feed", "https://b.example/feed");
+    }
+
+    @Test
+    void feedsAlreadySubscribedOrInvalidAreSkipped() {
+        when(podcastRepository.findExistingFeedUrls(anyCollection())).thenReturn(Set.of("https://a.example/feed"));
+        when(rssFeedService.fetchPodcast(eq("https://b.example/feed"), any()))
+                .thenThrow(new RuntimeException("Failed to fetch RSS feed", new IllegalStateException("HTTP 404")));
+
+        String jobId = service.startImport(stream(opml("https://a.example/feed", "https://b.example/feed",
+                "https://c.example/feed")), null);
+        awaitCompletion(jobId);
+
+        String statusKey = STATUS_KEY_PREFIX + jobId;
+        verify(rssFeedService, never()).fetchPodcast(eq("https://a.example/feed"), any());
+        verify(hashOperations).increment(statusKey, "skipped", 1);
+        verify(hashOperations).increment(statusKey, "failed", 1);
+        verify(hashOperations).increment(statusKey, "imported", 1);
+        verify(hashOperations).put(statusKey + ":errors", "https://b.example/feed", "HTTP 404");
+        assertThat(insertedFeedUrls()).containsExactly("https://c.example/feed");
+    }
+
+    @Test
+    void validFeedsAreInsertedAndQueuedInBatches() {
+        config.getFeed().getOpmlImport().setBatchSize(2);
+        List<String> feedUrls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            feedUrls.add("https://host" + i + ".example/feed");
+        }
+
+        String jobId = service.startImport(stream(opml(feedUrls.toArray(String[]::new))), null);
+        awaitCompletion(jobId);
+
+        assertThat(insertedBatches).hasSizeGreaterThanOrEqualTo(3)
+                .allSatisfy(batch -> assertThat(batch).hasSizeBetween(1, 2));
+        assertThat(insertedFeedUrls()).containsExactlyInAnyOrderElementsOf(feedUrls);
+        verify(jobQueueService, times(insertedBatches.size())).queueSyncEpisodesJobs(anyList());
+        for (long id = 1; id <= 5; id++) {
+            verify(partitionService).createPartitions(id);
+        }
+    }
+
+    @Test
+    void podcastsAddedConcurrentlyCountAsSkipped() {
+        when(podcastRepository.insertIgnoringDuplicates(anyList())).thenReturn(List.of());
+
+        String jobId = service.startImport(stream(opml("https://a.example/feed")), null);
+        awaitCompletion(jobId);
+
+        verify(hashOperations).increment(STATUS_KEY_PREFIX + jobId, "skipped", 1);
+        verifyNoInteractions(partitionService);
+    }
+
+    private void awaitCompletion(String jobId) {
+        verify(hashOperations, timeout(10_000)).put(STATUS_KEY_PREFIX + jobId, "status", "COMPLETED");
+    }
+
+    private List<String> insertedFeedUrls() {
+        return insertedBatches.stream().flatMap(Collection::stream).toList();
+    }
+
+    private static String opml(String... feedUrls) {
+        StringBuilder opml = new StringBuilder("<opml version=\"2.0\"><body>");
+        for (String feedUrl : feedUrls) {
+            opml.append("<outline type=\"rss\" xmlUrl=\"").append(feedUrl).append("\"/>");
+        }
+        return opml.append("</body></opml>").toString();
+    }
+
+    private static ByteArrayInputStream stream(String document) {
+        return new ByteArrayInputStream(document.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.repository.PodcastChunkCountRepository;
+import com.podcast.indexer.repository.PodcastStatusCountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class PipelineStatsServiceTest {
+
+    private TestDatabase database;
+    private PipelineStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.jdbcTemplate.execute("CREATE TABLE episodes (id bigserial PRIMARY KEY, podcast_id bigint NOT NULL, " +
+                "status varchar(20) NOT NULL, duration_seconds integer)");
+        database.jdbcTemplate.execute("CREATE TABLE embedding_chunks (id bigserial PRIMARY KEY, " +
+                "episode_id bigint NOT NULL REFERENCES episodes (id), podcast_id bigint)");
+        database.jdbcTemplate.execute("CREATE TABLE podcast_status_counts (id bigserial PRIMARY KEY, " +
+                "podcast_id bigint NOT NULL, status varchar(20) NOT NULL, episode_count bigint NOT NULL, " +
+                "duration_seconds bigint NOT NULL, updated_at timestamp NOT NULL, UNIQUE (podcast_id, status))");
+        database.jdbcTemplate.execute("CREATE TABLE podcast_chunk_counts (podcast_id bigint PRIMARY KEY, " +
+                "chunk_count bigint NOT NULL, updated_at timestamp NOT NULL)");
+        service = new PipelineStatsService(database.jdbcTemplate, database.transactionTemplate,
+                mock(PodcastStatusCountRepository.class), mock(PodcastChunkCountRepository.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void countersFollowEveryWriteAfterInstallation() {
+        // Written before the triggers existed, so counted by the installation
+        database.jdbcTemplate.update("INSERT INTO episodes (id, podcast_id, status, duration_seconds) VALUES " +
+                "(1, 1, 'INDEXED', 600), (2, 1, 'DISCOVERED', NULL), (3, 2, 'INDEXED', 300)");
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id) VALUES (1, 1), (1, NULL)");
+
+        service.installTriggers();
+        assertCountersMatchTables();
+
+        // One statement, including a chunk written without podcast_id by an older instance
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id) VALUES " +
+                "(1, 1), (3, 2), (3, 2), (3, NULL)");
+        assertThat(chunkCounts()).containsEntry(1L, 3L).containsEntry(2L, 3L);
+        assertCountersMatchTables();
+
+        database.jdbcTemplate.update("DELETE FROM embedding_chunks WHERE episode_id = 3");
+        database.jdbcTemplate.update("UPDATE episodes SET status = 'INDEXED', duration_seconds = 120 WHERE id = 2");
+        database.jdbcTemplate.update("DELETE FROM episodes WHERE id = 3");
+        assertThat(chunkCounts()).containsEntry(1L, 3L).containsEntry(2L, 0L);
+        assertCountersMatchTables();
+    }
+
+    @Test
+    void triggersAreReinstalledOnlyWhenTheirDefinitionChanged() {
+        database.jdbcTemplate.update("INSERT INTO episodes (id, podcast_id, status) VALUES (1, 1, 'INDEXED')");
+        service.installTriggers();
+
+        // An unchanged definition neither recounts nor locks the tables again
+        database.jdbcTemplate.update("INSERT INTO podcast_chunk_counts (podcast_id, chunk_count, updated_at) " +
+                "VALUES (1, 42, now())");
+        service.installTriggers();
+        assertThat(chunkCounts()).containsEntry(1L, 42L);
+
+        // As left by a previous version that did not count chunks without podcast_id
+        database.jdbcTemplate.execute("CREATE OR REPLACE FUNCTION podcast_stats_chunks_insert() RETURNS trigger " +
+                "LANGUAGE plpgsql AS $$ BEGIN RETURN NULL; END $$");
+        service.installTriggers();
+
+        assertThat(chunkCounts()).isEmpty();
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id) VALUES (1, NULL)");
+        assertThat(chunkCounts()).containsEntry(1L, 1L);
+        assertCountersMatchTables();
+    }
+
+    private void assertCountersMatchTables() {
+        List<Map<String, Object>> expectedStatuses = database.jdbcTemplate.queryForList(
+                "SELECT podcast_id, status, COUNT(*) AS episode_count, COALESCE(SUM(duration_seconds), 0) AS duration " +
+                "FROM episodes GROUP BY podcast_id, status ORDER BY podcast_id, status");
+        List<Map<String, Object>> statuses = database.jdbcTemplate.queryForList(
+                "SELECT podcast_id, status, episode_count, duration_seconds AS duration FROM podcast_status_counts " +
+                "WHERE episode_count <> 0 ORDER BY podcast_id, status");
+        assertThat(statuses).hasSameSizeAs(expectedStatuses);
+        for (int i = 0; i < statuses.size(); i++) {
+            assertThat(statuses.get(i).get("podcast_id")).hasToString(expectedStatuses.get(i).get("podcast_id").toString());
+            assertThat(statuses.get(i).get("status")).isEqualTo(expectedStatuses.get(i).get("status"));
+            assertThat(statuses.get(i).get("episode_count")).hasToString(expectedStatuses.get(i).get("episode_count").toString());
+            assertThat(statuses.get(i).get("duration")).hasToString(expectedStatuses.get(i).get("duration").toString());
+        }
+
+        Map<Long, Long> expectedChunks = new HashMap<>();
+        database.jdbcTemplate.query("SELECT e.podcast_id, COUNT(*) FROM embedding_chunks c " +
+                        "JOIN episodes e ON e.id = c.episode_id GROUP BY e.podcast_id",
+                (RowCallbackHandler) rs -> expectedChunks.put(rs.getLong(1), rs.getLong(2)));
+        Map<Long, Long> chunks = chunkCounts();
+        chunks.values().removeIf(count -> count == 0);
+        assertThat(chunks).isEqualTo(expectedChunks);
+    }
+
+    private Map<Long, Long> chunkCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        database.jdbcTemplate.query("SELECT podcast_id, chunk_count FROM podcast_chunk_counts",
+                (RowCallbackHandler) rs -> counts.put(rs.getLong(1), rs.getLong(2)));
+        return counts;
+    }
+}
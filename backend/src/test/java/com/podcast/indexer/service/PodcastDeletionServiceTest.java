@@ -0,0 +1,82 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PodcastDeletionServiceTest {
+
+    private final Episode withAudio = Episode.builder().id(11L).audioFilePath("/tmp/episode_11.mp3").build();
+
+    private PodcastRepository podcastRepository;
+    private PodcastPartitionService partitionService;
+    private AudioService audioService;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PodcastDeletionService service;
+
+    @BeforeEach
+    void setUp() {
+        podcastRepository = mock(PodcastRepository.class);
+        when(podcastRepository.existsById(5L)).thenReturn(true);
+        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
+        when(episodeRepository.findByPodcastIdAndAudioFilePathIsNotNull(5L)).thenReturn(List.of(withAudio));
+        partitionService = mock(PodcastPartitionService.class);
+        audioService = mock(AudioService.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(inv -> {
+            inv.<Consumer<TransactionStatus>>getArgument(0).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        service = new PodcastDeletionService(podcastRepository, episodeRepository, partitionService, audioService,
+                jdbcTemplate, transactionTemplate);
+    }
+
+    @Test
+    void partitionsAreDetachedBeforeAndDroppedWithinTheDeleteTransaction() {
+        assertThat(service.deletePodcast(5L)).isTrue();
+
+        InOrder inOrder = inOrder(partitionService, transactionTemplate, jdbcTemplate, audioService);
+        inOrder.verify(partitionService).detachPartitions(5L);
+        inOrder.verify(transactionTemplate).executeWithoutResult(any());
+        inOrder.verify(partitionService).dropDetachedPartitions(5L);
+        inOrder.verify(jdbcTemplate).update("DELETE FROM episodes WHERE podcast_id = ?", 5L);
+        inOrder.verify(jdbcTemplate).update("DELETE FROM podcasts WHERE id = ?", 5L);
+        inOrder.verify(audioService).deleteAudio(withAudio);
+        verify(jdbcTemplate).update("DELETE FROM podcast_status_counts WHERE podcast_id = ?", 5L);
+        verify(jdbcTemplate).update("DELETE FROM podcast_chunk_counts WHERE podcast_id = ?", 5L);
+    }
+
+    @Test
+    void audioIsKeptWhenTheDeleteFails() {
+        when(jdbcTemplate.update(eq("DELETE FROM podcasts WHERE id = ?"), any(Object[].class)))
+                .thenThrow(new IllegalStateException("deadlock detected"));
+
+        assertThatThrownBy(() -> service.deletePodcast(5L)).isInstanceOf(IllegalStateException.class);
+
+        verify(audioService, never()).deleteAudio(any());
+    }
+
+    @Test
+    void unknownPodcastIsNotTouched() {
+        assertThat(service.deletePodcast(6L)).isFalse();
+
+        verifyNoInteractions(partitionService, transactionTemplate, jdbcTemplate, audioService);
+    }
+}
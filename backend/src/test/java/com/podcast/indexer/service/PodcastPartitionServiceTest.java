@@ -0,0 +1,182 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PodcastPartitionServiceTest {
+
+    private TestDatabase database;
+    private PodcastPartitionService service;
+
+    @BeforeEach
+    void setUp() {
+        database = TestDatabase.create();
+        database.jdbcTemplate.execute("CREATE TABLE podcasts (id bigint PRIMARY KEY)");
+        database.jdbcTemplate.execute("CREATE TABLE episodes (id bigint PRIMARY KEY, " +
+                "podcast_id bigint NOT NULL REFERENCES podcasts (id))");
+        database.jdbcTemplate.execute("CREATE TABLE embedding_chunks (id bigserial PRIMARY KEY, " +
+                "episode_id bigint NOT NULL REFERENCES episodes (id), podcast_id bigint, text text)");
+        database.jdbcTemplate.execute("CREATE TABLE transcript_blocks (id bigserial PRIMARY KEY, " +
+                "episode_id bigint NOT NULL REFERENCES episodes (id), podcast_id bigint, " +
+                "part_index integer, block_index integer)");
+        addPodcast(1);
+        addPodcast(2);
+        PodcastConfig config = new PodcastConfig();
+        config.getPartitioning().setEnabled(true);
+        config.getPartitioning().setLockTimeoutMs(200);
+        service = new PodcastPartitionService(database.jdbcTemplate, database.transactionTemplate, config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    void prepareTablesPartitionsExistingRowsByPodcast() {
+        // Written before podcast_id was copied onto chunks
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id, text) VALUES " +
+                "(1, 1, 'a'), (2, NULL, 'b')");
+        database.jdbcTemplate.update("INSERT INTO transcript_blocks (episode_id, podcast_id) VALUES (1, 1), (2, 2)");
+
+        service.prepareTables();
+
+        assertThat(partitions("embedding_chunks")).containsExactly("embedding_chunks_p1", "embedding_chunks_p2");
+        assertThat(partitions("transcript_blocks")).containsExactly("transcript_blocks_p1", "transcript_blocks_p2");
+        assertThat(rowsIn("embedding_chunks_p2")).isEqualTo(1);
+        assertThat(rowsIn("transcript_blocks_p1")).isEqualTo(1);
+        // Ids continue after the moved rows
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id, text) VALUES (2, 2, 'c')");
+        assertThat(database.jdbcTemplate.queryForObject("SELECT MAX(id) FROM embedding_chunks", Long.class))
+                .isEqualTo(3);
+    }
+
+    @Test
+    void prepareTablesMovesRowsOutOfADefaultPartitionOnEveryStart() {
+        service.prepareTables();
+        // As left by earlier versions: a default partition holding the rows of a podcast without partitions
+        addPodcast(3);
+        for (String table : PodcastPartitionService.TABLES.keySet()) {
+            database.jdbcTemplate.execute("CREATE TABLE " + table + "_default PARTITION OF " + table + " DEFAULT");
+        }
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id, text) VALUES " +
+                "(3, 3, 'a'), (3, 3, 'b'), (1, 1, 'c')");
+        database.jdbcTemplate.update("INSERT INTO transcript_blocks (episode_id, podcast_id) VALUES (3, 3)");
+
+        service.prepareTables();
+        service.prepareTables();
+
+        assertThat(partitions("embedding_chunks"))
+                .containsExactly("embedding_chunks_p1", "embedding_chunks_p2", "embedding_chunks_p3");
+        assertThat(partitions("transcript_blocks"))
+                .containsExactly("transcript_blocks_p1", "transcript_blocks_p2", "transcript_blocks_p3");
+        assertThat(rowsIn("embedding_chunks_p3")).isEqualTo(2);
+        assertThat(rowsIn("embedding_chunks_p1")).isEqualTo(1);
+        assertThat(rowsIn("transcript_blocks_p3")).isEqualTo(1);
+    }
+
+    @Test
+    void partitionsOfANewPodcastAreAttachedOnceItIsCommitted() {
+        service.prepareTables();
+
+        database.transactionTemplate.executeWithoutResult(status -> {
+            addPodcast(3);
+            service.createPartitions(3L);
+            assertThat(partitions("embedding_chunks")).doesNotContain("embedding_chunks_p3");
+        });
+
+        assertThat(partitions("embedding_chunks")).contains("embedding_chunks_p3");
+        assertThat(partitions("transcript_blocks")).contains("transcript_blocks_p3");
+        database.jdbcTemplate.update("INSERT INTO transcript_blocks (episode_id, podcast_id) VALUES (3, 3)");
+        assertThat(rowsIn("transcript_blocks_p3")).isEqualTo(1);
+    }
+
+    @Test
+    void partitionsThatCannotBeLockedInTimeAreAttachedLater() throws Exception {
+        service.prepareTables();
+        addPodcast(3);
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() ->
+                database.transactionTemplate.executeWithoutResult(status -> {
+                    database.jdbcTemplate.execute("LOCK TABLE embedding_chunks IN SHARE UPDATE EXCLUSIVE MODE");
+                    locked.countDown();
+                    awaitQuietly(release);
+                }));
+        assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+        try {
+            service.createPartitions(3L);
+            assertThat(partitions("embedding_chunks")).doesNotContain("embedding_chunks_p3");
+        } finally {
+            release.countDown();
+            blocker.get(10, TimeUnit.SECONDS);
+        }
+
+        service.createPartitions(3L);
+        assertThat(partitions("embedding_chunks")).contains("embedding_chunks_p3");
+    }
+
+    @Test
+    void detachedPartitionsKeepTheirRowsUntilDropped() {
+        service.prepareTables();
+        database.jdbcTemplate.update("INSERT INTO embedding_chunks (episode_id, podcast_id, text) VALUES " +
+                "(1, 1, 'a'), (2, 2, 'b')");
+
+        service.detachPartitions(1L);
+        assertThat(partitions("embedding_chunks")).containsExactly("embedding_chunks_p2");
+        assertThat(partitions("transcript_blocks")).containsExactly("transcript_blocks_p2");
+        assertThat(rowsIn("embedding_chunks")).isEqualTo(1);
+        assertThat(rowsIn("embedding_chunks_p1")).isEqualTo(1);
+
+        // As after a delete that failed once the partitions were detached
+        service.createPartitions(1L);
+        assertThat(rowsIn("embedding_chunks")).isEqualTo(2);
+
+        service.detachPartitions(1L);
+        service.dropDetachedPartitions(1L);
+        service.dropDetachedPartitions(2L);
+        assertThat(tableExists("embedding_chunks_p1")).isFalse();
+        assertThat(tableExists("transcript_blocks_p1")).isFalse();
+        // Still attached, so left to the row deletes
+        assertThat(rowsIn("embedding_chunks_p2")).isEqualTo(1);
+    }
+
+    private void addPodcast(long id) {
+        database.jdbcTemplate.update("INSERT INTO podcasts (id) VALUES (?)", id);
+        database.jdbcTemplate.update("INSERT INTO episodes (id, podcast_id) VALUES (?, ?)", id, id);
+    }
+
+    private List<String> partitions(String table) {
+        return database.jdbcTemplate.queryForList("SELECT inhrelid::regclass::text FROM pg_inherits " +
+                "WHERE inhparent = to_regclass(?) ORDER BY 1", String.class, table);
+    }
+
+    private long rowsIn(String table) {
+        return database.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private boolean tableExists(String table) {
+        return Boolean.TRUE.equals(database.jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
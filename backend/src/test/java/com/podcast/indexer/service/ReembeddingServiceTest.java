@@ -0,0 +1,114 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.model.EmbeddingModelStatus;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EmbeddingChunkRepositoryCustom.PendingChunk;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.Mockito.*;
+
+class ReembeddingServiceTest {
+
+    private final EmbeddingModel active = EmbeddingModel.builder()
+            .id(1L).name("nomic-embed-text").dimensions(768).status(EmbeddingModelStatus.ACTIVE).build();
+    private final EmbeddingModel migrating = EmbeddingModel.builder()
+            .id(2L).name("mxbai-embed-large").dimensions(1024).status(EmbeddingModelStatus.MIGRATING)
+            .reembeddedPodcastId(3L).reembeddedChunkId(40L).build();
+
+    private EmbeddingModelService embeddingModelService;
+    private EmbeddingChunkRepository embeddingChunkRepository;
+    private EmbeddingCacheService embeddingCacheService;
+    private LeaderElectionService leaderElectionService;
+    private PodcastConfig config;
+    private ReembeddingService service;
+
+    @BeforeEach
+    void setUp() {
+        embeddingModelService = mock(EmbeddingModelService.class);
+        embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
+        embeddingCacheService = mock(EmbeddingCacheService.class);
+        leaderElectionService = mock(LeaderElectionService.class);
+        when(leaderElectionService.acquire(ReembeddingService.LEADER_TASK)).thenReturn(OptionalLong.of(1));
+        when(leaderElectionService.renew(ReembeddingService.LEADER_TASK, 1)).thenReturn(true);
+        when(leaderElectionService.fenced(eq(ReembeddingService.LEADER_TASK), eq(1L), any())).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(2).run();
+            return true;
+        });
+        when(embeddingModelService.findActiveModel()).thenReturn(Optional.of(active));
+        config = new PodcastConfig();
+        service = new ReembeddingService(embeddingModelService, embeddingChunkRepository, embeddingCacheService,
+                leaderElectionService, config);
+    }
+
+    @Test
+    void doesNothingWhileConfiguredModelIsActive() {
+        service.reembedBatch();
+
+        verifyNoInteractions(leaderElectionService, embeddingChunkRepository);
+    }
+
+    @Test
+    void resumesAfterLastReembeddedChunk() {
+        config.getEmbedding().setModel("mxbai-embed-large");
+        when(embeddingModelService.migratingModel()).thenReturn(Optional.of(migrating));
+        List<PendingChunk> batch = List.of(new PendingChunk(3L, 41L, "hello"), new PendingChunk(4L, 7L, "world"));
+        when(embeddingChunkRepository.findChunksToReembed(3L, 40L, 32)).thenReturn(batch);
+        when(embeddingCacheService.getEmbeddings("mxbai-embed-large", List.of("hello", "world")))
+                .thenReturn(List.of("[0.1]", "[0.1]"));
+
+        service.reembedBatch();
+
+        verify(embeddingChunkRepository).updateNextEmbeddings(batch, List.of("[0.1]", "[0.1]"), 2L);
+        verify(embeddingModelService).saveProgress(migrating, 4L, 7L);
+        verify(embeddingModelService, never()).completeMigration(any(), any());
+    }
+
+    @Test
+    void switchesOnceNoChunkIsLeft() {
+        config.getEmbedding().setModel("mxbai-embed-large");
+        when(embeddingModelService.migratingModel()).thenReturn(Optional.of(migrating));
+        when(embeddingChunkRepository.findChunksToReembed(anyLong(), anyLong(), anyInt())).thenReturn(List.of());
+
+        service.reembedBatch();
+
+        ArgumentCaptor<BooleanSupplier> fence = ArgumentCaptor.forClass(BooleanSupplier.class);
+        verify(embeddingModelService).completeMigration(eq(migrating), fence.capture());
+        // Checked in the transaction that swaps the columns
+        fence.getValue().getAsBoolean();
+        verify(leaderElectionService).holdsFence(ReembeddingService.LEADER_TASK, 1);
+    }
+
+    @Test
+    void fencedOffLeaderKeepsTheProgress() {
+        config.getEmbedding().setModel("mxbai-embed-large");
+        when(embeddingModelService.migratingModel()).thenReturn(Optional.of(migrating));
+        List<PendingChunk> batch = List.of(new PendingChunk(3L, 41L, "hello"));
+        when(embeddingChunkRepository.findChunksToReembed(3L, 40L, 32)).thenReturn(batch);
+        when(embeddingCacheService.getEmbeddings("mxbai-embed-large", List.of("hello"))).thenReturn(List.of("[0.1]"));
+        when(leaderElectionService.fenced(eq(ReembeddingService.LEADER_TASK), eq(1L), any())).thenReturn(false);
+
+        service.reembedBatch();
+
+        verify(embeddingChunkRepository, never()).updateNextEmbeddings(any(), any(), any());
+        verify(embeddingModelService, never()).saveProgress(any(), anyLong(), anyLong());
+    }
+
+    @Test
+    void abandonsMigrationWhenConfigurationIsChangedBack() {
+        when(embeddingModelService.migratingModel()).thenReturn(Optional.of(migrating));
+
+        service.reembedBatch();
+
+        verify(embeddingModelService).abandonMigration(migrating);
+        verifyNoInteractions(embeddingChunkRepository);
+    }
+}
@@ -0,0 +1,141 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.PodcastRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RssFeedServiceTest {
+
+    private static final String FEED_URL = "https://example.com/feed.xml";
+
+    private Podcast podcast;
+    private PodcastRepository podcastRepository;
+    private EpisodeRepository episodeRepository;
+    private FeedFetcher feedFetcher;
+    private FeedPollingService feedPollingService;
+    private FeedItemParser feedItemParser;
+    private JobQueueService jobQueueService;
+    private RssFeedService service;
+
+    @BeforeEach
+    void setUp() {
+        podcast = Podcast.builder()
+                .id(3L)
+                .feedUrl(FEED_URL)
+                .feedEtag("\"v1\"")
+                .feedBodyHash("hash-1")
+                .build();
+        podcastRepository = mock(PodcastRepository.class);
+        when(podcastRepository.findById(3L)).thenReturn(Optional.of(podcast));
+        episodeRepository = mock(EpisodeRepository.class);
+        feedFetcher = mock(FeedFetcher.class);
+        feedPollingService = mock(FeedPollingService.class);
+        feedItemParser = mock(FeedItemParser.class);
+        jobQueueService = mock(JobQueueService.class);
+        service = new RssFeedService(podcastRepository, episodeRepository, jobQueueService, feedFetcher,
+                feedPollingService, feedItemParser, new PodcastConfig(), mock(EpisodeEventPublisher.class),
+                mock(PodcastPartitionService.class));
+    }
+
+    @Test
+    void notModifiedFeedIsNotParsed() throws IOException {
+        when(feedFetcher.fetch(FEED_URL, "\"v1\"", null))
+                .thenReturn(new FeedFetcher.FeedResponse(true, null, null, null, "\"v1\"", null));
+
+        service.syncEpisodes(3L);
+
+        verifyNoInteractions(feedItemParser, episodeRepository);
+        verify(feedPollingService).scheduleNextSync(podcast);
+        verify(podcastRepository).save(podcast);
+        assertThat(podcast.getLastSyncedAt()).isNotNull();
+    }
+
+    @Test
+    void unchangedBodyIsNotParsedButValidatorsAreKept() throws IOException {
+        when(feedFetcher.fetch(FEED_URL, "\"v1\"", null))
+                .thenReturn(new FeedFetcher.FeedResponse(false, new byte[0], "hash-1", null, "\"v2\"", "Tue, 01 Oct 2024"));
+
+        service.syncEpisodes(3L);
+
+        verifyNoInteractions(feedItemParser, episodeRepository);
+        assertThat(podcast.getFeedEtag()).isEqualTo("\"v2\"");
+        assertThat(podcast.getFeedLastModified()).isEqualTo("Tue, 01 Oct 2024");
+    }
+
+    @Test
+    void changedBodyIsParsedAndItsHashStored() throws IOException {
+        FeedFetcher.FeedResponse response = new FeedFetcher.FeedResponse(false, new byte[0], "hash-2", null, "\"v2\"", null);
+        when(feedFetcher.fetch(FEED_URL, "\"v1\"", null)).thenReturn(response);
+        when(feedItemParser.parse(response, null, null)).thenReturn(List.of());
+
+        service.syncEpisodes(3L);
+
+        verify(feedItemParser).parse(response, null, null);
+        assertThat(podcast.getFeedBodyHash()).isEqualTo("hash-2");
+        assertThat(podcast.getFeedEtag()).isEqualTo("\"v2\"");
+        verify(podcastRepository).save(podcast);
+    }
+
+    @Test
+    void newEntriesAreFoundWithOneLookupPerKeyType() throws IOException {
+        feedItems(
+                item("known-guid", "Known", "https://cdn.example.com/1.mp3"),
+                item("new-guid", "New", "https://cdn.example.com/2.mp3"),
+                item("new-guid", "New, listed twice", "https://cdn.example.com/2.mp3"),
+                item(null, "Known without guid", "https://cdn.example.com/3.mp3"),
+                item(null, "New without guid", "https://cdn.example.com/4.mp3"),
+                item("no-audio", "Trailer", null));
+        when(episodeRepository.findExistingGuids(Set.of("known-guid", "new-guid"))).thenReturn(Set.of("known-guid"));
+        when(episodeRepository.findExistingContentHashes(anyCollection())).thenAnswer(inv ->
+                Set.of(inv.<Collection<String>>getArgument(0).iterator().next()));
+        when(episodeRepository.insertIgnoringDuplicates(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.syncEpisodes(3L);
+
+        verify(episodeRepository, times(1)).findExistingGuids(anyCollection());
+        verify(episodeRepository, times(1)).findExistingContentHashes(anyCollection());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Episode>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(episodeRepository).insertIgnoringDuplicates(inserted.capture());
+        assertThat(inserted.getValue()).extracting(Episode::getTitle).containsExactly("New", "New without guid");
+        assertThat(inserted.getValue().get(1).getContentHash()).isNotNull();
+        verify(jobQueueService).queueDownloadAudioJobs(inserted.getValue());
+        verifyNoMoreInteractions(episodeRepository);
+    }
+
+    @Test
+    void feedWithOnlyKnownEntriesInsertsNothing() throws IOException {
+        feedItems(item("known-guid", "Known", "https://cdn.example.com/1.mp3"));
+        when(episodeRepository.findExistingGuids(Set.of("known-guid"))).thenReturn(Set.of("known-guid"));
+
+        service.syncEpisodes(3L);
+
+        verify(episodeRepository, never()).insertIgnoringDuplicates(any());
+        verifyNoInteractions(jobQueueService);
+        assertThat(podcast.getLastSeenGuid()).isEqualTo("known-guid");
+    }
+
+    private void feedItems(FeedItemParser.FeedItem... items) throws IOException {
+        FeedFetcher.FeedResponse response = new FeedFetcher.FeedResponse(false, new byte[0], "hash-2", null, null, null);
+        when(feedFetcher.fetch(FEED_URL, "\"v1\"", null)).thenReturn(response);
+        when(feedItemParser.parse(response, null, null)).thenReturn(List.of(items));
+    }
+
+    private static FeedItemParser.FeedItem item(String guid, String title, String audioUrl) {
+        return FeedItemParser.FeedItem.builder().guid(guid).title(title).audioUrl(audioUrl).build();
+    }
+}
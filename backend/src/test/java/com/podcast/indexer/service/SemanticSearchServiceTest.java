@@ -0,0 +1,77 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.repository.ChunkFilter;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SemanticSearchServiceTest {
+
+    private final EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
+    private final EpisodeEmbeddingRepository episodeEmbeddingRepository = mock(EpisodeEmbeddingRepository.class);
+    private final PodcastConfig config = new PodcastConfig();
+    private final SemanticSearchService service = new SemanticSearchService(
+            mock(EmbeddingProviders.class), embeddingChunkRepository, episodeEmbeddingRepository,
+            mock(EmbeddingModelService.class), config);
+
+    @Test
+    void selectiveFilterIsRankedExactly() {
+        ChunkFilter filter = ChunkFilter.builder().episodeIds(List.of(7L)).build();
+        when(embeddingChunkRepository.countChunks(eq(filter), anyLong())).thenReturn(120L);
+
+        service.findNearest(filter, "[0.1]", 5);
+
+        verify(embeddingChunkRepository).findNearestExact(filter, "[0.1]", 5);
+        verify(embeddingChunkRepository, never()).findNearestApproximate(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void broadFilterRanksChunksOfNearestEpisodes() {
+        config.getVector().getSearch().setExactScanThreshold(1000);
+        ChunkFilter filter = ChunkFilter.builder().podcastIds(List.of(1L)).publishedFrom(LocalDate.of(2024, 1, 1)).build();
+        when(embeddingChunkRepository.countChunks(filter, 1001L)).thenReturn(1001L);
+        when(episodeEmbeddingRepository.findNearestEpisodes(eq(filter), eq("[0.1]"), eq(20), anyInt()))
+                .thenReturn(List.of(4L, 9L));
+
+        service.findNearest(filter, "[0.1]", 5);
+
+        verify(embeddingChunkRepository).findNearestExact(
+                ChunkFilter.builder().podcastIds(List.of(1L)).episodeIds(List.of(4L, 9L)).build(), "[0.1]", 5);
+        verify(embeddingChunkRepository, never()).findNearestApproximate(any(), any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void broadFilterWalksTheIndexWithoutHierarchy() {
+        config.getVector().getSearch().setHierarchical(false);
+        config.getVector().getSearch().setExactScanThreshold(1000);
+        ChunkFilter filter = ChunkFilter.builder().publishedFrom(LocalDate.of(2024, 1, 1)).build();
+        when(embeddingChunkRepository.countChunks(filter, 1001L)).thenReturn(1001L);
+
+        service.findNearest(filter, "[0.1]", 5);
+
+        verify(embeddingChunkRepository).findNearestApproximate(filter, "[0.1]", 5,
+                config.getVector().getSearch().getEfSearch());
+        verify(embeddingChunkRepository, never()).findNearestExact(any(), any(), anyInt());
+    }
+
+    @Test
+    void unfilteredSearchSkipsCounting() {
+        config.getVector().getSearch().setHierarchical(false);
+        ChunkFilter filter = ChunkFilter.builder().build();
+
+        service.findNearest(filter, "[0.1]", 5);
+
+        verify(embeddingChunkRepository, never()).countChunks(any(), anyLong());
+        verify(embeddingChunkRepository).findNearestApproximate(eq(filter), eq("[0.1]"), eq(5), anyInt());
+    }
+}
@@ -0,0 +1,82 @@
+package com.podcast.indexer.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A throwaway schema for tests of SQL that mocks cannot check, such as triggers and
+ * partitioning. Uses the database at {@code -Dtest.postgres.url} when given, otherwise
+ * a PostgreSQL container with pgvector; tests are skipped when neither is available.
+ */
+final class TestDatabase implements AutoCloseable {
+
+    private static final String URL_PROPERTY = "test.postgres.url";
+    private static PostgreSQLContainer<?> container;
+
+    final JdbcTemplate jdbcTemplate;
+    final TransactionTemplate transactionTemplate;
+    private final String schema;
+    private final JdbcTemplate admin;
+
+    private TestDatabase(DriverManagerDataSource adminDataSource, String url, Properties properties) {
+        this.schema = "test_" + UUID.randomUUID().toString().replace("-", "");
+        this.admin = new JdbcTemplate(adminDataSource);
+        admin.execute("CREATE SCHEMA " + schema);
+        Properties schemaProperties = new Properties();
+        schemaProperties.putAll(properties);
+        // Extensions such as vector live in public
+        schemaProperties.setProperty("currentSchema", schema + ",public");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, schemaProperties);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    static TestDatabase create() {
+        String url = System.getProperty(URL_PROPERTY);
+        Properties properties = new Properties();
+        if (url == null) {
+            assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                    "Neither Docker nor -D" + URL_PROPERTY + " is available");
+            url = container().getJdbcUrl();
+            properties.setProperty("user", container().getUsername());
+            properties.setProperty("password", container().getPassword());
+        }
+        return new TestDatabase(new DriverManagerDataSource(url, properties), url, properties);
+    }
+
+    /**
+     * Whether the pgvector extension can be used, creating it if needed.
+     */
+    boolean hasVector() {
+        try {
+            admin.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        admin.execute("DROP SCHEMA " + schema + " CASCADE");
+    }
+
+    private static synchronized PostgreSQLContainer<?> container() {
+        if (container == null) {
+            container = new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16")
+                    .asCompatibleSubstituteFor("postgres"));
+            container.start();
+        }
+        return container;
+    }
+}
@@ -0,0 +1,101 @@
+package com.podcast.indexer.service;
+
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.TranscriptSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenWindowChunkerTest {
+
+    private final PodcastConfig config = new PodcastConfig();
+
+    private TokenWindowChunker chunker(int target, int overlap, int max) {
+        PodcastConfig.Indexing.Chunking chunking = config.getIndexing().getChunking();
+        chunking.setTargetTokens(target);
+        chunking.setOverlapTokens(overlap);
+        chunking.setMaxTokens(max);
+        return new TokenWindowChunker(config);
+    }
+
+    @Test
+    void packsSegmentsToTargetAndOverlapsTail() {
+        // Five words each, no sentence ends
+        List<TranscriptSegment> segments = segments(10, "one two three four five");
+
+        Chunker.Result result = chunker(20, 5, 100).chunk(segments, true);
+
+        assertEquals(10, result.consumed());
+        assertEquals(3, result.chunks().size());
+        assertEquals(0, result.chunks().get(0).startMs());
+        assertEquals(4000, result.chunks().get(0).endMs());
+        // The next chunk starts with the last segment of the previous one
+        assertEquals(3000, result.chunks().get(1).startMs());
+        assertEquals(10000, result.chunks().get(2).endMs());
+        result.chunks().forEach(c -> assertTrue(TokenWindowChunker.estimateTokens(c.text()) <= 20));
+    }
+
+    @Test
+    void holdsBackPartialChunkUntilEndOfTranscript() {
+        List<TranscriptSegment> segments = segments(6, "one two three four five");
+        TokenWindowChunker chunker = chunker(20, 5, 100);
+
+        Chunker.Result partial = chunker.chunk(segments, false);
+
+        assertEquals(1, partial.chunks().size());
+        // The overlapping segment stays for the next call
+        assertEquals(3, partial.consumed());
+        assertEquals(1, chunker.chunk(segments.subList(3, 6), true).chunks().size());
+    }
+
+    @Test
+    void snapsToSentenceEnd() {
+        List<TranscriptSegment> segments = segments(6, "one two three four five");
+        segments.set(2, segment(2, "one two three four end."));
+
+        Chunker.Result result = chunker(20, 0, 100).chunk(segments, true);
+
+        assertTrue(result.chunks().get(0).text().endsWith("end."));
+        assertEquals(3000, result.chunks().get(0).endMs());
+    }
+
+    @Test
+    void splitsSegmentLongerThanWindow() {
+        String words = String.join(" ", Collections.nCopies(50, "word"));
+        List<TranscriptSegment> segments = List.of(TranscriptSegment.builder()
+                .startMs(0L).endMs(50000L).text(words).build());
+
+        List<Chunker.Chunk> chunks = chunker(20, 0, 40).chunk(segments, true).chunks();
+
+        assertEquals(3, chunks.size());
+        assertEquals(20000, chunks.get(0).endMs());
+        assertEquals(50000, chunks.get(2).endMs());
+        chunks.forEach(c -> assertTrue(TokenWindowChunker.estimateTokens(c.text()) <= 40));
+    }
+
+    @Test
+    void rejectsTargetBeyondWindow() {
+        assertThrows(IllegalStateException.class, () -> chunker(512, 32, 256));
+    }
+
+    private static List<TranscriptSegment> segments(int count, String text) {
+        List<TranscriptSegment> segments = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            segments.add(segment(i, text));
+        }
+        return segments;
+    }
+
+    private static TranscriptSegment segment(int index, String text) {
+        return TranscriptSegment.builder()
+                .segmentIndex(index)
+                .startMs(index * 1000L)
+                .endMs((index + 1) * 1000L)
+                .text(text)
+                .build();
+    }
+}
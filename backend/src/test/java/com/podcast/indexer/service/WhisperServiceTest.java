@@ -0,0 +1,263 @@
+package com.podcast.indexer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.podcast.indexer.config.PodcastConfig;
+import com.podcast.indexer.model.EmbeddingChunk;
+import com.podcast.indexer.model.EmbeddingModel;
+import com.podcast.indexer.model.Episode;
+import com.podcast.indexer.model.Podcast;
+import com.podcast.indexer.model.ProcessingStatus;
+import com.podcast.indexer.model.TranscriptBlock;
+import com.podcast.indexer.model.TranscriptSegment;
+import com.podcast.indexer.repository.EmbeddingChunkRepository;
+import com.podcast.indexer.repository.EpisodeEmbeddingRepository;
+import com.podcast.indexer.repository.EpisodeRepository;
+import com.podcast.indexer.repository.TranscriptBlockRepository;
+import com.podcast.indexer.util.MultipartFileUploader;
+import com.podcast.indexer.util.TranscriptBlockCodec;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WhisperServiceTest {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final List<TranscriptBlock> blocks = new ArrayList<>();
+    private final List<EmbeddingChunk> chunks = new ArrayList<>();
+
+    private Episode episode;
+    private MultipartFileUploader uploader;
+    private TranscriptBlockRepository transcriptBlockRepository;
+    private JobQueueService jobQueueService;
+    private IndexingService indexingService;
+    private JobClaimService jobClaimService;
+    private JobClaimService.Claim claim;
+    private WhisperService service;
+
+    @BeforeEach
+    void setUp() {
+        episode = Episode.builder()
+                .id(7L)
+                .podcast(Podcast.builder().id(3L).build())
+                .audioPartCount(2)
+                .status(ProcessingStatus.DOWNLOADED)
+                .build();
+        EpisodeRepository episodeRepository = mock(EpisodeRepository.class);
+        when(episodeRepository.findById(7L)).thenReturn(Optional.of(episode));
+        when(episodeRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        transcriptBlockRepository = mock(TranscriptBlockRepository.class);
+        when(transcriptBlockRepository.save(any())).thenAnswer(inv -> {
+            blocks.add(inv.getArgument(0));
+            return inv.getArgument(0);
+        });
+        when(transcriptBlockRepository.existsByPodcastIdAndEpisodeId(3L, 7L)).thenAnswer(inv -> !blocks.isEmpty());
+        when(transcriptBlockRepository.existsByPodcastIdAndEpisodeIdAndPartIndex(eq(3L), eq(7L), anyInt()))
+                .thenAnswer(inv -> blocks.stream().anyMatch(block -> block.getPartIndex().equals(inv.getArgument(2))));
+        when(transcriptBlockRepository.existsByPodcastIdAndEpisodeIdAndPartIndexAndLastBlockTrue(eq(3L), eq(7L), anyInt()))
+                .thenAnswer(inv -> blocks.stream().anyMatch(block ->
+                        block.getPartIndex().equals(inv.getArgument(2)) && block.getLastBlock()));
+        when(transcriptBlockRepository.countTranscribedParts(3L, 7L)).thenAnswer(inv ->
+                (int) blocks.stream().filter(TranscriptBlock::getLastBlock).count());
+        when(transcriptBlockRepository.markLastBlock(eq(3L), eq(7L), anyInt(), anyInt())).thenAnswer(inv -> {
+            blocks.stream()
+                    .filter(block -> block.getPartIndex().equals(inv.getArgument(2))
+                            && block.getBlockIndex().equals(inv.getArgument(3)))
+                    .forEach(block -> block.setLastBlock(true));
+            return 1;
+        });
+        when(transcriptBlockRepository.deleteByEpisodeIdAndPartIndex(eq(3L), eq(7L), anyInt())).thenAnswer(inv -> {
+            blocks.removeIf(block -> block.getPartIndex().equals(inv.getArgument(2)));
+            return 0;
+        });
+        doAnswer(inv -> {
+            forEachStoredSegment(inv.getArgument(2), inv.getArgument(3));
+            return null;
+        }).when(transcriptBlockRepository).forEachSegment(eq(3L), eq(7L), anyLong(), any());
+
+        EmbeddingChunkRepository embeddingChunkRepository = mock(EmbeddingChunkRepository.class);
+        when(embeddingChunkRepository.insertAll(any())).thenAnswer(inv -> {
+            chunks.addAll(inv.getArgument(0));
+            return true;
+        });
+        when(embeddingChunkRepository.deleteByEpisodeIdAndEndMsGreaterThan(eq(3L), eq(7L), anyLong())).thenAnswer(inv -> {
+            chunks.removeIf(chunk -> chunk.getEndMs() > inv.<Long>getArgument(2));
+            return 0;
+        });
+        when(embeddingChunkRepository.findTopByPodcastIdAndEpisodeIdOrderByChunkIndexDesc(3L, 7L))
+                .thenAnswer(inv -> chunks.stream().max(Comparator.comparing(EmbeddingChunk::getChunkIndex)));
+        when(embeddingChunkRepository.findTopByPodcastIdAndEpisodeIdOrderByEndMsDesc(3L, 7L))
+                .thenAnswer(inv -> chunks.stream().max(Comparator.comparing(EmbeddingChunk::getEndMs)));
+
+        EmbeddingCacheService embeddingCacheService = mock(EmbeddingCacheService.class);
+        when(embeddingCacheService.getEmbeddings(any(), any()))
+                .thenAnswer(inv -> Collections.nCopies(inv.<List<?>>getArgument(1).size(), "[1.0]"));
+        EmbeddingModelService embeddingModelService = mock(EmbeddingModelService.class);
+        when(embeddingModelService.activeModel()).thenReturn(EmbeddingModel.builder().id(1L).name("nomic-embed-text").build());
+
+        PodcastConfig config = new PodcastConfig();
+        config.getIndexing().getChunking().setTargetTokens(40);
+        config.getIndexing().getChunking().setOverlapTokens(8);
+        EpisodeEventPublisher episodeEventPublisher = mock(EpisodeEventPublisher.class);
+        jobQueueService = mock(JobQueueService.class);
+        indexingService = new IndexingService(episodeRepository, transcriptBlockRepository, embeddingChunkRepository,
+                mock(EpisodeEmbeddingRepository.class), embeddingCacheService, mock(BoilerplateDetector.class),
+                episodeEventPublisher, new TokenWindowChunker(config), embeddingModelService);
+        uploader = mock(MultipartFileUploader.class);
+        jobClaimService = mock(JobClaimService.class);
+        claim = mock(JobClaimService.Claim.class);
+        when(jobClaimService.claimTranscription(eq(7L), anyInt(), any())).thenReturn(Optional.of(claim));
+        service = new WhisperService(uploader, new ObjectMapper(), episodeRepository, transcriptBlockRepository,
+                embeddingChunkRepository, indexingService, jobQueueService, mock(AudioService.class),
+                episodeEventPublisher, mock(PodcastPartitionService.class), jobClaimService);
+    }
+
+    @Test
+    void everySegmentOfEveryPartEndsUpInAChunk() throws IOException {
+        respondWith(0, 230);
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+        when(transcriptBlockRepository.findMaxEndMsBeforePart(3L, 7L, 1)).thenReturn(230_000L);
+        respondWith(230, 150);
+        service.transcribe(7L, 1, "/tmp/episode_7_part1.mp3");
+        verify(jobQueueService).queueIndexEpisodeJob(7L);
+        indexingService.indexEpisode(7L);
+
+        assertEquals(ProcessingStatus.INDEXED, episode.getStatus());
+        for (int i = 0; i < 380; i++) {
+            String text = segmentText(i);
+            assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains(text)), text + " was not indexed");
+        }
+    }
+
+    @Test
+    void unfinishedPartIsDiscardedAndTranscribedAgain() throws IOException {
+        // A worker died partway through both parts, after storing and indexing their first block
+        episode.setStatus(ProcessingStatus.TRANSCRIBING);
+        storeUnfinishedBlock(0, 0);
+        storeUnfinishedBlock(1, 500);
+        chunks.add(EmbeddingChunk.builder().chunkIndex(0).startMs(0L).endMs(40_000L).text("stale").build());
+
+        respondWith(0, 230);
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+
+        verify(transcriptBlockRepository).deleteByEpisodeIdAndPartIndex(3L, 7L, 0);
+        List<TranscriptBlock> part0 = blocks.stream().filter(block -> block.getPartIndex() == 0).toList();
+        assertEquals(List.of(100, 100, 30), part0.stream().map(TranscriptBlock::getSegmentCount).toList());
+        assertEquals(List.of(false, false, true), part0.stream().map(TranscriptBlock::getLastBlock).toList());
+        assertTrue(chunks.stream().noneMatch(chunk -> chunk.getText().equals("stale")));
+        assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains(segmentText(229))));
+        // The blocks left of part 1 do not make it count as transcribed
+        assertEquals(ProcessingStatus.DOWNLOADED, episode.getStatus());
+        verify(jobQueueService, never()).queueIndexEpisodeJob(any());
+    }
+
+    @Test
+    void finishedPartIsNotTranscribedAgain() throws IOException {
+        respondWith(0, 30);
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+
+        verify(uploader, times(1)).upload(any(), any(), any(), any(), any());
+        verify(transcriptBlockRepository, never()).deleteByEpisodeIdAndPartIndex(any(), any(), any());
+        assertEquals(1, blocks.size());
+        assertTrue(blocks.get(0).getLastBlock());
+    }
+
+    @Test
+    void partClaimedByAnotherWorkerIsLeftToIt() throws IOException {
+        episode.setStatus(ProcessingStatus.TRANSCRIBING);
+        storeUnfinishedBlock(0, 0);
+        when(jobClaimService.claimTranscription(eq(7L), eq(0), any())).thenReturn(Optional.empty());
+
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+
+        verify(uploader, never()).upload(any(), any(), any(), any(), any());
+        verify(transcriptBlockRepository, never()).deleteByEpisodeIdAndPartIndex(any(), any(), any());
+        assertEquals(1, blocks.size());
+        assertEquals(ProcessingStatus.TRANSCRIBING, episode.getStatus());
+    }
+
+    @Test
+    void lostClaimStopsWithoutDiscardingThePart() throws IOException {
+        respondWith(0, 230);
+        // Expires after the first block, when another worker may already have taken the part over
+        doNothing().doThrow(new JobClaimService.ClaimLostException("Lost claim")).when(claim).ensureHeld();
+
+        service.transcribe(7L, 0, "/tmp/episode_7_part0.mp3");
+
+        assertEquals(1, blocks.size());
+        assertFalse(blocks.get(0).getLastBlock());
+        verify(transcriptBlockRepository, never()).deleteByEpisodeIdAndPartIndex(any(), any(), any());
+        assertEquals(ProcessingStatus.TRANSCRIBING, episode.getStatus());
+        verify(claim).close();
+    }
+
+    private void storeUnfinishedBlock(int partIndex, int first) {
+        List<TranscriptSegment> segments = new ArrayList<>();
+        for (int i = 0; i < TranscriptBlock.MAX_SEGMENTS; i++) {
+            segments.add(TranscriptSegment.builder()
+                    .partIndex(partIndex)
+                    .segmentIndex(i)
+                    .startMs((first + i) * 1000L)
+                    .endMs((first + i + 1) * 1000L)
+                    .text("stale")
+                    .build());
+        }
+        blocks.add(TranscriptBlock.builder()
+                .episode(episode)
+                .podcastId(3L)
+                .partIndex(partIndex)
+                .blockIndex(0)
+                .firstSegmentIndex(0)
+                .segmentCount(segments.size())
+                .startMs(segments.get(0).getStartMs())
+                .endMs(segments.get(segments.size() - 1).getEndMs())
+                .data(TranscriptBlockCodec.encode(segments))
+                .build());
+    }
+
+    /**
+     * Answers the next upload with {@code count} one-second segments, timed from the
+     * start of the part.
+     */
+    private void respondWith(int first, int count) throws IOException {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            body.append("{\"id\":").append(i)
+                    .append(",\"start\":").append(i)
+                    .append(",\"end\":").append(i + 1)
+                    .append(",\"text\":\"").append(segmentText(first + i)).append("\"}\n");
+        }
+        when(uploader.upload(eq("/transcribe"), eq("file"), any(), eq(NDJSON), any())).thenAnswer(inv ->
+                inv.<MultipartFileUploader.ResponseHandler<?>>getArgument(4).handle(
+                        new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), NDJSON));
+    }
+
+    private void forEachStoredSegment(long fromStartMs, Consumer<TranscriptSegment> consumer) {
+        blocks.stream()
+                .sorted(Comparator.comparing(TranscriptBlock::getPartIndex).thenComparing(TranscriptBlock::getBlockIndex))
+                .forEach(block -> TranscriptBlockCodec.decode(block.getData(), block.getPartIndex(),
+                        block.getFirstSegmentIndex(), segment -> {
+                            if (segment.getStartMs() >= fromStartMs) {
+                                consumer.accept(segment);
+                            }
+                        }));
+    }
+
+    private static String segmentText(int index) {
+        return "Point " + index + " made.";
+    }
+}
@@ -0,0 +1,24 @@
+package com.podcast.indexer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsPositionWithSubSecondPrecision() {
+        KeysetCursor cursor = new KeysetCursor(LocalDateTime.of(2024, 3, 1, 6, 30, 15, 123456000), 42);
+
+        assertThat(KeysetCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsForeignCursors() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
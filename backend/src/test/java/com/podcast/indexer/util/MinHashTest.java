@@ -0,0 +1,45 @@
+package com.podcast.indexer.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHashTest {
+
+    private static final String AD_READ = "This episode is brought to you by Acme Mattresses. Go to acme dot com " +
+            "slash podcast and use the code SLEEP for twenty percent off your first order. That's acme dot com " +
+            "slash podcast, code SLEEP.";
+
+    @Test
+    void nearDuplicateTextsShareABand() {
+        String variant = "  this episode is brought to you by ACME mattresses -- go to acme dot com slash podcast " +
+                "and use code SLEEP for twenty percent off your first order. That's acme dot com slash podcast, code SLEEP!";
+
+        assertThat(sharedBands(AD_READ, variant)).isGreaterThan(0);
+    }
+
+    @Test
+    void unrelatedTextsShareNoBand() {
+        String other = "Today we talk with a marine biologist about how octopuses solve puzzles and what that " +
+                "tells us about the evolution of intelligence in animals without a central brain.";
+
+        assertThat(sharedBands(AD_READ, other)).isZero();
+    }
+
+    @Test
+    void signatureIsDeterministic() {
+        assertThat(MinHash.signature(AD_READ, 64)).isEqualTo(MinHash.signature(AD_READ, 64));
+    }
+
+    private int sharedBands(String a, String b) {
+        long[] bandsA = MinHash.bandHashes(MinHash.signature(a, 64), 16);
+        long[] bandsB = MinHash.bandHashes(MinHash.signature(b, 64), 16);
+        int shared = 0;
+        for (int i = 0; i < bandsA.length; i++) {
+            if (bandsA[i] == bandsB[i]) {
+                shared++;
+            }
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,128 @@
+package com.podcast.indexer.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartFileUploaderTest {
+
+    private static final long ONE_GIB = 1024L * 1024 * 1024;
+    private static final long MAX_ALLOCATED_BYTES = 32L * 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private HttpServer server;
+    private final AtomicLong receivedBytes = new AtomicLong();
+    private final AtomicReference<String> receivedTransferEncoding = new AtomicReference<>();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/transcribe", exchange -> {
+            receivedTransferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+            byte[] buffer = new byte[64 * 1024];
+            long total = 0;
+            try (InputStream in = exchange.getRequestBody()) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    total += read;
+                }
+            }
+            receivedBytes.set(total);
+            byte[] response = "{\"text\":\"ok\",\"segments\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.createContext("/broken", exchange -> {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            byte[] response = "boom".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(500, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void uploadsOneGibibyteWithConstantHeap() throws IOException {
+        Path file = tempDir.resolve("large.mp3");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(ONE_GIB);
+        }
+        MultipartFileUploader uploader = new MultipartFileUploader(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(60));
+
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+
+        String body = uploader.upload("/transcribe", "file", file, "application/json",
+                (in, contentType) -> new String(in.readAllBytes(), StandardCharsets.UTF_8));
+
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertThat(body).contains("\"segments\"");
+        assertThat(receivedTransferEncoding.get()).isEqualToIgnoringCase("chunked");
+        assertThat(receivedBytes.get()).isGreaterThan(ONE_GIB);
+        assertThat(allocated).isLessThan(MAX_ALLOCATED_BYTES);
+    }
+
+    @Test
+    void uploadFailsWithResponseBodyOnServerError() throws IOException {
+        Path file = tempDir.resolve("small.mp3");
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(1024);
+        }
+        MultipartFileUploader uploader = new MultipartFileUploader(
+                URI.create("http://127.0.0.1:" + server.getAddress().getPort()),
+                Duration.ofSeconds(5),
+                Duration.ofSeconds(5));
+
+        assertThatThrownBy(() -> uploader.upload("/broken", "file", file, "application/json",
+                (in, contentType) -> null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 500")
+                .hasMessageContaining("boom");
+    }
+
+    @Test
+    void pathIsAppendedToThePathOfTheBaseUri() {
+        assertThat(MultipartFileUploader.resolve(URI.create("http://gw/whisper"), "/transcribe"))
+                .isEqualTo(URI.create("http://gw/whisper/transcribe"));
+        assertThat(MultipartFileUploader.resolve(URI.create("http://gw/whisper/"), "transcribe"))
+                .isEqualTo(URI.create("http://gw/whisper/transcribe"));
+        assertThat(MultipartFileUploader.resolve(URI.create("http://whisper:9000"), "/transcribe"))
+                .isEqualTo(URI.create("http://whisper:9000/transcribe"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.podcast.indexer.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class PgCopyUtilsTest {
+
+    private final ByteArrayOutputStream copied = new ByteArrayOutputStream();
+    private Connection connection;
+    private CopyManager copyManager;
+    private CopyIn copyIn;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        connection = mock(Connection.class);
+        PGConnection pgConnection = mock(PGConnection.class);
+        copyManager = mock(CopyManager.class);
+        copyIn = mock(CopyIn.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+        when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+        when(copyManager.copyIn(any())).thenReturn(copyIn);
+        when(copyIn.isActive()).thenReturn(true);
+        doAnswer(inv -> {
+            copied.write(inv.<byte[]>getArgument(0), inv.getArgument(1), inv.getArgument(2));
+            return null;
+        }).when(copyIn).writeToCopy(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void streamsRowsAsEscapedTextInOneCopy() throws Exception {
+        List<Object[]> rows = List.of(
+                new Object[]{1L, "tab\there", "[0.1,0.2]"},
+                new Object[]{2L, "line\nbreak \\ and\r", null});
+
+        long copiedRows = PgCopyUtils.copyIn(connection, "embedding_chunks", List.of("id", "text", "embedding"),
+                rows, row -> row);
+
+        assertThat(copiedRows).isEqualTo(2);
+        verify(copyManager).copyIn("COPY embedding_chunks (id, text, embedding) FROM STDIN");
+        verify(copyIn).endCopy();
+        assertThat(copied.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "1\ttab\\there\t[0.1,0.2]\n" +
+                "2\tline\\nbreak \\\\ and\\r\t\\N\n");
+    }
+
+    @Test
+    void emptyBatchDoesNotStartACopy() throws Exception {
+        long copiedRows = PgCopyUtils.copyIn(connection, "transcript_blocks", List.of("id"), List.<Object[]>of(), row -> row);
+
+        assertThat(copiedRows).isZero();
+        verifyNoInteractions(connection);
+    }
+}
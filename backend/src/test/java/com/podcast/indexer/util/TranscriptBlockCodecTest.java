@@ -0,0 +1,66 @@
+package com.podcast.indexer.util;
+
+import com.podcast.indexer.model.TranscriptSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TranscriptBlockCodecTest {
+
+    @Test
+    void roundTripsSegments() {
+        List<TranscriptSegment> segments = List.of(
+                segment(3, 7_200_000L, 7_204_500L, " Welcome back to the show."),
+                segment(4, 7_204_500L, 7_204_500L, ""),
+                segment(5, 7_204_400L, 7_210_000L, "Ünïcödé\ttabs\nand newlines")
+        );
+
+        byte[] data = TranscriptBlockCodec.encode(segments);
+        List<TranscriptSegment> decoded = TranscriptBlockCodec.decode(data, 2, 3);
+
+        assertThat(decoded).hasSize(3);
+        for (int i = 0; i < segments.size(); i++) {
+            assertThat(decoded.get(i).getPartIndex()).isEqualTo(2);
+            assertThat(decoded.get(i).getSegmentIndex()).isEqualTo(segments.get(i).getSegmentIndex());
+            assertThat(decoded.get(i).getStartMs()).isEqualTo(segments.get(i).getStartMs());
+            assertThat(decoded.get(i).getEndMs()).isEqualTo(segments.get(i).getEndMs());
+            assertThat(decoded.get(i).getText()).isEqualTo(segments.get(i).getText());
+        }
+    }
+
+    @Test
+    void compressesRepetitiveTranscripts() {
+        List<TranscriptSegment> segments = new ArrayList<>();
+        int rawBytes = 0;
+        for (int i = 0; i < 100; i++) {
+            String text = "This episode is brought to you by our sponsor, segment " + i;
+            segments.add(segment(i, i * 4_000L, i * 4_000L + 3_900L, text));
+            rawBytes += text.length() + 2 * Long.BYTES;
+        }
+
+        byte[] data = TranscriptBlockCodec.encode(segments);
+
+        assertThat(data.length).isLessThan(rawBytes / 4);
+        assertThat(TranscriptBlockCodec.decode(data, 0, 0)).hasSize(100);
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThatThrownBy(() -> TranscriptBlockCodec.decode(new byte[]{42}, 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private TranscriptSegment segment(int index, long startMs, long endMs, String text) {
+        return TranscriptSegment.builder()
+                .partIndex(2)
+                .segmentIndex(index)
+                .startMs(startMs)
+                .endMs(endMs)
+                .text(text)
+                .build();
+    }
+}
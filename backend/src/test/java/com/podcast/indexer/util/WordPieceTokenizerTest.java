@@ -0,0 +1,40 @@
+package com.podcast.indexer.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WordPieceTokenizerTest {
+
+    private static final List<String> VOCABULARY = List.of(
+            "[PAD]", "[UNK]", "[CLS]", "[SEP]", "hello", "world", "pod", "##cast", "##s", "cafe", ",", "!");
+
+    private final WordPieceTokenizer tokenizer = new WordPieceTokenizer(vocabulary(), true);
+
+    @Test
+    void splitsPunctuationAndWordPieces() {
+        assertThat(tokenizer.encode("Podcasts, hello!", 16)).containsExactly(2, 6, 7, 8, 10, 4, 11, 3);
+    }
+
+    @Test
+    void unknownWordsAndAccentsAreHandled() {
+        assertThat(tokenizer.encode("Café podx", 16)).containsExactly(2, 9, 1, 3);
+    }
+
+    @Test
+    void truncatesToMaxLengthKeepingSeparator() {
+        assertThat(tokenizer.encode("hello world hello world", 4)).containsExactly(2, 4, 5, 3);
+    }
+
+    private static Map<String, Integer> vocabulary() {
+        Map<String, Integer> vocabulary = new HashMap<>();
+        for (int i = 0; i < VOCABULARY.size(); i++) {
+            vocabulary.put(VOCABULARY.get(i), i);
+        }
+        return vocabulary;
+    }
+}
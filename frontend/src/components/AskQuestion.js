@@ -119,6 +119,7 @@ function AskQuestion() {
                     <strong>{citation.episodeTitle}</strong>
                     <span className="timestamp">
                       {formatTimestamp(citation.startMs)} - {formatTimestamp(citation.endMs)}
+                      {citation.score != null && ` · ${Math.round(citation.score * 100)}% match`}
                     </span>
                   </div>
                   <p className="citation-snippet">{citation.textSnippet}</p>
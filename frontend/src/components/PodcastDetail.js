@@ -1,19 +1,31 @@
-import React, { useState, useEffect, useCallback } from 'react';
-import { useParams, Link } from 'react-router-dom';
-import { podcastApi } from '../services/api';
+import React, { useState, useEffect, useCallback, useRef } from 'react';
+import { useParams, Link, useNavigate } from 'react-router-dom';
+import { podcastApi, episodeApi } from '../services/api';
 import './PodcastDetail.css';
 
 function PodcastDetail() {
   const { id } = useParams();
+  const navigate = useNavigate();
   const [podcast, setPodcast] = useState(null);
+  const [episodes, setEpisodes] = useState([]);
+  const [nextCursor, setNextCursor] = useState(null);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [loading, setLoading] = useState(true);
   const [syncing, setSyncing] = useState(false);
   const [error, setError] = useState(null);
+  // Descriptions make pages many times larger, so they are only fetched while shown
+  const [showDescriptions, setShowDescriptions] = useState(false);
+  const showDescriptionsRef = useRef(false);
 
   const loadPodcast = useCallback(async () => {
     try {
-      const response = await podcastApi.getPodcast(id);
-      setPodcast(response.data);
+      const [podcastResponse, episodesResponse] = await Promise.all([
+        podcastApi.getPodcast(id),
+        podcastApi.getEpisodes(id, { includeDescription: showDescriptionsRef.current }),
+      ]);
+      setPodcast(podcastResponse.data);
+      setEpisodes(episodesResponse.data.episodes);
+      setNextCursor(episodesResponse.data.nextCursor);
       setLoading(false);
     } catch (err) {
       setError('Failed to load podcast');
@@ -22,12 +34,88 @@ function PodcastDetail() {
     }
   }, [id]);
 
+  // Merges a fresh first page into the list, keeping pages loaded further down
+  const refreshEpisodes = useCallback(async () => {
+    try {
+      const [podcastResponse, episodesResponse] = await Promise.all([
+        podcastApi.getPodcast(id),
+        podcastApi.getEpisodes(id, { includeDescription: showDescriptionsRef.current }),
+      ]);
+      const fresh = episodesResponse.data.episodes;
+      setPodcast(podcastResponse.data);
+      setEpisodes((current) => {
+        const freshById = new Map(fresh.map((episode) => [episode.id, episode]));
+        const known = new Set(current.map((episode) => episode.id));
+        const added = fresh.filter((episode) => !known.has(episode.id));
+        return [...added, ...current.map((episode) => freshById.get(episode.id) || episode)];
+      });
+    } catch (err) {
+      console.error(err);
+    }
+  }, [id]);
+
+  const loadMore = async () => {
+    setLoadingMore(true);
+    try {
+      const response = await podcastApi.getEpisodes(id, {
+        cursor: nextCursor,
+        includeDescription: showDescriptionsRef.current,
+      });
+      setEpisodes((current) => [...current, ...response.data.episodes]);
+      setNextCursor(response.data.nextCursor);
+    } catch (err) {
+      setError('Failed to load episodes');
+      console.error(err);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
+  const applyEvent = useCallback((event) => {
+    if (event.type === 'ADDED') {
+      setEpisodes((current) => {
+        if (current.some((episode) => episode.id === event.episodeId)) return current;
+        const added = {
+          id: event.episodeId,
+          podcastId: event.podcastId,
+          title: event.title,
+          publishedDate: event.publishedDate,
+          status: event.status,
+        };
+        return [added, ...current];
+      });
+      setPodcast((current) => current && { ...current, episodeCount: (current.episodeCount || 0) + 1 });
+      return;
+    }
+    setEpisodes((current) => current.map((episode) => episode.id === event.episodeId
+      ? {
+          ...episode,
+          status: event.status,
+          durationSeconds: event.durationSeconds ?? episode.durationSeconds,
+        }
+      : episode));
+  }, []);
+
   useEffect(() => {
+    // Processing updates are pushed as they happen instead of polled. The page loads once
+    // the stream is open, so nothing in between is missed, or right away if it cannot
+    // open; whatever happened while it was reconnecting is caught up by reloading the first page
+    let loaded = false;
+    const load = () => {
+      if (!loaded) {
+        loaded = true;
+        loadPodcast();
+      }
+    };
+    const catchUp = () => (loaded ? refreshEpisodes() : load());
+    return podcastApi.subscribeToEvents(id, applyEvent, catchUp, load);
+  }, [id, loadPodcast, applyEvent, refreshEpisodes]);
+
+  const toggleDescriptions = (event) => {
+    showDescriptionsRef.current = event.target.checked;
+    setShowDescriptions(event.target.checked);
     loadPodcast();
-    // Refresh every 10 seconds to show processing updates
-    const interval = setInterval(loadPodcast, 10000);
-    return () => clearInterval(interval);
-  }, [loadPodcast]);
+  };
 
   const handleSync = async () => {
     setSyncing(true);
@@ -42,6 +130,28 @@ function PodcastDetail() {
     }
   };
 
+  const handleDelete = async () => {
+    if (!window.confirm(`Delete "${podcast.title}" with all its episodes and transcripts?`)) {
+      return;
+    }
+    try {
+      await podcastApi.deletePodcast(id);
+      navigate('/');
+    } catch (err) {
+      setError('Failed to delete podcast');
+      console.error(err);
+    }
+  };
+
+  const handleExpedite = async (episodeId) => {
+    try {
+      await episodeApi.expediteEpisode(episodeId);
+    } catch (err) {
+      setError('Failed to expedite episode');
+      console.error(err);
+    }
+  };
+
   const getStatusBadge = (status) => {
     const statusColors = {
       DISCOVERED: '#95a5a6',
@@ -83,23 +193,30 @@ function PodcastDetail() {
           <button onClick={handleSync} disabled={syncing} className="sync-button">
             {syncing ? 'Syncing...' : 'Sync Episodes'}
           </button>
+          <button onClick={handleDelete} className="delete-button">
+            Delete Podcast
+          </button>
         </div>
       </div>
 
       <div className="episodes-section">
-        <h3>Episodes ({podcast.episodes?.length || 0})</h3>
+        <h3>Episodes ({podcast.episodeCount || 0})</h3>
+        <label className="description-toggle">
+          <input type="checkbox" checked={showDescriptions} onChange={toggleDescriptions} />
+          Show descriptions
+        </label>
         
-        {!podcast.episodes || podcast.episodes.length === 0 ? (
+        {episodes.length === 0 ? (
           <p className="empty-state">No episodes yet. Click "Sync Episodes" to discover episodes.</p>
         ) : (
           <div className="episodes-list">
-            {podcast.episodes.map((episode) => (
+            {episodes.map((episode) => (
               <div key={episode.id} className="episode-card">
                 <div className="episode-header">
                   <h4>{episode.title}</h4>
                   {getStatusBadge(episode.status)}
                 </div>
-                {episode.description && (
+                {showDescriptions && episode.description && (
                   <p className="episode-description">{episode.description}</p>
                 )}
                 <div className="episode-meta">
@@ -109,9 +226,19 @@ function PodcastDetail() {
                   {episode.durationSeconds && (
                     <span>Duration: {Math.floor(episode.durationSeconds / 60)} min</span>
                   )}
+                  {episode.status !== 'INDEXED' && episode.status !== 'FAILED' && (
+                    <button onClick={() => handleExpedite(episode.id)} className="expedite-button">
+                      Process next
+                    </button>
+                  )}
                 </div>
               </div>
             ))}
+            {nextCursor && (
+              <button onClick={loadMore} disabled={loadingMore} className="load-more-button">
+                {loadingMore ? 'Loading...' : 'Load more episodes'}
+              </button>
+            )}
           </div>
         )}
       </div>
@@ -94,6 +94,13 @@ function PodcastList() {
                     Last synced: {new Date(podcast.lastSyncedAt).toLocaleDateString()}
                   </p>
                 )}
+                {podcast.stats && podcast.stats.totalEpisodes > 0 && (
+                  <p className="pipeline-stats">
+                    {podcast.stats.episodeCounts.INDEXED || 0} of {podcast.stats.totalEpisodes} episodes indexed
+                    {' '}({Math.round(podcast.stats.indexedDurationSeconds / 3600)} h)
+                    {podcast.stats.episodeCounts.FAILED > 0 && `, ${podcast.stats.episodeCounts.FAILED} failed`}
+                  </p>
+                )}
               </div>
             </Link>
           ))
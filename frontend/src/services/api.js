@@ -12,11 +12,28 @@ const api = axios.create({
 export const podcastApi = {
   getAllPodcasts: () => api.get('/podcasts'),
   getPodcast: (id) => api.get(`/podcasts/${id}`),
+  // Newest first; pass the returned nextCursor as cursor for the next page
+  getEpisodes: (id, { cursor, limit, includeDescription } = {}) =>
+    api.get(`/podcasts/${id}/episodes`, { params: { cursor, limit, includeDescription } }),
   addPodcast: (feedUrl, downloadUntilDate) => api.post('/podcasts', {
     feedUrl,
     downloadUntilDate: downloadUntilDate || null,
   }),
   syncPodcast: (id) => api.post(`/podcasts/${id}/sync`),
+  deletePodcast: (id) => api.delete(`/podcasts/${id}`),
+  // Server-sent episode events; the browser reconnects on its own. Events sent while
+  // disconnected are lost, so onOpen fires on every (re)connect to reload what was missed.
+  subscribeToEvents: (id, onEvent, onOpen, onError) => {
+    const source = new EventSource(`${API_BASE_URL}/podcasts/${id}/events`);
+    source.addEventListener('episode', (message) => onEvent(JSON.parse(message.data)));
+    if (onOpen) source.onopen = onOpen;
+    if (onError) source.onerror = onError;
+    return () => source.close();
+  },
+};
+
+export const episodeApi = {
+  expediteEpisode: (id) => api.post(`/episodes/${id}/expedite`),
 };
 
 export const qaApi = {
@@ -1,6 +1,7 @@
-from flask import Flask, request, jsonify
+from flask import Flask, Response, request, jsonify, stream_with_context
 import whisper
 import tempfile
+import json
 import os
 
 app = Flask(__name__)
@@ -31,6 +32,10 @@ def transcribe():
         audio_file.save(tmp_file.name)
         tmp_path = tmp_file.name
     
+    if request.accept_mimetypes.best == 'application/x-ndjson':
+        return Response(stream_with_context(stream_segments(tmp_path)),
+                        mimetype='application/x-ndjson')
+    
     try:
         # Transcribe
         result = model.transcribe(tmp_path, verbose=False)
@@ -38,15 +43,7 @@ def transcribe():
         # Format response
         response = {
             "text": result["text"],
-            "segments": [
-                {
-                    "id": seg["id"],
-                    "start": seg["start"],
-                    "end": seg["end"],
-                    "text": seg["text"]
-                }
-                for seg in result["segments"]
-            ]
+            "segments": [format_segment(seg) for seg in result["segments"]]
         }
         
         return jsonify(response)
@@ -55,5 +52,30 @@ def transcribe():
         if os.path.exists(tmp_path):
             os.remove(tmp_path)
 
+def stream_segments(tmp_path):
+    """Emit one JSON object per line so the client can persist segments as they arrive.
+
+    openai-whisper only returns once the whole file is decoded, so segments are
+    flushed after transcription; a decoder that yields segments lazily can be
+    dropped in here without changing the wire format.
+    """
+    try:
+        result = model.transcribe(tmp_path, verbose=False)
+        for seg in result["segments"]:
+            yield json.dumps(format_segment(seg)) + "\n"
+    except Exception as e:
+        yield json.dumps({"error": str(e)}) + "\n"
+    finally:
+        if os.path.exists(tmp_path):
+            os.remove(tmp_path)
+
+def format_segment(seg):
+    return {
+        "id": seg["id"],
+        "start": seg["start"],
+        "end": seg["end"],
+        "text": seg["text"]
+    }
+
 if __name__ == '__main__':
     app.run(host='0.0.0.0', port=8000)